@@ -0,0 +1,136 @@
+package org.physics.bdg;
+
+import java.util.List;
+
+import no.uib.cipr.matrix.DenseVector;
+import no.uib.cipr.matrix.Vector;
+
+import org.physics.bdg.BdGHamiltonian.Observables;
+
+/**
+ * 混合法の基底クラス</br>
+ * 超流動パラメータ、アップスピン粒子数、ダウンスピン粒子数をこの順に1本の配列へ連結して混合する
+ *
+ * @author y-ok
+ */
+abstract class AbstractMixer implements Mixer {
+
+	// 入力の重み w
+	protected final double m_weightFactor;
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param weightFactor 入力の重み w
+	 */
+	protected AbstractMixer(double weightFactor) {
+		m_weightFactor = weightFactor;
+	}
+
+	/**
+	 * 超流動パラメータと粒子数を1本の配列へ連結する
+	 *
+	 * @param observables 超流動パラメータと粒子数
+	 * @return 連結した配列
+	 */
+	protected static double[] pack(Observables observables) {
+
+		Vector[] vectors = toArray(observables);
+		int length = 0;
+		for (Vector vector : vectors) {
+			length += vector.size();
+		}
+		double[] packed = new double[length];
+		int offset = 0;
+		for (Vector vector : vectors) {
+			for (int i = 0; i < vector.size(); i++) {
+				packed[offset + i] = vector.get(i);
+			}
+			offset += vector.size();
+		}
+		return packed;
+	}
+
+	/**
+	 * 連結した配列を超流動パラメータと粒子数に分割する
+	 *
+	 * @param packed 連結した配列
+	 * @param template 各ベクトルの長さを与える超流動パラメータと粒子数
+	 * @return 超流動パラメータと粒子数
+	 */
+	protected static Observables unpack(double[] packed, Observables template) {
+
+		Vector[] vectors = toArray(template);
+		DenseVector[] result = new DenseVector[vectors.length];
+		int offset = 0;
+		for (int k = 0; k < vectors.length; k++) {
+			double[] data = new double[vectors[k].size()];
+			System.arraycopy(packed, offset, data, 0, data.length);
+			result[k] = new DenseVector(data, false);
+			offset += data.length;
+		}
+		return new Observables(result[0], result[1], result[2]);
+	}
+
+	/**
+	 * 前回の値と、入力と残差の差分の履歴を反復の履歴の末尾に追加する</br>
+	 * 先頭に前回の値ごとの有無(1: あり、0: なし)と差分の履歴の長さを並べた配列を置き、
+	 * 続けて値がある前回の値、入力と残差の差分の組(古い順)を並べる
+	 *
+	 * @param state 反復の履歴の出力先
+	 * @param previous 前回の値 (ない場合は null)
+	 * @param inputDifference 入力の差分の履歴
+	 * @param residualDifference 残差の差分の履歴
+	 */
+	protected static void addHistoryState(List<double[]> state, List<double[]> previous, List<double[]> inputDifference, List<double[]> residualDifference) {
+		double[] header = new double[previous.size() + 1];
+		for (int k = 0; k < previous.size(); k++) {
+			header[k] = (previous.get(k) == null) ? 0 : 1;
+		}
+		header[previous.size()] = residualDifference.size();
+		state.add(header);
+		for (double[] array : previous) {
+			if (array != null) {
+				state.add(array.clone());
+			}
+		}
+		for (int i = 0; i < residualDifference.size(); i++) {
+			state.add(inputDifference.get(i).clone());
+			state.add(residualDifference.get(i).clone());
+		}
+	}
+
+	/**
+	 * 反復の履歴の offset 番目以降から、{@link #addHistoryState(List, List, List, List)} で追加した前回の値と差分の履歴を復元する
+	 *
+	 * @param state 反復の履歴
+	 * @param offset 先頭の配列の位置
+	 * @param previous 前回の値の復元先 (ない場合は null とする)
+	 * @param inputDifference 入力の差分の履歴の復元先
+	 * @param residualDifference 残差の差分の履歴の復元先
+	 */
+	protected static void setHistoryState(List<double[]> state, int offset, double[][] previous, List<double[]> inputDifference, List<double[]> residualDifference) {
+		double[] header = state.get(offset);
+		if (header.length != previous.length + 1) {
+			throw new IllegalArgumentException("Invalid mixer state header: " + header.length);
+		}
+		int index = offset + 1;
+		for (int k = 0; k < previous.length; k++) {
+			previous[k] = (header[k] == 0) ? null : state.get(index++).clone();
+		}
+		int historyLength = (int) header[previous.length];
+		if (state.size() != index + 2 * historyLength) {
+			throw new IllegalArgumentException("Invalid mixer state: " + state.size());
+		}
+		inputDifference.clear();
+		residualDifference.clear();
+		for (int i = 0; i < historyLength; i++) {
+			inputDifference.add(state.get(index + 2 * i).clone());
+			residualDifference.add(state.get(index + 2 * i + 1).clone());
+		}
+	}
+
+	private static Vector[] toArray(Observables observables) {
+		return new Vector[] { observables.getPairPotentialEnergy(), observables.getUpParticleNumber(), observables.getDownParticleNumber() };
+	}
+}
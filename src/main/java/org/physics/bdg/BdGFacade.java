@@ -1,15 +1,18 @@
 package org.physics.bdg;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
+import org.physics.bdg.BdGHamiltonian.Observables;
 import org.physics.bdg.BdGHamiltonian.OrderParameters;
-import org.physics.bdg.BdGHamiltonian.SpinState;
 
-import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Multimap;
 
 import no.uib.cipr.matrix.Matrix;
 import no.uib.cipr.matrix.Vector;
@@ -22,14 +25,44 @@ import no.uib.cipr.matrix.Vector;
  */
 public class BdGFacade {
 
-	private ParameterFile paramInfo = new ParameterFile();
-	private PathInfo pathInfo = new PathInfo();
-	private ParamInfo param = new ParamInfo();
+	private ParameterFile paramInfo;
+	private PathInfo pathInfo;
+	private ParamInfo param;
 	private Matrix BdGHamiltonian;
 	private Vector vecPairPotentialEnergy;
 	private Vector vecUpParticleNumber;
 	private Vector vecDownParticleNumber;
 	private List<BdGResultInfo> bdgResultList = Lists.newArrayList();
+	private EigenValueWorkspacePool workspacePool;
+	private EigenValueWorkspace workspace;
+	private EigenSolverBackend backend;
+	private Mixer mixer;
+	private Observables warmStartSolution;
+	private List<double[]> warmStartRitzVectors;
+	private double currentTemperature;
+
+	/**
+	 * コンストラクタ</br>
+	 * パラメータ情報は {@link #setUp()} で読み込む
+	 */
+	public BdGFacade() {
+		this(new ParameterFile(), new PathInfo(), new EigenValueWorkspacePool());
+	}
+
+	/**
+	 * コンストラクタ</br>
+	 * 読み込み済みのパラメータ情報で計算する。同一JVM内で複数の計算を並列に実行する場合は、計算ごとに生成する
+	 * 
+	 * @param paramInfo パラメータファイル
+	 * @param pathInfo パス情報
+	 * @param workspacePool 作業領域プール (複数の計算で共有可能)
+	 */
+	public BdGFacade(ParameterFile paramInfo, PathInfo pathInfo, EigenValueWorkspacePool workspacePool) {
+		this.paramInfo = paramInfo;
+		this.pathInfo = pathInfo;
+		this.param = paramInfo.getParamInfo();
+		this.workspacePool = workspacePool;
+	}
 
 	/**
 	 * パラメータ情報の読み込み
@@ -55,6 +88,232 @@ public class BdGFacade {
 		return param.getTemperature();
 	}
 
+	/**
+	 * 温度掃引の順序に並べた温度を取得する
+	 * 
+	 * @return 温度掃引の順序に並べた温度と往路・復路のラベル
+	 */
+	public List<TemperatureSweep.Point> getTemperatureSweep() {
+		return new TemperatureSweep(param.getTemperature(), TemperatureSweep.Order.of(param.getTemperatureSweepOrder())).getPoints();
+	}
+
+	/**
+	 * 温度掃引の全点を計算し、計算結果を掃引の順に追加する</br>
+	 * 直前の温度の解から開始する場合と疎行列ファイルを経由する場合は1点ずつ順に計算する。
+	 * それ以外は各点を独立なジョブとして、ヒープに収まる数だけ並列に計算する
+	 * 
+	 * @throws IOException
+	 *             入出力関係
+	 */
+	public void solveTemperatureSweep() throws IOException {
+
+		List<TemperatureSweep.Point> sweep = getTemperatureSweep();
+		BdGJobScheduler scheduler = new BdGJobScheduler(param.getJobNumber());
+		if (param.getTemperatureSweepWarmStart() || param.getUseSparseMatrix() || scheduler.getJobNumber() == 1 || sweep.size() <= 1) {
+			for (TemperatureSweep.Point point : sweep) {
+				solveSweepPoint(point);
+			}
+			return;
+		}
+
+		final long memory = BdGJobScheduler.estimateMemory(param);
+		System.out.println("Jobs: " + scheduler.getJobNumber() + ", estimated memory per job: " + (memory >> 20) + " MB, memory budget: " + (scheduler.getMemoryBudget() >> 20) + " MB");
+
+		List<BdGJobScheduler.Job<BdGResultInfo>> jobs = Lists.newArrayList();
+		for (final TemperatureSweep.Point point : sweep) {
+			jobs.add(new BdGJobScheduler.Job<BdGResultInfo>() {
+				@Override
+				public long getEstimatedMemory() {
+					return memory;
+				}
+
+				@Override
+				public BdGResultInfo call() throws IOException {
+					BdGFacade facade = new BdGFacade(paramInfo, pathInfo, workspacePool);
+					facade.solveSweepPoint(point);
+					return facade.bdgResultList.get(0);
+				}
+			});
+		}
+
+		try {
+			bdgResultList.addAll(scheduler.invokeAll(jobs));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Temperature sweep is interrupted.");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	/**
+	 * 温度掃引の1点を計算し、計算結果を追加する</br>
+	 * チェックポイントからの再開が指定されている場合、計算が終了した点はチェックポイントに保存した計算結果を用い、
+	 * 計算中の点は保存した反復から再開する
+	 * 
+	 * @param point
+	 *            温度掃引の点
+	 * @throws IOException
+	 *             入出力関係
+	 */
+	public void solveSweepPoint(TemperatureSweep.Point point) throws IOException {
+
+		ScfCheckpoint checkpoint = param.getCheckpointRestart() ? readCheckpoint(point) : null;
+		if (checkpoint != null && checkpoint.isCompleted()) {
+			vecPairPotentialEnergy = checkpoint.getObservables().getPairPotentialEnergy();
+			vecUpParticleNumber = checkpoint.getObservables().getUpParticleNumber();
+			vecDownParticleNumber = checkpoint.getObservables().getDownParticleNumber();
+			currentTemperature = point.getTemperature();
+			warmStartSolution = checkpoint.getObservables();
+			addBdGResult(point.getLabel());
+			return;
+		}
+
+		// BdGハミルトニアン作成
+		BdGHamiltonian hamiltonian = makeBdGHamiltonian(point.getTemperature(), checkpoint == null);
+
+		// BdGハミルトニアン対角化
+		solveEigenEq(hamiltonian, point.getTemperature(), point.getLabel(), checkpoint);
+
+		addBdGResult(point.getLabel());
+	}
+
+	/**
+	 * 温度掃引の点のチェックポイントファイルのパスを取得する (例: output/Result_T=0.1_up.chk)
+	 * 
+	 * @param temperature
+	 *            温度
+	 * @param sweepLabel
+	 *            温度掃引の往路・復路のラベル
+	 * @return チェックポイントファイルのパス
+	 */
+	private Path getCheckpointPath(double temperature, String sweepLabel) {
+		String strSuffix = (sweepLabel == null || sweepLabel.isEmpty()) ? "" : "_" + sweepLabel;
+		return Paths.get(pathInfo.getStrPwd(), pathInfo.getOutputPath() + "T=" + String.valueOf(temperature) + strSuffix + ".chk");
+	}
+
+	/**
+	 * 温度掃引の点のチェックポイントを読み込む</br>
+	 * 読み込めない場合と、パラメータの指紋、温度、ラベル、格子点数が一致しない場合は用いず、その点を計算し直す
+	 * 
+	 * @param point
+	 *            温度掃引の点
+	 * @return チェックポイント (ない場合、読み込めない場合、または一致しない場合は null)
+	 */
+	private ScfCheckpoint readCheckpoint(TemperatureSweep.Point point) {
+
+		Path path = getCheckpointPath(point.getTemperature(), point.getLabel());
+		int latticeSize = param.getLatticeSize();
+		ScfCheckpoint checkpoint = ScfCheckpoint.readForRestart(path, param.getFingerprint(), point.getTemperature(), point.getLabel(), 2 * latticeSize * latticeSize);
+		if (checkpoint != null) {
+			System.out.println("Restart from checkpoint: " + path + (checkpoint.isCompleted() ? " (completed)" : ", iteration: " + checkpoint.getIteration()));
+		}
+		return checkpoint;
+	}
+
+	/**
+	 * パラメータ掃引の全点を計算し、掃引点ごとに計算結果を出力する</br>
+	 * 掃引点ごとにパラメータ情報を複製して値を設定し、温度掃引を計算する。同一JVM内で作業領域プールを共有して計算し、
+	 * 1点終了するごとにマニフェストファイルへ記録する。再実行時はマニフェストに記録済みの掃引点を省く。
+	 * 掃引しないパラメータを変更した場合はマニフェストを破棄し、全点を計算し直す</br>
+	 * 結果は掃引点のキーを付けた結果出力パスに出力する (例: output/Result_magnetic-field=0.5_T=1.0.txt)
+	 * 
+	 * @throws IOException
+	 *             入出力関係
+	 */
+	public void solveParameterSweep() throws IOException {
+
+		ParameterSweep sweep = new ParameterSweep(param.getParameterSweepAxes());
+		final SweepManifest manifest = new SweepManifest(new File(pathInfo.getStrPwd(), param.getParameterSweepManifest()), sweep.getBaseFingerprint(param));
+		List<Map<String, String>> points = sweep.getPoints();
+
+		List<Map<String, String>> remainingPoints = Lists.newArrayList();
+		for (Map<String, String> point : points) {
+			if (!manifest.isCompleted(ParameterSweep.toKey(point))) {
+				remainingPoints.add(point);
+			}
+		}
+		BdGJobScheduler scheduler = new BdGJobScheduler(param.getJobNumber());
+		boolean concurrent = scheduler.getJobNumber() > 1 && remainingPoints.size() > 1 && !param.getUseSparseMatrix();
+		System.out.println("Parameter sweep: " + points.size() + " points, " + (points.size() - remainingPoints.size()) + " completed, " + (concurrent ? scheduler.getJobNumber() : 1) + " jobs");
+
+		List<BdGJobScheduler.Job<String>> jobs = Lists.newArrayList();
+		for (final Map<String, String> point : remainingPoints) {
+			final String key = ParameterSweep.toKey(point);
+			final ParamInfo pointParam = param.copy();
+			ParameterSweep.apply(pointParam, point);
+			if (concurrent) {
+				// 掃引点を並列に計算する場合は、各掃引点の温度掃引を1点ずつ計算する
+				pointParam.setJobNumber(1);
+			}
+			final PathInfo pointPath = pathInfo.copy();
+			pointPath.setOutputPath(pathInfo.getOutputPath() + key.replace(',', '_') + "_");
+			final long memory = BdGJobScheduler.estimateMemory(pointParam);
+
+			jobs.add(new BdGJobScheduler.Job<String>() {
+				@Override
+				public long getEstimatedMemory() {
+					return memory;
+				}
+
+				@Override
+				public String call() throws IOException {
+					System.out.println("Sweep point: " + key);
+					BdGFacade facade = new BdGFacade(new ParameterFile(pointParam), pointPath, workspacePool);
+					facade.solveTemperatureSweep();
+					facade.outputCalculationResult();
+					manifest.markCompleted(key);
+					return key;
+				}
+			});
+		}
+
+		if (!concurrent) {
+			for (BdGJobScheduler.Job<String> job : jobs) {
+				try {
+					job.call();
+				} catch (IOException | RuntimeException e) {
+					throw e;
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			}
+			return;
+		}
+
+		try {
+			scheduler.invokeAll(jobs);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Parameter sweep is interrupted.");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	/**
+	 * パラメータ掃引を行うかどうか
+	 * 
+	 * @return 掃引軸が指定されている場合 true
+	 */
+	public boolean isParameterSweep() {
+		return !param.getParameterSweepAxes().isEmpty();
+	}
+
 	/**
 	 * BdGハミルトニアンの作成
 	 * 
@@ -65,8 +324,35 @@ public class BdGFacade {
 	 *             入出力関係
 	 */
 	public BdGHamiltonian makeBdGHamiltonian(double temperature) throws IOException {
+		return makeBdGHamiltonian(temperature, true);
+	}
 
-		BdGHamiltonian Hamiltonian = new BdGHamiltonian(paramInfo, pathInfo);
+	/**
+	 * BdGハミルトニアンの作成
+	 * 
+	 * @param temperature
+	 *            温度
+	 * @param useCoarseLattice
+	 *            粗い格子の解から初期値を作成してよい場合 true (チェックポイントから再開する場合は false)
+	 * @return BdGハミルトニアン
+	 * @throws IOException
+	 *             入出力関係
+	 */
+	private BdGHamiltonian makeBdGHamiltonian(double temperature, boolean useCoarseLattice) throws IOException {
+
+		// 直前の温度の解がない場合は、粗い格子で同じトラップの解を求めて初期値とする
+		Observables coarseSolution = null;
+		boolean warmStart = param.getTemperatureSweepWarmStart() && warmStartSolution != null;
+		if (useCoarseLattice && !warmStart && MultigridInitializer.isApplicable(param)) {
+			coarseSolution = solveCoarseLattice(temperature);
+		}
+
+		// 作業領域は全温度で再利用する
+		if (workspace == null) {
+			int latticeSize = param.getLatticeSize();
+			workspace = workspacePool.acquire(2 * latticeSize * latticeSize);
+		}
+		BdGHamiltonian Hamiltonian = new BdGHamiltonian(paramInfo, pathInfo, workspace);
 
 		// 粒子数&超流動パラメータ初期値取得
 		OrderParameters orderparam = Hamiltonian.getInitOrderParameter();
@@ -74,12 +360,60 @@ public class BdGFacade {
 		vecUpParticleNumber = orderparam.getInitVecUpParticleNumber();
 		vecDownParticleNumber = orderparam.getInitVecDownParticleNumber();
 
-		Hamiltonian.makeBdGHamiltonian(vecPairPotentialEnergy, vecUpParticleNumber, vecDownParticleNumber, temperature);
-		BdGHamiltonian = Hamiltonian.getBdGHamiltonian();
+		if (coarseSolution != null) {
+			vecPairPotentialEnergy = coarseSolution.getPairPotentialEnergy();
+			vecUpParticleNumber = coarseSolution.getUpParticleNumber();
+			vecDownParticleNumber = coarseSolution.getDownParticleNumber();
+		} else if (!warmStart && LdaInitializer.LDA.equalsIgnoreCase(param.getInitialGuess().trim())) {
+			// 格子点ごとの局所的な化学ポテンシャルの一様系の解を初期値とする
+			Observables ldaSolution = Hamiltonian.getLdaInitOrderParameter(temperature, param.getLdaKPoints());
+			vecPairPotentialEnergy = ldaSolution.getPairPotentialEnergy();
+			vecUpParticleNumber = ldaSolution.getUpParticleNumber();
+			vecDownParticleNumber = ldaSolution.getDownParticleNumber();
+		}
+
+		// 温度掃引では直前の温度で収束した値から開始する
+		// ただし超流動パラメータが0の解(常流動状態)は全温度で自己無撞着解となるため、超流動パラメータのみ初期値に戻す
+		if (warmStart) {
+			if (!isNormalState(warmStartSolution.getPairPotentialEnergy())) {
+				vecPairPotentialEnergy = warmStartSolution.getPairPotentialEnergy().copy();
+			}
+			vecUpParticleNumber = warmStartSolution.getUpParticleNumber().copy();
+			vecDownParticleNumber = warmStartSolution.getDownParticleNumber().copy();
+		}
+
+		// Lanczos法とカーネル多項式法では行列を作成せず、反復ごとに作用素を作成する
+		if (!isMatrixFreeEngine(Hamiltonian)) {
+			Hamiltonian.makeBdGHamiltonian(vecPairPotentialEnergy, vecUpParticleNumber, vecDownParticleNumber, temperature);
+			BdGHamiltonian = Hamiltonian.getBdGHamiltonian();
+		}
 
 		return Hamiltonian;
 	}
 
+	/**
+	 * 粗い格子で自己無撞着解を求め、元の格子へ補間する</br>
+	 * 粗い格子の初期値は、段数が残っていればさらに粗い格子から作成する
+	 * 
+	 * @param temperature
+	 *            温度
+	 * @return 元の格子へ補間した超流動パラメータと粒子数
+	 * @throws IOException
+	 *             入出力関係
+	 */
+	private Observables solveCoarseLattice(double temperature) throws IOException {
+
+		ParamInfo coarseParam = MultigridInitializer.makeCoarseParamInfo(param);
+		System.out.println("Multigrid: solve lattice-size " + coarseParam.getLatticeSize() + " for lattice-size " + param.getLatticeSize());
+
+		BdGFacade coarseFacade = new BdGFacade(new ParameterFile(coarseParam), pathInfo, workspacePool);
+		BdGHamiltonian coarseHamiltonian = coarseFacade.makeBdGHamiltonian(temperature);
+		coarseFacade.solveEigenEq(coarseHamiltonian, temperature);
+
+		Observables coarseSolution = new Observables(coarseFacade.vecPairPotentialEnergy, coarseFacade.vecUpParticleNumber, coarseFacade.vecDownParticleNumber);
+		return MultigridInitializer.interpolate(coarseSolution, coarseParam.getLatticeSize(), param.getLatticeSize());
+	}
+
 	/**
 	 * BdGハミルトニアンの対角化
 	 * 
@@ -91,51 +425,260 @@ public class BdGFacade {
 	 *             入出力関係
 	 */
 	public void solveEigenEq(BdGHamiltonian Hamiltonian, double temperature) throws IOException {
+		solveEigenEq(Hamiltonian, temperature, "", null);
+	}
 
-		SolverOfEigenValueEq solver = new SolverOfEigenValueEq();
+	/**
+	 * BdGハミルトニアンの対角化</br>
+	 * チェックポイントを書き出す間隔が指定されている場合、その反復ごとと計算終了時にチェックポイントを書き出す
+	 * 
+	 * @param Hamiltonian
+	 *            BdGハミルトニアン
+	 * @param temperature
+	 *            温度
+	 * @param sweepLabel
+	 *            温度掃引の往路・復路のラベル
+	 * @param checkpoint
+	 *            再開するチェックポイント (最初から計算する場合は null)
+	 * @throws IOException
+	 *             入出力関係
+	 */
+	public void solveEigenEq(BdGHamiltonian Hamiltonian, double temperature, String sweepLabel, ScfCheckpoint checkpoint) throws IOException {
 
-		System.out.println("Calculation is Start");
 		ParamInfo param = paramInfo.getParamInfo();
+		if (backend == null) {
+			backend = EigenSolverBackend.create(param.getEigenSolverBackend());
+			System.out.println("Eigen solver backend: " + backend.getName());
+		}
+		SolverOfEigenValueEq solver = new SolverOfEigenValueEq(workspace, backend);
 
-		OrderParameters orderparameters = Hamiltonian.getInitOrderParameter();
-		Vector tmpPairPotentialEnergy = orderparameters.getInitVecPairPotentialEnergy();
-
-		for (int cnt = 0; cnt < param.getIterationNum(); cnt++) {
+		boolean useLanczos = isLanczosEngine(Hamiltonian);
+		boolean useKpm = ScfEngine.of(param.getScfEngine()) == ScfEngine.KPM;
+		boolean useMomentum = isMomentumEngine(Hamiltonian);
+		boolean useTwist = isTwistedBoundary(Hamiltonian);
+		boolean isMatrixFree = useLanczos || useKpm || useMomentum || useTwist;
+		LanczosSolverOfEigenValueEq lanczosSolver = null;
+		KernelPolynomialSolver kpmSolver = null;
+		if (useKpm) {
+			kpmSolver = new KernelPolynomialSolver(backend, ComputePool.get(param.getThreadNumber()));
+			kpmSolver.setOrder(param.getKpmOrder());
+			kpmSolver.setKernel(KernelPolynomialSolver.Kernel.of(param.getKpmKernel()));
+			kpmSolver.setLorentzParameter(param.getKpmLorentzParameter());
+		} else if (useLanczos) {
+			lanczosSolver = new LanczosSolverOfEigenValueEq(workspace, backend, ComputePool.get(param.getThreadNumber()));
+			lanczosSolver.setSubspaceSize(param.getLanczosSubspaceSize());
+			lanczosSolver.setTolerance(param.getLanczosTolerance());
+			lanczosSolver.setMaxRestart(param.getLanczosMaxRestart());
+			lanczosSolver.setWarmStart(param.getLanczosWarmStart());
+			if (param.getTemperatureSweepWarmStartEigenVector() && warmStartRitzVectors != null) {
+				lanczosSolver.setRitzVectors(warmStartRitzVectors);
+			}
+		} else if (ScfEngine.of(param.getScfEngine()) == ScfEngine.LANCZOS) {
+			System.out.println("Lanczos engine requires a truncated energy window. Use the dense engine.");
+		}
+		MomentumSpaceSolver momentumSolver = null;
+		if (useMomentum) {
+			momentumSolver = Hamiltonian.makeMomentumSpaceSolver(Math.max(1, param.getTwistKPoints()));
+		} else if (ScfEngine.of(param.getScfEngine()) == ScfEngine.MOMENTUM) {
+			System.out.println("Momentum engine requires zero external potential. Use the dense engine.");
+		}
+		TwistedBoundarySolver twistSolver = null;
+		if (useTwist) {
+			twistSolver = Hamiltonian.makeTwistedBoundarySolver(param.getTwistKPoints(), backend, workspacePool);
+			System.out.println("Twisted boundary: " + param.getTwistKPoints() + " x " + param.getTwistKPoints() + " twists (" + twistSolver.getTwistCount() + " solved)");
+		} else if (param.getTwistKPoints() > 1 && !useMomentum) {
+			System.out.println("Twisted boundary averaging requires the dense engine. Use the periodic boundary.");
+		}
 
-			int info = solver.solveEigenValueEq(BdGHamiltonian);
-			if (0 != info) {
-				System.out.println("Calculation is failure!");
+		if (mixer == null) {
+			mixer = Mixer.create(param.getMixerType(), param.getWeightFactor(), param.getMixerHistoryDepth());
+			System.out.println("Mixer: " + mixer.getName());
+		}
+		mixer.reset();
+		int startIteration = 0;
+		if (checkpoint != null) {
+			// 保存した入力と混合法の履歴から反復を再開する
+			startIteration = checkpoint.getIteration();
+			vecPairPotentialEnergy = checkpoint.getObservables().getPairPotentialEnergy();
+			vecUpParticleNumber = checkpoint.getObservables().getUpParticleNumber();
+			vecDownParticleNumber = checkpoint.getObservables().getDownParticleNumber();
+			if (mixer.getName().equals(checkpoint.getMixerName())) {
+				mixer.setState(checkpoint.getMixerState());
 			}
+			if (!isMatrixFree) {
+				Hamiltonian.makeBdGHamiltonian(vecPairPotentialEnergy, vecUpParticleNumber, vecDownParticleNumber, temperature);
+				BdGHamiltonian = Hamiltonian.getBdGHamiltonian();
+			}
+		}
+		int checkpointInterval = param.getCheckpointInterval();
+		Path checkpointPath = getCheckpointPath(temperature, sweepLabel);
+		int latticeSize = param.getLatticeSize();
+		ConvergenceCriterion criterion = new ConvergenceCriterion(ConvergenceCriterion.Norm.of(param.getConvergenceNorm()), param.getConvergenceJudgeValue(), latticeSize * latticeSize);
 
-			Multimap<Double, Vector> mapEigenValueAndEigenVector = ArrayListMultimap.create();
-			mapEigenValueAndEigenVector = solver.getEigenValueAndEigenVectorMap();
+		System.out.println("Calculation is Start");
 
-			// 超流動パラメータ算出
-			vecPairPotentialEnergy = Hamiltonian.calcSuperfluidOrderParameter(mapEigenValueAndEigenVector, temperature);
+		try {
+			for (int cnt = startIteration; cnt < param.getIterationNum(); cnt++) {
 
-			// 平均粒子数算出
-			Map<SpinState, Vector> mapParticleNum = Hamiltonian.calcAverageParticleNum(mapEigenValueAndEigenVector, temperature);
-			vecUpParticleNumber = mapParticleNum.get(SpinState.UP_STATE);
-			vecDownParticleNumber = mapParticleNum.get(SpinState.DOWN_STATE);
+				int info;
+				Observables observables;
+				if (useMomentum) {
+					// 並進対称な系では対角化を行わず、波数ごとの2行2列ブロックの解析解から算出する
+					observables = Hamiltonian.calcObservables(momentumSolver, vecPairPotentialEnergy, vecUpParticleNumber, vecDownParticleNumber, temperature);
+				} else if (useTwist) {
+					// ねじれ角ごとのBdGハミルトニアンを並列に対角化し、ねじれ角について平均する
+					observables = twistSolver.calcObservables(vecPairPotentialEnergy, vecUpParticleNumber, vecDownParticleNumber, temperature);
+				} else if (useKpm) {
+					// 対角化を行わず、Fermi演算子展開から超流動パラメータと平均粒子数を直接算出する
+					BdGHamiltonianOperator operator = Hamiltonian.makeBdGHamiltonianOperator(vecPairPotentialEnergy, vecUpParticleNumber, vecDownParticleNumber);
+					info = kpmSolver.solve(operator, temperature, param.getBoltzmannConst());
+					if (0 != info) {
+						System.out.println("Calculation is failure!");
+					}
+					observables = Hamiltonian.calcObservables(kpmSolver);
+				} else {
+					EigenSystem eigenSystem;
+					if (useLanczos) {
+						BdGHamiltonianOperator operator = Hamiltonian.makeBdGHamiltonianOperator(vecPairPotentialEnergy, vecUpParticleNumber, vecDownParticleNumber);
+						info = lanczosSolver.solveEigenValueEq(operator, Hamiltonian.getEnergyWindow());
+						eigenSystem = lanczosSolver.getEigenSystem();
+					} else {
+						info = solver.solveEigenValueEq(BdGHamiltonian, Hamiltonian.isNormalState(), Hamiltonian.getEnergyWindow());
+						eigenSystem = solver.getEigenSystem();
+					}
+					if (0 != info) {
+						System.out.println("Calculation is failure!");
+					}
 
-			if (Hamiltonian.isConvergenceOfSuperfluidOrderParameter(tmpPairPotentialEnergy, vecPairPotentialEnergy)) {
-				System.out.println("反復計算回数: " + cnt);
-				break;
-			} else {
-				tmpPairPotentialEnergy = vecPairPotentialEnergy;
-			}
+					// 超流動パラメータ&平均粒子数算出
+					observables = Hamiltonian.calcObservables(eigenSystem, temperature);
+				}
 
-			// BdGハミルトニアン更新
-			Hamiltonian.makeBdGHamiltonian(vecPairPotentialEnergy, vecUpParticleNumber, vecDownParticleNumber, temperature);
-			BdGHamiltonian = Hamiltonian.getBdGHamiltonian();
+				// 超流動パラメータと粒子数の残差で収束を判定し、収束した場合と最終反復では出力を計算結果とする
+				Observables input = new Observables(vecPairPotentialEnergy, vecUpParticleNumber, vecDownParticleNumber);
+				boolean isConvergence = criterion.isConvergence(input, observables);
+				if (isConvergence || cnt == param.getIterationNum() - 1) {
+					vecPairPotentialEnergy = observables.getPairPotentialEnergy();
+					vecUpParticleNumber = observables.getUpParticleNumber();
+					vecDownParticleNumber = observables.getDownParticleNumber();
+					if (isConvergence) {
+						System.out.println("Convergence!!");
+						System.out.println("反復計算回数: " + cnt);
+					} else {
+						System.out.println("Not converged. residual (" + criterion.getNorm() + "): " + criterion.getResidual());
+					}
+					break;
+				}
+
+				// 入力と出力を混合して次の入力とする
+				Observables mixed = mixer.mix(input, observables);
+				vecPairPotentialEnergy = mixed.getPairPotentialEnergy();
+				vecUpParticleNumber = mixed.getUpParticleNumber();
+				vecDownParticleNumber = mixed.getDownParticleNumber();
+
+				// BdGハミルトニアン更新
+				if (!isMatrixFree) {
+					Hamiltonian.makeBdGHamiltonian(vecPairPotentialEnergy, vecUpParticleNumber, vecDownParticleNumber, temperature);
+					BdGHamiltonian = Hamiltonian.getBdGHamiltonian();
+				}
+
+				if (checkpointInterval > 0 && (cnt + 1) % checkpointInterval == 0) {
+					new ScfCheckpoint(param.getFingerprint(), temperature, sweepLabel, cnt + 1, false, mixed, mixer.getName(), mixer.getState()).write(checkpointPath);
+				}
+			}
+			if (checkpointInterval > 0) {
+				Observables result = new Observables(vecPairPotentialEnergy, vecUpParticleNumber, vecDownParticleNumber);
+				new ScfCheckpoint(param.getFingerprint(), temperature, sweepLabel, param.getIterationNum(), true, result, mixer.getName(), Lists.<double[]> newArrayList()).write(checkpointPath);
+			}
+			currentTemperature = temperature;
+			warmStartSolution = new Observables(vecPairPotentialEnergy, vecUpParticleNumber, vecDownParticleNumber);
+			if (lanczosSolver != null && param.getTemperatureSweepWarmStartEigenVector()) {
+				warmStartRitzVectors = lanczosSolver.getRitzVectors();
+			}
+			if (useKpm) {
+				System.out.println("KPM order: " + kpmSolver.getOrder() + ", kernel: " + kpmSolver.getKernel() + ", error estimate: " + kpmSolver.getErrorEstimate());
+			}
+		} finally {
+			if (workspace != null) {
+				workspacePool.release(workspace);
+				workspace = null;
+			}
 		}
 	}
 
+	/**
+	 * Lanczos法で固有対を求めるかどうか
+	 * 
+	 * @param Hamiltonian
+	 *            BdGハミルトニアン
+	 * @return 計算エンジンにLanczos法が指定され、エネルギー窓で打ち切る場合 true
+	 */
+	private boolean isLanczosEngine(BdGHamiltonian Hamiltonian) {
+		return ScfEngine.of(param.getScfEngine()) == ScfEngine.LANCZOS && Hamiltonian.getEnergyWindow().isTruncated();
+	}
+
+	/**
+	 * 行列を作成せずに作用素のみで計算するかどうか
+	 * 
+	 * @param Hamiltonian
+	 *            BdGハミルトニアン
+	 * @return Lanczos法、カーネル多項式法、波数空間ソルバ、またはねじれ境界条件で計算する場合 true
+	 */
+	private boolean isMatrixFreeEngine(BdGHamiltonian Hamiltonian) {
+		return isLanczosEngine(Hamiltonian) || ScfEngine.of(param.getScfEngine()) == ScfEngine.KPM || isMomentumEngine(Hamiltonian) || isTwistedBoundary(Hamiltonian);
+	}
+
+	/**
+	 * ねじれ境界条件で平均するかどうか
+	 * 
+	 * @param Hamiltonian
+	 *            BdGハミルトニアン
+	 * @return ねじれ角の分割数が2以上で、密行列の対角化で計算する場合 true
+	 */
+	private boolean isTwistedBoundary(BdGHamiltonian Hamiltonian) {
+		ScfEngine engine = ScfEngine.of(param.getScfEngine());
+		return param.getTwistKPoints() > 1 && !isLanczosEngine(Hamiltonian) && engine != ScfEngine.KPM && !isMomentumEngine(Hamiltonian);
+	}
+
+	/**
+	 * 波数空間ソルバで計算するかどうか
+	 * 
+	 * @param Hamiltonian
+	 *            BdGハミルトニアン
+	 * @return 計算エンジンに波数空間ソルバが指定され、外部ポテンシャルがない場合 true
+	 */
+	private boolean isMomentumEngine(BdGHamiltonian Hamiltonian) {
+		return ScfEngine.of(param.getScfEngine()) == ScfEngine.MOMENTUM && Hamiltonian.isTranslationallyInvariant();
+	}
+
+	/**
+	 * 超流動パラメータがすべての格子点で常流動状態の判定閾値以下かどうか
+	 * 
+	 * @param pairPotentialEnergy
+	 *            超流動パラメータ
+	 * @return 常流動状態の場合 true
+	 */
+	private boolean isNormalState(Vector pairPotentialEnergy) {
+		return pairPotentialEnergy.norm(Vector.Norm.Infinity) <= param.getNormalStateThreshold();
+	}
+
 	/**
 	 * 計算結果を追加する
 	 */
 	public void addBdGResult() {
+		addBdGResult("");
+	}
+
+	/**
+	 * 計算結果を追加する
+	 * 
+	 * @param sweepLabel
+	 *            温度掃引の往路・復路のラベル
+	 */
+	public void addBdGResult(String sweepLabel) {
 		BdGResultInfo resultInfo = new BdGResultInfo();
+		resultInfo.setTemperature(currentTemperature);
+		resultInfo.setSweepLabel(sweepLabel);
 		resultInfo.setVecUpSpinParticleNumber(vecUpParticleNumber);
 		resultInfo.setVecDownSpinParticleNumber(vecDownParticleNumber);
 		resultInfo.setVecPairPotentialEnergy(vecPairPotentialEnergy);
@@ -150,7 +693,7 @@ public class BdGFacade {
 		for (int i = 0; i < bdgResultList.size(); i++) {
 			BdGResultFile BdGResult = new BdGResultFile(bdgResultList.get(i), pathInfo);
 			BdGResult.setBdGResultInfo(bdgResultList.get(i));
-			BdGResult.writeResultOrderParameter(getTemperatureList().get(i));
+			BdGResult.writeResultOrderParameter(bdgResultList.get(i).getTemperature(), bdgResultList.get(i).getSweepLabel());
 		}
 
 		System.out.print("Calculation is End.");
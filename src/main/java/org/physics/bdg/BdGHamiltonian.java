@@ -1,21 +1,22 @@
 package org.physics.bdg;
 
 import java.io.IOException;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.SortedSet;
+import java.util.concurrent.ForkJoinPool;
 
 import no.uib.cipr.matrix.DenseMatrix;
 import no.uib.cipr.matrix.DenseVector;
 import no.uib.cipr.matrix.Matrix;
 import no.uib.cipr.matrix.Vector;
 import no.uib.cipr.matrix.VectorEntry;
+import no.uib.cipr.matrix.sparse.CompRowMatrix;
 
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
 
 /**
  * Bogoliubov de Gennes (BdG) Hamiltonian クラス
@@ -26,65 +27,155 @@ import com.google.common.collect.Multimap;
 public class BdGHamiltonian {
 
 	// BdGハミルトニアン
-	private static Matrix m_BdGHamiltonian;
+	private Matrix m_BdGHamiltonian;
 
 	// 格子サイズ
-	private static int m_latticeSize;
+	private int m_latticeSize;
 
 	// BdGハミルトニアンの行列サイズ
-	private static int m_matrixSize;
+	private int m_matrixSize;
 
 	// ホッピングパラメータ
-	private static double m_HoppingEnergy;
+	private double m_HoppingEnergy;
 
 	// アップスピン粒子の化学ポテンシャル
-	private static double m_upChemicalPotential;
+	private double m_upChemicalPotential;
 
 	// ダウンスピン粒子の化学ポテンシャル
-	private static double m_downChemicalPotential;
+	private double m_downChemicalPotential;
 
 	// 外部ポテンシャルの強さ
-	private static double m_potentialStrength;
+	private double m_potentialStrength;
 
 	// 粒子間相互作用
-	private static double m_interparticleInteractionStrength;
+	private double m_interparticleInteractionStrength;
 
 	// ボルツマン定数
-	private static double m_boltzmannfactor;
+	private double m_boltzmannfactor;
 
 	// 超流動パラメータ
-	private static double m_pairPotential;
+	private double m_pairPotential;
 
 	// アップスピン粒子数
-	private static double m_upParticleNumber;
+	private double m_upParticleNumber;
 
 	// ダウンスピン粒子数
-	private static double m_downParticleNumber;
+	private double m_downParticleNumber;
 
-	// 収束判定値
-	private static double m_convergenceJudgeValue;
+	private boolean m_useSparseMatrix;
 
-	// 収束重み因子
-	private static double m_weightFactor;
+	private PathInfo m_pathInfo;
 
-	// 超流動パラメータ差分最大値
-	private static double m_maxDifferenceOfSuperfluidOrderParameter = 0.0;
+	// 常伝導状態ヒント
+	private boolean m_normalStateHint;
 
-	private static boolean m_useSparseMatrix;
+	// 常伝導状態とみなす超流動パラメータの閾値
+	private double m_normalStateThreshold;
 
-	private static PathInfo m_pathInfo;
+	// 現在のBdGハミルトニアンにおける超流動パラメータの絶対値の最大値
+	private double m_maxAbsPairPotentialEnergy = Double.POSITIVE_INFINITY;
+
+	// 最近接格子点テーブル (上, 下, 左, 右)
+	private int[][] m_neighborTable;
+
+	// 格子点ごとの外部ポテンシャル
+	private double[] m_externalPotential;
+
+	// BdGハミルトニアン静的部分の対角要素(化学ポテンシャル項)
+	private double[] m_staticDiagonal;
+
+	// BdGハミルトニアンの要素配列 (密行列/疎行列共通)
+	private double[] m_hamiltonianData;
+
+	// 対角要素の要素配列上の位置
+	private int[] m_diagonalIndex;
+
+	// 超流動パラメータ要素(上三角/下三角)の要素配列上の位置
+	private int[] m_upperPairIndex;
+	private int[] m_lowerPairIndex;
+
+	// 作業領域
+	private EigenValueWorkspace m_workspace;
+
+	// 部分対角化のエネルギー窓
+	private EnergyWindow m_energyWindow;
+
+	// 粒子数と超流動パラメータの並列計算に使用するスレッドプール
+	private ForkJoinPool m_pool;
 
 	// スピン状態
 	public static enum SpinState {
 		UP_STATE, DOWN_STATE;
 	}
 
+	/**
+	 * 自己無撞着計算で算出した超流動パラメータと粒子数クラス
+	 * 
+	 * @author y-ok
+	 */
+	public static class Observables {
+		private final Vector m_vecPairPotentialEnergy;
+		private final Vector m_vecUpParticleNumber;
+		private final Vector m_vecDownParticleNumber;
+
+		/**
+		 * コンストラクタ
+		 * 
+		 * @param pairPotentialEnergy 超流動パラメータ
+		 * @param upParticleNumber アップスピン粒子数
+		 * @param downParticleNumber ダウンスピン粒子数
+		 */
+		public Observables(Vector pairPotentialEnergy, Vector upParticleNumber, Vector downParticleNumber) {
+			m_vecPairPotentialEnergy = pairPotentialEnergy;
+			m_vecUpParticleNumber = upParticleNumber;
+			m_vecDownParticleNumber = downParticleNumber;
+		}
+
+		/**
+		 * 超流動パラメータを取得する
+		 * 
+		 * @return 超流動パラメータ
+		 */
+		public Vector getPairPotentialEnergy() {
+			return m_vecPairPotentialEnergy;
+		}
+
+		/**
+		 * アップスピン粒子数を取得する
+		 * 
+		 * @return アップスピン粒子数
+		 */
+		public Vector getUpParticleNumber() {
+			return m_vecUpParticleNumber;
+		}
+
+		/**
+		 * ダウンスピン粒子数を取得する
+		 * 
+		 * @return ダウンスピン粒子数
+		 */
+		public Vector getDownParticleNumber() {
+			return m_vecDownParticleNumber;
+		}
+	}
+
 	/**
 	 * コンストラクタ
 	 * 
 	 * @param paramXmlInfo
 	 */
 	BdGHamiltonian(ParameterFile paramXmlInfo, PathInfo pathInfo) {
+		this(paramXmlInfo, pathInfo, null);
+	}
+
+	/**
+	 * コンストラクタ
+	 * 
+	 * @param paramXmlInfo
+	 * @param pathInfo
+	 * @param workspace 作業領域 (null の場合はBdGハミルトニアンを新規に確保する)
+	 */
+	BdGHamiltonian(ParameterFile paramXmlInfo, PathInfo pathInfo, EigenValueWorkspace workspace) {
 		ParamInfo paramInfo = paramXmlInfo.getParamInfo();
 		m_latticeSize = paramInfo.getLatticeSize();
 		m_matrixSize = 2 * (int) Math.pow(m_latticeSize, 2);
@@ -97,10 +188,45 @@ public class BdGHamiltonian {
 		m_upChemicalPotential = paramInfo.getChmicalPotential() + paramInfo.getMagneticField();
 		m_downChemicalPotential = paramInfo.getChmicalPotential() - paramInfo.getMagneticField();
 		m_interparticleInteractionStrength = paramInfo.getInterparticleInteraction();
-		m_convergenceJudgeValue = paramInfo.getConvergenceJudgeValue();
-		m_weightFactor = paramInfo.getWeightFactor();
 		m_useSparseMatrix = paramInfo.getUseSparseMatrix();
 		m_pathInfo = pathInfo;
+		m_normalStateHint = paramInfo.getNormalStateHint();
+		m_normalStateThreshold = paramInfo.getNormalStateThreshold();
+		m_workspace = workspace;
+		m_energyWindow = EnergyWindow.valueOf(paramInfo.getEnergyWindowMode(), paramInfo.getEnergyWindowCutoff(), paramInfo.getEnergyWindowEigenNumber());
+		m_pool = ComputePool.get(paramInfo.getThreadNumber());
+		makeNeighborTable();
+		makeExternalPotential();
+	}
+
+	/**
+	 * 周期境界条件における最近接格子点テーブルを作成する
+	 */
+	private void makeNeighborTable() {
+		int siteNum = m_matrixSize / 2;
+		m_neighborTable = new int[siteNum][];
+		for (int i = 0; i < siteNum; i++) {
+			int row = i / m_latticeSize;
+			int col = i % m_latticeSize;
+			m_neighborTable[i] = new int[] {
+					m_latticeSize * ((row + m_latticeSize - 1) % m_latticeSize) + col,
+					m_latticeSize * ((row + 1) % m_latticeSize) + col,
+					m_latticeSize * row + (col + m_latticeSize - 1) % m_latticeSize,
+					m_latticeSize * row + (col + 1) % m_latticeSize };
+		}
+	}
+
+	/**
+	 * 格子点ごとの外部ポテンシャルを作成する
+	 */
+	private void makeExternalPotential() {
+		int siteNum = m_matrixSize / 2;
+		m_externalPotential = new double[siteNum];
+		for (int i = 0; i < siteNum; i++) {
+			double x = (-((double) m_latticeSize - 1) / 2) + (double) (i % m_latticeSize);
+			double y = ((double) m_latticeSize - 1) / 2 - (double) (i / m_latticeSize);
+			m_externalPotential[i] = getExternalPotential(x, y);
+		}
 	}
 
 	/**
@@ -179,7 +305,21 @@ public class BdGHamiltonian {
 	}
 
 	/**
-	 * BdG Hamiltonianを作成する
+	 * 局所密度近似による粒子数、超流動パラメータ初期値取得</br>
+	 * 格子点ごとに μσ - V(r) の一様系のBCS方程式を解いた値とする。一様系の反復はパラメータ設定ファイルの初期値から開始する
+	 * 
+	 * @param temperature 温度
+	 * @param kPoints 波数の1方向の分割数
+	 * @return 超流動パラメータと粒子数の初期値
+	 */
+	public Observables getLdaInitOrderParameter(double temperature, int kPoints) {
+		LdaInitializer initializer = new LdaInitializer(m_HoppingEnergy, m_interparticleInteractionStrength, m_upChemicalPotential, m_downChemicalPotential, m_boltzmannfactor, kPoints);
+		return initializer.makeInitialGuess(m_externalPotential, temperature, m_pairPotential, m_upParticleNumber, m_downParticleNumber);
+	}
+
+	/**
+	 * BdG Hamiltonianを作成する</br>
+	 * 初回はホッピング項と化学ポテンシャル項(静的部分)を組み立て、以降は同じ行列を再利用して変化する要素のみ更新する
 	 * 
 	 * @param pairPotentialEnergy 超流動パラメータ
 	 * @param upParticleNumber アップスピン粒子数
@@ -188,123 +328,216 @@ public class BdGHamiltonian {
 	 */
 	public void makeBdGHamiltonian(Vector pairPotentialEnergy, Vector upParticleNumber, Vector downParticleNumber, double temperature) throws IOException {
 
-		double[][] matValues = new double[m_matrixSize][m_matrixSize];
-		Matrix Hamiltonian = new DenseMatrix(matValues);
+		if (m_BdGHamiltonian == null) {
+			makeStaticBdGHamiltonian();
+		}
+
+		updateBdGHamiltonian(pairPotentialEnergy, upParticleNumber, downParticleNumber);
 
+		if (m_useSparseMatrix) {
+			SparseMatrixFileIF sparseMatrixData = new SparseMatrixFileIF(m_pathInfo);
+			sparseMatrixData.setSparseMatrix(m_BdGHamiltonian);
+			sparseMatrixData.writeSparseMatrixData();
+		}
+	} // end of makeBdGHamiltonian
+
+	/**
+	 * 並進対称な系かどうか
+	 * 
+	 * @return 外部ポテンシャルがない場合 true
+	 */
+	public boolean isTranslationallyInvariant() {
+		return m_potentialStrength == 0.0;
+	}
+
+	/**
+	 * 波数空間ソルバを作成する</br>
+	 * 波数の分割数は格子の一辺とする
+	 * 
+	 * @return 波数空間ソルバ
+	 */
+	public MomentumSpaceSolver makeMomentumSpaceSolver() {
+		return makeMomentumSpaceSolver(1);
+	}
+
+	/**
+	 * ねじれ角で平均する波数空間ソルバを作成する</br>
+	 * ねじれ角の分割数 Nt の平均は (Nt * L) * (Nt * L) の格子と同じため、波数の分割数は格子の一辺の Nt 倍とする
+	 * 
+	 * @param twistKPoints ねじれ角の1方向の分割数 Nt
+	 * @return 波数空間ソルバ
+	 */
+	public MomentumSpaceSolver makeMomentumSpaceSolver(int twistKPoints) {
+		return new MomentumSpaceSolver(m_HoppingEnergy, m_interparticleInteractionStrength, m_upChemicalPotential, m_downChemicalPotential, m_boltzmannfactor, m_latticeSize * twistKPoints);
+	}
+
+	/**
+	 * ねじれ境界条件による波数平均ソルバを作成する
+	 * 
+	 * @param twistKPoints ねじれ角の1方向の分割数
+	 * @param backend 固有値ソルババックエンド
+	 * @param workspacePool ねじれ角ごとの作業領域プール
+	 * @return ねじれ境界条件による波数平均ソルバ
+	 */
+	public TwistedBoundarySolver makeTwistedBoundarySolver(int twistKPoints, EigenSolverBackend backend, EigenValueWorkspacePool workspacePool) {
+		return new TwistedBoundarySolver(m_latticeSize, m_HoppingEnergy, m_interparticleInteractionStrength, m_upChemicalPotential, m_downChemicalPotential, m_boltzmannfactor, m_externalPotential, twistKPoints, m_pool, backend, workspacePool);
+	}
+
+	/**
+	 * 行列を作成せずにBdGハミルトニアン作用素を作成する</br>
+	 * 返却した作用素は引数のベクトルを参照するため、ベクトルの更新は作用素に反映される
+	 * 
+	 * @param pairPotentialEnergy 超流動パラメータ
+	 * @param upParticleNumber アップスピン粒子数
+	 * @param downParticleNumber ダウンスピン粒子数
+	 * @return BdGハミルトニアン作用素
+	 */
+	public BdGHamiltonianOperator makeBdGHamiltonianOperator(Vector pairPotentialEnergy, Vector upParticleNumber, Vector downParticleNumber) {
+		return new MatrixFreeBdGHamiltonian(m_latticeSize, m_neighborTable, m_HoppingEnergy, m_upChemicalPotential, m_downChemicalPotential, m_externalPotential, m_interparticleInteractionStrength,
+				((DenseVector) pairPotentialEnergy).getData(), ((DenseVector) upParticleNumber).getData(), ((DenseVector) downParticleNumber).getData());
+	}
+
+	/**
+	 * 反復計算で変化しないBdGハミルトニアンの静的部分(ホッピング項、化学ポテンシャル項)を作成する</br>
+	 * 疎行列処理フラグが設定されている場合は、固定した非ゼロパターンの圧縮行格納形式(CSR)で作成する
+	 */
+	private void makeStaticBdGHamiltonian() {
+
+		Matrix Hamiltonian;
+		if (m_useSparseMatrix) {
+			Hamiltonian = new CompRowMatrix(m_matrixSize, m_matrixSize, makeSparsityPattern());
+			m_hamiltonianData = ((CompRowMatrix) Hamiltonian).getData();
+		} else if (m_workspace != null && m_workspace.getMatrixSize() == m_matrixSize) {
+			Hamiltonian = m_workspace.getHamiltonian().zero();
+			m_hamiltonianData = ((DenseMatrix) Hamiltonian).getData();
+		} else {
+			Hamiltonian = new DenseMatrix(m_matrixSize, m_matrixSize);
+			m_hamiltonianData = ((DenseMatrix) Hamiltonian).getData();
+		}
+		m_staticDiagonal = new double[m_matrixSize];
+
+		int siteNum = m_matrixSize / 2;
+
+		for (int i = 0; i < siteNum; i++) {
+
+			/*-------------------------------
+			 * This term is Hopping energy.
+			 *-------------------------------*/
+			for (int neighbor : m_neighborTable[i]) {
+				Hamiltonian.add(i, neighbor, -m_HoppingEnergy);
+				Hamiltonian.add(i + siteNum, neighbor + siteNum, m_HoppingEnergy);
+			} // end of Hopping Energy term.
+
+			/*--------------------------------
+			 * This term is Hartree Potential.
+			 *--------------------------------*/
+			m_staticDiagonal[i] += -m_upChemicalPotential;
+			m_staticDiagonal[i + siteNum] += m_downChemicalPotential;
+			// end of Hartree Potential term.
+		}
+
+		// 反復計算で更新する要素の位置
+		m_diagonalIndex = new int[m_matrixSize];
+		m_upperPairIndex = new int[siteNum];
+		m_lowerPairIndex = new int[siteNum];
 		for (int i = 0; i < m_matrixSize; i++) {
-			for (int j = 0; j < m_matrixSize; j++) {
-
-				/*-------------------------------
-				 * This term is Hopping energy.
-				 *-------------------------------*/
-				if (i < m_matrixSize / 2 && j < m_matrixSize / 2) {
-					if ((i + m_latticeSize == j) || (i == j + m_latticeSize)) {
-						Hamiltonian.add(i, j, -m_HoppingEnergy);
-					}
-
-					if ((i + m_latticeSize * (m_latticeSize - 1) == j) || (i == j + m_latticeSize * (m_latticeSize - 1))) {
-						Hamiltonian.add(i, j, -m_HoppingEnergy);
-					}
-
-					if ((i + 1 == j) || (i == j + 1)) {
-						Hamiltonian.add(i, j, -m_HoppingEnergy);
-					}
-
-					for (int k = 0; k <= m_latticeSize; k++) {
-						if ((i == m_latticeSize * k + (m_latticeSize - 1) && j == m_latticeSize * k) || (j == m_latticeSize * k + (m_latticeSize - 1) && i == m_latticeSize * k)) {
-							Hamiltonian.add(i, j, -m_HoppingEnergy);
-						}
-					}
-
-					for (int k = 0; k < m_latticeSize; k++) {
-						if ((i == m_latticeSize * k + m_latticeSize && j == m_latticeSize * k + (m_latticeSize - 1)) || (i == m_latticeSize * k + (m_latticeSize - 1) && j == m_latticeSize * k + m_latticeSize)) {
-							Hamiltonian.set(i, j, 0.0);
-						}
-					}
-
-				} else if (i >= m_matrixSize / 2 && j >= m_matrixSize / 2 && i < m_matrixSize && j < m_matrixSize) {
-					if ((i + m_latticeSize == j) || (i == j + m_latticeSize)) {
-						Hamiltonian.add(i, j, m_HoppingEnergy);
-					}
-
-					if ((i + m_latticeSize * (m_latticeSize - 1) == j) || (i == j + m_latticeSize * (m_latticeSize - 1))) {
-						Hamiltonian.add(i, j, m_HoppingEnergy);
-					}
-
-					if ((i + 1 == j) || (i == j + 1)) {
-						Hamiltonian.add(i, j, m_HoppingEnergy);
-					}
-
-					for (int k = 0; k <= (int) Math.pow(m_latticeSize, 2); k++) {
-						if ((i == m_latticeSize * k + (m_latticeSize - 1) && j == m_latticeSize * k) || (j == m_latticeSize * k + (m_latticeSize - 1) && i == m_latticeSize * k)) {
-							Hamiltonian.add(i, j, m_HoppingEnergy);
-						}
-					}
-
-					for (int k = 0; k < (int) Math.pow(m_latticeSize, 2); k++) {
-						if ((i == m_latticeSize * k + m_latticeSize && j == m_latticeSize * k + (m_latticeSize - 1)) || (i == m_latticeSize * k + (m_latticeSize - 1) && j == m_latticeSize * k + m_latticeSize)) {
-							Hamiltonian.set(i, j, 0.0);
-						}
-					}
-				} // end of Hopping Energy term.
-
-				/*--------------------------------
-				 * This term is Hartree Potential.
-				 *--------------------------------*/
-				if (i < m_matrixSize / 2 && j < m_matrixSize / 2) {
-					if (i == j) {
-						Hamiltonian.add(i, j, -m_upChemicalPotential);
-					}
-				} else if (i >= m_matrixSize / 2 && i < m_matrixSize && j >= m_matrixSize / 2 && j < m_matrixSize) {
-					if (i == j) {
-						Hamiltonian.add(i, j, m_downChemicalPotential);
-					}
-				} // end of Hartree Potential term.
-
-				/*-----------------------------------------
-				 * This term is the Superfluid Gap effect.
-				 *-----------------------------------------*/
-				if ((i < m_matrixSize / 2 && j >= m_matrixSize / 2 && j < m_matrixSize) && (i + m_matrixSize / 2 == j)) {
-					Hamiltonian.add(i, j, pairPotentialEnergy.get(i));
-				} else if ((i >= m_matrixSize / 2 && i < m_matrixSize && j < m_matrixSize / 2) && (i == j + m_matrixSize / 2)) {
-					Hamiltonian.add(i, j, pairPotentialEnergy.get(j));
-				}
-			}
+			m_diagonalIndex[i] = getDataIndex(Hamiltonian, i, i);
+		}
+		for (int i = 0; i < siteNum; i++) {
+			m_upperPairIndex[i] = getDataIndex(Hamiltonian, i, i + siteNum);
+			m_lowerPairIndex[i] = getDataIndex(Hamiltonian, i + siteNum, i);
 		}
 
-		/*-------------------------------------------
-		 * The term is an external Potential effect.
-		 *-------------------------------------------*/
-		for (int i = m_matrixSize / 2; i < m_matrixSize; i++) {
-			for (int k = 0; k < m_latticeSize; k++) {
-				if (i >= m_latticeSize * k + m_matrixSize / 2 && i < m_latticeSize * (k + 1) + m_matrixSize / 2) {
-					double x = (-((double) m_latticeSize - 1) / 2) + (double) i - (double) (m_matrixSize / 2) - (double) (m_latticeSize) * (double) k;
-					double y = ((double) m_latticeSize - 1) / 2 - (double) k;
-					// Hamiltonian.add(i, i, -getExternalPotential(x, y, 12, 8) - m_interparticleInteractionStrength * upParticleNumber.get(i - m_matrixSize / 2));
-					Hamiltonian.add(i, i, -getExternalPotential(x, y) - m_interparticleInteractionStrength * upParticleNumber.get(i - m_matrixSize / 2));
-				}
+		setBdGHamiltonian(Hamiltonian);
+	} // end of makeStaticBdGHamiltonian
+
+	/**
+	 * BdGハミルトニアンの非ゼロパターン(行ごとの列番号)を作成する
+	 * 
+	 * @return 行ごとの昇順の列番号
+	 */
+	private int[][] makeSparsityPattern() {
+
+		int siteNum = m_matrixSize / 2;
+		int[][] pattern = new int[m_matrixSize][];
+
+		for (int i = 0; i < siteNum; i++) {
+			SortedSet<Integer> upColumns = Sets.newTreeSet();
+			SortedSet<Integer> downColumns = Sets.newTreeSet();
+			for (int neighbor : m_neighborTable[i]) {
+				upColumns.add(neighbor);
+				downColumns.add(neighbor + siteNum);
 			}
+			upColumns.add(i);
+			upColumns.add(i + siteNum);
+			downColumns.add(i);
+			downColumns.add(i + siteNum);
+
+			pattern[i] = Ints.toArray(upColumns);
+			pattern[i + siteNum] = Ints.toArray(downColumns);
 		}
+		return pattern;
+	}
 
-		for (int i = 0; i < m_matrixSize / 2; i++) {
-			for (int k = 0; k < m_latticeSize; k++) {
-				if (i >= m_latticeSize * k && i < m_latticeSize * (k + 1)) {
-					double x = (-((double) m_latticeSize - 1) / 2) + (double) i - (double) m_latticeSize * (double) k;
-					double y = ((double) m_latticeSize - 1) / 2 - (double) k;
-					// Hamiltonian.add(i, i, getExternalPotential(x, y, 12, 8) + m_interparticleInteractionStrength * downParticleNumber.get(i));
-					Hamiltonian.add(i, i, getExternalPotential(x, y) + m_interparticleInteractionStrength * downParticleNumber.get(i));
-				}
-			}
-		} // end of an external Potential term.
+	/**
+	 * 行列要素(row, column)の要素配列上の位置を取得する
+	 * 
+	 * @param matrix BdGハミルトニアン
+	 * @param row 行番号
+	 * @param column 列番号
+	 * @return 要素配列上の位置
+	 */
+	private static int getDataIndex(Matrix matrix, int row, int column) {
+		if (matrix instanceof CompRowMatrix) {
+			int[] rowPointer = ((CompRowMatrix) matrix).getRowPointers();
+			int[] columnIndex = ((CompRowMatrix) matrix).getColumnIndices();
+			return Arrays.binarySearch(columnIndex, rowPointer[row], rowPointer[row + 1], column);
+		}
+		return column * matrix.numRows() + row;
+	}
 
-		if (m_useSparseMatrix) {
-			SparseMatrixFileIF sparseMatrixData = new SparseMatrixFileIF(m_pathInfo);
-			sparseMatrixData.setSparseMatrix(Hamiltonian);
-			sparseMatrixData.writeSparseMatrixData();
+	/**
+	 * BdGハミルトニアンの対角要素(Hartree項、外部ポテンシャル項)と超流動パラメータ要素のみを更新する
+	 * 
+	 * @param pairPotentialEnergy 超流動パラメータ
+	 * @param upParticleNumber アップスピン粒子数
+	 * @param downParticleNumber ダウンスピン粒子数
+	 */
+	public void updateBdGHamiltonian(Vector pairPotentialEnergy, Vector upParticleNumber, Vector downParticleNumber) {
+
+		int siteNum = m_matrixSize / 2;
+		double maxAbsPairPotentialEnergy = 0.0;
+
+		for (int i = 0; i < siteNum; i++) {
+
+			maxAbsPairPotentialEnergy = Math.max(maxAbsPairPotentialEnergy, Math.abs(pairPotentialEnergy.get(i)));
+
+			/*-----------------------------------------
+			 * This term is the Superfluid Gap effect.
+			 * (0.0 を加えて -0.0 を 0.0 に揃える)
+			 *-----------------------------------------*/
+			m_hamiltonianData[m_upperPairIndex[i]] = 0.0 + pairPotentialEnergy.get(i);
+			m_hamiltonianData[m_lowerPairIndex[i]] = 0.0 + pairPotentialEnergy.get(i);
+
+			/*-------------------------------------------
+			 * The term is an external Potential effect.
+			 *-------------------------------------------*/
+			m_hamiltonianData[m_diagonalIndex[i + siteNum]] = m_staticDiagonal[i + siteNum] + (-m_externalPotential[i] - m_interparticleInteractionStrength * upParticleNumber.get(i));
+			m_hamiltonianData[m_diagonalIndex[i]] = m_staticDiagonal[i] + (m_externalPotential[i] + m_interparticleInteractionStrength * downParticleNumber.get(i));
+			// end of an external Potential term.
 		}
+		m_maxAbsPairPotentialEnergy = maxAbsPairPotentialEnergy;
+	} // end of updateBdGHamiltonian
 
-		setBdGHamiltonian(Hamiltonian);
-	} // end of makeBdGHamiltonian
+	/**
+	 * 常伝導状態(超流動パラメータが消失している)かどうかを判定する</br>
+	 * 常伝導状態ではBdGハミルトニアンがアップスピンとダウンスピンの2つのブロックに分離する
+	 * 
+	 * @return 常伝導状態ヒントが指定されているか、超流動パラメータの絶対値の最大値が閾値以下の場合 true
+	 */
+	public boolean isNormalState() {
+		return m_normalStateHint || m_maxAbsPairPotentialEnergy <= m_normalStateThreshold;
+	}
 
 	/**
 	 * アップスピン&ダウンスピン粒子数を算出する
@@ -314,32 +547,23 @@ public class BdGHamiltonian {
 	 * @return スピン状態とスピン状態に対応する粒子数のマップ
 	 */
 	public Map<SpinState, Vector> calcAverageParticleNum(Multimap<Double, Vector> mapEigenValueAndEigenVector, double temperature) {
+		return calcAverageParticleNum(EigenSystem.of(mapEigenValueAndEigenVector), temperature);
+	}
 
-		Map<SpinState, Vector> mapAverageParticleNum = Maps.newHashMap();
-
-		double[] UpParticleNum = new double[m_matrixSize];
-		Vector vecUpParticleNum = new DenseVector(UpParticleNum);
-
-		double[] DownParticleNum = new double[m_matrixSize];
-		Vector vecDownParticleNum = new DenseVector(DownParticleNum);
-
-		for (int j = 0; j < m_matrixSize / 2; j++) {
-			vecUpParticleNum.set(j, 0.0);
-			vecDownParticleNum.set(j, 0.0);
-
-			for (Map.Entry<Double, Vector> e : mapEigenValueAndEigenVector.entries()) {
-				Double eigenValue = e.getKey();
-				Vector eigenVector = e.getValue();
-				vecUpParticleNum.add(j, Math.pow(eigenVector.get(j), 2) * fermiDistributionfnc(eigenValue, temperature));
-				vecDownParticleNum.add(j, Math.pow(eigenVector.get(j + m_matrixSize / 2), 2) * fermiDistributionfnc(-eigenValue, temperature));
-			}
+	/**
+	 * アップスピン&ダウンスピン粒子数を算出する
+	 * 
+	 * @param eigenSystem 固有値方程式の解
+	 * @param temperature 温度
+	 * @return スピン状態とスピン状態に対応する粒子数のマップ
+	 */
+	public Map<SpinState, Vector> calcAverageParticleNum(EigenSystem eigenSystem, double temperature) {
 
-			vecUpParticleNum.set(j, vecUpParticleNum.get(j));
-			vecDownParticleNum.set(j, vecDownParticleNum.get(j));
-		}
+		Observables observables = calcObservables(eigenSystem, temperature);
 
-		mapAverageParticleNum.put(SpinState.UP_STATE, vecUpParticleNum);
-		mapAverageParticleNum.put(SpinState.DOWN_STATE, vecDownParticleNum);
+		Map<SpinState, Vector> mapAverageParticleNum = Maps.newHashMap();
+		mapAverageParticleNum.put(SpinState.UP_STATE, observables.getUpParticleNumber());
+		mapAverageParticleNum.put(SpinState.DOWN_STATE, observables.getDownParticleNumber());
 
 		return mapAverageParticleNum;
 	} // end of calcAverageParticleNum
@@ -351,69 +575,169 @@ public class BdGHamiltonian {
 	 * @return 超流動パラメータ
 	 */
 	public Vector calcSuperfluidOrderParameter(Multimap<Double, Vector> mapEigenValueAndEigenVector, double temperature) {
+		return calcSuperfluidOrderParameter(EigenSystem.of(mapEigenValueAndEigenVector), temperature);
+	}
+
+	/**
+	 * 超流動パラメータを算出する
+	 * 
+	 * @param eigenSystem 固有値方程式の解
+	 * @param temperature 温度
+	 * @return 超流動パラメータ
+	 */
+	public Vector calcSuperfluidOrderParameter(EigenSystem eigenSystem, double temperature) {
+		return calcObservables(eigenSystem, temperature).getPairPotentialEnergy();
+	} // end of calcSuperfluidOrderParameter
 
+	/**
+	 * 超流動パラメータとアップスピン&ダウンスピン粒子数を1回の固有ベクトル行列の走査で算出する</br>
+	 * Fermi分布関数は固有値ごとに f(E_n), f(-E_n) を1回ずつのみ評価する
+	 * 
+	 * <ul>
+	 * <li>n_up(j) = Σ_n u_n(j)^2 f(E_n) (高エネルギー側の窓では 1 - Σ_n u_n(j)^2 f(-E_n))</li>
+	 * <li>n_down(j) = Σ_n v_n(j)^2 f(-E_n) (低エネルギー側の窓では 1 - Σ_n v_n(j)^2 f(E_n))</li>
+	 * <li>Δ(j) = U Σ_n u_n(j) v_n(j) f(E_n) (高エネルギー側の窓では -U Σ_n u_n(j) v_n(j) f(-E_n))</li>
+	 * </ul>
+	 * 
+	 * 打ち切った側の固有対は完全性関係 Σ_n u_n(j)^2 = Σ_n v_n(j)^2 = 1, Σ_n u_n(j) v_n(j) = 0 により定数としてのみ寄与する
+	 * 
+	 * @param eigenSystem 固有値方程式の解
+	 * @param temperature 温度
+	 * @return 超流動パラメータと粒子数
+	 * @throws IllegalStateException エネルギー窓で打ち切った側の固有対の寄与が無視できない場合
+	 */
+	public Observables calcObservables(EigenSystem eigenSystem, double temperature) {
+
+		m_energyWindow.checkTruncation(eigenSystem, m_matrixSize, m_boltzmannfactor * temperature);
+
+		boolean isLowestWindow = m_energyWindow.getMode() == EnergyWindow.Mode.LOWEST;
+		boolean isHighestWindow = m_energyWindow.getMode() == EnergyWindow.Mode.HIGHEST;
+
+		// 固有対ごとの重み
+		int count = eigenSystem.getCount();
+		double[] upWeight = new double[count];
+		double[] downWeight = new double[count];
+		double[] pairWeight = new double[count];
+		for (int n = 0; n < count; n++) {
+			double fermi = fermiDistributionfnc(eigenSystem.getValue(n), temperature);
+			double reverseFermi = fermiDistributionfnc(-eigenSystem.getValue(n), temperature);
+			upWeight[n] = isHighestWindow ? reverseFermi : fermi;
+			downWeight[n] = isLowestWindow ? fermi : reverseFermi;
+			pairWeight[n] = isHighestWindow ? -reverseFermi : fermi;
+		}
+
+		int siteNum = m_matrixSize / 2;
+		double[] upParticleNum = new double[m_matrixSize];
+		double[] downParticleNum = new double[m_matrixSize];
 		double[] pairPotential = new double[m_matrixSize];
-		Vector vecPairPotential = new DenseVector(pairPotential);
+		ObservableKernel.accumulate(m_pool, eigenSystem, upWeight, downWeight, pairWeight, upParticleNum, downParticleNum, pairPotential);
 
-		for (int j = 0; j < m_matrixSize / 2; j++) {
-			double sumPairPotential = 0.0;
-			for (Map.Entry<Double, Vector> e : mapEigenValueAndEigenVector.entries()) {
-				Double eigenValue = e.getKey();
-				Vector eigenVector = e.getValue();
-				sumPairPotential += eigenVector.get(j) * eigenVector.get(j + m_matrixSize / 2) * fermiDistributionfnc(eigenValue, temperature);
-			}
-			vecPairPotential.set(j, m_interparticleInteractionStrength * sumPairPotential);
+		for (int j = 0; j < siteNum; j++) {
+			upParticleNum[j] = isHighestWindow ? 1.0 - upParticleNum[j] : upParticleNum[j];
+			downParticleNum[j] = isLowestWindow ? 1.0 - downParticleNum[j] : downParticleNum[j];
+			pairPotential[j] = m_interparticleInteractionStrength * pairPotential[j];
 		}
 
-		return vecPairPotential;
-	} // end of calcSuperfluidOrderParameter
+		return new Observables(new DenseVector(pairPotential, false), new DenseVector(upParticleNum, false), new DenseVector(downParticleNum, false));
+	} // end of calcObservables
 
 	/**
-	 * 超流動パラメータ収束判定
+	 * カーネル多項式法で求めた f(H) の行列要素からアップスピン&ダウンスピン粒子数を算出する</br>
+	 * n_up(j) = &lt;j↑|f(H)|j↑&gt;, n_down(j) = 1 - &lt;j↓|f(H)|j↓&gt;
 	 * 
-	 * @param oldSuperfluidOrderParameter 前超流動パラメータ
-	 * @param newSuperfluidOrderParameter 新超流動パラメータ
-	 * @return true (収束) / false (収束していない)
+	 * @param solver 求解済みのカーネル多項式法ソルバ
+	 * @return スピン状態とスピン状態に対応する粒子数のマップ
 	 */
-	public boolean isConvergenceOfSuperfluidOrderParameter(Vector oldSuperfluidOrderParameter, Vector newSuperfluidOrderParameter) {
+	public Map<SpinState, Vector> calcAverageParticleNum(KernelPolynomialSolver solver) {
 
-		double[] arrayOldSuperfluidOrderParameter = ((DenseVector) oldSuperfluidOrderParameter).getData();
-		double[] arrayNewSuperfluidOrderParameter = ((DenseVector) newSuperfluidOrderParameter).getData();
+		Map<SpinState, Vector> mapAverageParticleNum = Maps.newHashMap();
 
-		List<Double> listDifferenceOfSuperfluidOrderParameters = Lists.newArrayListWithCapacity(arrayOldSuperfluidOrderParameter.length);
+		Vector vecUpParticleNum = new DenseVector(m_matrixSize);
+		Vector vecDownParticleNum = new DenseVector(m_matrixSize);
 
-		for (int i = 0; i < arrayOldSuperfluidOrderParameter.length; i++) {
-			listDifferenceOfSuperfluidOrderParameters.add(i, Math.abs(arrayNewSuperfluidOrderParameter[i] - arrayOldSuperfluidOrderParameter[i]));
+		double[] upUpElement = solver.getUpUpElement();
+		double[] downDownElement = solver.getDownDownElement();
+		for (int j = 0; j < m_matrixSize / 2; j++) {
+			vecUpParticleNum.set(j, upUpElement[j]);
+			vecDownParticleNum.set(j, 1.0 - downDownElement[j]);
 		}
-		Collections.sort(listDifferenceOfSuperfluidOrderParameters, new DoubleComparator());
-		double newMaxDifferenceOfSuperfluidOrderParameter = Iterables.getLast(listDifferenceOfSuperfluidOrderParameters);
 
-		if (Math.abs(newMaxDifferenceOfSuperfluidOrderParameter - m_maxDifferenceOfSuperfluidOrderParameter) < m_convergenceJudgeValue) {
-			System.out.println("Convergence!!");
-			return true;
-		}
-		m_maxDifferenceOfSuperfluidOrderParameter = newMaxDifferenceOfSuperfluidOrderParameter;
+		mapAverageParticleNum.put(SpinState.UP_STATE, vecUpParticleNum);
+		mapAverageParticleNum.put(SpinState.DOWN_STATE, vecDownParticleNum);
 
-		double[] arrayUpdateSuperfluidOrderParameter = new double[arrayNewSuperfluidOrderParameter.length];
-		for (int i = 0; i < arrayOldSuperfluidOrderParameter.length; i++) {
-			arrayUpdateSuperfluidOrderParameter[i] = m_weightFactor * arrayOldSuperfluidOrderParameter[i] + (1.0 - m_weightFactor) * arrayNewSuperfluidOrderParameter[i];
+		return mapAverageParticleNum;
+	} // end of calcAverageParticleNum
+
+	/**
+	 * カーネル多項式法で求めた f(H) の行列要素から超流動パラメータを算出する</br>
+	 * Δ(j) = U &lt;j↓|f(H)|j↑&gt;
+	 * 
+	 * @param solver 求解済みのカーネル多項式法ソルバ
+	 * @return 超流動パラメータ
+	 */
+	public Vector calcSuperfluidOrderParameter(KernelPolynomialSolver solver) {
+
+		Vector vecPairPotential = new DenseVector(m_matrixSize);
+
+		double[] downUpElement = solver.getDownUpElement();
+		for (int j = 0; j < m_matrixSize / 2; j++) {
+			vecPairPotential.set(j, m_interparticleInteractionStrength * downUpElement[j]);
 		}
-		Vector updateSuperfluidOrderParameter = new DenseVector(arrayUpdateSuperfluidOrderParameter);
-		newSuperfluidOrderParameter = updateSuperfluidOrderParameter;
 
-		return false;
+		return vecPairPotential;
+	} // end of calcSuperfluidOrderParameter
+
+	/**
+	 * カーネル多項式法で求めた f(H) の行列要素から超流動パラメータとアップスピン&ダウンスピン粒子数を算出する
+	 * 
+	 * @param solver 求解済みのカーネル多項式法ソルバ
+	 * @return 超流動パラメータと粒子数
+	 */
+	public Observables calcObservables(KernelPolynomialSolver solver) {
+		Map<SpinState, Vector> mapParticleNum = calcAverageParticleNum(solver);
+		return new Observables(calcSuperfluidOrderParameter(solver), mapParticleNum.get(SpinState.UP_STATE), mapParticleNum.get(SpinState.DOWN_STATE));
 	}
 
 	/**
-	 * 数値を比較するクラス
+	 * 波数空間ソルバで超流動パラメータとアップスピン&ダウンスピン粒子数を算出する</br>
+	 * 入力は格子点平均を一様な値として用い、全格子点に同じ値を出力する
 	 * 
-	 * @author y-ok
+	 * @param solver 波数空間ソルバ
+	 * @param pairPotentialEnergy 超流動パラメータ
+	 * @param upParticleNumber アップスピン粒子数
+	 * @param downParticleNumber ダウンスピン粒子数
+	 * @param temperature 温度
+	 * @return 超流動パラメータと粒子数
 	 */
-	private class DoubleComparator implements Comparator<Double> {
-		@Override
-		public int compare(Double value1, Double value2) {
-			return Double.compare(value1, value2);
+	public Observables calcObservables(MomentumSpaceSolver solver, Vector pairPotentialEnergy, Vector upParticleNumber, Vector downParticleNumber, double temperature) {
+
+		int siteNum = m_matrixSize / 2;
+		double pairPotential = 0.0;
+		double upParticleNum = 0.0;
+		double downParticleNum = 0.0;
+		for (int j = 0; j < siteNum; j++) {
+			pairPotential += pairPotentialEnergy.get(j);
+			upParticleNum += upParticleNumber.get(j);
+			downParticleNum += downParticleNumber.get(j);
 		}
+		double[] output = solver.calcObservables(0.0, temperature, pairPotential / siteNum, upParticleNum / siteNum, downParticleNum / siteNum);
+
+		double[] vecPairPotential = new double[m_matrixSize];
+		double[] vecUpParticleNum = new double[m_matrixSize];
+		double[] vecDownParticleNum = new double[m_matrixSize];
+		Arrays.fill(vecPairPotential, 0, siteNum, output[0]);
+		Arrays.fill(vecUpParticleNum, 0, siteNum, output[1]);
+		Arrays.fill(vecDownParticleNum, 0, siteNum, output[2]);
+		return new Observables(new DenseVector(vecPairPotential, false), new DenseVector(vecUpParticleNum, false), new DenseVector(vecDownParticleNum, false));
+	}
+
+	/**
+	 * 部分対角化のエネルギー窓を取得する
+	 * 
+	 * @return エネルギー窓
+	 */
+	public EnergyWindow getEnergyWindow() {
+		return m_energyWindow;
 	}
 
 	/**
@@ -425,7 +749,7 @@ public class BdGHamiltonian {
 	 *            (y-position)
 	 * @return 外部ポテンシャルの強さ
 	 */
-	private static double getExternalPotential(double x, double y) {
+	private double getExternalPotential(double x, double y) {
 		return m_potentialStrength * (Math.pow(x, 2) + Math.pow(y, 2));
 	} // end of externalPotential
 
@@ -441,7 +765,7 @@ public class BdGHamiltonian {
 	 * @return 外部ポテンシャルの強さ
 	 */
 	@SuppressWarnings("unused")
-	private static double getExternalPotential(double x, double y, double omega_ho, double omega_tr) {
+	private double getExternalPotential(double x, double y, double omega_ho, double omega_tr) {
 		double r = Math.sqrt((Math.pow(x, 2) + Math.pow(y, 2)));
 		return 0.01 * 0.5 * omega_ho * (Math.pow(r, 2)) + omega_tr * Math.exp(-r / 5);
 	}
@@ -453,7 +777,7 @@ public class BdGHamiltonian {
 	 *            (エネルギー)
 	 * @return xにおけるフェルミ分布
 	 */
-	private static double fermiDistributionfnc(double x, double t) {
+	private double fermiDistributionfnc(double x, double t) {
 		return 1 / (Math.exp(x / (m_boltzmannfactor * t)) + 1);
 	} // end of fermiDistribution
 
@@ -480,7 +804,7 @@ public class BdGHamiltonian {
 	 * 
 	 * @param matrix BdGハミルトニアン
 	 */
-	public static void setBdGHamiltonian(Matrix matrix) {
+	public void setBdGHamiltonian(Matrix matrix) {
 		m_BdGHamiltonian = matrix;
 	}
 }
@@ -0,0 +1,113 @@
+package org.physics.bdg;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * BdGハミルトニアン作用素インタフェース</br>
+ * 行列を保持せずにベクトルへの作用 y = H x のみを提供する
+ *
+ * @author y-ok
+ */
+public interface BdGHamiltonianOperator {
+
+	/**
+	 * 作用素の次元(M)を取得する
+	 *
+	 * @return 作用素の次元
+	 */
+	int getSize();
+
+	/**
+	 * 格子サイズ(N)を取得する
+	 *
+	 * @return 格子サイズ
+	 */
+	int getLatticeSize();
+
+	/**
+	 * y = H x を計算する
+	 *
+	 * @param x 入力ベクトル(長さM)
+	 * @param y 出力ベクトル(長さM)
+	 */
+	void multiply(double[] x, double[] y);
+
+	/**
+	 * 格子の行 [fromRow, toRow) に属する格子点について y = H x を計算する</br>
+	 * 出力は該当格子点のアップスピン成分とダウンスピン成分のみ書き込まれる
+	 *
+	 * @param x 入力ベクトル(長さM)
+	 * @param y 出力ベクトル(長さM)
+	 * @param fromRow 開始行
+	 * @param toRow 終了行(含まない)
+	 */
+	void multiply(double[] x, double[] y, int fromRow, int toRow);
+
+	/**
+	 * 格子点siteについて y = H x を計算する</br>
+	 * 出力は格子点siteのアップスピン成分(site)とダウンスピン成分(site + M / 2)のみ書き込まれる
+	 *
+	 * @param x 入力ベクトル(長さM)
+	 * @param y 出力ベクトル(長さM)
+	 * @param site 格子点
+	 */
+	void multiplySite(double[] x, double[] y, int site);
+
+	/**
+	 * 格子点siteと行列要素で結合する格子点(site自身を除く)を取得する</br>
+	 * H x の格子点siteの成分は、x の格子点siteと返却した格子点の成分のみから決まる
+	 *
+	 * @param site 格子点
+	 * @return 結合する格子点
+	 */
+	int[] getNeighborSites(int site);
+
+	/**
+	 * 格子の行ごとに分割して並列に y = H x を計算する
+	 *
+	 * @param x 入力ベクトル(長さM)
+	 * @param y 出力ベクトル(長さM)
+	 * @param pool スレッドプール
+	 */
+	default void multiply(double[] x, double[] y, ForkJoinPool pool) {
+		pool.invoke(new MultiplyTask(this, x, y, 0, getLatticeSize()));
+	}
+
+	/**
+	 * 格子の行単位で分割する並列計算タスク
+	 *
+	 * @author y-ok
+	 */
+	class MultiplyTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		// 1タスクが担当する最大行数
+		private static final int ROW_THRESHOLD = 4;
+
+		private final BdGHamiltonianOperator m_operator;
+		private final double[] m_x;
+		private final double[] m_y;
+		private final int m_fromRow;
+		private final int m_toRow;
+
+		MultiplyTask(BdGHamiltonianOperator operator, double[] x, double[] y, int fromRow, int toRow) {
+			m_operator = operator;
+			m_x = x;
+			m_y = y;
+			m_fromRow = fromRow;
+			m_toRow = toRow;
+		}
+
+		@Override
+		protected void compute() {
+			if (m_toRow - m_fromRow <= ROW_THRESHOLD) {
+				m_operator.multiply(m_x, m_y, m_fromRow, m_toRow);
+				return;
+			}
+			int middleRow = (m_fromRow + m_toRow) >>> 1;
+			invokeAll(new MultiplyTask(m_operator, m_x, m_y, m_fromRow, middleRow), new MultiplyTask(m_operator, m_x, m_y, middleRow, m_toRow));
+		}
+	}
+}
@@ -0,0 +1,266 @@
+package org.physics.bdg;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import com.google.common.collect.Lists;
+
+/**
+ * 計算ジョブの並列実行クラス</br>
+ * 互いに独立な計算ジョブ(温度掃引の各点など)を指定した並列数で実行する。各ジョブは実行前に見積もりピークメモリ分の
+ * メモリ枠を確保し、ヒープに収まる数のジョブのみ同時に実行する(1つで枠を超えるジョブは単独で実行する)。
+ * 結果はジョブの投入順に返す
+ *
+ * @author y-ok
+ */
+public class BdGJobScheduler {
+
+	// ヒープのうちジョブに割り当てる割合 (残りはJVMと結果の保持に用いる)
+	private static final double HEAP_USAGE_RATIO = 0.8;
+
+	/**
+	 * 計算ジョブ
+	 *
+	 * @param <T> 計算結果の型
+	 */
+	public interface Job<T> extends Callable<T> {
+
+		/**
+		 * 見積もりピークメモリを取得する
+		 *
+		 * @return 見積もりピークメモリ (byte)
+		 */
+		long getEstimatedMemory();
+	}
+
+	// 並列数
+	private final int m_jobNumber;
+
+	// メモリ枠 (byte)
+	private final long m_memoryBudget;
+
+	// 実行中のジョブが確保しているメモリ (byte)
+	private long m_memoryInUse = 0;
+
+	// 実行中のジョブ数
+	private int m_runningJobs = 0;
+
+	// 同時に実行したジョブ数の最大値
+	private int m_maxRunningJobs = 0;
+
+	/**
+	 * コンストラクタ</br>
+	 * メモリ枠は現在の空きヒープから求める
+	 *
+	 * @param jobNumber 並列数 (0以下の場合は利用可能なプロセッサ数)
+	 */
+	public BdGJobScheduler(int jobNumber) {
+		this(jobNumber, availableMemory());
+	}
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param jobNumber 並列数 (0以下の場合は利用可能なプロセッサ数)
+	 * @param memoryBudget メモリ枠 (byte)
+	 */
+	public BdGJobScheduler(int jobNumber, long memoryBudget) {
+		m_jobNumber = jobNumber > 0 ? jobNumber : Runtime.getRuntime().availableProcessors();
+		m_memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * 並列数を取得する
+	 *
+	 * @return 並列数
+	 */
+	public int getJobNumber() {
+		return m_jobNumber;
+	}
+
+	/**
+	 * メモリ枠を取得する
+	 *
+	 * @return メモリ枠 (byte)
+	 */
+	public long getMemoryBudget() {
+		return m_memoryBudget;
+	}
+
+	/**
+	 * 同時に実行したジョブ数の最大値を取得する
+	 *
+	 * @return 同時に実行したジョブ数の最大値
+	 */
+	public synchronized int getMaxRunningJobs() {
+		return m_maxRunningJobs;
+	}
+
+	/**
+	 * ジョブを並列に実行し、すべて終了するまで待つ</br>
+	 * いずれかのジョブが例外で終了した場合は、残りのジョブを中断して例外を送出する
+	 *
+	 * @param jobs 計算ジョブ
+	 * @return ジョブの投入順に並べた計算結果
+	 * @throws InterruptedException 待機中に割り込まれた場合
+	 * @throws ExecutionException ジョブが例外で終了した場合
+	 */
+	public <T> List<T> invokeAll(List<? extends Job<T>> jobs) throws InterruptedException, ExecutionException {
+
+		List<T> results = Lists.newArrayListWithCapacity(jobs.size());
+		if (jobs.isEmpty()) {
+			return results;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(m_jobNumber, jobs.size()), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "bdg-job");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			List<Future<T>> futures = Lists.newArrayListWithCapacity(jobs.size());
+			for (final Job<T> job : jobs) {
+				futures.add(executor.submit(new Callable<T>() {
+					@Override
+					public T call() throws Exception {
+						long memory = acquire(job.getEstimatedMemory());
+						try {
+							return job.call();
+						} finally {
+							release(memory);
+						}
+					}
+				}));
+			}
+			for (Future<T> future : futures) {
+				results.add(future.get());
+			}
+			return results;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * メモリ枠を確保する</br>
+	 * 枠に空きができるまで待つ。実行中のジョブがない場合は枠を超えても確保する
+	 *
+	 * @param memory 確保するメモリ (byte)
+	 * @return 確保したメモリ (byte)
+	 * @throws InterruptedException 待機中に割り込まれた場合
+	 */
+	private synchronized long acquire(long memory) throws InterruptedException {
+		while (m_runningJobs > 0 && m_memoryInUse + memory > m_memoryBudget) {
+			wait();
+		}
+		m_memoryInUse += memory;
+		m_runningJobs++;
+		m_maxRunningJobs = Math.max(m_maxRunningJobs, m_runningJobs);
+		return memory;
+	}
+
+	/**
+	 * メモリ枠を解放する
+	 *
+	 * @param memory 解放するメモリ (byte)
+	 */
+	private synchronized void release(long memory) {
+		m_memoryInUse -= memory;
+		m_runningJobs--;
+		notifyAll();
+	}
+
+	/**
+	 * 計算に使える空きヒープを取得する
+	 *
+	 * @return 空きヒープ (最大ヒープから使用中のヒープを除いた量の {@link #HEAP_USAGE_RATIO} 倍, byte)
+	 */
+	public static long availableMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		long used = runtime.totalMemory() - runtime.freeMemory();
+		return (long) ((runtime.maxMemory() - used) * HEAP_USAGE_RATIO);
+	}
+
+	/**
+	 * 1温度の自己無撞着計算のピークメモリを格子サイズと計算エンジンから見積もる
+	 *
+	 * <ul>
+	 * <li>DENSE : BdGハミルトニアン、固有値方程式の作業行列、LAPACK作業配列(約 2M^2)、部分対角化の固有ベクトル行列</li>
+	 * <li>LANCZOS : Lanczos基底、Ritzベクトル、射影した行列</li>
+	 * <li>KPM : 並列に計算する格子点ごとの6本のChebyshevベクトルと近傍領域</li>
+	 * <li>MOMENTUM : 波数ごとの分散 (外部ポテンシャルがある場合は DENSE と同じ)</li>
+	 * <li>ねじれ境界条件 : 密行列の対角化に加えて、並列に対角化するねじれ角ごとの 2M * 2M の行列と作業領域</li>
+	 * </ul>
+	 *
+	 * @param param パラメータ設定情報
+	 * @return 見積もりピークメモリ (byte)
+	 */
+	public static long estimateMemory(ParamInfo param) {
+
+		long latticeSize = param.getLatticeSize();
+		long matrixSize = 2 * latticeSize * latticeSize;
+		EnergyWindow window = EnergyWindow.valueOf(param.getEnergyWindowMode(), param.getEnergyWindowCutoff(), param.getEnergyWindowEigenNumber());
+
+		// 超流動パラメータ、粒子数、混合法の履歴など反復で保持するベクトル
+		long vectors = matrixSize * (16 + 4 * Math.max(1, param.getMixerHistoryDepth()));
+
+		long doubles;
+		switch (ScfEngine.of(param.getScfEngine())) {
+		case KPM: {
+			int threadNumber = param.getThreadNumber() > 0 ? param.getThreadNumber() : Runtime.getRuntime().availableProcessors();
+			doubles = matrixSize * (7L * threadNumber + 8);
+			break;
+		}
+		case MOMENTUM:
+			if (param.getExternalPotentialCoefficient() == 0.0) {
+				// 波数ごとの分散のみ
+				doubles = latticeSize * latticeSize;
+				break;
+			}
+			// 外部ポテンシャルがある場合は密行列の対角化となる
+			doubles = estimateDenseDoubles(matrixSize, window);
+			break;
+		case LANCZOS:
+			if (!window.isTruncated()) {
+				// エネルギー窓で打ち切らない場合は密行列の対角化となる
+				doubles = estimateDenseDoubles(matrixSize, window);
+				break;
+			}
+			long eigenNumber = window.isEigenNumberSpecified() ? window.getEigenNumber() : matrixSize / 2;
+			long subspaceSize = param.getLanczosSubspaceSize() > 0 ? param.getLanczosSubspaceSize() : Math.max(2 * eigenNumber, eigenNumber + 20);
+			doubles = matrixSize * (subspaceSize + 2 * eigenNumber) + subspaceSize * subspaceSize;
+			break;
+		default:
+			doubles = estimateDenseDoubles(matrixSize, window);
+			break;
+		}
+		ScfEngine engine = ScfEngine.of(param.getScfEngine());
+		boolean isDense = engine == ScfEngine.DENSE || (engine == ScfEngine.LANCZOS && !window.isTruncated()) || (engine == ScfEngine.MOMENTUM && param.getExternalPotentialCoefficient() != 0.0);
+		if (param.getTwistKPoints() > 1 && isDense) {
+			// ねじれ境界条件では、並列に対角化するねじれ角ごとに 2M * 2M の行列と作業領域を確保する
+			int threadNumber = param.getThreadNumber() > 0 ? param.getThreadNumber() : Runtime.getRuntime().availableProcessors();
+			long twists = Math.min(threadNumber, (long) param.getTwistKPoints() * param.getTwistKPoints());
+			doubles += twists * 16 * matrixSize * matrixSize;
+		}
+		return 8 * (doubles + vectors);
+	}
+
+	/**
+	 * 密行列の対角化で確保する要素数を見積もる
+	 *
+	 * @param matrixSize 行列サイズ
+	 * @param window エネルギー窓
+	 * @return BdGハミルトニアン、作業行列、LAPACK作業配列、部分対角化の固有ベクトル行列の要素数
+	 */
+	private static long estimateDenseDoubles(long matrixSize, EnergyWindow window) {
+		return 4 * matrixSize * matrixSize + (window.isTruncated() ? matrixSize * matrixSize : 0);
+	}
+}
@@ -1,7 +1,6 @@
 package org.physics.bdg;
 
 import java.io.IOException;
-import java.util.List;
 
 /**
  * 実行クラス
@@ -23,17 +22,15 @@ public class BdGMain {
 		// パラメータ読み込み
 		bdGFacade.setUp();
 
-		List<Double> temperaturelist = bdGFacade.getTemperatureList();
-		for (double temperature : temperaturelist) {
-			// BdGハミルトニアン作成
-			BdGHamiltonian hamiltonian = bdGFacade.makeBdGHamiltonian(temperature);
-
-			// BdGハミルトニアン対角化
-			bdGFacade.solveEigenEq(hamiltonian, temperature);
-			
-			bdGFacade.addBdGResult();
+		if (bdGFacade.isParameterSweep()) {
+			// パラメータ掃引の全点を計算し、掃引点ごとに計算結果を出力する
+			bdGFacade.solveParameterSweep();
+			return;
 		}
-		
+
+		// 温度掃引の全点を計算する
+		bdGFacade.solveTemperatureSweep();
+
 		// 計算結果出力
 		bdGFacade.outputCalculationResult();
 	}
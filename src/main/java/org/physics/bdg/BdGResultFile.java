@@ -59,8 +59,22 @@ public class BdGResultFile {
 	 * 
 	 */
 	public void writeResultOrderParameter(double temperature) {
+		writeResultOrderParameter(temperature, "");
+	}
+
+	/**
+	 * 粒子数算出結果を出力する</br>
+	 * 往復の温度掃引では、ファイル名に往路・復路のラベルを付ける (例: T=0.1_up.txt)
+	 * 
+	 * @param temperature
+	 *            温度
+	 * @param sweepLabel
+	 *            温度掃引の往路・復路のラベル (空文字の場合は付けない)
+	 */
+	public void writeResultOrderParameter(double temperature, String sweepLabel) {
 
-		String strOutputFilePath = pathInfo.getStrPwd() + "/" + pathInfo.getOutputPath() + "T=" + String.valueOf(temperature) + ".txt";
+		String strSuffix = (sweepLabel == null || sweepLabel.isEmpty()) ? "" : "_" + sweepLabel;
+		String strOutputFilePath = pathInfo.getStrPwd() + "/" + pathInfo.getOutputPath() + "T=" + String.valueOf(temperature) + strSuffix + ".txt";
 
 		File particleNumberResultFile = new File(strOutputFilePath);
 		try {
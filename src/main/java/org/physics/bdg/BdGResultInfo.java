@@ -23,6 +23,12 @@ public class BdGResultInfo {
 	// 超流動パラメータ
 	private Vector m_vecPairPotentialEnergy;
 
+	// 温度
+	private double m_temperature;
+
+	// 温度掃引の往路・復路のラベル
+	private String m_sweepLabel = "";
+
 	/**
 	 * アップスピン粒子数を取得する
 	 * 
@@ -80,6 +86,44 @@ public class BdGResultInfo {
 		this.m_vecPairPotentialEnergy = m_vecPairPotentialEnergy;
 	}
 
+	/**
+	 * 温度を取得する
+	 * 
+	 * @return 温度
+	 */
+	public double getTemperature() {
+		return m_temperature;
+	}
+
+	/**
+	 * 温度を設定する
+	 * 
+	 * @param m_temperature
+	 *            温度
+	 */
+	public void setTemperature(double m_temperature) {
+		this.m_temperature = m_temperature;
+	}
+
+	/**
+	 * 温度掃引の往路・復路のラベルを取得する
+	 * 
+	 * @return 温度掃引の往路・復路のラベル (片道の掃引では空文字)
+	 */
+	public String getSweepLabel() {
+		return m_sweepLabel;
+	}
+
+	/**
+	 * 温度掃引の往路・復路のラベルを設定する
+	 * 
+	 * @param m_sweepLabel
+	 *            温度掃引の往路・復路のラベル
+	 */
+	public void setSweepLabel(String m_sweepLabel) {
+		this.m_sweepLabel = m_sweepLabel;
+	}
+
 	/**
 	 * 全粒子数を取得する
 	 * 
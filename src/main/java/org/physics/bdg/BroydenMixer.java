@@ -0,0 +1,310 @@
+package org.physics.bdg;
+
+import java.util.Arrays;
+import java.util.List;
+
+import no.uib.cipr.matrix.DenseMatrix;
+import no.uib.cipr.matrix.DenseVector;
+import no.uib.cipr.matrix.MatrixSingularException;
+
+import org.physics.bdg.BdGHamiltonian.Observables;
+
+import com.google.common.collect.Lists;
+
+/**
+ * 修正Broyden混合クラス (D. D. Johnson, Phys. Rev. B 38, 12807 (1988))</br>
+ * 残差 R_k = F[x_k] - x_k の差分を正規化した ΔR_i = (R_{i+1} - R_i) / |R_{i+1} - R_i| と、同じ係数で正規化した入力の差分 Δx_i から
+ * 係数 γ = (w0^2 I + ΔR^T ΔR)^-1 ΔR^T R_k を求め、次の入力を x_{k+1} = x_k + α R_k - Σ_i γ_i (Δx_i + α ΔR_i) とする</br>
+ * 歩幅 α は残差が増えた場合に縮め、減った場合に 1 - w まで戻す。
+ * 残差が履歴中の最小値より大きく増えた場合(発散)は履歴を破棄して残差が最小だった入力からやり直し、
+ * 残差の向きが前回とほぼ逆のまま減らない場合(振動)は履歴を破棄する
+ *
+ * @author y-ok
+ */
+public class BroydenMixer extends AbstractMixer {
+
+	// 正規方程式の正則化の重み w0
+	private static final double W0 = 0.01;
+
+	// 残差が増えた場合に歩幅に掛ける係数
+	private static final double STEP_DECREASE = 0.5;
+
+	// 残差が減った場合に歩幅に掛ける係数
+	private static final double STEP_INCREASE = 1.5;
+
+	// 歩幅の下限 (1 - w に対する比)
+	private static final double MIN_STEP_RATIO = 1.0 / 16.0;
+
+	// 発散とみなす残差の増加率 (履歴中の最小の残差に対する比)
+	private static final double DIVERGENCE_RATIO = 2.0;
+
+	// 振動とみなす前回の残差との余弦
+	private static final double OSCILLATION_COSINE = -0.8;
+
+	// 保持する履歴数
+	private final int m_historyDepth;
+
+	// 歩幅の上限と現在の歩幅
+	private final double m_maxStep;
+	private double m_step;
+
+	// 正規化した入力と残差の差分の履歴 (古い順)
+	private final List<double[]> m_inputDifference = Lists.newArrayList();
+	private final List<double[]> m_residualDifference = Lists.newArrayList();
+
+	// 前回の入力と残差
+	private double[] m_previousInput;
+	private double[] m_previousResidual;
+	private double m_previousResidualNorm;
+
+	// 残差が最小だった入力と残差
+	private double[] m_bestInput;
+	private double[] m_bestResidual;
+	private double m_bestResidualNorm;
+
+	// 履歴を破棄した回数
+	private int m_restartCount;
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param weightFactor 入力の重み w (歩幅の上限は 1 - w)
+	 * @param historyDepth 保持する履歴数 (1以上)
+	 */
+	public BroydenMixer(double weightFactor, int historyDepth) {
+		super(weightFactor);
+		if (historyDepth < 1) {
+			throw new IllegalArgumentException("Broyden history depth must be positive: " + historyDepth);
+		}
+		m_historyDepth = historyDepth;
+		m_maxStep = 1.0 - weightFactor;
+		reset();
+	}
+
+	@Override
+	public String getName() {
+		return BROYDEN;
+	}
+
+	@Override
+	public void reset() {
+		clearHistory();
+		m_step = m_maxStep;
+		m_bestInput = null;
+		m_bestResidual = null;
+		m_bestResidualNorm = Double.POSITIVE_INFINITY;
+		m_restartCount = 0;
+	}
+
+	/**
+	 * 保持している履歴数を取得する
+	 *
+	 * @return 履歴数
+	 */
+	public int getHistorySize() {
+		return m_residualDifference.size();
+	}
+
+	/**
+	 * 現在の歩幅 α を取得する
+	 *
+	 * @return 歩幅
+	 */
+	public double getStep() {
+		return m_step;
+	}
+
+	/**
+	 * 発散または振動を検出して履歴を破棄した回数を取得する
+	 *
+	 * @return 履歴を破棄した回数
+	 */
+	public int getRestartCount() {
+		return m_restartCount;
+	}
+
+	/**
+	 * {@inheritDoc}</br>
+	 * 先頭は歩幅、前回の残差ノルム、最良の残差ノルム、履歴を破棄した回数の配列とし、
+	 * 続けて最良の入力、最良の残差、前回の入力、前回の残差の有無と差分の履歴の長さの配列、値がある最良の入力・最良の残差・前回の入力・前回の残差、
+	 * 入力と残差の差分の組(古い順)の順に並べる
+	 */
+	@Override
+	public List<double[]> getState() {
+		List<double[]> state = Lists.newArrayList();
+		state.add(new double[] { m_step, m_previousResidualNorm, m_bestResidualNorm, m_restartCount });
+		addHistoryState(state, Arrays.asList(m_bestInput, m_bestResidual, m_previousInput, m_previousResidual), m_inputDifference, m_residualDifference);
+		return state;
+	}
+
+	@Override
+	public void setState(List<double[]> state) {
+		reset();
+		if (state.isEmpty()) {
+			return;
+		}
+		double[][] previous = new double[4][];
+		setHistoryState(state, 1, previous, m_inputDifference, m_residualDifference);
+		double[] scalar = state.get(0);
+		m_step = scalar[0];
+		m_previousResidualNorm = scalar[1];
+		m_bestResidualNorm = scalar[2];
+		m_restartCount = (int) scalar[3];
+		m_bestInput = previous[0];
+		m_bestResidual = previous[1];
+		m_previousInput = previous[2];
+		m_previousResidual = previous[3];
+	}
+
+	@Override
+	public Observables mix(Observables input, Observables output) {
+
+		double[] x = pack(input);
+		double[] residual = pack(output);
+		for (int i = 0; i < x.length; i++) {
+			residual[i] -= x[i];
+		}
+		double residualNorm = Math.sqrt(dot(residual, residual));
+
+		if (m_previousInput != null) {
+			// 残差が増えたら歩幅を縮め、減ったら上限まで戻す
+			if (residualNorm > m_previousResidualNorm) {
+				m_step = Math.max(m_step * STEP_DECREASE, m_maxStep * MIN_STEP_RATIO);
+			} else {
+				m_step = Math.min(m_step * STEP_INCREASE, m_maxStep);
+			}
+
+			double cosine = dot(residual, m_previousResidual) / (residualNorm * m_previousResidualNorm);
+			if (residualNorm > DIVERGENCE_RATIO * m_bestResidualNorm) {
+				// 発散: 残差が最小だった入力からやり直す
+				restart("divergence");
+				x = m_bestInput.clone();
+				residual = m_bestResidual.clone();
+				residualNorm = m_bestResidualNorm;
+			} else if (cosine < OSCILLATION_COSINE && residualNorm >= m_previousResidualNorm) {
+				// 減衰しない振動: 現在の入力から履歴なしでやり直す
+				restart("oscillation");
+			} else {
+				addHistory(x, residual);
+			}
+		}
+
+		if (residualNorm < m_bestResidualNorm) {
+			m_bestInput = x.clone();
+			m_bestResidual = residual.clone();
+			m_bestResidualNorm = residualNorm;
+		}
+		m_previousInput = x.clone();
+		m_previousResidual = residual.clone();
+		m_previousResidualNorm = residualNorm;
+
+		double[] next = new double[x.length];
+		for (int i = 0; i < x.length; i++) {
+			next[i] = x[i] + m_step * residual[i];
+		}
+
+		double[] gamma = solveCoefficient(residual);
+		for (int k = 0; k < gamma.length; k++) {
+			double[] inputDifference = m_inputDifference.get(k);
+			double[] residualDifference = m_residualDifference.get(k);
+			for (int i = 0; i < x.length; i++) {
+				next[i] -= gamma[k] * (inputDifference[i] + m_step * residualDifference[i]);
+			}
+		}
+		return unpack(next, input);
+	}
+
+	/**
+	 * 前回との差分を正規化して履歴に追加する
+	 *
+	 * @param x 今回の入力
+	 * @param residual 今回の残差
+	 */
+	private void addHistory(double[] x, double[] residual) {
+
+		double[] inputDifference = new double[x.length];
+		double[] residualDifference = new double[x.length];
+		for (int i = 0; i < x.length; i++) {
+			inputDifference[i] = x[i] - m_previousInput[i];
+			residualDifference[i] = residual[i] - m_previousResidual[i];
+		}
+		double norm = Math.sqrt(dot(residualDifference, residualDifference));
+		if (norm == 0.0) {
+			return;
+		}
+		for (int i = 0; i < x.length; i++) {
+			inputDifference[i] /= norm;
+			residualDifference[i] /= norm;
+		}
+		m_inputDifference.add(inputDifference);
+		m_residualDifference.add(residualDifference);
+		if (m_residualDifference.size() > m_historyDepth) {
+			m_inputDifference.remove(0);
+			m_residualDifference.remove(0);
+		}
+	}
+
+	/**
+	 * 正則化した正規方程式 (w0^2 I + ΔR^T ΔR) γ = ΔR^T R_k を解く
+	 *
+	 * @param residual 今回の残差 R_k
+	 * @return 係数 γ (履歴を破棄した場合は長さ0)
+	 */
+	private double[] solveCoefficient(double[] residual) {
+
+		int m = m_residualDifference.size();
+		if (m == 0) {
+			return new double[0];
+		}
+
+		DenseMatrix overlap = new DenseMatrix(m, m);
+		DenseVector rhs = new DenseVector(m);
+		for (int k = 0; k < m; k++) {
+			double[] residualDifferenceK = m_residualDifference.get(k);
+			for (int l = 0; l <= k; l++) {
+				double value = dot(residualDifferenceK, m_residualDifference.get(l));
+				overlap.set(k, l, value);
+				overlap.set(l, k, value);
+			}
+			overlap.add(k, k, W0 * W0);
+			rhs.set(k, dot(residualDifferenceK, residual));
+		}
+
+		DenseVector gamma = new DenseVector(m);
+		try {
+			overlap.solve(rhs, gamma);
+		} catch (MatrixSingularException e) {
+			clearHistory();
+			return new double[0];
+		}
+		return gamma.getData();
+	}
+
+	/**
+	 * 発散または振動を検出したため履歴を破棄する
+	 *
+	 * @param reason 検出した理由
+	 */
+	private void restart(String reason) {
+		m_restartCount++;
+		m_inputDifference.clear();
+		m_residualDifference.clear();
+		System.out.println("Broyden mixer restart (" + reason + "), step: " + m_step);
+	}
+
+	private void clearHistory() {
+		m_inputDifference.clear();
+		m_residualDifference.clear();
+		m_previousInput = null;
+		m_previousResidual = null;
+		m_previousResidualNorm = 0.0;
+	}
+
+	private static double dot(double[] a, double[] b) {
+		double sum = 0.0;
+		for (int i = 0; i < a.length; i++) {
+			sum += a[i] * b[i];
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,39 @@
+package org.physics.bdg;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import com.google.common.collect.Maps;
+
+/**
+ * 並列計算用スレッドプールクラス</br>
+ * スレッド数ごとにForkJoinプールを1つだけ作成し、同一JVM内の計算で共有する(ワーカースレッドはデーモンスレッドのため終了処理は不要)
+ *
+ * @author y-ok
+ */
+public final class ComputePool {
+
+	// スレッド数ごとのスレッドプール
+	private static final Map<Integer, ForkJoinPool> POOLS = Maps.newHashMap();
+
+	private ComputePool() {
+	}
+
+	/**
+	 * スレッド数に対応するスレッドプールを取得する
+	 *
+	 * @param threadNumber スレッド数 (0以下の場合は共通プール)
+	 * @return スレッドプール
+	 */
+	public static synchronized ForkJoinPool get(int threadNumber) {
+		if (threadNumber <= 0) {
+			return ForkJoinPool.commonPool();
+		}
+		ForkJoinPool pool = POOLS.get(threadNumber);
+		if (pool == null) {
+			pool = new ForkJoinPool(threadNumber);
+			POOLS.put(threadNumber, pool);
+		}
+		return pool;
+	}
+}
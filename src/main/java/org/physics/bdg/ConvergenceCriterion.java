@@ -0,0 +1,189 @@
+package org.physics.bdg;
+
+import no.uib.cipr.matrix.DenseVector;
+import no.uib.cipr.matrix.Vector;
+
+import org.physics.bdg.BdGHamiltonian.Observables;
+
+/**
+ * 自己無撞着計算の収束判定クラス</br>
+ * 反復の入力 x と出力 F[x] の残差 F[x] - x を、超流動パラメータ、アップスピン粒子数、ダウンスピン粒子数のそれぞれについて
+ * 指定したノルムで求め、3つとも収束判定値を下回った場合に収束とする。3つのノルムは全格子点を1回走査して同時に求める
+ *
+ * @author y-ok
+ */
+public class ConvergenceCriterion {
+
+	/**
+	 * 残差のノルム
+	 *
+	 * <ul>
+	 * <li>MAX : 最大値ノルム max_j |F_j - x_j|</li>
+	 * <li>L2 : 格子点あたりの二乗平均平方根 sqrt(Σ_j (F_j - x_j)^2 / N)</li>
+	 * <li>RELATIVE : 出力に対する相対ノルム |F - x|_2 / |F|_2 (出力が0の場合は |F - x|_2)</li>
+	 * </ul>
+	 */
+	public enum Norm {
+		MAX, L2, RELATIVE;
+
+		/**
+		 * パラメータ設定値からノルムを取得する
+		 *
+		 * @param norm ノルム名 (max, l2, relative)。null または空文字の場合は max
+		 * @return ノルム
+		 */
+		public static Norm of(String norm) {
+			if (norm == null || norm.trim().isEmpty()) {
+				return MAX;
+			}
+			return valueOf(norm.trim().toUpperCase());
+		}
+	}
+
+	// 残差のノルム
+	private final Norm m_norm;
+
+	// 収束判定値
+	private final double m_tolerance;
+
+	// 格子点数 N (ベクトルの先頭 N 成分のみ判定に用いる)
+	private final int m_siteNum;
+
+	// 直近の判定での残差 (超流動パラメータ、アップスピン粒子数、ダウンスピン粒子数)
+	private double m_pairPotentialResidual = Double.NaN;
+	private double m_upParticleResidual = Double.NaN;
+	private double m_downParticleResidual = Double.NaN;
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param norm 残差のノルム
+	 * @param tolerance 収束判定値
+	 * @param siteNum 格子点数 N
+	 */
+	public ConvergenceCriterion(Norm norm, double tolerance, int siteNum) {
+		m_norm = norm;
+		m_tolerance = tolerance;
+		m_siteNum = siteNum;
+	}
+
+	/**
+	 * 収束判定</br>
+	 * 超流動パラメータ、アップスピン粒子数、ダウンスピン粒子数の残差のノルムがすべて収束判定値を下回るかどうか
+	 *
+	 * @param input 反復の入力
+	 * @param output 入力から求めた出力
+	 * @return true (収束) / false (収束していない)
+	 */
+	public boolean isConvergence(Observables input, Observables output) {
+
+		double[] oldPair = toArray(input.getPairPotentialEnergy());
+		double[] oldUp = toArray(input.getUpParticleNumber());
+		double[] oldDown = toArray(input.getDownParticleNumber());
+		double[] newPair = toArray(output.getPairPotentialEnergy());
+		double[] newUp = toArray(output.getUpParticleNumber());
+		double[] newDown = toArray(output.getDownParticleNumber());
+		int size = Math.min(m_siteNum, Math.min(oldPair.length, newPair.length));
+
+		// 最大値、残差の二乗和、出力の二乗和を1回の走査で求める
+		double pairMax = 0.0, upMax = 0.0, downMax = 0.0;
+		double pairSquare = 0.0, upSquare = 0.0, downSquare = 0.0;
+		double pairNorm = 0.0, upNorm = 0.0, downNorm = 0.0;
+		for (int j = 0; j < size; j++) {
+			double pair = newPair[j] - oldPair[j];
+			double up = newUp[j] - oldUp[j];
+			double down = newDown[j] - oldDown[j];
+			pairMax = Math.max(pairMax, Math.abs(pair));
+			upMax = Math.max(upMax, Math.abs(up));
+			downMax = Math.max(downMax, Math.abs(down));
+			pairSquare += pair * pair;
+			upSquare += up * up;
+			downSquare += down * down;
+			pairNorm += newPair[j] * newPair[j];
+			upNorm += newUp[j] * newUp[j];
+			downNorm += newDown[j] * newDown[j];
+		}
+
+		m_pairPotentialResidual = residual(pairMax, pairSquare, pairNorm, size);
+		m_upParticleResidual = residual(upMax, upSquare, upNorm, size);
+		m_downParticleResidual = residual(downMax, downSquare, downNorm, size);
+
+		return m_pairPotentialResidual < m_tolerance && m_upParticleResidual < m_tolerance && m_downParticleResidual < m_tolerance;
+	}
+
+	/**
+	 * 直近の判定での残差の最大値(3つの場のうち最大のもの)を取得する
+	 *
+	 * @return 残差 (未判定の場合は NaN)
+	 */
+	public double getResidual() {
+		return Math.max(m_pairPotentialResidual, Math.max(m_upParticleResidual, m_downParticleResidual));
+	}
+
+	/**
+	 * 直近の判定での超流動パラメータの残差を取得する
+	 *
+	 * @return 超流動パラメータの残差 (未判定の場合は NaN)
+	 */
+	public double getPairPotentialResidual() {
+		return m_pairPotentialResidual;
+	}
+
+	/**
+	 * 直近の判定でのアップスピン粒子数の残差を取得する
+	 *
+	 * @return アップスピン粒子数の残差 (未判定の場合は NaN)
+	 */
+	public double getUpParticleResidual() {
+		return m_upParticleResidual;
+	}
+
+	/**
+	 * 直近の判定でのダウンスピン粒子数の残差を取得する
+	 *
+	 * @return ダウンスピン粒子数の残差 (未判定の場合は NaN)
+	 */
+	public double getDownParticleResidual() {
+		return m_downParticleResidual;
+	}
+
+	/**
+	 * 残差のノルムを取得する
+	 *
+	 * @return 残差のノルム
+	 */
+	public Norm getNorm() {
+		return m_norm;
+	}
+
+	/**
+	 * 収束判定値を取得する
+	 *
+	 * @return 収束判定値
+	 */
+	public double getTolerance() {
+		return m_tolerance;
+	}
+
+	private double residual(double max, double square, double outputSquare, int size) {
+		switch (m_norm) {
+		case L2:
+			return size == 0 ? 0.0 : Math.sqrt(square / size);
+		case RELATIVE:
+			return outputSquare == 0.0 ? Math.sqrt(square) : Math.sqrt(square / outputSquare);
+		default:
+			return max;
+		}
+	}
+
+	private static double[] toArray(Vector vector) {
+		if (vector instanceof DenseVector) {
+			return ((DenseVector) vector).getData();
+		}
+		double[] array = new double[vector.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = vector.get(i);
+		}
+		return array;
+	}
+}
@@ -0,0 +1,84 @@
+package org.physics.bdg;
+
+import org.netlib.util.intW;
+
+import com.github.fommil.netlib.F2jLAPACK;
+import com.github.fommil.netlib.LAPACK;
+
+/**
+ * 固有値ソルババックエンドインタフェース</br>
+ * 実対称行列の固有値問題(LAPACK dsyevd)を実行するLAPACK実装を切り替える
+ *
+ * @author y-ok
+ */
+public interface EigenSolverBackend {
+
+	// 自動選択 (ネイティブLAPACKが読み込めればネイティブ、なければf2j)
+	String AUTO = "auto";
+
+	// ネイティブLAPACK (netlib-java経由でシステムのOpenBLAS/LAPACKなどを使用)
+	String NATIVE = "native";
+
+	// f2j版LAPACK (pure Java)
+	String F2J = "f2j";
+
+	/**
+	 * バックエンド名を取得する
+	 *
+	 * @return バックエンド名
+	 */
+	String getName();
+
+	/**
+	 * ネイティブLAPACKかどうか
+	 *
+	 * @return ネイティブLAPACKの場合 true
+	 */
+	boolean isNative();
+
+	/**
+	 * 実対称行列の全固有値と固有ベクトルを求める (LAPACK dsyevd)</br>
+	 * 引数はLAPACKと同じ。配列はそれぞれ開始位置(offset)から使用する
+	 *
+	 * @return 実行結果(info)
+	 */
+	int dsyevd(String jobz, String uplo, int n, double[] a, int aOffset, int lda, double[] w, int wOffset, double[] work, int workOffset, int lwork, int[] iwork, int iworkOffset, int liwork);
+
+	/**
+	 * 実対称行列の一部の固有値と固有ベクトルをMRRR法で求める (LAPACK dsyevr)</br>
+	 * 引数はLAPACKと同じ。配列はそれぞれ開始位置(offset)から使用する
+	 *
+	 * @param m 求まった固有値数
+	 * @return 実行結果(info)
+	 */
+	int dsyevr(String jobz, String range, String uplo, int n, double[] a, int aOffset, int lda, double vl, double vu, int il, int iu, double abstol, intW m, double[] w, int wOffset, double[] z, int zOffset, int ldz, int[] isuppz, int isuppzOffset, double[] work, int workOffset, int lwork, int[] iwork, int iworkOffset, int liwork);
+
+	/**
+	 * バックエンドを作成する
+	 *
+	 * @param type バックエンド種別 ({@link #AUTO}, {@link #NATIVE}, {@link #F2J})。null の場合は {@link #AUTO}
+	 * @return バックエンド
+	 */
+	static EigenSolverBackend create(String type) {
+
+		if (type == null || AUTO.equalsIgnoreCase(type)) {
+			LAPACK lapack = LAPACK.getInstance();
+			if (lapack instanceof F2jLAPACK) {
+				return new F2jEigenSolverBackend();
+			}
+			return new NetlibEigenSolverBackend(lapack);
+		}
+		if (NATIVE.equalsIgnoreCase(type)) {
+			LAPACK lapack = LAPACK.getInstance();
+			if (lapack instanceof F2jLAPACK) {
+				System.out.println("Native LAPACK is not available. Fall back to f2j.");
+				return new F2jEigenSolverBackend();
+			}
+			return new NetlibEigenSolverBackend(lapack);
+		}
+		if (F2J.equalsIgnoreCase(type)) {
+			return new F2jEigenSolverBackend();
+		}
+		throw new IllegalArgumentException("Unknown eigen solver backend: " + type);
+	}
+}
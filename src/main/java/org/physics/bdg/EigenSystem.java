@@ -0,0 +1,192 @@
+package org.physics.bdg;
+
+import java.util.Map;
+
+import no.uib.cipr.matrix.DenseVector;
+import no.uib.cipr.matrix.Vector;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+
+/**
+ * 固有値方程式の解(固有値と固有ベクトル)クラス</br>
+ * LAPACKが出力した固有値配列と列優先の固有ベクトル行列をコピーせずに参照し、第n固有対の第row成分を
+ * vectors[vectorOffset + n * leadingDimension + row] として参照する。固有値は昇順に格納される
+ *
+ * @author y-ok
+ */
+public class EigenSystem {
+
+	// 固有ベクトルの次元(M)
+	private final int m_dimension;
+
+	// 固有対の数
+	private final int m_count;
+
+	// 固有値配列と先頭位置
+	private final double[] m_values;
+	private final int m_valueOffset;
+
+	// 固有ベクトル行列(列優先)と先頭位置、列の間隔
+	private final double[] m_vectors;
+	private final int m_vectorOffset;
+	private final int m_leadingDimension;
+
+	/**
+	 * コンストラクタ</br>
+	 * 配列はコピーせずに参照する
+	 *
+	 * @param dimension 固有ベクトルの次元(M)
+	 * @param count 固有対の数
+	 * @param values 固有値配列
+	 * @param valueOffset 固有値配列の先頭位置
+	 * @param vectors 固有ベクトル行列(列優先)
+	 * @param vectorOffset 固有ベクトル行列の先頭位置
+	 * @param leadingDimension 固有ベクトル行列の列の間隔
+	 */
+	public EigenSystem(int dimension, int count, double[] values, int valueOffset, double[] vectors, int vectorOffset, int leadingDimension) {
+		m_dimension = dimension;
+		m_count = count;
+		m_values = values;
+		m_valueOffset = valueOffset;
+		m_vectors = vectors;
+		m_vectorOffset = vectorOffset;
+		m_leadingDimension = leadingDimension;
+	}
+
+	/**
+	 * 固有値と固有ベクトルのマップから作成する</br>
+	 * 固有対は固有値の昇順に並べ替えてコピーする
+	 *
+	 * @param mapEigenValueAndEigenVector 固有値、固有ベクトルマップ
+	 * @return 固有値方程式の解
+	 */
+	public static EigenSystem of(Multimap<Double, Vector> mapEigenValueAndEigenVector) {
+
+		int count = mapEigenValueAndEigenVector.size();
+		int dimension = count == 0 ? 0 : mapEigenValueAndEigenVector.values().iterator().next().size();
+
+		double[] values = new double[count];
+		Vector[] columns = new Vector[count];
+		int n = 0;
+		for (Map.Entry<Double, Vector> e : mapEigenValueAndEigenVector.entries()) {
+			// 挿入ソートで固有値の昇順に並べる
+			int position = n++;
+			while (position > 0 && values[position - 1] > e.getKey()) {
+				values[position] = values[position - 1];
+				columns[position] = columns[position - 1];
+				position--;
+			}
+			values[position] = e.getKey();
+			columns[position] = e.getValue();
+		}
+
+		double[] vectors = new double[dimension * count];
+		for (int i = 0; i < count; i++) {
+			for (int row = 0; row < dimension; row++) {
+				vectors[i * dimension + row] = columns[i].get(row);
+			}
+		}
+		return new EigenSystem(dimension, count, values, 0, vectors, 0, dimension);
+	}
+
+	/**
+	 * 固有ベクトルの次元(M)を取得する
+	 *
+	 * @return 固有ベクトルの次元
+	 */
+	public int getDimension() {
+		return m_dimension;
+	}
+
+	/**
+	 * 固有対の数を取得する
+	 *
+	 * @return 固有対の数
+	 */
+	public int getCount() {
+		return m_count;
+	}
+
+	/**
+	 * 第n固有値を取得する
+	 *
+	 * @param n 固有対の番号
+	 * @return 第n固有値
+	 */
+	public double getValue(int n) {
+		return m_values[m_valueOffset + n];
+	}
+
+	/**
+	 * 第n固有ベクトルの第row成分を取得する
+	 *
+	 * @param n 固有対の番号
+	 * @param row 成分
+	 * @return 第n固有ベクトルの第row成分
+	 */
+	public double getVector(int n, int row) {
+		return m_vectors[m_vectorOffset + n * m_leadingDimension + row];
+	}
+
+	/**
+	 * 固有値配列を取得する(第n固有値は values[valueOffset + n])
+	 *
+	 * @return 固有値配列
+	 */
+	public double[] getValues() {
+		return m_values;
+	}
+
+	/**
+	 * 固有値配列の先頭位置を取得する
+	 *
+	 * @return 固有値配列の先頭位置
+	 */
+	public int getValueOffset() {
+		return m_valueOffset;
+	}
+
+	/**
+	 * 固有ベクトル行列(列優先)を取得する(第n固有ベクトルの第row成分は vectors[vectorOffset + n * leadingDimension + row])
+	 *
+	 * @return 固有ベクトル行列
+	 */
+	public double[] getVectors() {
+		return m_vectors;
+	}
+
+	/**
+	 * 固有ベクトル行列の先頭位置を取得する
+	 *
+	 * @return 固有ベクトル行列の先頭位置
+	 */
+	public int getVectorOffset() {
+		return m_vectorOffset;
+	}
+
+	/**
+	 * 固有ベクトル行列の列の間隔を取得する
+	 *
+	 * @return 固有ベクトル行列の列の間隔
+	 */
+	public int getLeadingDimension() {
+		return m_leadingDimension;
+	}
+
+	/**
+	 * 固有値と固有ベクトルのマップを作成する</br>
+	 * 固有ベクトルはそれぞれ独立した配列にコピーする
+	 *
+	 * @return 固有値、固有ベクトルマップ
+	 */
+	public Multimap<Double, Vector> toMultimap() {
+		Multimap<Double, Vector> mapEigenValueAndEigenVector = ArrayListMultimap.create(Math.max(1, m_count), 1);
+		for (int n = 0; n < m_count; n++) {
+			double[] vector = new double[m_dimension];
+			System.arraycopy(m_vectors, m_vectorOffset + n * m_leadingDimension, vector, 0, m_dimension);
+			mapEigenValueAndEigenVector.put(getValue(n), new DenseVector(vector, false));
+		}
+		return mapEigenValueAndEigenVector;
+	}
+}
@@ -0,0 +1,218 @@
+package org.physics.bdg;
+
+import no.uib.cipr.matrix.DenseMatrix;
+
+import org.netlib.lapack.Dsyevd;
+import org.netlib.lapack.Dsyevr;
+import org.netlib.util.intW;
+
+/**
+ * 固有値方程式の作業領域クラス</br>
+ * 行列サイズごとにBdGハミルトニアン、LAPACK作業配列、固有値、固有ベクトル行列を保持し、反復計算および温度間で再利用する
+ *
+ * @author y-ok
+ */
+public class EigenValueWorkspace {
+
+	// 行列サイズ
+	private final int m_matrixSize;
+
+	// BdGハミルトニアン(密行列)
+	private DenseMatrix m_hamiltonian;
+
+	// 固有値方程式の作業行列
+	private double[] m_workMatrix;
+
+	// 固有値
+	private double[] m_eigenValue;
+
+	// LAPACK作業配列
+	private double[] m_work;
+	private int[] m_iwork;
+
+	// スピン分離時(M/2 * M/2 ブロック)のLAPACK作業配列サイズ
+	private int m_blockWorkSize;
+	private int m_blockIWorkSize;
+
+	// 部分対角化(dsyevr)の固有ベクトル行列とサポート配列
+	private double[] m_windowEigenVectorMatrix;
+	private int[] m_isuppz;
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param matrixSize 行列サイズ
+	 */
+	public EigenValueWorkspace(int matrixSize) {
+		m_matrixSize = matrixSize;
+	}
+
+	/**
+	 * 行列サイズを取得する
+	 *
+	 * @return 行列サイズ
+	 */
+	public int getMatrixSize() {
+		return m_matrixSize;
+	}
+
+	/**
+	 * BdGハミルトニアン(密行列)を取得する</br>
+	 * 内容は前回使用時のまま返却される
+	 *
+	 * @return BdGハミルトニアン
+	 */
+	public DenseMatrix getHamiltonian() {
+		if (m_hamiltonian == null) {
+			m_hamiltonian = new DenseMatrix(m_matrixSize, m_matrixSize);
+		}
+		return m_hamiltonian;
+	}
+
+	/**
+	 * 固有値方程式の作業行列(列優先)を取得する
+	 *
+	 * @return 作業行列
+	 */
+	public double[] getWorkMatrix() {
+		if (m_workMatrix == null) {
+			m_workMatrix = new double[m_matrixSize * m_matrixSize];
+		}
+		return m_workMatrix;
+	}
+
+	/**
+	 * 固有値配列を取得する
+	 *
+	 * @return 固有値配列
+	 */
+	public double[] getEigenValue() {
+		if (m_eigenValue == null) {
+			m_eigenValue = new double[m_matrixSize];
+		}
+		return m_eigenValue;
+	}
+
+	/**
+	 * LAPACK(dsyevd)の実数作業配列を取得する
+	 *
+	 * @return 実数作業配列
+	 */
+	public double[] getWork() {
+		if (m_work == null) {
+			queryWorkSize();
+		}
+		return m_work;
+	}
+
+	/**
+	 * スピン分離時の1ブロックあたりの実数作業配列サイズを取得する</br>
+	 * 実数作業配列は2ブロック分を並べて使用できる大きさで確保される
+	 *
+	 * @return 1ブロックあたりの実数作業配列サイズ
+	 */
+	public int getBlockWorkSize() {
+		if (m_work == null) {
+			queryWorkSize();
+		}
+		return m_blockWorkSize;
+	}
+
+	/**
+	 * スピン分離時の1ブロックあたりの整数作業配列サイズを取得する</br>
+	 * 整数作業配列は2ブロック分を並べて使用できる大きさで確保される
+	 *
+	 * @return 1ブロックあたりの整数作業配列サイズ
+	 */
+	public int getBlockIWorkSize() {
+		if (m_iwork == null) {
+			queryWorkSize();
+		}
+		return m_blockIWorkSize;
+	}
+
+	/**
+	 * LAPACK(dsyevd)の整数作業配列を取得する
+	 *
+	 * @return 整数作業配列
+	 */
+	public int[] getIWork() {
+		if (m_iwork == null) {
+			queryWorkSize();
+		}
+		return m_iwork;
+	}
+
+	/**
+	 * 部分対角化(dsyevr)の固有ベクトル行列(列優先)を取得する</br>
+	 * 必要な長さに満たない場合は確保し直す
+	 *
+	 * @param length 必要な長さ
+	 * @return 固有ベクトル行列
+	 */
+	public double[] getWindowEigenVectorMatrix(int length) {
+		if (m_windowEigenVectorMatrix == null || m_windowEigenVectorMatrix.length < length) {
+			m_windowEigenVectorMatrix = new double[length];
+		}
+		return m_windowEigenVectorMatrix;
+	}
+
+	/**
+	 * 部分対角化(dsyevr)の固有ベクトルのサポート配列を取得する
+	 *
+	 * @return サポート配列
+	 */
+	public int[] getIsuppz() {
+		if (m_isuppz == null) {
+			m_isuppz = new int[2 * Math.max(1, m_matrixSize)];
+		}
+		return m_isuppz;
+	}
+
+	/**
+	 * LAPACKのワークスペース問い合わせ(lwork = liwork = -1)で最適な作業配列サイズを求め、作業配列を確保する</br>
+	 * 作業配列は全体の問題と、スピン分離時の2つのブロックを並べた問題の両方に足りる大きさとする(dsyevdとdsyevrで共用する)
+	 */
+	private void queryWorkSize() {
+
+		int[] size = queryWorkSize(m_matrixSize);
+		int[] blockSize = queryWorkSize(m_matrixSize / 2);
+
+		m_blockWorkSize = blockSize[0];
+		m_blockIWorkSize = blockSize[1];
+		m_work = new double[Math.max(size[0], 2 * m_blockWorkSize)];
+		m_iwork = new int[Math.max(size[1], 2 * m_blockIWorkSize)];
+	}
+
+	/**
+	 * 行列サイズnのdsyevdおよびdsyevrに必要な作業配列サイズを問い合わせる
+	 *
+	 * @param n 行列サイズ
+	 * @return {実数作業配列サイズ, 整数作業配列サイズ}
+	 */
+	private static int[] queryWorkSize(int n) {
+
+		double[] work = new double[1];
+		int[] iwork = new int[1];
+		intW info = new intW(0);
+
+		Dsyevd.dsyevd("V", "U", n, new double[1], 0, Math.max(1, n), new double[1], 0, work, 0, -1, iwork, 0, -1, info);
+
+		int lwork = 1 + 6 * n + 2 * n * n;
+		int liwork = 3 + 5 * n;
+		if (info.val == 0) {
+			lwork = Math.max(lwork, (int) work[0]);
+			liwork = Math.max(liwork, iwork[0]);
+		}
+
+		Dsyevr.dsyevr("V", "A", "U", n, new double[1], 0, Math.max(1, n), 0.0, 0.0, 0, 0, 0.0, new intW(0), new double[1], 0, new double[1], 0, Math.max(1, n), new int[2], 0, work, 0, -1, iwork, 0, -1, info);
+
+		lwork = Math.max(lwork, 26 * n);
+		liwork = Math.max(liwork, 10 * n);
+		if (info.val == 0) {
+			lwork = Math.max(lwork, (int) work[0]);
+			liwork = Math.max(liwork, iwork[0]);
+		}
+		return new int[] { lwork, liwork };
+	}
+}
@@ -0,0 +1,48 @@
+package org.physics.bdg;
+
+import java.util.Deque;
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Queues;
+
+/**
+ * 固有値方程式の作業領域プールクラス</br>
+ * 行列サイズをキーに作業領域を貸し出し、返却された作業領域を再利用する
+ *
+ * @author y-ok
+ */
+public class EigenValueWorkspacePool {
+
+	// 行列サイズごとの未使用作業領域
+	private final Map<Integer, Deque<EigenValueWorkspace>> m_freeWorkspaces = Maps.newHashMap();
+
+	/**
+	 * 作業領域を取得する</br>
+	 * 同じ行列サイズの未使用作業領域があれば再利用し、なければ新規に作成する
+	 *
+	 * @param matrixSize 行列サイズ
+	 * @return 作業領域
+	 */
+	public synchronized EigenValueWorkspace acquire(int matrixSize) {
+		Deque<EigenValueWorkspace> workspaces = m_freeWorkspaces.get(matrixSize);
+		if (workspaces == null || workspaces.isEmpty()) {
+			return new EigenValueWorkspace(matrixSize);
+		}
+		return workspaces.pop();
+	}
+
+	/**
+	 * 作業領域を返却する
+	 *
+	 * @param workspace 作業領域
+	 */
+	public synchronized void release(EigenValueWorkspace workspace) {
+		Deque<EigenValueWorkspace> workspaces = m_freeWorkspaces.get(workspace.getMatrixSize());
+		if (workspaces == null) {
+			workspaces = Queues.newArrayDeque();
+			m_freeWorkspaces.put(workspace.getMatrixSize(), workspaces);
+		}
+		workspaces.push(workspace);
+	}
+}
@@ -0,0 +1,160 @@
+package org.physics.bdg;
+
+/**
+ * 部分対角化のエネルギー窓クラス</br>
+ * 固有値方程式を解く際に求める固有対の範囲を表す。低エネルギー側(または高エネルギー側)の片側のみ打ち切ることができる
+ *
+ * <ul>
+ * <li>ALL : 全ての固有対を求める</li>
+ * <li>LOWEST : 固有値が打ち切り値以下(固有値数指定時は小さい方から指定数)の固有対を求める</li>
+ * <li>HIGHEST : 固有値が打ち切り値より大きい(固有値数指定時は大きい方から指定数)の固有対を求める</li>
+ * </ul>
+ *
+ * 粒子数と超流動パラメータは完全性関係 Σ_n u_n(i)^2 = Σ_n v_n(i)^2 = 1, Σ_n u_n(i) v_n(i) = 0 により、
+ * 打ち切った側の固有対が定数としてのみ寄与する形に書き換えて計算する。書き換えは打ち切った側の固有対の Fermi 分布関数の値を0とみなすため、
+ * 求めた固有値の端が温度に対して十分に0から離れていることを {@link #checkTruncation(EigenSystem, int, double)} で確認する
+ *
+ * @author y-ok
+ */
+public class EnergyWindow {
+
+	// 打ち切り方法
+	public static enum Mode {
+		ALL, LOWEST, HIGHEST;
+	}
+
+	// 全ての固有対を求める
+	public static final EnergyWindow ALL = new EnergyWindow(Mode.ALL, 0.0, 0);
+
+	// 打ち切った側の固有対の Fermi 分布関数の値の許容値 ε
+	public static final double OCCUPATION_TOLERANCE = 1.0e-6;
+
+	private final Mode m_mode;
+
+	// 打ち切りエネルギー
+	private final double m_cutoff;
+
+	// 求める固有値数 (0以下の場合は打ち切りエネルギーで指定)
+	private final int m_eigenNumber;
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param mode 打ち切り方法
+	 * @param cutoff 打ち切りエネルギー
+	 * @param eigenNumber 求める固有値数 (0以下の場合は打ち切りエネルギーで指定)
+	 */
+	public EnergyWindow(Mode mode, double cutoff, int eigenNumber) {
+		m_mode = mode;
+		m_cutoff = cutoff;
+		m_eigenNumber = eigenNumber;
+	}
+
+	/**
+	 * パラメータ設定値からエネルギー窓を作成する
+	 *
+	 * @param mode 打ち切り方法 (all, lowest, highest)。null または空文字の場合は all
+	 * @param cutoff 打ち切りエネルギー
+	 * @param eigenNumber 求める固有値数 (0以下の場合は打ち切りエネルギーで指定)
+	 * @return エネルギー窓
+	 */
+	public static EnergyWindow valueOf(String mode, double cutoff, int eigenNumber) {
+		if (mode == null || mode.trim().isEmpty()) {
+			return ALL;
+		}
+		Mode windowMode = Mode.valueOf(mode.trim().toUpperCase());
+		if (windowMode == Mode.ALL) {
+			return ALL;
+		}
+		return new EnergyWindow(windowMode, cutoff, eigenNumber);
+	}
+
+	/**
+	 * 打ち切り方法を取得する
+	 *
+	 * @return 打ち切り方法
+	 */
+	public Mode getMode() {
+		return m_mode;
+	}
+
+	/**
+	 * 打ち切りエネルギーを取得する
+	 *
+	 * @return 打ち切りエネルギー
+	 */
+	public double getCutoff() {
+		return m_cutoff;
+	}
+
+	/**
+	 * 求める固有値数を取得する
+	 *
+	 * @return 求める固有値数 (0以下の場合は打ち切りエネルギーで指定)
+	 */
+	public int getEigenNumber() {
+		return m_eigenNumber;
+	}
+
+	/**
+	 * 固有対を打ち切るかどうか
+	 *
+	 * @return 打ち切る場合 true
+	 */
+	public boolean isTruncated() {
+		return m_mode != Mode.ALL;
+	}
+
+	/**
+	 * 固有値数で指定されているかどうか
+	 *
+	 * @return 固有値数で指定されている場合 true
+	 */
+	public boolean isEigenNumberSpecified() {
+		return m_eigenNumber > 0;
+	}
+
+	/**
+	 * 行列サイズnの問題で求まる固有ベクトル数の上限を取得する
+	 *
+	 * @param n 行列サイズ
+	 * @return 固有ベクトル数の上限
+	 */
+	public int getMaxEigenNumber(int n) {
+		if (isTruncated() && isEigenNumberSpecified()) {
+			return Math.min(m_eigenNumber, n);
+		}
+		return n;
+	}
+
+	/**
+	 * 打ち切った側の固有対の寄与が無視できることを確認する</br>
+	 * 低エネルギー側の窓では求めた最大の固有値が k_B T ln(1/ε) 以上、高エネルギー側の窓では求めた最小の固有値が -k_B T ln(1/ε) 以下であることを確認する。
+	 * 全ての固有対を求めた場合は確認しない
+	 *
+	 * @param eigenSystem 固有値方程式の解
+	 * @param matrixSize 行列サイズ
+	 * @param thermalEnergy 熱エネルギー k_B T
+	 * @throws IllegalStateException 打ち切った側の固有対の寄与が無視できない場合
+	 */
+	public void checkTruncation(EigenSystem eigenSystem, int matrixSize, double thermalEnergy) {
+
+		int count = eigenSystem.getCount();
+		if (!isTruncated() || count >= matrixSize) {
+			return;
+		}
+		if (count == 0) {
+			throw new IllegalStateException("No eigenpair in the energy window: " + m_mode);
+		}
+		double margin = thermalEnergy * Math.log(1.0 / OCCUPATION_TOLERANCE);
+		double edge = eigenSystem.getValue(0);
+		for (int n = 1; n < count; n++) {
+			double value = eigenSystem.getValue(n);
+			edge = (m_mode == Mode.LOWEST) ? Math.max(edge, value) : Math.min(edge, value);
+		}
+		if ((m_mode == Mode.LOWEST) ? edge < margin : edge > -margin) {
+			throw new IllegalStateException("Energy window is too narrow: the outermost eigenvalue " + edge + " must be beyond "
+					+ ((m_mode == Mode.LOWEST) ? margin : -margin) + " (k_B T ln(1/eps)). Increase the eigen-number or the cutoff.");
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package org.physics.bdg;
+
+import org.netlib.lapack.Dsyevd;
+import org.netlib.lapack.Dsyevr;
+import org.netlib.util.intW;
+
+/**
+ * f2j版LAPACKによる固有値ソルババックエンドクラス
+ *
+ * @author y-ok
+ */
+public class F2jEigenSolverBackend implements EigenSolverBackend {
+
+	@Override
+	public String getName() {
+		return "f2j (" + Dsyevd.class.getPackage().getName() + ")";
+	}
+
+	@Override
+	public boolean isNative() {
+		return false;
+	}
+
+	@Override
+	public int dsyevd(String jobz, String uplo, int n, double[] a, int aOffset, int lda, double[] w, int wOffset, double[] work, int workOffset, int lwork, int[] iwork, int iworkOffset, int liwork) {
+		intW info = new intW(0);
+		Dsyevd.dsyevd(jobz, uplo, n, a, aOffset, lda, w, wOffset, work, workOffset, lwork, iwork, iworkOffset, liwork, info);
+		return info.val;
+	}
+
+	@Override
+	public int dsyevr(String jobz, String range, String uplo, int n, double[] a, int aOffset, int lda, double vl, double vu, int il, int iu, double abstol, intW m, double[] w, int wOffset, double[] z, int zOffset, int ldz, int[] isuppz, int isuppzOffset, double[] work, int workOffset, int lwork, int[] iwork, int iworkOffset, int liwork) {
+		intW info = new intW(0);
+		Dsyevr.dsyevr(jobz, range, uplo, n, a, aOffset, lda, vl, vu, il, iu, abstol, m, w, wOffset, z, zOffset, ldz, isuppz, isuppzOffset, work, workOffset, lwork, iwork, iworkOffset, liwork, info);
+		return info.val;
+	}
+}
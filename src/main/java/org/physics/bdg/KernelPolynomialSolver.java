@@ -0,0 +1,592 @@
+package org.physics.bdg;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * カーネル多項式法(KPM)によるFermi演算子展開ソルバクラス</br>
+ * BdGハミルトニアンを対角化せずに、Fermi分布関数 f(H) をChebyshev多項式で展開し、粒子数と超流動パラメータに必要な行列要素
+ *
+ * <ul>
+ * <li>&lt;i↑|f(H)|i↑&gt; (n_up(i))</li>
+ * <li>&lt;i↓|f(H)|i↓&gt; (n_down(i) = 1 - &lt;i↓|f(H)|i↓&gt;)</li>
+ * <li>&lt;i↓|f(H)|i↑&gt; (Δ(i) = U &lt;i↓|f(H)|i↑&gt;)</li>
+ * </ul>
+ *
+ * を格子点ごとの作用素の適用のみで求める。T_k(H) e_i は格子点iから距離k以内にしか値を持たないため、各格子点の計算は展開次数で決まる近傍領域に限定され、
+ * 計算量は格子点数に比例する。格子点ごとの計算は独立しているため格子点単位で並列に実行する
+ *
+ * @author y-ok
+ */
+public class KernelPolynomialSolver {
+
+	// 展開次数の既定値
+	private static final int DEFAULT_ORDER = 1024;
+
+	// Lorentzカーネルのパラメータの既定値
+	private static final double DEFAULT_LORENTZ_PARAMETER = 4.0;
+
+	// スペクトル範囲に対する余裕 (スペクトルを [-1, 1] の内側に収める)
+	private static final double SPECTRAL_MARGIN = 0.01;
+
+	// スペクトル範囲を求めるLanczos法の収束判定値
+	private static final double SPECTRAL_BOUND_TOLERANCE = 1.0e-8;
+
+	// 1タスクが担当する最大格子点数
+	private static final int SITE_THRESHOLD = 16;
+
+	/**
+	 * 展開係数の減衰カーネル (Gibbs振動の抑制)
+	 *
+	 * <ul>
+	 * <li>JACKSON : Jacksonカーネル</li>
+	 * <li>LORENTZ : Lorentzカーネル (パラメータλ)</li>
+	 * <li>DIRICHLET : カーネルなし (展開の単純な打ち切り)</li>
+	 * </ul>
+	 */
+	public static enum Kernel {
+		JACKSON, LORENTZ, DIRICHLET;
+
+		/**
+		 * パラメータ設定値からカーネルを取得する
+		 *
+		 * @param kernel カーネル名 (jackson, lorentz, dirichlet)。null または空文字の場合は jackson
+		 * @return カーネル
+		 */
+		public static Kernel of(String kernel) {
+			if (kernel == null || kernel.trim().isEmpty()) {
+				return JACKSON;
+			}
+			return valueOf(kernel.trim().toUpperCase());
+		}
+	}
+
+	// 展開次数 (Chebyshevモーメント数)
+	private int m_order = DEFAULT_ORDER;
+
+	// 減衰カーネル
+	private Kernel m_kernel = Kernel.JACKSON;
+
+	// Lorentzカーネルのパラメータ
+	private double m_lorentzParameter = DEFAULT_LORENTZ_PARAMETER;
+
+	// スペクトル範囲を求めるLanczos法ソルバ (最小固有値、最大固有値)
+	private final LanczosSolverOfEigenValueEq m_lowestSolver;
+	private final LanczosSolverOfEigenValueEq m_highestSolver;
+
+	// 格子点ごとの並列計算に使用するスレッドプール
+	private final ForkJoinPool m_pool;
+
+	// スペクトル範囲の下限と上限
+	private double m_lowerBound;
+	private double m_upperBound;
+
+	// 誤差の見積もり
+	private double m_errorEstimate;
+
+	// 格子点ごとの f(H) の行列要素
+	private double[] m_upUpElement = new double[0];
+	private double[] m_downDownElement = new double[0];
+	private double[] m_downUpElement = new double[0];
+
+	/**
+	 * コンストラクタ
+	 */
+	public KernelPolynomialSolver() {
+		this(EigenSolverBackend.create(EigenSolverBackend.AUTO));
+	}
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param backend 固有値ソルババックエンド (スペクトル範囲を求めるLanczos法で使用する)
+	 */
+	public KernelPolynomialSolver(EigenSolverBackend backend) {
+		this(backend, ComputePool.get(0));
+	}
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param backend 固有値ソルババックエンド (スペクトル範囲を求めるLanczos法で使用する)
+	 * @param pool 格子点ごとの並列計算とスペクトル範囲を求めるLanczos法に使用するスレッドプール
+	 */
+	public KernelPolynomialSolver(EigenSolverBackend backend, ForkJoinPool pool) {
+		m_pool = pool;
+		m_lowestSolver = new LanczosSolverOfEigenValueEq(null, backend, pool);
+		m_highestSolver = new LanczosSolverOfEigenValueEq(null, backend, pool);
+		m_lowestSolver.setTolerance(SPECTRAL_BOUND_TOLERANCE);
+		m_highestSolver.setTolerance(SPECTRAL_BOUND_TOLERANCE);
+	}
+
+	/**
+	 * 展開次数を設定する
+	 *
+	 * @param order 展開次数 (Chebyshevモーメント数, 2以上)
+	 */
+	public void setOrder(int order) {
+		if (order < 2) {
+			throw new IllegalArgumentException("KPM order must be at least 2: " + order);
+		}
+		m_order = order;
+	}
+
+	/**
+	 * 減衰カーネルを設定する
+	 *
+	 * @param kernel 減衰カーネル
+	 */
+	public void setKernel(Kernel kernel) {
+		m_kernel = kernel;
+	}
+
+	/**
+	 * Lorentzカーネルのパラメータλを設定する
+	 *
+	 * @param lorentzParameter Lorentzカーネルのパラメータλ
+	 */
+	public void setLorentzParameter(double lorentzParameter) {
+		m_lorentzParameter = lorentzParameter;
+	}
+
+	/**
+	 * 展開次数を取得する
+	 *
+	 * @return 展開次数
+	 */
+	public int getOrder() {
+		return m_order;
+	}
+
+	/**
+	 * 減衰カーネルを取得する
+	 *
+	 * @return 減衰カーネル
+	 */
+	public Kernel getKernel() {
+		return m_kernel;
+	}
+
+	/**
+	 * BdGハミルトニアン作用素について f(H) の行列要素を求める
+	 *
+	 * @param operator BdGハミルトニアン作用素
+	 * @param temperature 温度
+	 * @param boltzmannConst ボルツマン定数
+	 * @return 実行結果 (0: 正常終了, 1: スペクトル範囲のLanczos法が収束しなかった)
+	 */
+	public int solve(BdGHamiltonianOperator operator, double temperature, double boltzmannConst) {
+
+		int siteNum = operator.getSize() / 2;
+
+		// スペクトル範囲を [-1, 1] に写す: H~ = (H - center) / halfWidth
+		int info = calcSpectralBounds(operator);
+		double center = 0.5 * (m_upperBound + m_lowerBound);
+		double halfWidth = 0.5 * (m_upperBound - m_lowerBound) * (1.0 + SPECTRAL_MARGIN) + Double.MIN_NORMAL;
+
+		double[] chebyshevCoefficient = calcChebyshevCoefficient(center, halfWidth, boltzmannConst * temperature);
+		double[] kernelCoefficient = calcKernelCoefficient();
+		double[] weight = new double[m_order];
+		for (int n = 0; n < m_order; n++) {
+			weight[n] = kernelCoefficient[n] * chebyshevCoefficient[n];
+		}
+		m_errorEstimate = calcErrorEstimate(weight, center, halfWidth, boltzmannConst * temperature);
+
+		m_upUpElement = new double[siteNum];
+		m_downDownElement = new double[siteNum];
+		m_downUpElement = new double[siteNum];
+		m_pool.invoke(new SiteTask(operator, weight, center, 1.0 / halfWidth, 0, siteNum));
+
+		return info;
+	}
+
+	/**
+	 * 格子点ごとの &lt;i↑|f(H)|i↑&gt; を取得する
+	 *
+	 * @return 格子点ごとの &lt;i↑|f(H)|i↑&gt;
+	 */
+	public double[] getUpUpElement() {
+		return m_upUpElement;
+	}
+
+	/**
+	 * 格子点ごとの &lt;i↓|f(H)|i↓&gt; を取得する
+	 *
+	 * @return 格子点ごとの &lt;i↓|f(H)|i↓&gt;
+	 */
+	public double[] getDownDownElement() {
+		return m_downDownElement;
+	}
+
+	/**
+	 * 格子点ごとの &lt;i↓|f(H)|i↑&gt; を取得する
+	 *
+	 * @return 格子点ごとの &lt;i↓|f(H)|i↑&gt;
+	 */
+	public double[] getDownUpElement() {
+		return m_downUpElement;
+	}
+
+	/**
+	 * 誤差の見積もりを取得する</br>
+	 * スペクトル範囲での |f(E) - 展開多項式(E)| の最大値で、f(H) の各行列要素の誤差の上限となる(超流動パラメータは |U| 倍)
+	 *
+	 * @return 誤差の見積もり
+	 */
+	public double getErrorEstimate() {
+		return m_errorEstimate;
+	}
+
+	/**
+	 * スペクトル範囲の下限を取得する
+	 *
+	 * @return スペクトル範囲の下限
+	 */
+	public double getLowerBound() {
+		return m_lowerBound;
+	}
+
+	/**
+	 * スペクトル範囲の上限を取得する
+	 *
+	 * @return スペクトル範囲の上限
+	 */
+	public double getUpperBound() {
+		return m_upperBound;
+	}
+
+	/**
+	 * 最小固有値と最大固有値をLanczos法で求め、スペクトル範囲とする
+	 *
+	 * @param operator BdGハミルトニアン作用素
+	 * @return 実行結果 (0: 正常終了, 1: 収束しなかった)
+	 */
+	private int calcSpectralBounds(BdGHamiltonianOperator operator) {
+
+		int lowestInfo = m_lowestSolver.solveEigenValueEq(operator, new EnergyWindow(EnergyWindow.Mode.LOWEST, 0.0, 1));
+		int highestInfo = m_highestSolver.solveEigenValueEq(operator, new EnergyWindow(EnergyWindow.Mode.HIGHEST, 0.0, 1));
+
+		m_lowerBound = m_lowestSolver.getEigenSystem().getValue(0);
+		m_upperBound = m_highestSolver.getEigenSystem().getValue(0);
+
+		return Math.max(lowestInfo, highestInfo);
+	}
+
+	/**
+	 * Fermi分布関数 f(halfWidth * x + center) のChebyshev展開係数をChebyshev-Gauss求積で求める
+	 *
+	 * @param center スペクトル範囲の中心
+	 * @param halfWidth スペクトル範囲の半値幅
+	 * @param thermalEnergy k_B T
+	 * @return 展開係数 c_n (n = 0, ..., 展開次数 - 1)
+	 */
+	private double[] calcChebyshevCoefficient(double center, double halfWidth, double thermalEnergy) {
+
+		int quadratureNum = Math.max(2 * m_order, 64);
+		double[] coefficient = new double[m_order];
+
+		for (int j = 0; j < quadratureNum; j++) {
+			double x = Math.cos(Math.PI * (j + 0.5) / quadratureNum);
+			double f = fermiDistributionfnc(halfWidth * x + center, thermalEnergy);
+
+			// T_n(x) を漸化式で求めて加算する
+			double previous = 1.0;
+			double current = x;
+			coefficient[0] += f;
+			coefficient[1] += f * x;
+			for (int n = 2; n < m_order; n++) {
+				double next = 2.0 * x * current - previous;
+				coefficient[n] += f * next;
+				previous = current;
+				current = next;
+			}
+		}
+		for (int n = 0; n < m_order; n++) {
+			coefficient[n] *= ((n == 0) ? 1.0 : 2.0) / quadratureNum;
+		}
+		return coefficient;
+	}
+
+	/**
+	 * 減衰カーネルの係数 g_n を求める
+	 *
+	 * @return カーネル係数 g_n (n = 0, ..., 展開次数 - 1)
+	 */
+	private double[] calcKernelCoefficient() {
+
+		double[] kernel = new double[m_order];
+		for (int n = 0; n < m_order; n++) {
+			switch (m_kernel) {
+			case JACKSON:
+				double q = Math.PI / (m_order + 1);
+				kernel[n] = ((m_order - n + 1) * Math.cos(q * n) + Math.sin(q * n) / Math.tan(q)) / (m_order + 1);
+				break;
+			case LORENTZ:
+				kernel[n] = Math.sinh(m_lorentzParameter * (1.0 - (double) n / m_order)) / Math.sinh(m_lorentzParameter);
+				break;
+			default:
+				kernel[n] = 1.0;
+				break;
+			}
+		}
+		return kernel;
+	}
+
+	/**
+	 * スペクトル範囲で展開多項式とFermi分布関数の差の最大値を求める
+	 *
+	 * @param weight 展開多項式の係数 g_n c_n
+	 * @param center スペクトル範囲の中心
+	 * @param halfWidth スペクトル範囲の半値幅
+	 * @param thermalEnergy k_B T
+	 * @return 差の最大値
+	 */
+	private double calcErrorEstimate(double[] weight, double center, double halfWidth, double thermalEnergy) {
+
+		int pointNum = 2 * m_order + 1;
+		double error = 0.0;
+		for (int j = 0; j < pointNum; j++) {
+			double energy = m_lowerBound + (m_upperBound - m_lowerBound) * j / (pointNum - 1);
+			double x = (energy - center) / halfWidth;
+
+			// Clenshaw法で Σ_n w_n T_n(x) を求める
+			double b1 = 0.0;
+			double b2 = 0.0;
+			for (int n = m_order - 1; n >= 1; n--) {
+				double b0 = weight[n] + 2.0 * x * b1 - b2;
+				b2 = b1;
+				b1 = b0;
+			}
+			double value = weight[0] + x * b1 - b2;
+
+			error = Math.max(error, Math.abs(value - fermiDistributionfnc(energy, thermalEnergy)));
+		}
+		return error;
+	}
+
+	/**
+	 * Fermi分布関数
+	 *
+	 * @param energy エネルギー
+	 * @param thermalEnergy k_B T
+	 * @return f(E)
+	 */
+	private static double fermiDistributionfnc(double energy, double thermalEnergy) {
+		return 1 / (Math.exp(energy / thermalEnergy) + 1);
+	}
+
+	/**
+	 * 格子点 [fromSite, toSite) の行列要素を計算する並列計算タスク
+	 *
+	 * @author y-ok
+	 */
+	private class SiteTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final BdGHamiltonianOperator m_operator;
+		private final double[] m_weight;
+		private final double m_center;
+		private final double m_inverseHalfWidth;
+		private final int m_fromSite;
+		private final int m_toSite;
+
+		SiteTask(BdGHamiltonianOperator operator, double[] weight, double center, double inverseHalfWidth, int fromSite, int toSite) {
+			m_operator = operator;
+			m_weight = weight;
+			m_center = center;
+			m_inverseHalfWidth = inverseHalfWidth;
+			m_fromSite = fromSite;
+			m_toSite = toSite;
+		}
+
+		@Override
+		protected void compute() {
+			if (m_toSite - m_fromSite <= SITE_THRESHOLD) {
+				SiteExpansion expansion = new SiteExpansion(m_operator, m_weight, m_center, m_inverseHalfWidth);
+				for (int site = m_fromSite; site < m_toSite; site++) {
+					expansion.expand(site);
+				}
+				return;
+			}
+			int middleSite = (m_fromSite + m_toSite) >>> 1;
+			invokeAll(new SiteTask(m_operator, m_weight, m_center, m_inverseHalfWidth, m_fromSite, middleSite),
+					new SiteTask(m_operator, m_weight, m_center, m_inverseHalfWidth, middleSite, m_toSite));
+		}
+	}
+
+	/**
+	 * 1つの格子点についてChebyshev展開を行う作業領域</br>
+	 * 開始ベクトル a_0 = e_i↑, b_0 = e_i↓ から a_k = T_k(H~) a_0, b_k = T_k(H~) b_0 を近傍領域のみで計算し、
+	 * T_2k = 2 T_k^2 - T_0, T_2k+1 = 2 T_k+1 T_k - T_1 により k ≦ 展開次数 / 2 までのベクトルから全モーメントを求める
+	 *
+	 * @author y-ok
+	 */
+	private class SiteExpansion {
+
+		private final BdGHamiltonianOperator m_operator;
+		private final double[] m_weight;
+		private final double m_center;
+		private final double m_inverseHalfWidth;
+		private final int m_siteNum;
+
+		// a_k-1, a_k, a_k+1 と b_k-1, b_k, b_k+1
+		private double[] m_upPrevious;
+		private double[] m_upCurrent;
+		private double[] m_upNext;
+		private double[] m_downPrevious;
+		private double[] m_downCurrent;
+		private double[] m_downNext;
+
+		// 近傍領域の格子点 (開始格子点からの距離の昇順)
+		private final int[] m_region;
+
+		// 近傍領域に含まれる格子点の印 (開始格子点ごとに値を変えて初期化を省く)
+		private final int[] m_mark;
+		private int m_markValue = 0;
+
+		SiteExpansion(BdGHamiltonianOperator operator, double[] weight, double center, double inverseHalfWidth) {
+			m_operator = operator;
+			m_weight = weight;
+			m_center = center;
+			m_inverseHalfWidth = inverseHalfWidth;
+			m_siteNum = operator.getSize() / 2;
+
+			int matrixSize = operator.getSize();
+			m_upPrevious = new double[matrixSize];
+			m_upCurrent = new double[matrixSize];
+			m_upNext = new double[matrixSize];
+			m_downPrevious = new double[matrixSize];
+			m_downCurrent = new double[matrixSize];
+			m_downNext = new double[matrixSize];
+			m_region = new int[m_siteNum];
+			m_mark = new int[m_siteNum];
+		}
+
+		/**
+		 * 格子点siteの行列要素を求める
+		 *
+		 * @param site 格子点
+		 */
+		void expand(int site) {
+
+			int order = m_weight.length;
+
+			m_markValue++;
+			m_region[0] = site;
+			m_mark[site] = m_markValue;
+			int regionSize = 1;
+			int layerStart = 0;
+
+			m_upCurrent[site] = 1.0;
+			m_downCurrent[site + m_siteNum] = 1.0;
+
+			// μ_0: <a_0, a_0> = <b_0, b_0> = 1, <b_0, a_0> = 0
+			double upUp = m_weight[0];
+			double downDown = m_weight[0];
+			double downUp = 0.0;
+
+			double upUpFirst = 0.0;
+			double downDownFirst = 0.0;
+			double downUpFirst = 0.0;
+
+			for (int k = 0; 2 * k < order; k++) {
+
+				// 近傍領域を1層広げる (a_k+1 は距離 k+1 以内にのみ値を持つ)
+				int layerEnd = regionSize;
+				if (2 * k + 1 < order && regionSize < m_siteNum) {
+					for (int r = layerStart; r < layerEnd; r++) {
+						for (int neighbor : m_operator.getNeighborSites(m_region[r])) {
+							if (m_mark[neighbor] != m_markValue) {
+								m_mark[neighbor] = m_markValue;
+								m_region[regionSize++] = neighbor;
+							}
+						}
+					}
+					layerStart = layerEnd;
+				}
+
+				// μ_2k = 2 <x_k, y_k> - <x_0, y_0>
+				if (k > 0) {
+					double upUpDot = 0.0;
+					double downDownDot = 0.0;
+					double downUpDot = 0.0;
+					for (int r = 0; r < layerEnd; r++) {
+						int up = m_region[r];
+						int down = up + m_siteNum;
+						upUpDot += m_upCurrent[up] * m_upCurrent[up] + m_upCurrent[down] * m_upCurrent[down];
+						downDownDot += m_downCurrent[up] * m_downCurrent[up] + m_downCurrent[down] * m_downCurrent[down];
+						downUpDot += m_downCurrent[up] * m_upCurrent[up] + m_downCurrent[down] * m_upCurrent[down];
+					}
+					upUp += m_weight[2 * k] * (2.0 * upUpDot - 1.0);
+					downDown += m_weight[2 * k] * (2.0 * downDownDot - 1.0);
+					downUp += m_weight[2 * k] * (2.0 * downUpDot);
+				}
+
+				if (2 * k + 1 >= order) {
+					break;
+				}
+
+				// a_k+1 = 2 H~ a_k - a_k-1 (a_1 = H~ a_0)
+				double factor = (k == 0) ? 1.0 : 2.0;
+				double upUpDot = 0.0;
+				double downDownDot = 0.0;
+				double downUpDot = 0.0;
+				for (int r = 0; r < regionSize; r++) {
+					int up = m_region[r];
+					int down = up + m_siteNum;
+					m_operator.multiplySite(m_upCurrent, m_upNext, up);
+					m_operator.multiplySite(m_downCurrent, m_downNext, up);
+					m_upNext[up] = factor * (m_upNext[up] - m_center * m_upCurrent[up]) * m_inverseHalfWidth - m_upPrevious[up];
+					m_upNext[down] = factor * (m_upNext[down] - m_center * m_upCurrent[down]) * m_inverseHalfWidth - m_upPrevious[down];
+					m_downNext[up] = factor * (m_downNext[up] - m_center * m_downCurrent[up]) * m_inverseHalfWidth - m_downPrevious[up];
+					m_downNext[down] = factor * (m_downNext[down] - m_center * m_downCurrent[down]) * m_inverseHalfWidth - m_downPrevious[down];
+
+					upUpDot += m_upNext[up] * m_upCurrent[up] + m_upNext[down] * m_upCurrent[down];
+					downDownDot += m_downNext[up] * m_downCurrent[up] + m_downNext[down] * m_downCurrent[down];
+					downUpDot += m_downNext[up] * m_upCurrent[up] + m_downNext[down] * m_upCurrent[down];
+				}
+
+				// μ_2k+1 = 2 <x_k+1, y_k> - μ_1
+				if (k == 0) {
+					upUpFirst = upUpDot;
+					downDownFirst = downDownDot;
+					downUpFirst = downUpDot;
+					upUp += m_weight[1] * upUpFirst;
+					downDown += m_weight[1] * downDownFirst;
+					downUp += m_weight[1] * downUpFirst;
+				} else {
+					upUp += m_weight[2 * k + 1] * (2.0 * upUpDot - upUpFirst);
+					downDown += m_weight[2 * k + 1] * (2.0 * downDownDot - downDownFirst);
+					downUp += m_weight[2 * k + 1] * (2.0 * downUpDot - downUpFirst);
+				}
+
+				// a_k-1 <- a_k <- a_k+1
+				double[] tmp = m_upPrevious;
+				m_upPrevious = m_upCurrent;
+				m_upCurrent = m_upNext;
+				m_upNext = tmp;
+				tmp = m_downPrevious;
+				m_downPrevious = m_downCurrent;
+				m_downCurrent = m_downNext;
+				m_downNext = tmp;
+			}
+
+			m_upUpElement[site] = upUp;
+			m_downDownElement[site] = downDown;
+			m_downUpElement[site] = downUp;
+
+			// 次の格子点のため近傍領域の値を0に戻す
+			for (int r = 0; r < regionSize; r++) {
+				int up = m_region[r];
+				int down = up + m_siteNum;
+				m_upPrevious[up] = m_upPrevious[down] = 0.0;
+				m_upCurrent[up] = m_upCurrent[down] = 0.0;
+				m_upNext[up] = m_upNext[down] = 0.0;
+				m_downPrevious[up] = m_downPrevious[down] = 0.0;
+				m_downCurrent[up] = m_downCurrent[down] = 0.0;
+				m_downNext[up] = m_downNext[down] = 0.0;
+			}
+		}
+	}
+}
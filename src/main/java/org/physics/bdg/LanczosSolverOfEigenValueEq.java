@@ -0,0 +1,791 @@
+package org.physics.bdg;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import no.uib.cipr.matrix.Matrix;
+import no.uib.cipr.matrix.Vector;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+
+/**
+ * Lanczos法による実対称行列固有値方程式ソルバクラス</br>
+ * thick-restart Lanczos法(対称行列に対するKrylov-Schur法)で、BdGハミルトニアン作用素(疎行列または行列を保持しない作用素)の
+ * エネルギー窓内の固有対のみを求める。シフト・インバート指定時は (H - σ)^-1 をMINRES法で作用させ、σに近い固有対を求める</br>
+ * 単一の開始ベクトルでは縮退した固有対を取りこぼすため、求めた固有対を固定(ロック)して直交補空間で小さいブロックを1回だけ解き、取りこぼしがないことを確認する
+ *
+ * @author y-ok
+ */
+public class LanczosSolverOfEigenValueEq {
+
+	// 部分空間サイズの既定の上乗せ分 (部分空間サイズ = max(2k, k + 20))
+	private static final int DEFAULT_EXTRA_SUBSPACE_SIZE = 20;
+
+	// 収束判定値の既定値
+	private static final double DEFAULT_TOLERANCE = 1.0e-10;
+
+	// 最大リスタート回数の既定値
+	private static final int DEFAULT_MAX_RESTART = 1000;
+
+	// エネルギー窓を打ち切りエネルギーで指定した場合の初期固有値数
+	private static final int INITIAL_EIGEN_NUMBER = 32;
+
+	// 開始ベクトル用乱数のシード
+	private static final long RANDOM_SEED = 0L;
+
+	// Lanczosベクトルが直交化で消失したとみなす比率
+	private static final double BREAKDOWN_RATIO = 1.0e-12;
+
+	// 固有対の選択方法
+	private static enum Which {
+		SMALLEST, LARGEST, LARGEST_MAGNITUDE;
+	}
+
+	// 行列サイズ
+	private int m_matrixSize = 0;
+
+	// 固有値と固有ベクトル
+	private EigenSystem m_eigenSystem = new EigenSystem(0, 0, new double[0], 0, new double[0], 0, 0);
+
+	// 作業領域 (固有ベクトルの格納に使用する)
+	private EigenValueWorkspace m_workspace;
+
+	// 固有値ソルババックエンド (射影行列の対角化に使用する)
+	private final EigenSolverBackend m_backend;
+
+	// 作用素の並列計算に使用するスレッドプール
+	private final ForkJoinPool m_pool;
+
+	// 部分空間サイズ (0以下の場合は自動)
+	private int m_subspaceSize = 0;
+
+	// 収束判定値 (残差ノルム / max(1, |固有値|))
+	private double m_tolerance = DEFAULT_TOLERANCE;
+
+	// 最大リスタート回数
+	private int m_maxRestart = DEFAULT_MAX_RESTART;
+
+	// 前回のRitzベクトルから開始するかどうか
+	private boolean m_warmStart = true;
+
+	// シフト・インバートを使用するかどうか
+	private boolean m_shiftInvert = false;
+
+	// シフト・インバートのシフト値
+	private double m_shift = 0.0;
+
+	// 前回求めたRitzベクトル (ウォームスタート用)
+	private List<double[]> m_ritzVectors = Lists.newArrayList();
+
+	// 前回の求解で要した作用素の適用回数
+	private int m_operatorCount = 0;
+
+	/**
+	 * コンストラクタ
+	 */
+	public LanczosSolverOfEigenValueEq() {
+		this(null);
+	}
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param workspace 作業領域
+	 */
+	public LanczosSolverOfEigenValueEq(EigenValueWorkspace workspace) {
+		this(workspace, EigenSolverBackend.create(EigenSolverBackend.AUTO));
+	}
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param workspace 作業領域
+	 * @param backend 固有値ソルババックエンド
+	 */
+	public LanczosSolverOfEigenValueEq(EigenValueWorkspace workspace, EigenSolverBackend backend) {
+		this(workspace, backend, ComputePool.get(0));
+	}
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param workspace 作業領域
+	 * @param backend 固有値ソルババックエンド
+	 * @param pool 作用素の並列計算に使用するスレッドプール
+	 */
+	public LanczosSolverOfEigenValueEq(EigenValueWorkspace workspace, EigenSolverBackend backend, ForkJoinPool pool) {
+		m_workspace = workspace;
+		m_backend = backend;
+		m_pool = pool;
+	}
+
+	/**
+	 * 部分空間サイズを設定する
+	 *
+	 * @param subspaceSize 部分空間サイズ (0以下の場合は自動)
+	 */
+	public void setSubspaceSize(int subspaceSize) {
+		m_subspaceSize = subspaceSize;
+	}
+
+	/**
+	 * 収束判定値を設定する
+	 *
+	 * @param tolerance 収束判定値
+	 */
+	public void setTolerance(double tolerance) {
+		m_tolerance = tolerance;
+	}
+
+	/**
+	 * 最大リスタート回数を設定する
+	 *
+	 * @param maxRestart 最大リスタート回数
+	 */
+	public void setMaxRestart(int maxRestart) {
+		m_maxRestart = maxRestart;
+	}
+
+	/**
+	 * 前回のRitzベクトルから開始するかどうかを設定する
+	 *
+	 * @param warmStart 前回のRitzベクトルから開始する場合 true
+	 */
+	public void setWarmStart(boolean warmStart) {
+		m_warmStart = warmStart;
+	}
+
+	/**
+	 * 前回求めたRitzベクトルを取得する (別のソルバへ引き継ぐ場合に用いる)
+	 *
+	 * @return 前回求めたRitzベクトル
+	 */
+	public List<double[]> getRitzVectors() {
+		return Lists.newArrayList(m_ritzVectors);
+	}
+
+	/**
+	 * 開始に用いるRitzベクトルを設定する</br>
+	 * 温度掃引で直前の温度のRitzベクトルから開始する場合に用いる
+	 *
+	 * @param ritzVectors 開始に用いるRitzベクトル
+	 */
+	public void setRitzVectors(List<double[]> ritzVectors) {
+		m_ritzVectors = Lists.newArrayList(ritzVectors);
+	}
+
+	/**
+	 * シフト・インバートを設定する</br>
+	 * 設定時はシフト値に近い固有対を、エネルギー窓で指定した固有値数だけ求める
+	 *
+	 * @param shiftInvert シフト・インバートを使用する場合 true
+	 * @param shift シフト値
+	 */
+	public void setShiftInvert(boolean shiftInvert, double shift) {
+		m_shiftInvert = shiftInvert;
+		m_shift = shift;
+	}
+
+	/**
+	 * 前回の求解で要した作用素の適用回数を取得する
+	 *
+	 * @return 作用素の適用回数
+	 */
+	public int getOperatorCount() {
+		return m_operatorCount;
+	}
+
+	/**
+	 * 実対称行列の固有値方程式をエネルギー窓の範囲で解く
+	 *
+	 * @param matrix BdGハミルトニアン (疎行列または密行列)
+	 * @param window エネルギー窓
+	 * @return 実行結果 (0: 正常終了, 1: 最大リスタート回数までに収束しなかった)
+	 */
+	public int solveEigenValueEq(Matrix matrix, EnergyWindow window) {
+		return solveEigenValueEq(new MatrixBdGHamiltonianOperator(matrix), window);
+	}
+
+	/**
+	 * BdGハミルトニアン作用素の固有値方程式をエネルギー窓の範囲で解く</br>
+	 * 固有値と固有ベクトルのマップには窓内の固有対のみが格納される
+	 *
+	 * @param operator BdGハミルトニアン作用素
+	 * @param window エネルギー窓 (打ち切りを指定すること)
+	 * @return 実行結果 (0: 正常終了, 1: 最大リスタート回数までに収束しなかった)
+	 */
+	public int solveEigenValueEq(BdGHamiltonianOperator operator, EnergyWindow window) {
+
+		if (!window.isTruncated()) {
+			throw new IllegalArgumentException("Lanczos solver requires a truncated energy window.");
+		}
+
+		m_matrixSize = operator.getSize();
+		m_operatorCount = 0;
+
+		if (m_workspace == null || m_workspace.getMatrixSize() != m_matrixSize) {
+			m_workspace = new EigenValueWorkspace(m_matrixSize);
+		}
+
+		Which which = m_shiftInvert ? Which.LARGEST_MAGNITUDE : (window.getMode() == EnergyWindow.Mode.LOWEST) ? Which.SMALLEST : Which.LARGEST;
+
+		List<double[]> vectors = Lists.newArrayList();
+		List<Double> values = Lists.newArrayList();
+		int info;
+		if (window.isEigenNumberSpecified() || m_shiftInvert) {
+			info = solveWanted(operator, window.getMaxEigenNumber(m_matrixSize), which, values, vectors);
+			info |= confirmWanted(operator, which, values, vectors);
+		} else {
+			// 打ち切りエネルギーを越える固有値が求まるまで固有値数を増やす
+			int eigenNumber = Math.min(INITIAL_EIGEN_NUMBER, m_matrixSize);
+			while (true) {
+				values.clear();
+				vectors.clear();
+				info = solveWanted(operator, eigenNumber, which, values, vectors);
+				double last = (which == Which.SMALLEST) ? values.get(values.size() - 1) : values.get(0);
+				boolean isBeyondCutoff = (which == Which.SMALLEST) ? last > window.getCutoff() : last <= window.getCutoff();
+				if (isBeyondCutoff || eigenNumber == m_matrixSize) {
+					break;
+				}
+				eigenNumber = Math.min(2 * eigenNumber, m_matrixSize);
+			}
+			// 取りこぼしの確認は最後の固有値数でのみ行う
+			info |= confirmWanted(operator, which, values, vectors);
+			for (int i = values.size() - 1; i >= 0; i--) {
+				boolean inWindow = (which == Which.SMALLEST) ? values.get(i) <= window.getCutoff() : values.get(i) > window.getCutoff();
+				if (!inWindow) {
+					values.remove(i);
+					vectors.remove(i);
+				}
+			}
+		}
+
+		if (m_warmStart) {
+			m_ritzVectors = Lists.newArrayList(vectors);
+		}
+
+		// 固有ベクトルは作業領域の固有ベクトル行列(列優先)に並べる
+		double[] eigenValue = m_workspace.getEigenValue();
+		double[] eigenVectorMatrix = m_workspace.getWindowEigenVectorMatrix(m_matrixSize * vectors.size());
+		for (int i = 0; i < vectors.size(); i++) {
+			eigenValue[i] = values.get(i);
+			System.arraycopy(vectors.get(i), 0, eigenVectorMatrix, i * m_matrixSize, m_matrixSize);
+		}
+		m_eigenSystem = new EigenSystem(m_matrixSize, vectors.size(), eigenValue, 0, eigenVectorMatrix, 0, m_matrixSize);
+
+		return info;
+	}
+
+	/**
+	 * 固有値方程式の解を返す</br>
+	 * 固有ベクトル行列は作業領域を参照するため、次に固有値方程式を解くまで有効
+	 *
+	 * @return 固有値方程式の解
+	 */
+	public EigenSystem getEigenSystem() {
+		return m_eigenSystem;
+	}
+
+	/**
+	 * 固有値と固有ベクトルのペアを返す</br>
+	 * 固有ベクトルはそれぞれ独立した配列にコピーされる
+	 *
+	 * @return eigenMap
+	 */
+	public Multimap<Double, Vector> getEigenValueAndEigenVectorMap() {
+		return m_eigenSystem.toMultimap();
+	}
+
+	/**
+	 * 選択方法に従って固有対をk個求める
+	 *
+	 * @param operator BdGハミルトニアン作用素
+	 * @param k 固有値数
+	 * @param which 選択方法
+	 * @param values 固有値 (昇順で返却)
+	 * @param vectors 固有ベクトル
+	 * @return 実行結果
+	 */
+	private int solveWanted(BdGHamiltonianOperator operator, int k, Which which, List<Double> values, List<double[]> vectors) {
+
+		int n = m_matrixSize;
+		Random random = new Random(RANDOM_SEED);
+
+		// 開始ベクトル (ウォームスタート時は前回のRitzベクトルの和)
+		double[] startVector = new double[n];
+		if (m_warmStart && !m_ritzVectors.isEmpty() && m_ritzVectors.get(0).length == n) {
+			for (double[] ritzVector : m_ritzVectors) {
+				axpy(1.0, ritzVector, startVector);
+			}
+		} else {
+			fillRandom(random, startVector);
+		}
+
+		int wanted = Math.min(k, n);
+		double[] ritzValues = new double[wanted];
+		double[][] ritzVectors = new double[wanted][];
+		int info = runLanczos(operator, wanted, which, Lists.<double[]> newArrayList(), startVector, random, ritzValues, ritzVectors);
+
+		List<Double> newValues = Lists.newArrayList();
+		List<double[]> newVectors = Lists.newArrayList();
+		for (int i = 0; i < wanted; i++) {
+			// 元の作用素の固有値 (シフト・インバート時はRayleigh商)
+			newValues.add(m_shiftInvert ? rayleighQuotient(operator, ritzVectors[i]) : ritzValues[i]);
+			newVectors.add(ritzVectors[i]);
+		}
+		select(which, wanted, newValues, newVectors, values, vectors);
+		return info;
+	}
+
+	/**
+	 * 求めた固有対をロックし、直交補空間で1回だけ解いて取りこぼした固有対がないことを確認する</br>
+	 * 単一の開始ベクトルでは縮退した固有対の一方のみが求まるため、取りこぼしは求めた固有値の端(窓の境界)の付近に現れる。
+	 * 直交補空間で求める固有対の数は、端の固有値から収束判定値以内にある固有値の数(最低1)とし、
+	 * よりよい固有対が見つかった場合は入れ替える
+	 *
+	 * @param operator BdGハミルトニアン作用素
+	 * @param which 選択方法
+	 * @param values 固有値 (昇順、入れ替え後の値で上書きする)
+	 * @param vectors 固有ベクトル (入れ替え後の値で上書きする)
+	 * @return 実行結果
+	 */
+	private int confirmWanted(BdGHamiltonianOperator operator, Which which, List<Double> values, List<double[]> vectors) {
+
+		int k = values.size();
+		if (k == 0 || k >= m_matrixSize) {
+			return 0;
+		}
+
+		double worst = Double.NEGATIVE_INFINITY;
+		for (double value : values) {
+			worst = Math.max(worst, score(which, value));
+		}
+		int edgeNumber = 0;
+		for (double value : values) {
+			if (worst - score(which, value) <= getDegeneracyTolerance(value)) {
+				edgeNumber++;
+			}
+		}
+		int wanted = Math.min(Math.max(1, edgeNumber), m_matrixSize - k);
+
+		Random random = new Random(RANDOM_SEED);
+		double[] startVector = new double[m_matrixSize];
+		fillRandom(random, startVector);
+		double[] ritzValues = new double[wanted];
+		double[][] ritzVectors = new double[wanted][];
+		int info = runLanczos(operator, wanted, which, vectors, startVector, random, ritzValues, ritzVectors);
+
+		// 既に求めた固有対と併合してよりよいk個を選ぶ
+		List<Double> candidates = Lists.newArrayList(values);
+		List<double[]> candidateVectors = Lists.newArrayList(vectors);
+		for (int i = 0; i < wanted; i++) {
+			double value = m_shiftInvert ? rayleighQuotient(operator, ritzVectors[i]) : ritzValues[i];
+			// 明確によい固有対のみを候補とする
+			if (score(which, value) < worst - getDegeneracyTolerance(value)) {
+				candidates.add(value);
+				candidateVectors.add(ritzVectors[i]);
+			}
+		}
+		values.clear();
+		vectors.clear();
+		select(which, k, candidates, candidateVectors, values, vectors);
+		return info;
+	}
+
+	/**
+	 * 候補の固有対から選択方法に従ってよいk個を選び、昇順に並べる
+	 *
+	 * @param which 選択方法
+	 * @param k 固有値数
+	 * @param candidates 候補の固有値
+	 * @param candidateVectors 候補の固有ベクトル
+	 * @param values 固有値 (昇順で追加する)
+	 * @param vectors 固有ベクトル
+	 */
+	private void select(final Which which, int k, final List<Double> candidates, List<double[]> candidateVectors, List<Double> values, List<double[]> vectors) {
+
+		Integer[] order = new Integer[candidates.size()];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer i1, Integer i2) {
+				return Double.compare(score(which, candidates.get(i1)), score(which, candidates.get(i2)));
+			}
+		});
+
+		Integer[] selected = Arrays.copyOf(order, Math.min(k, order.length));
+		Arrays.sort(selected, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer i1, Integer i2) {
+				return Double.compare(candidates.get(i1), candidates.get(i2));
+			}
+		});
+		for (int index : selected) {
+			values.add(candidates.get(index));
+			vectors.add(candidateVectors.get(index));
+		}
+	}
+
+	/**
+	 * 固有値が縮退しているとみなす幅を取得する
+	 *
+	 * @param value 固有値
+	 * @return 縮退しているとみなす幅
+	 */
+	private double getDegeneracyTolerance(double value) {
+		return m_tolerance * Math.max(1.0, Math.abs(value)) * 10.0;
+	}
+
+	/**
+	 * thick-restart Lanczos法で、ロックしたベクトルの直交補空間における固有対をk個求める</br>
+	 * 射影行列は全直交化の係数から T = V^T A V として構築する
+	 *
+	 * @param operator BdGハミルトニアン作用素
+	 * @param k 固有値数
+	 * @param which 選択方法
+	 * @param locked ロックしたベクトル
+	 * @param startVector 開始ベクトル
+	 * @param random 乱数
+	 * @param ritzValues Ritz値 (作用素の固有値)
+	 * @param ritzVectors Ritzベクトル
+	 * @return 実行結果 (0: 収束, 1: 収束しなかった)
+	 */
+	private int runLanczos(BdGHamiltonianOperator operator, int k, Which which, List<double[]> locked, double[] startVector, Random random, double[] ritzValues, double[][] ritzVectors) {
+
+		int n = m_matrixSize;
+		int free = n - locked.size();
+		int m = (m_subspaceSize > 0) ? m_subspaceSize : Math.max(2 * k, k + DEFAULT_EXTRA_SUBSPACE_SIZE);
+		m = Math.min(Math.max(m, k + 1), free);
+
+		double[][] basis = new double[m + 1][];
+		double[][] projection = new double[m][m];
+		double[] w = new double[n];
+		double[] coefficient = new double[m];
+		double[] gather = new double[m];
+
+		basis[0] = startVector.clone();
+		if (!orthonormalize(basis[0], locked, basis, 0)) {
+			fillRandom(random, basis[0]);
+			orthonormalize(basis[0], locked, basis, 0);
+		}
+
+		int kept = 0;
+		double residualNorm = 0.0;
+		for (int restart = 0;; restart++) {
+
+			// Lanczos反復 (全直交化)
+			for (int j = kept; j < m; j++) {
+				applyOperator(operator, basis[j], w);
+				double norm = Math.sqrt(dot(w, w));
+				Arrays.fill(coefficient, 0, j + 1, 0.0);
+				for (int pass = 0; pass < 2; pass++) {
+					for (double[] vector : locked) {
+						axpy(-dot(vector, w), vector, w);
+					}
+					for (int i = 0; i <= j; i++) {
+						double h = dot(basis[i], w);
+						coefficient[i] += h;
+						axpy(-h, basis[i], w);
+					}
+				}
+				for (int i = 0; i <= j; i++) {
+					projection[i][j] = coefficient[i];
+					projection[j][i] = coefficient[i];
+				}
+
+				double beta = Math.sqrt(dot(w, w));
+				boolean isBreakdown = beta <= BREAKDOWN_RATIO * norm;
+				if (basis[j + 1] == null) {
+					basis[j + 1] = new double[n];
+				}
+				if (j + 1 < m) {
+					if (isBreakdown) {
+						// 不変部分空間に到達したため、直交する乱数ベクトルで部分空間を広げる
+						fillRandom(random, basis[j + 1]);
+						orthonormalize(basis[j + 1], locked, basis, j + 1);
+					} else {
+						scale(1.0 / beta, w, basis[j + 1]);
+					}
+				} else {
+					residualNorm = isBreakdown ? 0.0 : beta;
+					scale(isBreakdown ? 0.0 : 1.0 / beta, w, basis[m]);
+				}
+			}
+
+			// Rayleigh-Ritz
+			double[] theta = new double[m];
+			double[] y = new double[m * m];
+			for (int j = 0; j < m; j++) {
+				for (int i = 0; i < m; i++) {
+					y[j * m + i] = projection[i][j];
+				}
+			}
+			int info = m_backend.dsyevd("V", "U", m, y, 0, m, theta, 0, new double[1 + 6 * m + 2 * m * m], 0, 1 + 6 * m + 2 * m * m, new int[3 + 5 * m], 0, 3 + 5 * m);
+			if (0 != info) {
+				return info;
+			}
+			int[] order = sortByScore(which, theta);
+
+			boolean isConverged = true;
+			for (int i = 0; i < k; i++) {
+				int index = order[i];
+				double residual = Math.abs(residualNorm * y[index * m + m - 1]);
+				if (residual > m_tolerance * Math.max(1.0, Math.abs(theta[index]))) {
+					isConverged = false;
+				}
+			}
+
+			if (isConverged || restart >= m_maxRestart || m == free) {
+				for (int i = 0; i < k; i++) {
+					int index = order[i];
+					ritzValues[i] = theta[index];
+					ritzVectors[i] = new double[n];
+					for (int r = 0; r < m; r++) {
+						axpy(y[index * m + r], basis[r], ritzVectors[i]);
+					}
+				}
+				return (isConverged || m == free) ? 0 : 1;
+			}
+
+			// thick restart : よい方からkept個のRitzベクトルと残差ベクトルを残す
+			kept = k + (m - k) / 2;
+			for (int p = 0; p < n; p++) {
+				for (int r = 0; r < m; r++) {
+					gather[r] = basis[r][p];
+				}
+				for (int i = 0; i < kept; i++) {
+					int index = order[i];
+					double value = 0.0;
+					for (int r = 0; r < m; r++) {
+						value += y[index * m + r] * gather[r];
+					}
+					basis[i][p] = value;
+				}
+			}
+			double[] residualVector = basis[m];
+			basis[m] = basis[kept];
+			basis[kept] = residualVector;
+
+			for (double[] row : projection) {
+				Arrays.fill(row, 0.0);
+			}
+			for (int i = 0; i < kept; i++) {
+				projection[i][i] = theta[order[i]];
+			}
+		}
+	}
+
+	/**
+	 * 作用素を適用する (シフト・インバート時は y = (H - σ)^-1 x)
+	 *
+	 * @param operator BdGハミルトニアン作用素
+	 * @param x 入力ベクトル
+	 * @param y 出力ベクトル
+	 */
+	private void applyOperator(BdGHamiltonianOperator operator, double[] x, double[] y) {
+		if (m_shiftInvert) {
+			solveShiftedEquation(operator, x, y);
+		} else {
+			operator.multiply(x, y, m_pool);
+			m_operatorCount++;
+		}
+	}
+
+	/**
+	 * MINRES法で (H - σ) x = b を解く (Paige-Saunders)
+	 *
+	 * @param operator BdGハミルトニアン作用素
+	 * @param b 右辺ベクトル
+	 * @param x 解ベクトル
+	 */
+	private void solveShiftedEquation(BdGHamiltonianOperator operator, double[] b, double[] x) {
+
+		int n = b.length;
+		Arrays.fill(x, 0.0);
+
+		double beta1 = Math.sqrt(dot(b, b));
+		if (beta1 == 0.0) {
+			return;
+		}
+
+		double[] r1 = b.clone();
+		double[] r2 = b.clone();
+		double[] y = b.clone();
+		double[] v = new double[n];
+		double[] w = new double[n];
+		double[] w1 = new double[n];
+		double[] w2 = new double[n];
+
+		double oldb = 0.0;
+		double beta = beta1;
+		double dbar = 0.0;
+		double epsln = 0.0;
+		double phibar = beta1;
+		double cs = -1.0;
+		double sn = 0.0;
+
+		for (int itn = 1; itn <= 10 * n; itn++) {
+			scale(1.0 / beta, y, v);
+			operator.multiply(v, y, m_pool);
+			m_operatorCount++;
+			axpy(-m_shift, v, y);
+			if (itn >= 2) {
+				axpy(-beta / oldb, r1, y);
+			}
+			double alfa = dot(v, y);
+			axpy(-alfa / beta, r2, y);
+			double[] tmp = r1;
+			r1 = r2;
+			r2 = tmp;
+			System.arraycopy(y, 0, r2, 0, n);
+			oldb = beta;
+			beta = Math.sqrt(dot(y, y));
+
+			double oldeps = epsln;
+			double delta = cs * dbar + sn * alfa;
+			double gbar = sn * dbar - cs * alfa;
+			epsln = sn * beta;
+			dbar = -cs * beta;
+			double gamma = Math.max(Math.hypot(gbar, beta), Double.MIN_NORMAL);
+			cs = gbar / gamma;
+			sn = beta / gamma;
+			double phi = cs * phibar;
+			phibar = sn * phibar;
+
+			tmp = w1;
+			w1 = w2;
+			w2 = w;
+			w = tmp;
+			for (int i = 0; i < n; i++) {
+				w[i] = (v[i] - oldeps * w1[i] - delta * w2[i]) / gamma;
+				x[i] += phi * w[i];
+			}
+
+			if (phibar <= m_tolerance * 1.0e-2 * beta1 || beta == 0.0) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Rayleigh商 x^T H x / x^T x を求める
+	 *
+	 * @param operator BdGハミルトニアン作用素
+	 * @param x ベクトル
+	 * @return Rayleigh商
+	 */
+	private double rayleighQuotient(BdGHamiltonianOperator operator, double[] x) {
+		double[] y = new double[x.length];
+		operator.multiply(x, y, m_pool);
+		m_operatorCount++;
+		return dot(x, y) / dot(x, x);
+	}
+
+	/**
+	 * 選択方法に従った固有値の順位付けの値 (小さいほどよい)
+	 *
+	 * @param which 選択方法
+	 * @param value 固有値
+	 * @return 順位付けの値
+	 */
+	private double score(Which which, double value) {
+		switch (which) {
+		case SMALLEST:
+			return value;
+		case LARGEST:
+			return -value;
+		default:
+			return Math.abs(value - m_shift);
+		}
+	}
+
+	/**
+	 * 選択方法に従ってRitz値の添字を並べる
+	 *
+	 * @param which 選択方法
+	 * @param theta Ritz値 (昇順)
+	 * @return 添字
+	 */
+	private static int[] sortByScore(Which which, final double[] theta) {
+		int m = theta.length;
+		int[] order = new int[m];
+		if (which == Which.LARGEST_MAGNITUDE) {
+			// 昇順のRitz値の両端から絶対値の大きい方を順に選ぶ
+			int low = 0;
+			int high = m - 1;
+			for (int i = 0; i < m; i++) {
+				order[i] = (Math.abs(theta[low]) > Math.abs(theta[high])) ? low++ : high--;
+			}
+		} else {
+			for (int i = 0; i < m; i++) {
+				order[i] = (which == Which.SMALLEST) ? i : m - 1 - i;
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * ロックしたベクトルと基底(先頭からcount本)に対して直交化し、正規化する
+	 *
+	 * @param x ベクトル
+	 * @param locked ロックしたベクトル
+	 * @param basis 基底
+	 * @param count 基底の本数
+	 * @return 正規化できた場合 true
+	 */
+	private static boolean orthonormalize(double[] x, List<double[]> locked, double[][] basis, int count) {
+		double norm = Math.sqrt(dot(x, x));
+		for (int pass = 0; pass < 2; pass++) {
+			for (double[] vector : locked) {
+				axpy(-dot(vector, x), vector, x);
+			}
+			for (int i = 0; i < count; i++) {
+				axpy(-dot(basis[i], x), basis[i], x);
+			}
+		}
+		double newNorm = Math.sqrt(dot(x, x));
+		if (newNorm <= BREAKDOWN_RATIO * norm || newNorm == 0.0) {
+			return false;
+		}
+		scale(1.0 / newNorm, x, x);
+		return true;
+	}
+
+	/**
+	 * 乱数ベクトルを作成する
+	 *
+	 * @param random 乱数
+	 * @param x ベクトル
+	 */
+	private static void fillRandom(Random random, double[] x) {
+		for (int i = 0; i < x.length; i++) {
+			x[i] = random.nextDouble() - 0.5;
+		}
+	}
+
+	private static double dot(double[] x, double[] y) {
+		double value = 0.0;
+		for (int i = 0; i < x.length; i++) {
+			value += x[i] * y[i];
+		}
+		return value;
+	}
+
+	private static void axpy(double a, double[] x, double[] y) {
+		for (int i = 0; i < x.length; i++) {
+			y[i] += a * x[i];
+		}
+	}
+
+	private static void scale(double a, double[] x, double[] y) {
+		for (int i = 0; i < x.length; i++) {
+			y[i] = a * x[i];
+		}
+	}
+}
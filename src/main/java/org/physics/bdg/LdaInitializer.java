@@ -0,0 +1,121 @@
+package org.physics.bdg;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import no.uib.cipr.matrix.DenseVector;
+
+import org.physics.bdg.BdGHamiltonian.Observables;
+
+import com.google.common.collect.Maps;
+
+/**
+ * 局所密度近似(LDA)による初期値作成クラス</br>
+ * 格子点ごとの局所的な化学ポテンシャル μσ - V(r) に対して、一様な格子系のBCSギャップ方程式と粒子数の方程式を
+ * 波数空間の和で自己無撞着に解き、超流動パラメータとアップスピン&ダウンスピン粒子数の初期値とする</br>
+ * 一様系の出力は {@link MomentumSpaceSolver} で求める。外部ポテンシャルの値が同じ格子点は1回だけ解き、ポテンシャルの昇順に直前の解の粒子数から反復を開始する。
+ * 超流動パラメータが0の解(常流動状態)はギャップ方程式の厳密な解であり、直前の解から開始すると以降の格子点もすべて常流動状態となるため、
+ * 超流動パラメータは毎回設定値から開始する
+ *
+ * @author y-ok
+ */
+public class LdaInitializer {
+
+	// 初期値の種別: パラメータ設定ファイルの一様な初期値
+	public static final String UNIFORM = "uniform";
+
+	// 初期値の種別: 局所密度近似
+	public static final String LDA = "lda";
+
+	// 一様系の自己無撞着計算の最大反復回数
+	private static final int MAX_ITERATION = 1000;
+
+	// 一様系の自己無撞着計算の収束判定値
+	private static final double TOLERANCE = 1.0e-10;
+
+	// 一様系の自己無撞着計算の入力の重み
+	private static final double WEIGHT_FACTOR = 0.5;
+
+	// 一様系の波数空間ソルバ
+	private final MomentumSpaceSolver m_solver;
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param hoppingEnergy 飛び移り積分 t
+	 * @param interaction 相互作用 U
+	 * @param upChemicalPotential アップスピンの化学ポテンシャル μ↑
+	 * @param downChemicalPotential ダウンスピンの化学ポテンシャル μ↓
+	 * @param boltzmannConst ボルツマン定数
+	 * @param kPoints 波数の1方向の分割数
+	 */
+	public LdaInitializer(double hoppingEnergy, double interaction, double upChemicalPotential, double downChemicalPotential, double boltzmannConst, int kPoints) {
+		m_solver = new MomentumSpaceSolver(hoppingEnergy, interaction, upChemicalPotential, downChemicalPotential, boltzmannConst, kPoints);
+	}
+
+	/**
+	 * 格子点ごとの外部ポテンシャルから、超流動パラメータと粒子数の初期値を作成する
+	 *
+	 * @param externalPotential 格子点ごとの外部ポテンシャル V(r)
+	 * @param temperature 温度
+	 * @param pairPotential 一様系の反復を開始する超流動パラメータ (格子点ごとに毎回この値から開始する)
+	 * @param upParticleNumber 一様系の反復を開始するアップスピン粒子数
+	 * @param downParticleNumber 一様系の反復を開始するダウンスピン粒子数
+	 * @return 超流動パラメータと粒子数 (長さは格子点数の2倍で、先頭の格子点数分の成分に格納する)
+	 */
+	public Observables makeInitialGuess(double[] externalPotential, double temperature, double pairPotential, double upParticleNumber, double downParticleNumber) {
+
+		double[] sortedPotential = externalPotential.clone();
+		Arrays.sort(sortedPotential);
+
+		// ポテンシャルの昇順に、直前の解の粒子数と超流動パラメータの設定値から反復を開始して解く
+		Map<Double, double[]> table = Maps.newHashMap();
+		double[] solution = { pairPotential, upParticleNumber, downParticleNumber };
+		for (double potential : sortedPotential) {
+			if (!table.containsKey(potential)) {
+				solution = solveHomogeneous(potential, temperature, new double[] { pairPotential, solution[1], solution[2] });
+				table.put(potential, solution);
+			}
+		}
+
+		int siteNum = externalPotential.length;
+		double[] vecPairPotential = new double[2 * siteNum];
+		double[] vecUpParticleNumber = new double[2 * siteNum];
+		double[] vecDownParticleNumber = new double[2 * siteNum];
+		for (int i = 0; i < siteNum; i++) {
+			double[] local = table.get(externalPotential[i]);
+			vecPairPotential[i] = local[0];
+			vecUpParticleNumber[i] = local[1];
+			vecDownParticleNumber[i] = local[2];
+		}
+		return new Observables(new DenseVector(vecPairPotential, false), new DenseVector(vecUpParticleNumber, false), new DenseVector(vecDownParticleNumber, false));
+	}
+
+	/**
+	 * 外部ポテンシャル V の一様系の自己無撞着解を求める</br>
+	 * 最大反復回数までに収束しない場合は最後の値を返す
+	 *
+	 * @param potential 外部ポテンシャル V
+	 * @param temperature 温度
+	 * @param start 反復を開始する超流動パラメータ、アップスピン粒子数、ダウンスピン粒子数
+	 * @return 超流動パラメータ、アップスピン粒子数、ダウンスピン粒子数
+	 */
+	public double[] solveHomogeneous(double potential, double temperature, double[] start) {
+
+		double[] input = start.clone();
+		for (int cnt = 0; cnt < MAX_ITERATION; cnt++) {
+			double[] output = m_solver.calcObservables(potential, temperature, input[0], input[1], input[2]);
+			double residual = 0.0;
+			for (int k = 0; k < 3; k++) {
+				residual = Math.max(residual, Math.abs(output[k] - input[k]));
+			}
+			if (residual < TOLERANCE) {
+				return output;
+			}
+			for (int k = 0; k < 3; k++) {
+				input[k] = WEIGHT_FACTOR * input[k] + (1.0 - WEIGHT_FACTOR) * output[k];
+			}
+		}
+		return input;
+	}
+}
@@ -0,0 +1,54 @@
+package org.physics.bdg;
+
+import java.util.List;
+
+import org.physics.bdg.BdGHamiltonian.Observables;
+
+import com.google.common.collect.Lists;
+
+/**
+ * 線形混合クラス</br>
+ * 次の入力を w x + (1 - w) F[x] とする
+ *
+ * @author y-ok
+ */
+public class LinearMixer extends AbstractMixer {
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param weightFactor 入力の重み w
+	 */
+	public LinearMixer(double weightFactor) {
+		super(weightFactor);
+	}
+
+	@Override
+	public String getName() {
+		return LINEAR;
+	}
+
+	@Override
+	public void reset() {
+	}
+
+	@Override
+	public List<double[]> getState() {
+		return Lists.newArrayList();
+	}
+
+	@Override
+	public void setState(List<double[]> state) {
+	}
+
+	@Override
+	public Observables mix(Observables input, Observables output) {
+
+		double[] x = pack(input);
+		double[] f = pack(output);
+		for (int i = 0; i < x.length; i++) {
+			x[i] = m_weightFactor * x[i] + (1.0 - m_weightFactor) * f[i];
+		}
+		return unpack(x, input);
+	}
+}
@@ -0,0 +1,150 @@
+package org.physics.bdg;
+
+import java.util.SortedSet;
+
+import no.uib.cipr.matrix.DenseMatrix;
+import no.uib.cipr.matrix.DenseVector;
+import no.uib.cipr.matrix.Matrix;
+import no.uib.cipr.matrix.sparse.CompRowMatrix;
+
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
+
+/**
+ * 行列で保持したBdGハミルトニアンを作用素として扱うクラス</br>
+ * 圧縮行格納形式(CSR)の疎行列と密行列は要素配列を直接参照して H x を計算する
+ *
+ * @author y-ok
+ */
+public class MatrixBdGHamiltonianOperator implements BdGHamiltonianOperator {
+
+	// BdGハミルトニアン
+	private final Matrix m_matrix;
+
+	// 行列サイズ
+	private final int m_matrixSize;
+
+	// 格子点数(M / 2)
+	private final int m_siteNum;
+
+	// 格子サイズ (格子点数が平方数でない場合は、行単位の分割が全格子点を覆う最小の値)
+	private final int m_latticeSize;
+
+	// 格子点ごとの結合する格子点 (初回使用時に作成する)
+	private int[][] m_neighborTable;
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param matrix BdGハミルトニアン
+	 */
+	public MatrixBdGHamiltonianOperator(Matrix matrix) {
+		m_matrix = matrix;
+		m_matrixSize = matrix.numRows();
+		m_siteNum = m_matrixSize / 2;
+		m_latticeSize = (int) Math.ceil(Math.sqrt(m_siteNum));
+	}
+
+	@Override
+	public int getSize() {
+		return m_matrixSize;
+	}
+
+	@Override
+	public int getLatticeSize() {
+		return m_latticeSize;
+	}
+
+	@Override
+	public void multiply(double[] x, double[] y) {
+		if (m_matrix instanceof CompRowMatrix || m_matrix instanceof DenseMatrix) {
+			multiply(x, y, 0, m_latticeSize);
+		} else {
+			m_matrix.mult(new DenseVector(x, false), new DenseVector(y, false));
+		}
+	}
+
+	@Override
+	public void multiply(double[] x, double[] y, int fromRow, int toRow) {
+		int fromSite = Math.min(fromRow * m_latticeSize, m_siteNum);
+		int toSite = Math.min(toRow * m_latticeSize, m_siteNum);
+		for (int i = fromSite; i < toSite; i++) {
+			multiplySite(x, y, i);
+		}
+	}
+
+	@Override
+	public void multiplySite(double[] x, double[] y, int site) {
+		y[site] = multiplyRow(x, site);
+		y[site + m_siteNum] = multiplyRow(x, site + m_siteNum);
+	}
+
+	@Override
+	public int[] getNeighborSites(int site) {
+		return getNeighborTable()[site];
+	}
+
+	/**
+	 * 格子点ごとの結合する格子点を取得する</br>
+	 * 行 i と i + M / 2 の非ゼロ要素(疎行列は非ゼロパターン)の列番号を格子点番号に読み替えて作成する
+	 *
+	 * @return 格子点ごとの結合する格子点
+	 */
+	private synchronized int[][] getNeighborTable() {
+		if (m_neighborTable != null) {
+			return m_neighborTable;
+		}
+		int[][] neighborTable = new int[m_siteNum][];
+		for (int i = 0; i < m_siteNum; i++) {
+			SortedSet<Integer> sites = Sets.newTreeSet();
+			for (int row : new int[] { i, i + m_siteNum }) {
+				if (m_matrix instanceof CompRowMatrix) {
+					int[] rowPointer = ((CompRowMatrix) m_matrix).getRowPointers();
+					int[] columnIndex = ((CompRowMatrix) m_matrix).getColumnIndices();
+					for (int k = rowPointer[row]; k < rowPointer[row + 1]; k++) {
+						sites.add(columnIndex[k] % m_siteNum);
+					}
+				} else {
+					for (int column = 0; column < m_matrixSize; column++) {
+						if (m_matrix.get(row, column) != 0.0) {
+							sites.add(column % m_siteNum);
+						}
+					}
+				}
+			}
+			sites.remove(i);
+			neighborTable[i] = Ints.toArray(sites);
+		}
+		m_neighborTable = neighborTable;
+		return m_neighborTable;
+	}
+
+	/**
+	 * (H x) の第row成分を計算する
+	 *
+	 * @param x 入力ベクトル
+	 * @param row 行
+	 * @return (H x) の第row成分
+	 */
+	private double multiplyRow(double[] x, int row) {
+		double value = 0.0;
+		if (m_matrix instanceof CompRowMatrix) {
+			int[] rowPointer = ((CompRowMatrix) m_matrix).getRowPointers();
+			int[] columnIndex = ((CompRowMatrix) m_matrix).getColumnIndices();
+			double[] data = ((CompRowMatrix) m_matrix).getData();
+			for (int k = rowPointer[row]; k < rowPointer[row + 1]; k++) {
+				value += data[k] * x[columnIndex[k]];
+			}
+		} else if (m_matrix instanceof DenseMatrix) {
+			double[] data = ((DenseMatrix) m_matrix).getData();
+			for (int column = 0; column < m_matrixSize; column++) {
+				value += data[column * m_matrixSize + row] * x[column];
+			}
+		} else {
+			for (int column = 0; column < m_matrixSize; column++) {
+				value += m_matrix.get(row, column) * x[column];
+			}
+		}
+		return value;
+	}
+}
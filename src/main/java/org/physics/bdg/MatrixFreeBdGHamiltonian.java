@@ -0,0 +1,121 @@
+package org.physics.bdg;
+
+/**
+ * 行列を保持しないBdGハミルトニアン作用素クラス</br>
+ * 最近接格子点テーブル、超流動パラメータ、粒子数、外部ポテンシャルから H x をその場で計算する
+ *
+ * @author y-ok
+ */
+public class MatrixFreeBdGHamiltonian implements BdGHamiltonianOperator {
+
+	// 格子サイズ
+	private final int m_latticeSize;
+
+	// 格子点数(N * N)
+	private final int m_siteNum;
+
+	// 最近接格子点テーブル
+	private final int[][] m_neighborTable;
+
+	// ホッピングパラメータ
+	private final double m_HoppingEnergy;
+
+	// アップスピン粒子の化学ポテンシャル
+	private final double m_upChemicalPotential;
+
+	// ダウンスピン粒子の化学ポテンシャル
+	private final double m_downChemicalPotential;
+
+	// 格子点ごとの外部ポテンシャル
+	private final double[] m_externalPotential;
+
+	// 粒子間相互作用
+	private final double m_interparticleInteractionStrength;
+
+	// 超流動パラメータ
+	private final double[] m_pairPotentialEnergy;
+
+	// アップスピン粒子数
+	private final double[] m_upParticleNumber;
+
+	// ダウンスピン粒子数
+	private final double[] m_downParticleNumber;
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param latticeSize 格子サイズ
+	 * @param neighborTable 最近接格子点テーブル
+	 * @param hoppingEnergy ホッピングパラメータ
+	 * @param upChemicalPotential アップスピン粒子の化学ポテンシャル
+	 * @param downChemicalPotential ダウンスピン粒子の化学ポテンシャル
+	 * @param externalPotential 格子点ごとの外部ポテンシャル
+	 * @param interparticleInteractionStrength 粒子間相互作用
+	 * @param pairPotentialEnergy 超流動パラメータ
+	 * @param upParticleNumber アップスピン粒子数
+	 * @param downParticleNumber ダウンスピン粒子数
+	 */
+	MatrixFreeBdGHamiltonian(int latticeSize, int[][] neighborTable, double hoppingEnergy, double upChemicalPotential, double downChemicalPotential, double[] externalPotential, double interparticleInteractionStrength, double[] pairPotentialEnergy, double[] upParticleNumber, double[] downParticleNumber) {
+		m_latticeSize = latticeSize;
+		m_siteNum = latticeSize * latticeSize;
+		m_neighborTable = neighborTable;
+		m_HoppingEnergy = hoppingEnergy;
+		m_upChemicalPotential = upChemicalPotential;
+		m_downChemicalPotential = downChemicalPotential;
+		m_externalPotential = externalPotential;
+		m_interparticleInteractionStrength = interparticleInteractionStrength;
+		m_pairPotentialEnergy = pairPotentialEnergy;
+		m_upParticleNumber = upParticleNumber;
+		m_downParticleNumber = downParticleNumber;
+	}
+
+	@Override
+	public int getSize() {
+		return 2 * m_siteNum;
+	}
+
+	@Override
+	public int getLatticeSize() {
+		return m_latticeSize;
+	}
+
+	@Override
+	public void multiply(double[] x, double[] y) {
+		multiply(x, y, 0, m_latticeSize);
+	}
+
+	@Override
+	public void multiply(double[] x, double[] y, int fromRow, int toRow) {
+
+		for (int i = fromRow * m_latticeSize; i < toRow * m_latticeSize; i++) {
+			multiplySite(x, y, i);
+		}
+	}
+
+	@Override
+	public void multiplySite(double[] x, double[] y, int site) {
+
+		// ホッピング項
+		double upHopping = 0.0;
+		double downHopping = 0.0;
+		for (int neighbor : m_neighborTable[site]) {
+			upHopping += x[neighbor];
+			downHopping += x[neighbor + m_siteNum];
+		}
+
+		// 化学ポテンシャル項、外部ポテンシャル項、Hartree項
+		double upDiagonal = -m_upChemicalPotential + (m_externalPotential[site] + m_interparticleInteractionStrength * m_downParticleNumber[site]);
+		double downDiagonal = m_downChemicalPotential + (-m_externalPotential[site] - m_interparticleInteractionStrength * m_upParticleNumber[site]);
+
+		// 超流動パラメータ項
+		double pairPotential = m_pairPotentialEnergy[site];
+
+		y[site] = upDiagonal * x[site] - m_HoppingEnergy * upHopping + pairPotential * x[site + m_siteNum];
+		y[site + m_siteNum] = downDiagonal * x[site + m_siteNum] + m_HoppingEnergy * downHopping + pairPotential * x[site];
+	}
+
+	@Override
+	public int[] getNeighborSites(int site) {
+		return m_neighborTable[site];
+	}
+}
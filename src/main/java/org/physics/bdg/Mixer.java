@@ -0,0 +1,82 @@
+package org.physics.bdg;
+
+import java.util.List;
+
+import org.physics.bdg.BdGHamiltonian.Observables;
+
+/**
+ * 自己無撞着計算の混合法インタフェース</br>
+ * 反復の入力 x (超流動パラメータとアップスピン&ダウンスピン粒子数) と、それから求めた出力 F[x] を混合して次の入力を作成する
+ *
+ * @author y-ok
+ */
+public interface Mixer {
+
+	// 線形混合
+	String LINEAR = "linear";
+
+	// Pulay (DIIS, Anderson) 混合
+	String PULAY = "pulay";
+
+	// 修正Broyden混合 (歩幅の自動調整と発散時の再開始を行う)
+	String BROYDEN = "broyden";
+
+	/**
+	 * 混合法名を取得する
+	 *
+	 * @return 混合法名
+	 */
+	String getName();
+
+	/**
+	 * 反復の履歴を破棄する (温度を変えて自己無撞着計算を開始する前に呼び出す)
+	 */
+	void reset();
+
+	/**
+	 * 入力と出力を混合して次の入力を作成する</br>
+	 * 引数のベクトルは変更しない
+	 *
+	 * @param input 入力
+	 * @param output 入力から求めた出力
+	 * @return 次の入力
+	 */
+	Observables mix(Observables input, Observables output);
+
+	/**
+	 * 反復の履歴を数値配列の列として取得する (チェックポイントに保存する)</br>
+	 * 返す配列は混合法の内部状態と共有しない
+	 *
+	 * @return 反復の履歴 (履歴を持たない混合法は空)
+	 */
+	List<double[]> getState();
+
+	/**
+	 * {@link #getState()} で取得した反復の履歴を復元する
+	 *
+	 * @param state 反復の履歴
+	 */
+	void setState(List<double[]> state);
+
+	/**
+	 * 混合法を作成する
+	 *
+	 * @param type 混合法種別 ({@link #LINEAR}, {@link #PULAY}, {@link #BROYDEN})。null の場合は {@link #LINEAR}
+	 * @param weightFactor 入力の重み w (次の入力の線形混合部分は w x + (1 - w) F[x])
+	 * @param historyDepth Pulay混合、修正Broyden混合で保持する履歴数
+	 * @return 混合法
+	 */
+	static Mixer create(String type, double weightFactor, int historyDepth) {
+
+		if (type == null || LINEAR.equalsIgnoreCase(type.trim())) {
+			return new LinearMixer(weightFactor);
+		}
+		if (PULAY.equalsIgnoreCase(type.trim())) {
+			return new PulayMixer(weightFactor, historyDepth);
+		}
+		if (BROYDEN.equalsIgnoreCase(type.trim())) {
+			return new BroydenMixer(weightFactor, historyDepth);
+		}
+		throw new IllegalArgumentException("Unknown mixer: " + type);
+	}
+}
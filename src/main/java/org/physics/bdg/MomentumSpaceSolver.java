@@ -0,0 +1,106 @@
+package org.physics.bdg;
+
+/**
+ * 並進対称な格子系の波数空間ソルバ</br>
+ * 外部ポテンシャルが一様な周期境界の正方格子では、BdGハミルトニアンは波数 k ごとの2行2列のブロック
+ * <pre>
+ * | ξ↑(k)   Δ      |
+ * | Δ      -ξ↓(k)  |
+ * </pre>
+ * (ε(k) = -2t(cos kx + cos ky), ξσ(k) = ε(k) - μσ + V + U n_σ') に分解される。固有値は
+ * E± = (ξ↑ - ξ↓)/2 ± sqrt(((ξ↑ + ξ↓)/2)^2 + Δ^2) と解析的に求まるため、対角化を行わずに
+ * 格子点あたりの粒子数と超流動パラメータを波数の和として O(N^2) で求める</br>
+ * 波数の分割数を格子の一辺と同じにすると、一様な超流動パラメータと粒子数に対して密行列の対角化と同じ値となる
+ *
+ * @author y-ok
+ */
+public class MomentumSpaceSolver {
+
+	private final double m_interaction;
+	private final double m_upChemicalPotential;
+	private final double m_downChemicalPotential;
+	private final double m_boltzmannConst;
+
+	// 波数ごとの分散 ε(k)
+	private final double[] m_dispersion;
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param hoppingEnergy 飛び移り積分 t
+	 * @param interaction 相互作用 U
+	 * @param upChemicalPotential アップスピンの化学ポテンシャル μ↑
+	 * @param downChemicalPotential ダウンスピンの化学ポテンシャル μ↓
+	 * @param boltzmannConst ボルツマン定数
+	 * @param kPoints 波数の1方向の分割数
+	 */
+	public MomentumSpaceSolver(double hoppingEnergy, double interaction, double upChemicalPotential, double downChemicalPotential, double boltzmannConst, int kPoints) {
+		if (kPoints < 1) {
+			throw new IllegalArgumentException("k-points must be positive: " + kPoints);
+		}
+		m_interaction = interaction;
+		m_upChemicalPotential = upChemicalPotential;
+		m_downChemicalPotential = downChemicalPotential;
+		m_boltzmannConst = boltzmannConst;
+
+		double[] cos = new double[kPoints];
+		for (int i = 0; i < kPoints; i++) {
+			cos[i] = Math.cos(2.0 * Math.PI * i / kPoints);
+		}
+		m_dispersion = new double[kPoints * kPoints];
+		for (int i = 0; i < kPoints; i++) {
+			for (int j = 0; j < kPoints; j++) {
+				m_dispersion[i * kPoints + j] = -2.0 * hoppingEnergy * (cos[i] + cos[j]);
+			}
+		}
+	}
+
+	/**
+	 * 入力の超流動パラメータと粒子数から、格子点あたりの出力の超流動パラメータと粒子数を求める
+	 * <ul>
+	 * <li>n↑ = (1/N) Σ_k [u+^2 f(E+) + u-^2 f(E-)]</li>
+	 * <li>n↓ = (1/N) Σ_k [v+^2 f(-E+) + v-^2 f(-E-)]</li>
+	 * <li>Δ = U (1/N) Σ_k Δ/(2E_k) [f(E+) - f(E-)]</li>
+	 * </ul>
+	 * (u±^2 = (1 ± ξ/E_k)/2, v±^2 = (1 ∓ ξ/E_k)/2, ξ = (ξ↑ + ξ↓)/2, E_k = sqrt(ξ^2 + Δ^2))
+	 *
+	 * @param potential 外部ポテンシャル V
+	 * @param temperature 温度
+	 * @param pairPotential 超流動パラメータ Δ
+	 * @param upParticleNumber アップスピン粒子数
+	 * @param downParticleNumber ダウンスピン粒子数
+	 * @return 超流動パラメータ、アップスピン粒子数、ダウンスピン粒子数
+	 */
+	public double[] calcObservables(double potential, double temperature, double pairPotential, double upParticleNumber, double downParticleNumber) {
+
+		double upShift = -m_upChemicalPotential + potential + m_interaction * downParticleNumber;
+		double downShift = -m_downChemicalPotential + potential + m_interaction * upParticleNumber;
+		double delta = 0.5 * (upShift - downShift);
+
+		double upSum = 0.0;
+		double downSum = 0.0;
+		double pairSum = 0.0;
+		for (double epsilon : m_dispersion) {
+			double xi = epsilon + 0.5 * (upShift + downShift);
+			double energy = Math.sqrt(xi * xi + pairPotential * pairPotential);
+			double ratio = energy == 0.0 ? 0.0 : xi / energy;
+			double fermiPlus = fermiDistribution(delta + energy, temperature);
+			double fermiMinus = fermiDistribution(delta - energy, temperature);
+
+			upSum += 0.5 * (1.0 + ratio) * fermiPlus + 0.5 * (1.0 - ratio) * fermiMinus;
+			downSum += 0.5 * (1.0 - ratio) * (1.0 - fermiPlus) + 0.5 * (1.0 + ratio) * (1.0 - fermiMinus);
+			if (energy != 0.0) {
+				pairSum += pairPotential / (2.0 * energy) * (fermiPlus - fermiMinus);
+			}
+		}
+		int kNum = m_dispersion.length;
+		return new double[] { m_interaction * pairSum / kNum, upSum / kNum, downSum / kNum };
+	}
+
+	/**
+	 * フェルミ分布関数
+	 */
+	private double fermiDistribution(double x, double t) {
+		return 1 / (Math.exp(x / (m_boltzmannConst * t)) + 1);
+	}
+}
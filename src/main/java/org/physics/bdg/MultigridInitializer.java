@@ -0,0 +1,122 @@
+package org.physics.bdg;
+
+import no.uib.cipr.matrix.DenseVector;
+import no.uib.cipr.matrix.Vector;
+
+import org.physics.bdg.BdGHamiltonian.Observables;
+
+/**
+ * 粗い格子の解から初期値を作成するクラス (多重格子法の初期化)</br>
+ * 一辺 L の格子に対して一辺 (L + 1) / 2 の粗い格子で同じトラップを表し、自己無撞着解を求めて元の格子へ双線形補間する。
+ * 粗い格子の格子点間隔は元の格子の s = L / L' 倍とし、外部ポテンシャルの係数を s^2 倍して同じ位置で同じ強さのポテンシャルとする</br>
+ * 飛び移り積分、化学ポテンシャル、相互作用、磁場は変えない。局所密度近似では格子点ごとの粒子数と超流動パラメータは
+ * 局所的な化学ポテンシャル μ - V(r) のみで決まるため、格子点あたりの値をそのまま補間する
+ *
+ * @author y-ok
+ */
+public class MultigridInitializer {
+
+	// 粗い格子の一辺の最小値
+	public static final int MIN_LATTICE_SIZE = 4;
+
+	private MultigridInitializer() {
+	}
+
+	/**
+	 * 粗い格子の一辺を取得する
+	 *
+	 * @param latticeSize 元の格子の一辺
+	 * @return 粗い格子の一辺
+	 */
+	public static int getCoarseLatticeSize(int latticeSize) {
+		return (latticeSize + 1) / 2;
+	}
+
+	/**
+	 * 粗い格子で解を求められるかどうか
+	 *
+	 * @param paramInfo 元の格子のパラメータ設定情報
+	 * @return 多重格子法の段数が1以上で、粗い格子の一辺が {@link #MIN_LATTICE_SIZE} 以上の場合 true
+	 */
+	public static boolean isApplicable(ParamInfo paramInfo) {
+		return paramInfo.getMultigridLevels() > 0 && getCoarseLatticeSize(paramInfo.getLatticeSize()) >= MIN_LATTICE_SIZE;
+	}
+
+	/**
+	 * 粗い格子のパラメータ設定情報を作成する</br>
+	 * 粗い格子は密行列の全対角化で解き、チェックポイントは書き出さない。段数は1つ減らす
+	 *
+	 * @param paramInfo 元の格子のパラメータ設定情報
+	 * @return 粗い格子のパラメータ設定情報
+	 */
+	public static ParamInfo makeCoarseParamInfo(ParamInfo paramInfo) {
+
+		int latticeSize = paramInfo.getLatticeSize();
+		int coarseLatticeSize = getCoarseLatticeSize(latticeSize);
+		double scale = (double) latticeSize / coarseLatticeSize;
+
+		ParamInfo coarseParamInfo = paramInfo.copy();
+		coarseParamInfo.setLatticeSize(coarseLatticeSize);
+		coarseParamInfo.setExternalPotentialCoefficient(paramInfo.getExternalPotentialCoefficient() * scale * scale);
+		coarseParamInfo.setScfEngine(ScfEngine.DENSE.name().toLowerCase());
+		coarseParamInfo.setEnergyWindowMode(EnergyWindow.Mode.ALL.name().toLowerCase());
+		coarseParamInfo.setUseSparseMatrix(false);
+		coarseParamInfo.setMultigridLevels(paramInfo.getMultigridLevels() - 1);
+		coarseParamInfo.setCheckpointInterval(0);
+		coarseParamInfo.setCheckpointRestart(false);
+		return coarseParamInfo;
+	}
+
+	/**
+	 * 粗い格子の解を元の格子へ双線形補間する
+	 *
+	 * @param coarse 粗い格子の超流動パラメータと粒子数
+	 * @param coarseLatticeSize 粗い格子の一辺
+	 * @param latticeSize 元の格子の一辺
+	 * @return 元の格子の超流動パラメータと粒子数 (長さ 2 L^2 で、先頭の L^2 成分に格子点ごとの値を格納する)
+	 */
+	public static Observables interpolate(Observables coarse, int coarseLatticeSize, int latticeSize) {
+		return new Observables(interpolate(coarse.getPairPotentialEnergy(), coarseLatticeSize, latticeSize),
+				interpolate(coarse.getUpParticleNumber(), coarseLatticeSize, latticeSize),
+				interpolate(coarse.getDownParticleNumber(), coarseLatticeSize, latticeSize));
+	}
+
+	/**
+	 * 格子点ごとの値を粗い格子から元の格子へ双線形補間する</br>
+	 * 粗い格子の外側の格子点は端の値とする
+	 *
+	 * @param coarse 粗い格子の値 (先頭の L'^2 成分)
+	 * @param coarseLatticeSize 粗い格子の一辺 L'
+	 * @param latticeSize 元の格子の一辺 L
+	 * @return 元の格子の値 (長さ 2 L^2 で、先頭の L^2 成分に格納する)
+	 */
+	static Vector interpolate(Vector coarse, int coarseLatticeSize, int latticeSize) {
+
+		double scale = (double) latticeSize / coarseLatticeSize;
+		double[] fine = new double[2 * latticeSize * latticeSize];
+		for (int row = 0; row < latticeSize; row++) {
+			double coarseRow = toCoarse(row, scale, coarseLatticeSize, latticeSize);
+			int row0 = Math.min((int) coarseRow, coarseLatticeSize - 2);
+			double ty = coarseRow - row0;
+			for (int col = 0; col < latticeSize; col++) {
+				double coarseCol = toCoarse(col, scale, coarseLatticeSize, latticeSize);
+				int col0 = Math.min((int) coarseCol, coarseLatticeSize - 2);
+				double tx = coarseCol - col0;
+				double upperLeft = coarse.get(row0 * coarseLatticeSize + col0);
+				double upperRight = coarse.get(row0 * coarseLatticeSize + col0 + 1);
+				double lowerLeft = coarse.get((row0 + 1) * coarseLatticeSize + col0);
+				double lowerRight = coarse.get((row0 + 1) * coarseLatticeSize + col0 + 1);
+				fine[row * latticeSize + col] = (1.0 - ty) * ((1.0 - tx) * upperLeft + tx * upperRight) + ty * ((1.0 - tx) * lowerLeft + tx * lowerRight);
+			}
+		}
+		return new DenseVector(fine, false);
+	}
+
+	/**
+	 * 元の格子の行(列)番号を、格子の中心を合わせた粗い格子の行(列)座標に変換する
+	 */
+	private static double toCoarse(int index, double scale, int coarseLatticeSize, int latticeSize) {
+		double position = (index - (latticeSize - 1) / 2.0) / scale + (coarseLatticeSize - 1) / 2.0;
+		return Math.max(0.0, Math.min(coarseLatticeSize - 1, position));
+	}
+}
@@ -0,0 +1,50 @@
+package org.physics.bdg;
+
+import org.netlib.util.intW;
+
+import com.github.fommil.netlib.F2jLAPACK;
+import com.github.fommil.netlib.LAPACK;
+
+/**
+ * netlib-java経由のLAPACKによる固有値ソルババックエンドクラス</br>
+ * システムのOpenBLAS/LAPACKなどのネイティブライブラリを使用する
+ *
+ * @author y-ok
+ */
+public class NetlibEigenSolverBackend implements EigenSolverBackend {
+
+	private final LAPACK m_lapack;
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param lapack netlib-javaのLAPACK実装
+	 */
+	public NetlibEigenSolverBackend(LAPACK lapack) {
+		m_lapack = lapack;
+	}
+
+	@Override
+	public String getName() {
+		return "netlib-java (" + m_lapack.getClass().getName() + ")";
+	}
+
+	@Override
+	public boolean isNative() {
+		return !(m_lapack instanceof F2jLAPACK);
+	}
+
+	@Override
+	public int dsyevd(String jobz, String uplo, int n, double[] a, int aOffset, int lda, double[] w, int wOffset, double[] work, int workOffset, int lwork, int[] iwork, int iworkOffset, int liwork) {
+		intW info = new intW(0);
+		m_lapack.dsyevd(jobz, uplo, n, a, aOffset, lda, w, wOffset, work, workOffset, lwork, iwork, iworkOffset, liwork, info);
+		return info.val;
+	}
+
+	@Override
+	public int dsyevr(String jobz, String range, String uplo, int n, double[] a, int aOffset, int lda, double vl, double vu, int il, int iu, double abstol, intW m, double[] w, int wOffset, double[] z, int zOffset, int ldz, int[] isuppz, int isuppzOffset, double[] work, int workOffset, int lwork, int[] iwork, int iworkOffset, int liwork) {
+		intW info = new intW(0);
+		m_lapack.dsyevr(jobz, range, uplo, n, a, aOffset, lda, vl, vu, il, iu, abstol, m, w, wOffset, z, zOffset, ldz, isuppz, isuppzOffset, work, workOffset, lwork, iwork, iworkOffset, liwork, info);
+		return info.val;
+	}
+}
@@ -0,0 +1,121 @@
+package org.physics.bdg;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 固有対から粒子数と超流動パラメータを求める演算カーネル</br>
+ * 固有対ごとの重み(Fermi分布関数値)を事前に求めておき、固有ベクトル行列を列優先の格納順に1回走査して
+ * Σ_n u_n(j)^2 w↑_n, Σ_n v_n(j)^2 w↓_n, Σ_n u_n(j) v_n(j) wΔ_n を同時に累積する</br>
+ * 格子点の範囲ごとに出力先が重ならないため、格子点単位で分割して並列に実行する。各格子点の和は常に固有対の番号の昇順に
+ * 1つのスレッドで加算されるため、スレッド数や分割によらず結果はビット単位で一致する
+ *
+ * @author y-ok
+ */
+final class ObservableKernel {
+
+	// 1タスクが担当する最大格子点数 (3つの累積先が1次キャッシュに収まる大きさ)
+	private static final int SITE_THRESHOLD = 32;
+
+	private ObservableKernel() {
+	}
+
+	/**
+	 * 全格子点について3つの和を、格子点単位で分割して並列に累積する
+	 *
+	 * @param pool スレッドプール
+	 * @param eigenSystem 固有値方程式の解
+	 * @param upWeight アップスピン粒子数の重み w↑_n
+	 * @param downWeight ダウンスピン粒子数の重み w↓_n
+	 * @param pairWeight 超流動パラメータの重み wΔ_n
+	 * @param upSum Σ_n u_n(j)^2 w↑_n の出力先 (加算する)
+	 * @param downSum Σ_n v_n(j)^2 w↓_n の出力先 (加算する)
+	 * @param pairSum Σ_n u_n(j) v_n(j) wΔ_n の出力先 (加算する)
+	 */
+	static void accumulate(ForkJoinPool pool, EigenSystem eigenSystem, double[] upWeight, double[] downWeight, double[] pairWeight, double[] upSum, double[] downSum, double[] pairSum) {
+		int siteNum = eigenSystem.getDimension() / 2;
+		if (siteNum <= SITE_THRESHOLD) {
+			accumulate(eigenSystem, upWeight, downWeight, pairWeight, 0, siteNum, upSum, downSum, pairSum);
+			return;
+		}
+		pool.invoke(new AccumulateTask(eigenSystem, upWeight, downWeight, pairWeight, 0, siteNum, upSum, downSum, pairSum));
+	}
+
+	/**
+	 * 格子点 [fromSite, toSite) について3つの和を累積する</br>
+	 * 各格子点の和は固有対の番号の昇順に加算される
+	 *
+	 * @param eigenSystem 固有値方程式の解
+	 * @param upWeight アップスピン粒子数の重み w↑_n
+	 * @param downWeight ダウンスピン粒子数の重み w↓_n
+	 * @param pairWeight 超流動パラメータの重み wΔ_n
+	 * @param fromSite 開始格子点
+	 * @param toSite 終了格子点(含まない)
+	 * @param upSum Σ_n u_n(j)^2 w↑_n の出力先 (加算する)
+	 * @param downSum Σ_n v_n(j)^2 w↓_n の出力先 (加算する)
+	 * @param pairSum Σ_n u_n(j) v_n(j) wΔ_n の出力先 (加算する)
+	 */
+	static void accumulate(EigenSystem eigenSystem, double[] upWeight, double[] downWeight, double[] pairWeight, int fromSite, int toSite, double[] upSum, double[] downSum, double[] pairSum) {
+
+		double[] vectors = eigenSystem.getVectors();
+		int leadingDimension = eigenSystem.getLeadingDimension();
+		int siteNum = eigenSystem.getDimension() / 2;
+
+		int column = eigenSystem.getVectorOffset();
+		for (int n = 0; n < eigenSystem.getCount(); n++, column += leadingDimension) {
+			double wUp = upWeight[n];
+			double wDown = downWeight[n];
+			double wPair = pairWeight[n];
+			for (int j = fromSite; j < toSite; j++) {
+				double u = vectors[column + j];
+				double v = vectors[column + j + siteNum];
+				upSum[j] += u * u * wUp;
+				downSum[j] += v * v * wDown;
+				pairSum[j] += u * v * wPair;
+			}
+		}
+	}
+
+	/**
+	 * 格子点単位で分割する並列計算タスク
+	 *
+	 * @author y-ok
+	 */
+	private static class AccumulateTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final EigenSystem m_eigenSystem;
+		private final double[] m_upWeight;
+		private final double[] m_downWeight;
+		private final double[] m_pairWeight;
+		private final int m_fromSite;
+		private final int m_toSite;
+		private final double[] m_upSum;
+		private final double[] m_downSum;
+		private final double[] m_pairSum;
+
+		AccumulateTask(EigenSystem eigenSystem, double[] upWeight, double[] downWeight, double[] pairWeight, int fromSite, int toSite, double[] upSum, double[] downSum, double[] pairSum) {
+			m_eigenSystem = eigenSystem;
+			m_upWeight = upWeight;
+			m_downWeight = downWeight;
+			m_pairWeight = pairWeight;
+			m_fromSite = fromSite;
+			m_toSite = toSite;
+			m_upSum = upSum;
+			m_downSum = downSum;
+			m_pairSum = pairSum;
+		}
+
+		@Override
+		protected void compute() {
+			if (m_toSite - m_fromSite <= SITE_THRESHOLD) {
+				accumulate(m_eigenSystem, m_upWeight, m_downWeight, m_pairWeight, m_fromSite, m_toSite, m_upSum, m_downSum, m_pairSum);
+				return;
+			}
+			int middleSite = (m_fromSite + m_toSite) >>> 1;
+			invokeAll(new AccumulateTask(m_eigenSystem, m_upWeight, m_downWeight, m_pairWeight, m_fromSite, middleSite, m_upSum, m_downSum, m_pairSum),
+					new AccumulateTask(m_eigenSystem, m_upWeight, m_downWeight, m_pairWeight, middleSite, m_toSite, m_upSum, m_downSum, m_pairSum));
+		}
+	}
+}
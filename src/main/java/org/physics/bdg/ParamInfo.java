@@ -1,15 +1,18 @@
 package org.physics.bdg;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
+import com.google.common.base.Joiner;
 import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
 
 /**
  * パラメータ情報クラス
  * 
  * @author y-ok
  */
-public class ParamInfo {
+public class ParamInfo implements Cloneable {
 
 	private int m_latticeSize;
 	private double m_hoppingEnergy;
@@ -25,7 +28,37 @@ public class ParamInfo {
 	private double m_chmicalPotential;
 	private double m_magneticField;
 	private double m_convergenceJudgeValue;
+	private String m_convergenceNorm = "max";
 	private boolean m_useSparseMatrix;
+	private boolean m_normalStateHint;
+	private double m_normalStateThreshold = 1.0e-12;
+	private String m_eigenSolverBackend = EigenSolverBackend.AUTO;
+	private String m_energyWindowMode = "all";
+	private double m_energyWindowCutoff;
+	private int m_energyWindowEigenNumber;
+	private String m_scfEngine = "dense";
+	private int m_lanczosSubspaceSize;
+	private double m_lanczosTolerance = 1.0e-10;
+	private int m_lanczosMaxRestart = 1000;
+	private boolean m_lanczosWarmStart = true;
+	private int m_kpmOrder = 1024;
+	private String m_kpmKernel = "jackson";
+	private double m_kpmLorentzParameter = 4.0;
+	private int m_threadNumber;
+	private String m_mixerType = Mixer.LINEAR;
+	private int m_mixerHistoryDepth = 6;
+	private String m_temperatureSweepOrder = "listed";
+	private boolean m_temperatureSweepWarmStart;
+	private boolean m_temperatureSweepWarmStartEigenVector;
+	private int m_jobNumber = 1;
+	private List<ParameterSweep.Axis> m_parameterSweepAxes = Lists.newArrayList();
+	private String m_parameterSweepManifest = "output/sweep-manifest.txt";
+	private int m_checkpointInterval;
+	private boolean m_checkpointRestart;
+	private int m_multigridLevels;
+	private String m_initialGuess = "uniform";
+	private int m_ldaKPoints = 64;
+	private int m_twistKPoints = 1;
 	/**
 	 * N * N 格子系のサイズを取得する
 	 * 
@@ -273,6 +306,25 @@ public class ParamInfo {
 		this.m_convergenceJudgeValue = m_convergenceJudgeValue;
 	}
 
+	/**
+	 * 収束判定に用いる残差のノルム (max, l2, relative)を取得する
+	 * 
+	 * @return 収束判定に用いる残差のノルム (max, l2, relative)
+	 */
+	public String getConvergenceNorm() {
+		return m_convergenceNorm;
+	}
+
+	/**
+	 * 収束判定に用いる残差のノルム (max, l2, relative)を設定する
+	 * 
+	 * @param m_convergenceNorm
+	 *            収束判定に用いる残差のノルム (max, l2, relative)
+	 */
+	public void setConvergenceNorm(String m_convergenceNorm) {
+		this.m_convergenceNorm = m_convergenceNorm;
+	}
+
 	/**
 	 * 疎行列処理フラグを取得する
 	 * 
@@ -292,6 +344,593 @@ public class ParamInfo {
 		this.m_useSparseMatrix = m_useSparseMatrix;
 	}
 
+	/**
+	 * 常伝導状態ヒントを取得する
+	 * 
+	 * @return 常伝導状態ヒント
+	 */
+	public boolean getNormalStateHint() {
+		return m_normalStateHint;
+	}
+
+	/**
+	 * 常伝導状態ヒントを設定する
+	 * 
+	 * @param m_normalStateHint
+	 *            常伝導状態ヒント
+	 */
+	public void setNormalStateHint(boolean m_normalStateHint) {
+		this.m_normalStateHint = m_normalStateHint;
+	}
+
+	/**
+	 * 常伝導状態とみなす超流動パラメータの閾値を取得する
+	 * 
+	 * @return 常伝導状態判定閾値
+	 */
+	public double getNormalStateThreshold() {
+		return m_normalStateThreshold;
+	}
+
+	/**
+	 * 常伝導状態とみなす超流動パラメータの閾値を設定する
+	 * 
+	 * @param m_normalStateThreshold
+	 *            常伝導状態判定閾値
+	 */
+	public void setNormalStateThreshold(double m_normalStateThreshold) {
+		this.m_normalStateThreshold = m_normalStateThreshold;
+	}
+
+	/**
+	 * 固有値ソルババックエンド種別を取得する
+	 * 
+	 * @return 固有値ソルババックエンド種別 (auto, native, f2j)
+	 */
+	public String getEigenSolverBackend() {
+		return m_eigenSolverBackend;
+	}
+
+	/**
+	 * 固有値ソルババックエンド種別を設定する
+	 * 
+	 * @param m_eigenSolverBackend
+	 *            固有値ソルババックエンド種別 (auto, native, f2j)
+	 */
+	public void setEigenSolverBackend(String m_eigenSolverBackend) {
+		this.m_eigenSolverBackend = m_eigenSolverBackend;
+	}
+
+	/**
+	 * エネルギー窓の打ち切り方法を取得する
+	 * 
+	 * @return エネルギー窓の打ち切り方法 (all, lowest, highest)
+	 */
+	public String getEnergyWindowMode() {
+		return m_energyWindowMode;
+	}
+
+	/**
+	 * エネルギー窓の打ち切り方法を設定する
+	 * 
+	 * @param m_energyWindowMode
+	 *            エネルギー窓の打ち切り方法 (all, lowest, highest)
+	 */
+	public void setEnergyWindowMode(String m_energyWindowMode) {
+		this.m_energyWindowMode = m_energyWindowMode;
+	}
+
+	/**
+	 * エネルギー窓の打ち切りエネルギーを取得する
+	 * 
+	 * @return 打ち切りエネルギー
+	 */
+	public double getEnergyWindowCutoff() {
+		return m_energyWindowCutoff;
+	}
+
+	/**
+	 * エネルギー窓の打ち切りエネルギーを設定する
+	 * 
+	 * @param m_energyWindowCutoff
+	 *            打ち切りエネルギー
+	 */
+	public void setEnergyWindowCutoff(double m_energyWindowCutoff) {
+		this.m_energyWindowCutoff = m_energyWindowCutoff;
+	}
+
+	/**
+	 * エネルギー窓で求める固有値数を取得する
+	 * 
+	 * @return 求める固有値数 (0以下の場合は打ち切りエネルギーで指定)
+	 */
+	public int getEnergyWindowEigenNumber() {
+		return m_energyWindowEigenNumber;
+	}
+
+	/**
+	 * エネルギー窓で求める固有値数を設定する
+	 * 
+	 * @param m_energyWindowEigenNumber
+	 *            求める固有値数 (0以下の場合は打ち切りエネルギーで指定)
+	 */
+	public void setEnergyWindowEigenNumber(int m_energyWindowEigenNumber) {
+		this.m_energyWindowEigenNumber = m_energyWindowEigenNumber;
+	}
+
+	/**
+	 * 自己無撞着計算の計算エンジン (dense, lanczos, kpm)を取得する
+	 * 
+	 * @return 自己無撞着計算の計算エンジン (dense, lanczos, kpm)
+	 */
+	public String getScfEngine() {
+		return m_scfEngine;
+	}
+
+	/**
+	 * 自己無撞着計算の計算エンジン (dense, lanczos, kpm)を設定する
+	 * 
+	 * @param m_scfEngine
+	 *            自己無撞着計算の計算エンジン (dense, lanczos, kpm)
+	 */
+	public void setScfEngine(String m_scfEngine) {
+		this.m_scfEngine = m_scfEngine;
+	}
+
+	/**
+	 * Lanczos法の部分空間サイズ (0以下の場合は自動)を取得する
+	 * 
+	 * @return Lanczos法の部分空間サイズ (0以下の場合は自動)
+	 */
+	public int getLanczosSubspaceSize() {
+		return m_lanczosSubspaceSize;
+	}
+
+	/**
+	 * Lanczos法の部分空間サイズ (0以下の場合は自動)を設定する
+	 * 
+	 * @param m_lanczosSubspaceSize
+	 *            Lanczos法の部分空間サイズ (0以下の場合は自動)
+	 */
+	public void setLanczosSubspaceSize(int m_lanczosSubspaceSize) {
+		this.m_lanczosSubspaceSize = m_lanczosSubspaceSize;
+	}
+
+	/**
+	 * Lanczos法の収束判定値を取得する
+	 * 
+	 * @return Lanczos法の収束判定値
+	 */
+	public double getLanczosTolerance() {
+		return m_lanczosTolerance;
+	}
+
+	/**
+	 * Lanczos法の収束判定値を設定する
+	 * 
+	 * @param m_lanczosTolerance
+	 *            Lanczos法の収束判定値
+	 */
+	public void setLanczosTolerance(double m_lanczosTolerance) {
+		this.m_lanczosTolerance = m_lanczosTolerance;
+	}
+
+	/**
+	 * Lanczos法の最大リスタート回数を取得する
+	 * 
+	 * @return Lanczos法の最大リスタート回数
+	 */
+	public int getLanczosMaxRestart() {
+		return m_lanczosMaxRestart;
+	}
+
+	/**
+	 * Lanczos法の最大リスタート回数を設定する
+	 * 
+	 * @param m_lanczosMaxRestart
+	 *            Lanczos法の最大リスタート回数
+	 */
+	public void setLanczosMaxRestart(int m_lanczosMaxRestart) {
+		this.m_lanczosMaxRestart = m_lanczosMaxRestart;
+	}
+
+	/**
+	 * Lanczos法のウォームスタートフラグを取得する
+	 * 
+	 * @return Lanczos法のウォームスタートフラグ
+	 */
+	public boolean getLanczosWarmStart() {
+		return m_lanczosWarmStart;
+	}
+
+	/**
+	 * Lanczos法のウォームスタートフラグを設定する
+	 * 
+	 * @param m_lanczosWarmStart
+	 *            Lanczos法のウォームスタートフラグ
+	 */
+	public void setLanczosWarmStart(boolean m_lanczosWarmStart) {
+		this.m_lanczosWarmStart = m_lanczosWarmStart;
+	}
+
+	/**
+	 * カーネル多項式法の展開次数を取得する
+	 * 
+	 * @return カーネル多項式法の展開次数
+	 */
+	public int getKpmOrder() {
+		return m_kpmOrder;
+	}
+
+	/**
+	 * カーネル多項式法の展開次数を設定する
+	 * 
+	 * @param m_kpmOrder
+	 *            カーネル多項式法の展開次数
+	 */
+	public void setKpmOrder(int m_kpmOrder) {
+		this.m_kpmOrder = m_kpmOrder;
+	}
+
+	/**
+	 * カーネル多項式法の減衰カーネル (jackson, lorentz, dirichlet)を取得する
+	 * 
+	 * @return カーネル多項式法の減衰カーネル (jackson, lorentz, dirichlet)
+	 */
+	public String getKpmKernel() {
+		return m_kpmKernel;
+	}
+
+	/**
+	 * カーネル多項式法の減衰カーネル (jackson, lorentz, dirichlet)を設定する
+	 * 
+	 * @param m_kpmKernel
+	 *            カーネル多項式法の減衰カーネル (jackson, lorentz, dirichlet)
+	 */
+	public void setKpmKernel(String m_kpmKernel) {
+		this.m_kpmKernel = m_kpmKernel;
+	}
+
+	/**
+	 * カーネル多項式法のLorentzカーネルのパラメータを取得する
+	 * 
+	 * @return カーネル多項式法のLorentzカーネルのパラメータ
+	 */
+	public double getKpmLorentzParameter() {
+		return m_kpmLorentzParameter;
+	}
+
+	/**
+	 * カーネル多項式法のLorentzカーネルのパラメータを設定する
+	 * 
+	 * @param m_kpmLorentzParameter
+	 *            カーネル多項式法のLorentzカーネルのパラメータ
+	 */
+	public void setKpmLorentzParameter(double m_kpmLorentzParameter) {
+		this.m_kpmLorentzParameter = m_kpmLorentzParameter;
+	}
+
+	/**
+	 * 並列計算のスレッド数 (0以下の場合は利用可能な全プロセッサ)を取得する
+	 * 
+	 * @return 並列計算のスレッド数 (0以下の場合は利用可能な全プロセッサ)
+	 */
+	public int getThreadNumber() {
+		return m_threadNumber;
+	}
+
+	/**
+	 * 並列計算のスレッド数 (0以下の場合は利用可能な全プロセッサ)を設定する
+	 * 
+	 * @param m_threadNumber
+	 *            並列計算のスレッド数 (0以下の場合は利用可能な全プロセッサ)
+	 */
+	public void setThreadNumber(int m_threadNumber) {
+		this.m_threadNumber = m_threadNumber;
+	}
+
+	/**
+	 * 自己無撞着計算の混合法 (linear, pulay, broyden)を取得する
+	 * 
+	 * @return 自己無撞着計算の混合法 (linear, pulay, broyden)
+	 */
+	public String getMixerType() {
+		return m_mixerType;
+	}
+
+	/**
+	 * 自己無撞着計算の混合法 (linear, pulay, broyden)を設定する
+	 * 
+	 * @param m_mixerType
+	 *            自己無撞着計算の混合法 (linear, pulay, broyden)
+	 */
+	public void setMixerType(String m_mixerType) {
+		this.m_mixerType = m_mixerType;
+	}
+
+	/**
+	 * Pulay混合、修正Broyden混合で保持する履歴数を取得する
+	 * 
+	 * @return Pulay混合、修正Broyden混合で保持する履歴数
+	 */
+	public int getMixerHistoryDepth() {
+		return m_mixerHistoryDepth;
+	}
+
+	/**
+	 * Pulay混合、修正Broyden混合で保持する履歴数を設定する
+	 * 
+	 * @param m_mixerHistoryDepth
+	 *            Pulay混合、修正Broyden混合で保持する履歴数
+	 */
+	public void setMixerHistoryDepth(int m_mixerHistoryDepth) {
+		this.m_mixerHistoryDepth = m_mixerHistoryDepth;
+	}
+
+	/**
+	 * 温度を掃引する順序 (listed, down, up, down-up, up-down)を取得する
+	 * 
+	 * @return 温度を掃引する順序 (listed, down, up, down-up, up-down)
+	 */
+	public String getTemperatureSweepOrder() {
+		return m_temperatureSweepOrder;
+	}
+
+	/**
+	 * 温度を掃引する順序 (listed, down, up, down-up, up-down)を設定する
+	 * 
+	 * @param m_temperatureSweepOrder
+	 *            温度を掃引する順序 (listed, down, up, down-up, up-down)
+	 */
+	public void setTemperatureSweepOrder(String m_temperatureSweepOrder) {
+		this.m_temperatureSweepOrder = m_temperatureSweepOrder;
+	}
+
+	/**
+	 * 直前の温度で収束した超流動パラメータと粒子数から計算を開始するかどうかを取得する
+	 * 
+	 * @return 直前の温度で収束した超流動パラメータと粒子数から計算を開始するかどうか
+	 */
+	public boolean getTemperatureSweepWarmStart() {
+		return m_temperatureSweepWarmStart;
+	}
+
+	/**
+	 * 直前の温度で収束した超流動パラメータと粒子数から計算を開始するかどうかを設定する
+	 * 
+	 * @param m_temperatureSweepWarmStart
+	 *            直前の温度で収束した超流動パラメータと粒子数から計算を開始するかどうか
+	 */
+	public void setTemperatureSweepWarmStart(boolean m_temperatureSweepWarmStart) {
+		this.m_temperatureSweepWarmStart = m_temperatureSweepWarmStart;
+	}
+
+	/**
+	 * 直前の温度のRitzベクトルからLanczos法を開始するかどうかを取得する
+	 * 
+	 * @return 直前の温度のRitzベクトルからLanczos法を開始するかどうか
+	 */
+	public boolean getTemperatureSweepWarmStartEigenVector() {
+		return m_temperatureSweepWarmStartEigenVector;
+	}
+
+	/**
+	 * 直前の温度のRitzベクトルからLanczos法を開始するかどうかを設定する
+	 * 
+	 * @param m_temperatureSweepWarmStartEigenVector
+	 *            直前の温度のRitzベクトルからLanczos法を開始するかどうか
+	 */
+	public void setTemperatureSweepWarmStartEigenVector(boolean m_temperatureSweepWarmStartEigenVector) {
+		this.m_temperatureSweepWarmStartEigenVector = m_temperatureSweepWarmStartEigenVector;
+	}
+
+	/**
+	 * 温度掃引の各点を同時に計算するジョブ数 (0以下の場合は利用可能なプロセッサ数)を取得する
+	 * 
+	 * @return 温度掃引の各点を同時に計算するジョブ数 (0以下の場合は利用可能なプロセッサ数)
+	 */
+	public int getJobNumber() {
+		return m_jobNumber;
+	}
+
+	/**
+	 * 温度掃引の各点を同時に計算するジョブ数 (0以下の場合は利用可能なプロセッサ数)を設定する
+	 * 
+	 * @param m_jobNumber
+	 *            温度掃引の各点を同時に計算するジョブ数 (0以下の場合は利用可能なプロセッサ数)
+	 */
+	public void setJobNumber(int m_jobNumber) {
+		this.m_jobNumber = m_jobNumber;
+	}
+
+	/**
+	 * パラメータ掃引の掃引軸を取得する
+	 * 
+	 * @return パラメータ掃引の掃引軸 (掃引しない場合は空)
+	 */
+	public List<ParameterSweep.Axis> getParameterSweepAxes() {
+		return m_parameterSweepAxes;
+	}
+
+	/**
+	 * パラメータ掃引の掃引軸を設定する
+	 * 
+	 * @param m_parameterSweepAxes
+	 *            パラメータ掃引の掃引軸
+	 */
+	public void setParameterSweepAxes(List<ParameterSweep.Axis> m_parameterSweepAxes) {
+		this.m_parameterSweepAxes = m_parameterSweepAxes;
+	}
+
+	/**
+	 * パラメータ掃引のマニフェストファイルのパス (作業ディレクトリからの相対パス)を取得する
+	 * 
+	 * @return パラメータ掃引のマニフェストファイルのパス
+	 */
+	public String getParameterSweepManifest() {
+		return m_parameterSweepManifest;
+	}
+
+	/**
+	 * パラメータ掃引のマニフェストファイルのパス (作業ディレクトリからの相対パス)を設定する
+	 * 
+	 * @param m_parameterSweepManifest
+	 *            パラメータ掃引のマニフェストファイルのパス
+	 */
+	public void setParameterSweepManifest(String m_parameterSweepManifest) {
+		this.m_parameterSweepManifest = m_parameterSweepManifest;
+	}
+
+	/**
+	 * チェックポイントを書き出す反復の間隔を取得する
+	 * 
+	 * @return チェックポイントを書き出す反復の間隔 (0の場合は書き出さない)
+	 */
+	public int getCheckpointInterval() {
+		return m_checkpointInterval;
+	}
+
+	/**
+	 * チェックポイントを書き出す反復の間隔を設定する
+	 * 
+	 * @param m_checkpointInterval
+	 *            チェックポイントを書き出す反復の間隔 (0の場合は書き出さない)
+	 */
+	public void setCheckpointInterval(int m_checkpointInterval) {
+		this.m_checkpointInterval = m_checkpointInterval;
+	}
+
+	/**
+	 * チェックポイントから計算を再開するかどうかを取得する
+	 * 
+	 * @return チェックポイントから計算を再開する場合 true
+	 */
+	public boolean getCheckpointRestart() {
+		return m_checkpointRestart;
+	}
+
+	/**
+	 * チェックポイントから計算を再開するかどうかを設定する
+	 * 
+	 * @param m_checkpointRestart
+	 *            チェックポイントから計算を再開する場合 true
+	 */
+	public void setCheckpointRestart(boolean m_checkpointRestart) {
+		this.m_checkpointRestart = m_checkpointRestart;
+	}
+
+	/**
+	 * 粗い格子から初期値を作成する多重格子法の段数を取得する
+	 * 
+	 * @return 多重格子法の段数 (0の場合は粗い格子を用いない)
+	 */
+	public int getMultigridLevels() {
+		return m_multigridLevels;
+	}
+
+	/**
+	 * 粗い格子から初期値を作成する多重格子法の段数を設定する
+	 * 
+	 * @param m_multigridLevels
+	 *            多重格子法の段数 (0の場合は粗い格子を用いない)
+	 */
+	public void setMultigridLevels(int m_multigridLevels) {
+		this.m_multigridLevels = m_multigridLevels;
+	}
+
+	/**
+	 * 超流動パラメータと粒子数の初期値の種別を取得する
+	 * 
+	 * @return 初期値の種別 (uniform, lda)
+	 */
+	public String getInitialGuess() {
+		return m_initialGuess;
+	}
+
+	/**
+	 * 超流動パラメータと粒子数の初期値の種別を設定する
+	 * 
+	 * @param m_initialGuess
+	 *            初期値の種別 (uniform, lda)
+	 */
+	public void setInitialGuess(String m_initialGuess) {
+		this.m_initialGuess = m_initialGuess;
+	}
+
+	/**
+	 * 局所密度近似の初期値で用いる波数の1方向の分割数を取得する
+	 * 
+	 * @return 波数の1方向の分割数
+	 */
+	public int getLdaKPoints() {
+		return m_ldaKPoints;
+	}
+
+	/**
+	 * 局所密度近似の初期値で用いる波数の1方向の分割数を設定する
+	 * 
+	 * @param m_ldaKPoints
+	 *            波数の1方向の分割数
+	 */
+	public void setLdaKPoints(int m_ldaKPoints) {
+		this.m_ldaKPoints = m_ldaKPoints;
+	}
+
+	/**
+	 * ねじれ境界条件のねじれ角の1方向の分割数を取得する
+	 * 
+	 * @return ねじれ角の1方向の分割数 (1の場合は周期境界条件のみ)
+	 */
+	public int getTwistKPoints() {
+		return m_twistKPoints;
+	}
+
+	/**
+	 * ねじれ境界条件のねじれ角の1方向の分割数を設定する
+	 * 
+	 * @param m_twistKPoints
+	 *            ねじれ角の1方向の分割数 (1の場合は周期境界条件のみ)
+	 */
+	public void setTwistKPoints(int m_twistKPoints) {
+		this.m_twistKPoints = m_twistKPoints;
+	}
+
+	/**
+	 * パラメータ情報を複製する</br>
+	 * パラメータ掃引で掃引点ごとに値を変えるために用いる。温度リストと掃引軸のリストは複製する
+	 * 
+	 * @return 複製したパラメータ情報
+	 */
+	public ParamInfo copy() {
+		try {
+			ParamInfo paramInfo = (ParamInfo) super.clone();
+			paramInfo.m_temperatureList = Lists.newArrayList(m_temperatureList);
+			paramInfo.m_parameterSweepAxes = Lists.newArrayList(m_parameterSweepAxes);
+			return paramInfo;
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * 計算結果に影響するパラメータの指紋を取得する</br>
+	 * 物理パラメータ、温度リスト、自己無撞着計算・固有値計算・混合法・温度掃引の設定を連結したSHA-256の16進文字列とする。
+	 * スレッド数、ジョブ数、パラメータ掃引軸、マニフェストファイル、チェックポイントの設定は含めない
+	 *
+	 * @return パラメータの指紋
+	 */
+	public String getFingerprint() {
+		List<Object> values = Lists.<Object> newArrayList(m_latticeSize, m_hoppingEnergy, m_pairPotential, m_interparticleInteraction,
+				m_externalPotentialCoefficient, m_upSpinParticleNum, m_downSpinParticleNum, m_iterationNum, m_boltzmannConst, m_temperatureList,
+				m_weightFactor, m_chmicalPotential, m_magneticField, m_convergenceJudgeValue, m_convergenceNorm, m_useSparseMatrix,
+				m_normalStateHint, m_normalStateThreshold, m_eigenSolverBackend, m_energyWindowMode, m_energyWindowCutoff,
+				m_energyWindowEigenNumber, m_scfEngine, m_lanczosSubspaceSize, m_lanczosTolerance, m_lanczosMaxRestart, m_lanczosWarmStart,
+				m_kpmOrder, m_kpmKernel, m_kpmLorentzParameter, m_mixerType, m_mixerHistoryDepth, m_temperatureSweepOrder,
+				m_temperatureSweepWarmStart, m_temperatureSweepWarmStartEigenVector, m_multigridLevels, m_initialGuess, m_ldaKPoints,
+				m_twistKPoints);
+		return Hashing.sha256().hashString(Joiner.on('|').useForNull("").join(values), StandardCharsets.UTF_8).toString();
+	}
+
 	/**
 	 * 温度リストを取得する
 	 * 
@@ -308,5 +947,6 @@ public class ParamInfo {
 	 *            温度リスト
 	 */
 	public void setTemperature(List<Double> m_temperatureList) {
+		this.m_temperatureList = m_temperatureList;
 	}
 }
@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.dom4j.Document;
 import org.dom4j.DocumentException;
+import org.dom4j.Element;
 import org.dom4j.io.SAXReader;
 
 import com.google.common.collect.Lists;
@@ -34,9 +35,63 @@ public class ParameterFile {
 	private final static String CHEMICAL_POTENTIAL = "chemical-potential";
 	private final static String MAGNETIC_FIELD = "magnetic-field";
 	private final static String CONVERGENCE_JUDGE_VALUE = "convergenceJudgeValue";
+	private final static String CONVERGENCE_NORM = "convergence-norm";
 	private final static String USE_SPARSE_MATRIX = "useSparseMatrix";
+	private final static String NORMAL_STATE = "normal-state";
+	private final static String HINT = "hint";
+	private final static String THRESHOLD = "threshold";
+	private final static String EIGEN_SOLVER_BACKEND = "eigen-solver-backend";
+	private final static String ENERGY_WINDOW = "energy-window";
+	private final static String MODE = "mode";
+	private final static String CUTOFF = "cutoff";
+	private final static String EIGEN_NUMBER = "eigen-number";
+	private final static String SCF_ENGINE = "scf-engine";
+	private final static String LANCZOS = "lanczos";
+	private final static String SUBSPACE_SIZE = "subspace-size";
+	private final static String TOLERANCE = "tolerance";
+	private final static String MAX_RESTART = "max-restart";
+	private final static String WARM_START = "warm-start";
+	private final static String KPM = "kpm";
+	private final static String ORDER = "order";
+	private final static String KERNEL = "kernel";
+	private final static String LORENTZ_PARAMETER = "lorentz-parameter";
+	private final static String THREAD_NUMBER = "thread-number";
+	private final static String MIXER = "mixer";
+	private final static String TYPE = "type";
+	private final static String HISTORY_DEPTH = "history-depth";
+	private final static String TEMPERATURE_SWEEP = "temperature-sweep";
+	private final static String WARM_START_EIGEN_VECTOR = "warm-start-eigenvector";
+	private final static String JOB_NUMBER = "job-number";
+	private final static String PARAMETER_SWEEP = "parameter-sweep";
+	private final static String AXIS = "axis";
+	private final static String NAME = "name";
+	private final static String MANIFEST = "manifest";
+	private final static String CHECKPOINT = "checkpoint";
+	private final static String INTERVAL = "interval";
+	private final static String RESTART = "restart";
+	private final static String MULTIGRID = "multigrid";
+	private final static String LEVELS = "levels";
+	private final static String INITIAL_GUESS = "initial-guess";
+	private final static String K_POINTS = "k-points";
+	private final static String TWISTED_BOUNDARY = "twisted-boundary";
 
-	private static ParamInfo paramInfo = new ParamInfo();
+	private ParamInfo paramInfo;
+
+	/**
+	 * コンストラクタ
+	 */
+	public ParameterFile() {
+		this(new ParamInfo());
+	}
+
+	/**
+	 * コンストラクタ
+	 * 
+	 * @param paramInfo パラメータ設定情報
+	 */
+	public ParameterFile(ParamInfo paramInfo) {
+		this.paramInfo = paramInfo;
+	}
 
 	/**
 	 * パラメータ設定情報を取得する
@@ -119,10 +174,134 @@ public class ParameterFile {
 			double convergenceJudgeValue = new Double(getParameterValue(strConvergenceJudgeValueXPath)).doubleValue();
 			paramInfo.setConvergenceJudgeValue(convergenceJudgeValue);
 
+			String strConvergenceNormXPath = "/" + PARAMETER + "/" + CONVERGENCE_NORM;
+			String convergenceNorm = getParameterValue(strConvergenceNormXPath, "max");
+			paramInfo.setConvergenceNorm(convergenceNorm);
+
 			String strUseSparseMatrixXPath = "/" + PARAMETER + "/" + USE_SPARSE_MATRIX;
 			boolean useSparseMatrix = new Boolean(getParameterValue(strUseSparseMatrixXPath));
 			paramInfo.setUseSparseMatrix(useSparseMatrix);
 
+			String strNormalStateHintXPath = "/" + PARAMETER + "/" + NORMAL_STATE + "/" + HINT;
+			boolean normalStateHint = new Boolean(getParameterValue(strNormalStateHintXPath, "false"));
+			paramInfo.setNormalStateHint(normalStateHint);
+
+			String strNormalStateThresholdXPath = "/" + PARAMETER + "/" + NORMAL_STATE + "/" + THRESHOLD;
+			double normalStateThreshold = new Double(getParameterValue(strNormalStateThresholdXPath, "1.0e-12")).doubleValue();
+			paramInfo.setNormalStateThreshold(normalStateThreshold);
+
+			String strEigenSolverBackendXPath = "/" + PARAMETER + "/" + EIGEN_SOLVER_BACKEND;
+			String eigenSolverBackend = getParameterValue(strEigenSolverBackendXPath, EigenSolverBackend.AUTO);
+			paramInfo.setEigenSolverBackend(eigenSolverBackend);
+
+			String strEnergyWindowModeXPath = "/" + PARAMETER + "/" + ENERGY_WINDOW + "/" + MODE;
+			String energyWindowMode = getParameterValue(strEnergyWindowModeXPath, "all");
+			paramInfo.setEnergyWindowMode(energyWindowMode);
+
+			String strEnergyWindowCutoffXPath = "/" + PARAMETER + "/" + ENERGY_WINDOW + "/" + CUTOFF;
+			double energyWindowCutoff = new Double(getParameterValue(strEnergyWindowCutoffXPath, "0.0")).doubleValue();
+			paramInfo.setEnergyWindowCutoff(energyWindowCutoff);
+
+			String strEnergyWindowEigenNumberXPath = "/" + PARAMETER + "/" + ENERGY_WINDOW + "/" + EIGEN_NUMBER;
+			int energyWindowEigenNumber = new Integer(getParameterValue(strEnergyWindowEigenNumberXPath, "0")).intValue();
+			paramInfo.setEnergyWindowEigenNumber(energyWindowEigenNumber);
+
+			String strScfEngineXPath = "/" + PARAMETER + "/" + SCF_ENGINE;
+			String scfEngine = getParameterValue(strScfEngineXPath, "dense");
+			paramInfo.setScfEngine(scfEngine);
+
+			String strLanczosSubspaceSizeXPath = "/" + PARAMETER + "/" + LANCZOS + "/" + SUBSPACE_SIZE;
+			int lanczosSubspaceSize = new Integer(getParameterValue(strLanczosSubspaceSizeXPath, "0")).intValue();
+			paramInfo.setLanczosSubspaceSize(lanczosSubspaceSize);
+
+			String strLanczosToleranceXPath = "/" + PARAMETER + "/" + LANCZOS + "/" + TOLERANCE;
+			double lanczosTolerance = new Double(getParameterValue(strLanczosToleranceXPath, "1.0e-10")).doubleValue();
+			paramInfo.setLanczosTolerance(lanczosTolerance);
+
+			String strLanczosMaxRestartXPath = "/" + PARAMETER + "/" + LANCZOS + "/" + MAX_RESTART;
+			int lanczosMaxRestart = new Integer(getParameterValue(strLanczosMaxRestartXPath, "1000")).intValue();
+			paramInfo.setLanczosMaxRestart(lanczosMaxRestart);
+
+			String strLanczosWarmStartXPath = "/" + PARAMETER + "/" + LANCZOS + "/" + WARM_START;
+			boolean lanczosWarmStart = new Boolean(getParameterValue(strLanczosWarmStartXPath, "true"));
+			paramInfo.setLanczosWarmStart(lanczosWarmStart);
+
+			String strKpmOrderXPath = "/" + PARAMETER + "/" + KPM + "/" + ORDER;
+			int kpmOrder = new Integer(getParameterValue(strKpmOrderXPath, "1024")).intValue();
+			paramInfo.setKpmOrder(kpmOrder);
+
+			String strKpmKernelXPath = "/" + PARAMETER + "/" + KPM + "/" + KERNEL;
+			String kpmKernel = getParameterValue(strKpmKernelXPath, "jackson");
+			paramInfo.setKpmKernel(kpmKernel);
+
+			String strKpmLorentzParameterXPath = "/" + PARAMETER + "/" + KPM + "/" + LORENTZ_PARAMETER;
+			double kpmLorentzParameter = new Double(getParameterValue(strKpmLorentzParameterXPath, "4.0")).doubleValue();
+			paramInfo.setKpmLorentzParameter(kpmLorentzParameter);
+
+			String strThreadNumberXPath = "/" + PARAMETER + "/" + THREAD_NUMBER;
+			int threadNumber = new Integer(getParameterValue(strThreadNumberXPath, "0")).intValue();
+			paramInfo.setThreadNumber(threadNumber);
+
+			String strMixerTypeXPath = "/" + PARAMETER + "/" + MIXER + "/" + TYPE;
+			String mixerType = getParameterValue(strMixerTypeXPath, Mixer.LINEAR);
+			paramInfo.setMixerType(mixerType);
+
+			String strMixerHistoryDepthXPath = "/" + PARAMETER + "/" + MIXER + "/" + HISTORY_DEPTH;
+			int mixerHistoryDepth = new Integer(getParameterValue(strMixerHistoryDepthXPath, "6")).intValue();
+			paramInfo.setMixerHistoryDepth(mixerHistoryDepth);
+
+			String strTemperatureSweepOrderXPath = "/" + PARAMETER + "/" + TEMPERATURE_SWEEP + "/" + ORDER;
+			String temperatureSweepOrder = getParameterValue(strTemperatureSweepOrderXPath, "listed");
+			paramInfo.setTemperatureSweepOrder(temperatureSweepOrder);
+
+			String strTemperatureSweepWarmStartXPath = "/" + PARAMETER + "/" + TEMPERATURE_SWEEP + "/" + WARM_START;
+			boolean temperatureSweepWarmStart = new Boolean(getParameterValue(strTemperatureSweepWarmStartXPath, "false"));
+			paramInfo.setTemperatureSweepWarmStart(temperatureSweepWarmStart);
+
+			String strTemperatureSweepWarmStartEigenVectorXPath = "/" + PARAMETER + "/" + TEMPERATURE_SWEEP + "/" + WARM_START_EIGEN_VECTOR;
+			boolean temperatureSweepWarmStartEigenVector = new Boolean(getParameterValue(strTemperatureSweepWarmStartEigenVectorXPath, "false"));
+			paramInfo.setTemperatureSweepWarmStartEigenVector(temperatureSweepWarmStartEigenVector);
+
+			String strJobNumberXPath = "/" + PARAMETER + "/" + JOB_NUMBER;
+			int jobNumber = new Integer(getParameterValue(strJobNumberXPath, "1")).intValue();
+			paramInfo.setJobNumber(jobNumber);
+
+			String strParameterSweepAxisXPath = "/" + PARAMETER + "/" + PARAMETER_SWEEP + "/" + AXIS;
+			List<ParameterSweep.Axis> parameterSweepAxes = Lists.newArrayList();
+			for (Object node : document.selectNodes(strParameterSweepAxisXPath)) {
+				Element axis = (Element) node;
+				parameterSweepAxes.add(ParameterSweep.Axis.parse(axis.attributeValue(NAME), axis.getText()));
+			}
+			paramInfo.setParameterSweepAxes(parameterSweepAxes);
+
+			String strParameterSweepManifestXPath = "/" + PARAMETER + "/" + PARAMETER_SWEEP + "/" + MANIFEST;
+			String parameterSweepManifest = getParameterValue(strParameterSweepManifestXPath, "output/sweep-manifest.txt");
+			paramInfo.setParameterSweepManifest(parameterSweepManifest);
+
+			String strCheckpointIntervalXPath = "/" + PARAMETER + "/" + CHECKPOINT + "/" + INTERVAL;
+			int checkpointInterval = new Integer(getParameterValue(strCheckpointIntervalXPath, "0")).intValue();
+			paramInfo.setCheckpointInterval(checkpointInterval);
+
+			String strCheckpointRestartXPath = "/" + PARAMETER + "/" + CHECKPOINT + "/" + RESTART;
+			boolean checkpointRestart = new Boolean(getParameterValue(strCheckpointRestartXPath, "false"));
+			paramInfo.setCheckpointRestart(checkpointRestart);
+
+			String strMultigridLevelsXPath = "/" + PARAMETER + "/" + MULTIGRID + "/" + LEVELS;
+			int multigridLevels = new Integer(getParameterValue(strMultigridLevelsXPath, "0")).intValue();
+			paramInfo.setMultigridLevels(multigridLevels);
+
+			String strInitialGuessXPath = "/" + PARAMETER + "/" + INITIAL_GUESS + "/" + TYPE;
+			String initialGuess = getParameterValue(strInitialGuessXPath, LdaInitializer.UNIFORM);
+			paramInfo.setInitialGuess(initialGuess);
+
+			String strLdaKPointsXPath = "/" + PARAMETER + "/" + INITIAL_GUESS + "/" + K_POINTS;
+			int ldaKPoints = new Integer(getParameterValue(strLdaKPointsXPath, "64")).intValue();
+			paramInfo.setLdaKPoints(ldaKPoints);
+
+			String strTwistKPointsXPath = "/" + PARAMETER + "/" + TWISTED_BOUNDARY + "/" + K_POINTS;
+			int twistKPoints = new Integer(getParameterValue(strTwistKPointsXPath, "1")).intValue();
+			paramInfo.setTwistKPoints(twistKPoints);
+
 		} catch (DocumentException e) {
 			e.printStackTrace();
 		}
@@ -138,4 +317,17 @@ public class ParameterFile {
 		return document.valueOf(xPath);
 	}
 
+	/**
+	 * パラメータ値を取得する</br>
+	 * パラメータ設定ファイルに記述がない場合は既定値を返す
+	 * 
+	 * @param xPath
+	 * @param defaultValue 既定値
+	 * @return パラメータ値
+	 */
+	String getParameterValue(String xPath, String defaultValue) {
+		String value = getParameterValue(xPath).trim();
+		return value.isEmpty() ? defaultValue : value;
+	}
+
 }
@@ -0,0 +1,264 @@
+package org.physics.bdg;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * パラメータ掃引クラス</br>
+ * パラメータ設定情報の任意の項目について、格子点(start:end:count)または値の列挙(v1,v2,...)で掃引軸を指定し、
+ * 全軸の直積を掃引点として展開する。掃引点は先に指定した軸ほど外側のループとなる順に並ぶ</br>
+ * 掃引軸の名前はパラメータ設定ファイルの要素名(magnetic-field など)または {@link ParamInfo} のプロパティ名(magneticField など)で指定する
+ *
+ * @author y-ok
+ */
+public class ParameterSweep {
+
+	// 要素名とプロパティ名が対応しない項目
+	private static final Map<String, String> ALIASES = ImmutableMap.of(
+			"chemical-potential", "chmicalPotential",
+			"external-potential", "externalPotentialCoefficient",
+			"boltzmannconst", "boltzmannConst",
+			"convergencejudgevalue", "convergenceJudgeValue");
+
+	// 格子点の値の有効桁数 (等間隔の値の丸め誤差を除く)
+	private static final MathContext GRID_PRECISION = new MathContext(12);
+
+	/**
+	 * 掃引軸
+	 *
+	 * @author y-ok
+	 */
+	public static class Axis {
+		private final String m_name;
+		private final List<String> m_values;
+
+		/**
+		 * コンストラクタ
+		 *
+		 * @param name 掃引軸の名前
+		 * @param values 掃引する値
+		 */
+		public Axis(String name, List<String> values) {
+			m_name = name;
+			m_values = Collections.unmodifiableList(Lists.newArrayList(values));
+		}
+
+		/**
+		 * 掃引軸の設定値を解析する
+		 *
+		 * @param name 掃引軸の名前
+		 * @param spec 格子点 (start:end:count) または値の列挙 (v1,v2,...)
+		 * @return 掃引軸
+		 */
+		public static Axis parse(String name, String spec) {
+
+			String strSpec = spec.trim();
+			List<String> values = Lists.newArrayList();
+			if (strSpec.contains(":")) {
+				String[] grid = strSpec.split(":");
+				if (grid.length != 3) {
+					throw new IllegalArgumentException("Grid must be start:end:count: " + spec);
+				}
+				double start = Double.parseDouble(grid[0].trim());
+				double end = Double.parseDouble(grid[1].trim());
+				int count = Integer.parseInt(grid[2].trim());
+				if (count < 1) {
+					throw new IllegalArgumentException("Grid count must be positive: " + spec);
+				}
+				for (int i = 0; i < count; i++) {
+					double value = (count == 1) ? start : start + (end - start) * i / (count - 1);
+					values.add(format(value));
+				}
+			} else {
+				for (String value : strSpec.split(",")) {
+					if (!value.trim().isEmpty()) {
+						values.add(value.trim());
+					}
+				}
+			}
+			if (values.isEmpty()) {
+				throw new IllegalArgumentException("No value for sweep axis: " + name);
+			}
+			findSetter(name);
+			return new Axis(name.trim(), values);
+		}
+
+		/**
+		 * 掃引軸の名前を取得する
+		 *
+		 * @return 掃引軸の名前
+		 */
+		public String getName() {
+			return m_name;
+		}
+
+		/**
+		 * 掃引する値を取得する
+		 *
+		 * @return 掃引する値
+		 */
+		public List<String> getValues() {
+			return m_values;
+		}
+	}
+
+	// 掃引軸
+	private final List<Axis> m_axes;
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param axes 掃引軸
+	 */
+	public ParameterSweep(List<Axis> axes) {
+		m_axes = Collections.unmodifiableList(Lists.newArrayList(axes));
+	}
+
+	/**
+	 * 掃引軸を取得する
+	 *
+	 * @return 掃引軸
+	 */
+	public List<Axis> getAxes() {
+		return m_axes;
+	}
+
+	/**
+	 * 全軸の直積を掃引点として展開する
+	 *
+	 * @return 掃引点 (掃引軸の名前と値の組。軸の指定順に並ぶ)
+	 */
+	public List<Map<String, String>> getPoints() {
+
+		List<Map<String, String>> points = Lists.newArrayList();
+		points.add(Maps.<String, String> newLinkedHashMap());
+		for (Axis axis : m_axes) {
+			List<Map<String, String>> expanded = Lists.newArrayListWithCapacity(points.size() * axis.getValues().size());
+			for (Map<String, String> point : points) {
+				for (String value : axis.getValues()) {
+					Map<String, String> next = Maps.newLinkedHashMap(point);
+					next.put(axis.getName(), value);
+					expanded.add(next);
+				}
+			}
+			points = expanded;
+		}
+		return points;
+	}
+
+	/**
+	 * 掃引点を識別するキーを作成する (例: magnetic-field=0.5,lattice-size=16)
+	 *
+	 * @param point 掃引点
+	 * @return キー
+	 */
+	public static String toKey(Map<String, String> point) {
+		StringBuilder key = new StringBuilder();
+		for (Map.Entry<String, String> e : point.entrySet()) {
+			if (key.length() > 0) {
+				key.append(',');
+			}
+			key.append(e.getKey()).append('=').append(e.getValue());
+		}
+		return key.toString();
+	}
+
+	/**
+	 * 掃引しないパラメータの指紋を取得する</br>
+	 * 掃引軸の項目は一律に0(真偽値は false)とみなすため、掃引軸の値と基準のパラメータ設定情報の同じ項目の値には依存しない
+	 *
+	 * @param paramInfo 基準のパラメータ設定情報
+	 * @return 掃引しないパラメータの指紋
+	 */
+	public String getBaseFingerprint(ParamInfo paramInfo) {
+
+		Map<String, String> neutral = Maps.newLinkedHashMap();
+		for (Axis axis : m_axes) {
+			neutral.put(axis.getName(), "0");
+		}
+		ParamInfo base = paramInfo.copy();
+		apply(base, neutral);
+		return base.getFingerprint();
+	}
+
+	/**
+	 * 掃引点の値をパラメータ設定情報に設定する
+	 *
+	 * @param paramInfo パラメータ設定情報
+	 * @param point 掃引点
+	 */
+	public static void apply(ParamInfo paramInfo, Map<String, String> point) {
+
+		for (Map.Entry<String, String> e : point.entrySet()) {
+			Method setter = findSetter(e.getKey());
+			Class<?> type = setter.getParameterTypes()[0];
+			String value = e.getValue().trim();
+			try {
+				if (type == double.class) {
+					setter.invoke(paramInfo, Double.parseDouble(value));
+				} else if (type == int.class) {
+					setter.invoke(paramInfo, Integer.parseInt(value));
+				} else if (type == boolean.class) {
+					setter.invoke(paramInfo, Boolean.parseBoolean(value));
+				} else {
+					setter.invoke(paramInfo, value);
+				}
+			} catch (IllegalAccessException | InvocationTargetException ex) {
+				throw new IllegalStateException("Cannot set sweep parameter: " + e.getKey(), ex);
+			}
+		}
+	}
+
+	/**
+	 * 掃引軸の名前に対応する {@link ParamInfo} の設定メソッドを取得する
+	 *
+	 * @param name 掃引軸の名前 (要素名またはプロパティ名)
+	 * @return 設定メソッド
+	 */
+	static Method findSetter(String name) {
+
+		String property = ALIASES.containsKey(name.trim().toLowerCase()) ? ALIASES.get(name.trim().toLowerCase()) : toCamelCase(name.trim());
+		String setterName = "set" + Character.toUpperCase(property.charAt(0)) + property.substring(1);
+		for (Method method : ParamInfo.class.getMethods()) {
+			if (!method.getName().equals(setterName) || method.getParameterTypes().length != 1) {
+				continue;
+			}
+			Class<?> type = method.getParameterTypes()[0];
+			if (type == double.class || type == int.class || type == boolean.class || type == String.class) {
+				return method;
+			}
+			throw new IllegalArgumentException("Parameter cannot be swept: " + name);
+		}
+		throw new IllegalArgumentException("Unknown sweep parameter: " + name);
+	}
+
+	private static String toCamelCase(String name) {
+		StringBuilder camelCase = new StringBuilder();
+		boolean upper = false;
+		for (char c : name.toCharArray()) {
+			if (c == '-' || c == '_') {
+				upper = true;
+			} else {
+				camelCase.append(upper ? Character.toUpperCase(c) : c);
+				upper = false;
+			}
+		}
+		return camelCase.toString();
+	}
+
+	private static String format(double value) {
+		if (value == 0.0) {
+			return "0";
+		}
+		return new BigDecimal(value).round(GRID_PRECISION).stripTrailingZeros().toPlainString();
+	}
+}
@@ -106,4 +106,18 @@ public class PathInfo {
 		this.sparsePath = sparsePath;
 	}
 
+	/**
+	 * パス情報を複製する
+	 * 
+	 * @return 複製したパス情報
+	 */
+	public PathInfo copy() {
+		PathInfo pathInfo = new PathInfo();
+		pathInfo.setStrPwd(strPwd);
+		pathInfo.setParameterPath(parameterPath);
+		pathInfo.setOutputPath(outputPath);
+		pathInfo.setLogPath(logPath);
+		pathInfo.setSparsePath(sparsePath);
+		return pathInfo;
+	}
 }
@@ -0,0 +1,194 @@
+package org.physics.bdg;
+
+import java.util.Arrays;
+import java.util.List;
+
+import no.uib.cipr.matrix.DenseMatrix;
+import no.uib.cipr.matrix.DenseVector;
+import no.uib.cipr.matrix.MatrixSingularException;
+
+import org.physics.bdg.BdGHamiltonian.Observables;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Pulay (DIIS, Anderson) 混合クラス</br>
+ * 残差 R_k = F[x_k] - x_k と直近の履歴の差分 ΔR_i = R_{i+1} - R_i, Δx_i = x_{i+1} - x_i から、
+ * |R_k - Σ_i γ_i ΔR_i| を最小にする係数 γ を最小二乗法で求め、次の入力を
+ * x_{k+1} = x_k + β R_k - Σ_i γ_i (Δx_i + β ΔR_i) (β = 1 - w) とする</br>
+ * 履歴がない場合は線形混合と同じになる。正規方程式が解けない場合は履歴を破棄して線形混合に戻す
+ *
+ * @author y-ok
+ */
+public class PulayMixer extends AbstractMixer {
+
+	// 正規方程式の対角成分に加える相対的な正則化項
+	private static final double REGULARIZATION = 1.0e-12;
+
+	// 保持する履歴数
+	private final int m_historyDepth;
+
+	// 入力と残差の差分の履歴 (古い順)
+	private final List<double[]> m_inputDifference = Lists.newArrayList();
+	private final List<double[]> m_residualDifference = Lists.newArrayList();
+
+	// 前回の入力と残差
+	private double[] m_previousInput;
+	private double[] m_previousResidual;
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param weightFactor 入力の重み w
+	 * @param historyDepth 保持する履歴数 (1以上)
+	 */
+	public PulayMixer(double weightFactor, int historyDepth) {
+		super(weightFactor);
+		if (historyDepth < 1) {
+			throw new IllegalArgumentException("Pulay history depth must be positive: " + historyDepth);
+		}
+		m_historyDepth = historyDepth;
+	}
+
+	@Override
+	public String getName() {
+		return PULAY;
+	}
+
+	@Override
+	public void reset() {
+		m_inputDifference.clear();
+		m_residualDifference.clear();
+		m_previousInput = null;
+		m_previousResidual = null;
+	}
+
+	/**
+	 * 保持している履歴数を取得する
+	 *
+	 * @return 履歴数
+	 */
+	public int getHistorySize() {
+		return m_residualDifference.size();
+	}
+
+	/**
+	 * {@inheritDoc}</br>
+	 * 前回の入力と前回の残差の有無と差分の履歴の長さの配列を先頭とし、値がある前回の入力と前回の残差、入力と残差の差分の組(古い順)の順に並べる
+	 */
+	@Override
+	public List<double[]> getState() {
+		List<double[]> state = Lists.newArrayList();
+		addHistoryState(state, Arrays.asList(m_previousInput, m_previousResidual), m_inputDifference, m_residualDifference);
+		return state;
+	}
+
+	@Override
+	public void setState(List<double[]> state) {
+		reset();
+		if (state.isEmpty()) {
+			return;
+		}
+		double[][] previous = new double[2][];
+		setHistoryState(state, 0, previous, m_inputDifference, m_residualDifference);
+		m_previousInput = previous[0];
+		m_previousResidual = previous[1];
+	}
+
+	@Override
+	public Observables mix(Observables input, Observables output) {
+
+		double[] x = pack(input);
+		double[] residual = pack(output);
+		for (int i = 0; i < x.length; i++) {
+			residual[i] -= x[i];
+		}
+
+		if (m_previousInput != null) {
+			double[] inputDifference = new double[x.length];
+			double[] residualDifference = new double[x.length];
+			for (int i = 0; i < x.length; i++) {
+				inputDifference[i] = x[i] - m_previousInput[i];
+				residualDifference[i] = residual[i] - m_previousResidual[i];
+			}
+			m_inputDifference.add(inputDifference);
+			m_residualDifference.add(residualDifference);
+			if (m_residualDifference.size() > m_historyDepth) {
+				m_inputDifference.remove(0);
+				m_residualDifference.remove(0);
+			}
+		}
+		m_previousInput = x.clone();
+		m_previousResidual = residual.clone();
+
+		double beta = 1.0 - m_weightFactor;
+		double[] next = new double[x.length];
+		for (int i = 0; i < x.length; i++) {
+			next[i] = x[i] + beta * residual[i];
+		}
+
+		double[] gamma = solveCoefficient(residual);
+		for (int k = 0; k < gamma.length; k++) {
+			double[] inputDifference = m_inputDifference.get(k);
+			double[] residualDifference = m_residualDifference.get(k);
+			for (int i = 0; i < x.length; i++) {
+				next[i] -= gamma[k] * (inputDifference[i] + beta * residualDifference[i]);
+			}
+		}
+		return unpack(next, input);
+	}
+
+	/**
+	 * 正規方程式 (ΔR^T ΔR) γ = ΔR^T R_k を解く
+	 *
+	 * @param residual 今回の残差 R_k
+	 * @return 係数 γ (履歴を破棄した場合は長さ0)
+	 */
+	private double[] solveCoefficient(double[] residual) {
+
+		int m = m_residualDifference.size();
+		if (m == 0) {
+			return new double[0];
+		}
+
+		DenseMatrix overlap = new DenseMatrix(m, m);
+		DenseVector rhs = new DenseVector(m);
+		for (int k = 0; k < m; k++) {
+			double[] residualDifferenceK = m_residualDifference.get(k);
+			for (int l = 0; l <= k; l++) {
+				double value = dot(residualDifferenceK, m_residualDifference.get(l));
+				overlap.set(k, l, value);
+				overlap.set(l, k, value);
+			}
+			rhs.set(k, dot(residualDifferenceK, residual));
+		}
+		for (int k = 0; k < m; k++) {
+			overlap.add(k, k, REGULARIZATION * overlap.get(k, k));
+		}
+
+		DenseVector gamma = new DenseVector(m);
+		try {
+			overlap.solve(rhs, gamma);
+		} catch (MatrixSingularException e) {
+			m_inputDifference.clear();
+			m_residualDifference.clear();
+			return new double[0];
+		}
+		for (int k = 0; k < m; k++) {
+			if (Double.isNaN(gamma.get(k)) || Double.isInfinite(gamma.get(k))) {
+				m_inputDifference.clear();
+				m_residualDifference.clear();
+				return new double[0];
+			}
+		}
+		return gamma.getData();
+	}
+
+	private static double dot(double[] a, double[] b) {
+		double sum = 0.0;
+		for (int i = 0; i < a.length; i++) {
+			sum += a[i] * b[i];
+		}
+		return sum;
+	}
+}
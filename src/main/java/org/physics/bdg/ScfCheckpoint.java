@@ -0,0 +1,306 @@
+package org.physics.bdg;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import no.uib.cipr.matrix.DenseVector;
+import no.uib.cipr.matrix.Vector;
+
+import org.physics.bdg.BdGHamiltonian.Observables;
+
+import com.google.common.collect.Lists;
+
+/**
+ * 自己無撞着計算のチェックポイントクラス</br>
+ * 温度掃引の1点について、パラメータの指紋、次の反復の入力(超流動パラメータとアップスピン&ダウンスピン粒子数)、混合法の履歴、反復回数を
+ * バイナリ形式で保存する。計算が終了した点は計算結果を保存し、再開時は計算を省く</br>
+ * 同じディレクトリの一時ファイルに書き出して同期した後に置き換えるため、書き込み中に中断しても直前のチェックポイントが残る。
+ * 末尾のCRC32で破損を検出する
+ *
+ * @author y-ok
+ */
+public class ScfCheckpoint {
+
+	// ファイル識別子 ("BdGC") と形式の版
+	private static final int MAGIC = 0x42644743;
+	private static final int VERSION = 3;
+
+	// 一時ファイルの拡張子
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	private final String m_parameterFingerprint;
+	private final double m_temperature;
+	private final String m_sweepLabel;
+	private final int m_iteration;
+	private final boolean m_completed;
+	private final Observables m_observables;
+	private final String m_mixerName;
+	private final List<double[]> m_mixerState;
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param parameterFingerprint パラメータの指紋 ({@link ParamInfo#getFingerprint()})
+	 * @param temperature 温度
+	 * @param sweepLabel 温度掃引の往路・復路のラベル
+	 * @param iteration 次に行う反復の番号
+	 * @param completed 計算が終了している場合 true
+	 * @param observables 次の反復の入力 (計算が終了している場合は計算結果)
+	 * @param mixerName 混合法名
+	 * @param mixerState 混合法の履歴
+	 */
+	public ScfCheckpoint(String parameterFingerprint, double temperature, String sweepLabel, int iteration, boolean completed, Observables observables, String mixerName, List<double[]> mixerState) {
+		m_parameterFingerprint = parameterFingerprint;
+		m_temperature = temperature;
+		m_sweepLabel = sweepLabel;
+		m_iteration = iteration;
+		m_completed = completed;
+		m_observables = observables;
+		m_mixerName = mixerName;
+		m_mixerState = Collections.unmodifiableList(Lists.newArrayList(mixerState));
+	}
+
+	/**
+	 * パラメータの指紋を取得する
+	 *
+	 * @return パラメータの指紋
+	 */
+	public String getParameterFingerprint() {
+		return m_parameterFingerprint;
+	}
+
+	/**
+	 * 温度を取得する
+	 *
+	 * @return 温度
+	 */
+	public double getTemperature() {
+		return m_temperature;
+	}
+
+	/**
+	 * 温度掃引の往路・復路のラベルを取得する
+	 *
+	 * @return 温度掃引の往路・復路のラベル
+	 */
+	public String getSweepLabel() {
+		return m_sweepLabel;
+	}
+
+	/**
+	 * 次に行う反復の番号を取得する
+	 *
+	 * @return 次に行う反復の番号
+	 */
+	public int getIteration() {
+		return m_iteration;
+	}
+
+	/**
+	 * 計算が終了しているかどうか
+	 *
+	 * @return 計算が終了している場合 true
+	 */
+	public boolean isCompleted() {
+		return m_completed;
+	}
+
+	/**
+	 * 次の反復の入力 (計算が終了している場合は計算結果)を取得する
+	 *
+	 * @return 超流動パラメータと粒子数
+	 */
+	public Observables getObservables() {
+		return m_observables;
+	}
+
+	/**
+	 * 混合法名を取得する
+	 *
+	 * @return 混合法名
+	 */
+	public String getMixerName() {
+		return m_mixerName;
+	}
+
+	/**
+	 * 混合法の履歴を取得する
+	 *
+	 * @return 混合法の履歴
+	 */
+	public List<double[]> getMixerState() {
+		return m_mixerState;
+	}
+
+	/**
+	 * チェックポイントを書き出す</br>
+	 * 一時ファイルに書き出して同期した後、不可分な移動で置き換える
+	 *
+	 * @param path チェックポイントファイル
+	 * @throws IOException 入出力関係
+	 */
+	public void write(Path path) throws IOException {
+
+		byte[] fingerprint = m_parameterFingerprint.getBytes(StandardCharsets.UTF_8);
+		byte[] label = m_sweepLabel.getBytes(StandardCharsets.UTF_8);
+		byte[] mixerName = m_mixerName.getBytes(StandardCharsets.UTF_8);
+		int vectorLength = m_observables.getPairPotentialEnergy().size();
+
+		int size = 4 + 4 + 4 + fingerprint.length + 8 + 4 + label.length + 4 + 1 + 4 + mixerName.length + 4 + 3 * 8 * vectorLength + 4;
+		for (double[] array : m_mixerState) {
+			size += 4 + 8 * array.length;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(size + 8);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(fingerprint.length);
+		buffer.put(fingerprint);
+		buffer.putDouble(m_temperature);
+		buffer.putInt(label.length);
+		buffer.put(label);
+		buffer.putInt(m_iteration);
+		buffer.put((byte) (m_completed ? 1 : 0));
+		buffer.putInt(mixerName.length);
+		buffer.put(mixerName);
+		buffer.putInt(vectorLength);
+		putVector(buffer, m_observables.getPairPotentialEnergy());
+		putVector(buffer, m_observables.getUpParticleNumber());
+		putVector(buffer, m_observables.getDownParticleNumber());
+		buffer.putInt(m_mixerState.size());
+		for (double[] array : m_mixerState) {
+			buffer.putInt(array.length);
+			buffer.asDoubleBuffer().put(array);
+			buffer.position(buffer.position() + 8 * array.length);
+		}
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 0, size);
+		buffer.putLong(crc.getValue());
+		buffer.flip();
+
+		Path parent = path.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		Path temporary = path.resolveSibling(path.getFileName() + TEMPORARY_SUFFIX);
+		FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(true);
+		} finally {
+			channel.close();
+		}
+		try {
+			Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * チェックポイントを読み込む
+	 *
+	 * @param path チェックポイントファイル
+	 * @return チェックポイント (ファイルがない場合は null)
+	 * @throws IOException 入出力関係、またはファイルが破損している場合
+	 */
+	public static ScfCheckpoint read(Path path) throws IOException {
+
+		if (!Files.exists(path)) {
+			return null;
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+		try {
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				throw new IOException("Not a checkpoint file: " + path);
+			}
+			CRC32 crc = new CRC32();
+			crc.update(buffer.array(), 0, buffer.limit() - 8);
+			if (buffer.getLong(buffer.limit() - 8) != crc.getValue()) {
+				throw new IOException("Checkpoint file is corrupted: " + path);
+			}
+			String fingerprint = getString(buffer);
+			double temperature = buffer.getDouble();
+			String label = getString(buffer);
+			int iteration = buffer.getInt();
+			boolean completed = buffer.get() != 0;
+			String mixerName = getString(buffer);
+			int vectorLength = buffer.getInt();
+			Vector pairPotentialEnergy = getVector(buffer, vectorLength);
+			Vector upParticleNumber = getVector(buffer, vectorLength);
+			Vector downParticleNumber = getVector(buffer, vectorLength);
+			int stateSize = buffer.getInt();
+			List<double[]> mixerState = Lists.newArrayListWithCapacity(stateSize);
+			for (int i = 0; i < stateSize; i++) {
+				double[] array = new double[buffer.getInt()];
+				buffer.asDoubleBuffer().get(array);
+				buffer.position(buffer.position() + 8 * array.length);
+				mixerState.add(array);
+			}
+			return new ScfCheckpoint(fingerprint, temperature, label, iteration, completed, new Observables(pairPotentialEnergy, upParticleNumber, downParticleNumber), mixerName, mixerState);
+		} catch (RuntimeException e) {
+			throw new IOException("Checkpoint file is corrupted: " + path, e);
+		}
+	}
+
+	/**
+	 * 再開に用いるチェックポイントを読み込む</br>
+	 * 読み込めない場合(破損、形式の版の違い)と、パラメータの指紋、温度、ラベル、ベクトルの長さが一致しない場合は用いない
+	 *
+	 * @param path チェックポイントファイル
+	 * @param parameterFingerprint パラメータの指紋
+	 * @param temperature 温度
+	 * @param sweepLabel 温度掃引の往路・復路のラベル
+	 * @param vectorLength 超流動パラメータと粒子数のベクトルの長さ
+	 * @return チェックポイント (ファイルがない場合、読み込めない場合、または一致しない場合は null)
+	 */
+	public static ScfCheckpoint readForRestart(Path path, String parameterFingerprint, double temperature, String sweepLabel, int vectorLength) {
+
+		ScfCheckpoint checkpoint;
+		try {
+			checkpoint = read(path);
+		} catch (IOException e) {
+			System.out.println("Checkpoint cannot be read. Ignored: " + path + " (" + e.getMessage() + ")");
+			return null;
+		}
+		if (checkpoint == null) {
+			return null;
+		}
+		if (!checkpoint.getParameterFingerprint().equals(parameterFingerprint) || checkpoint.getTemperature() != temperature
+				|| !checkpoint.getSweepLabel().equals(sweepLabel) || checkpoint.getObservables().getPairPotentialEnergy().size() != vectorLength) {
+			System.out.println("Checkpoint does not match the parameter. Ignored: " + path);
+			return null;
+		}
+		return checkpoint;
+	}
+
+	private static void putVector(ByteBuffer buffer, Vector vector) {
+		for (int i = 0; i < vector.size(); i++) {
+			buffer.putDouble(vector.get(i));
+		}
+	}
+
+	private static Vector getVector(ByteBuffer buffer, int length) {
+		double[] data = new double[length];
+		buffer.asDoubleBuffer().get(data);
+		buffer.position(buffer.position() + 8 * length);
+		return new DenseVector(data, false);
+	}
+
+	private static String getString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
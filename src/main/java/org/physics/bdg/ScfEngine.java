@@ -0,0 +1,30 @@
+package org.physics.bdg;
+
+/**
+ * 自己無撞着計算の計算エンジン
+ *
+ * <ul>
+ * <li>DENSE : LAPACKによる密行列の対角化</li>
+ * <li>LANCZOS : Lanczos法による行列を保持しない作用素の部分対角化 (エネルギー窓の打ち切りが必要)</li>
+ * <li>KPM : カーネル多項式法によるFermi演算子展開 (対角化を行わず粒子数と超流動パラメータを直接求める)</li>
+ * <li>MOMENTUM : 並進対称な系(外部ポテンシャルなし)の波数空間の2行2列ブロックの解析解 (外部ポテンシャルがある場合は密行列の対角化)</li>
+ * </ul>
+ *
+ * @author y-ok
+ */
+public enum ScfEngine {
+	DENSE, LANCZOS, KPM, MOMENTUM;
+
+	/**
+	 * パラメータ設定値から計算エンジンを取得する
+	 *
+	 * @param engine 計算エンジン名 (dense, lanczos, kpm, momentum)。null または空文字の場合は dense
+	 * @return 計算エンジン
+	 */
+	public static ScfEngine of(String engine) {
+		if (engine == null || engine.trim().isEmpty()) {
+			return DENSE;
+		}
+		return valueOf(engine.trim().toUpperCase());
+	}
+}
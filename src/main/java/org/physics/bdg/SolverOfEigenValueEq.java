@@ -1,18 +1,20 @@
 package org.physics.bdg;
 
-import java.util.List;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import no.uib.cipr.matrix.DenseMatrix;
-import no.uib.cipr.matrix.DenseVector;
 import no.uib.cipr.matrix.Matrix;
+import no.uib.cipr.matrix.MatrixEntry;
 import no.uib.cipr.matrix.Vector;
+import no.uib.cipr.matrix.sparse.CompRowMatrix;
 
 //import org.joda.time.DateTime;
-import org.netlib.lapack.Dsyevd;
+import org.netlib.lapack.Dlamch;
 import org.netlib.util.intW;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 
 /**
@@ -23,10 +25,61 @@ import com.google.common.collect.Multimap;
 public class SolverOfEigenValueEq {
 
 	// 行列サイズ
-	private static int m_matrixSize = 0;
+	private int m_matrixSize = 0;
 
 	// 固有値と固有ベクトル
-	private static Multimap<Double, Vector> eigenMap = ArrayListMultimap.create();
+	private EigenSystem m_eigenSystem = new EigenSystem(0, 0, new double[0], 0, new double[0], 0, 0);
+
+	// 作業領域 (入力行列を破壊しないために作業行列にコピーして使用する)
+	private EigenValueWorkspace m_workspace;
+
+	// 固有値ソルババックエンド
+	private final EigenSolverBackend m_backend;
+
+	// 既定の固有値ソルババックエンド (ネイティブLAPACKがあればネイティブ、なければf2j)
+	private static final EigenSolverBackend DEFAULT_BACKEND;
+
+	static {
+		// f2j版LAPACKの機械定数(Dlamch)は初回呼び出し時に静的変数へ設定されるため、並列実行前に初期化しておく
+		Dlamch.dlamch("E");
+		DEFAULT_BACKEND = EigenSolverBackend.create(EigenSolverBackend.AUTO);
+	}
+
+	/**
+	 * コンストラクタ
+	 */
+	public SolverOfEigenValueEq() {
+		this(null);
+	}
+
+	/**
+	 * コンストラクタ
+	 * 
+	 * @param workspace 作業領域
+	 */
+	public SolverOfEigenValueEq(EigenValueWorkspace workspace) {
+		this(workspace, DEFAULT_BACKEND);
+	}
+
+	/**
+	 * コンストラクタ
+	 * 
+	 * @param workspace 作業領域
+	 * @param backend 固有値ソルババックエンド
+	 */
+	public SolverOfEigenValueEq(EigenValueWorkspace workspace, EigenSolverBackend backend) {
+		m_workspace = workspace;
+		m_backend = backend;
+	}
+
+	/**
+	 * 使用中の固有値ソルババックエンドを取得する
+	 * 
+	 * @return 固有値ソルババックエンド
+	 */
+	public EigenSolverBackend getBackend() {
+		return m_backend;
+	}
 
 	/**
 	 * 実対称行列の固有値方程式を解く
@@ -35,68 +88,308 @@ public class SolverOfEigenValueEq {
 	 * @return 実行結果
 	 */
 	public int solveEigenValueEq(Matrix matrix) {
+		return solveEigenValueEq(matrix, false, EnergyWindow.ALL);
+	}
+
+	/**
+	 * 実対称行列の固有値方程式を解く</br>
+	 * スピン分離指定時は、超流動パラメータ(非対角ブロック)を無視し、アップスピン(左上)とダウンスピン(右下)の
+	 * 2つの M/2 * M/2 ブロックを並列に対角化して、全体の固有値と固有ベクトル(他方のスピン成分は0)を昇順に組み立てる
+	 * 
+	 * @param matrix BdGハミルトニアン
+	 * @param spinDecoupled スピン分離して解く場合は true
+	 * @return 実行結果
+	 */
+	public int solveEigenValueEq(Matrix matrix, boolean spinDecoupled) {
+		return solveEigenValueEq(matrix, spinDecoupled, EnergyWindow.ALL);
+	}
+
+	/**
+	 * 実対称行列の固有値方程式をエネルギー窓の範囲で解く</br>
+	 * エネルギー窓で打ち切る場合は dsyevr (MRRR法) で窓内の固有対のみを求める。
+	 * 固有値方程式の解には窓内の固有対のみが昇順に格納される
+	 * 
+	 * @param matrix BdGハミルトニアン
+	 * @param spinDecoupled スピン分離して解く場合は true
+	 * @param window エネルギー窓
+	 * @return 実行結果
+	 */
+	public int solveEigenValueEq(Matrix matrix, boolean spinDecoupled, EnergyWindow window) {
 
 		m_matrixSize = matrix.numRows();
 
-		double[] eigenvalue = new double[m_matrixSize];
-		double work[] = new double[1 + 5 * m_matrixSize + 5 * m_matrixSize * m_matrixSize];
-		int[] iwork = new int[3 + 5 * m_matrixSize];
-		intW info = new intW(0);
+		if (m_workspace == null || m_workspace.getMatrixSize() != m_matrixSize) {
+			m_workspace = new EigenValueWorkspace(m_matrixSize);
+		}
+
+		if (spinDecoupled) {
+			return solveSpinDecoupledEigenValueEq(matrix, window);
+		}
+
+		double[] eigenvalue = m_workspace.getEigenValue();
+		double[] work = m_workspace.getWork();
+		int[] iwork = m_workspace.getIWork();
 
-		double[] arrayMatrix = ((DenseMatrix) matrix).getData();
+		double[] arrayMatrix = m_workspace.getWorkMatrix();
+		copyToWorkMatrix(matrix, arrayMatrix);
+
+		// 打ち切る場合は固有ベクトルを別の行列に求める
+		double[] eigenVectorMatrix = arrayMatrix;
+		if (window.isTruncated()) {
+			eigenVectorMatrix = m_workspace.getWindowEigenVectorMatrix(m_matrixSize * window.getMaxEigenNumber(m_matrixSize));
+		}
 		/**
 		 * use Lapack to find the eigenvalues and eigenvectors
 		 * http://icl.cs.utk.edu/projectsfiles/f2j/javadoc/org/netlib/lapack/Dsyevd.html
+		 * (実装は固有値ソルババックエンドで切り替える)
 		 */
 //		DateTime starTime = new DateTime();
 //		long startMillisTime = starTime.getMillis();
 
-		Dsyevd.dsyevd("V", "U", m_matrixSize, arrayMatrix, 0, m_matrixSize, eigenvalue, 0, work, 0, work.length, iwork, 0, iwork.length, info);
+		intW found = new intW(0);
+		int info = solveBlockEigenValueEq(m_matrixSize, arrayMatrix, 0, eigenvalue, 0, eigenVectorMatrix, 0, work, 0, work.length, iwork, 0, iwork.length, m_workspace.getIsuppz(), 0, window, found);
 
 //		DateTime endTime = new DateTime();
 //		long endMillisTime = endTime.getMillis();
 
 //		System.out.println((endMillisTime - startMillisTime) + "ms");
 
-		List<Vector> eigenVectorList = Lists.newLinkedList();
-		makeEigenVectorlist(arrayMatrix, eigenVectorList);
+		// LAPACKの出力した固有値配列と固有ベクトル行列をそのまま参照する
+		m_eigenSystem = new EigenSystem(m_matrixSize, found.val, eigenvalue, 0, eigenVectorMatrix, 0, m_matrixSize);
+
+		return info;
+	}
+
+	/**
+	 * アップスピンとダウンスピンの2つのブロックに分離して固有値方程式を解く
+	 * 
+	 * @param matrix BdGハミルトニアン
+	 * @param window エネルギー窓
+	 * @return 実行結果
+	 */
+	private int solveSpinDecoupledEigenValueEq(Matrix matrix, final EnergyWindow window) {
+
+		final int blockSize = m_matrixSize / 2;
+
+		final double[] eigenvalue = m_workspace.getEigenValue();
+		final double[] work = m_workspace.getWork();
+		final int[] iwork = m_workspace.getIWork();
+		final int[] isuppz = m_workspace.getIsuppz();
+		final int blockWorkSize = m_workspace.getBlockWorkSize();
+		final int blockIWorkSize = m_workspace.getBlockIWorkSize();
+
+		// 作業行列の前半にアップスピンブロック、後半にダウンスピンブロックを格納する
+		final double[] arrayMatrix = m_workspace.getWorkMatrix();
+		copyBlockToWorkMatrix(matrix, 0, arrayMatrix, 0);
+		copyBlockToWorkMatrix(matrix, blockSize, arrayMatrix, blockSize * blockSize);
+
+		// 固有ベクトルの格納先 (打ち切らない場合は作業行列に上書きされる)
+		final int columns = window.getMaxEigenNumber(blockSize);
+		final double[] eigenVectorMatrix = window.isTruncated() ? m_workspace.getWindowEigenVectorMatrix(2 * blockSize * columns) : arrayMatrix;
+		final int downVectorOffset = blockSize * columns;
+
+		final intW downFound = new intW(0);
+		ForkJoinTask<Integer> downTask = ForkJoinPool.commonPool().submit(new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				return solveBlockEigenValueEq(blockSize, arrayMatrix, blockSize * blockSize, eigenvalue, blockSize, eigenVectorMatrix, downVectorOffset, work, blockWorkSize, blockWorkSize, iwork, blockIWorkSize, blockIWorkSize, isuppz, 2 * blockSize, window, downFound);
+			}
+		});
+		intW upFound = new intW(0);
+		int upInfo = solveBlockEigenValueEq(blockSize, arrayMatrix, 0, eigenvalue, 0, eigenVectorMatrix, 0, work, 0, blockWorkSize, iwork, 0, blockIWorkSize, isuppz, 0, window, upFound);
+		int downInfo = downTask.join();
+
+		// 固有値数指定時は併合後に指定数だけ残す
+		int total = upFound.val + downFound.val;
+		int count = total;
+		int skip = 0;
+		if (window.isTruncated() && window.isEigenNumberSpecified()) {
+			count = Math.min(window.getEigenNumber(), total);
+			if (window.getMode() == EnergyWindow.Mode.HIGHEST) {
+				skip = total - count;
+			}
+		}
 
-		Multimap<Double, Vector> tmpEigenMap = ArrayListMultimap.create();
+		// 2つのブロックの固有値を昇順に併合し、固有ベクトルを全体の次元に埋め込む
+		// (埋め込み先はブロックの固有ベクトルを格納していない側の作業行列とする)
+		double[] mergedValue = new double[count];
+		double[] mergedVectorMatrix = window.isTruncated() ? arrayMatrix : m_workspace.getWindowEigenVectorMatrix(m_matrixSize * count);
 
-		// 固有値に対する固有ベクトルペア作成
-		for (int i = 0; i < eigenVectorList.size(); i++) {
-			tmpEigenMap.put(eigenvalue[i], eigenVectorList.get(i));
+		int up = 0;
+		int down = 0;
+		for (int t = 0; t < skip + count; t++) {
+			boolean isUpBlock = down >= downFound.val || (up < upFound.val && eigenvalue[up] <= eigenvalue[blockSize + down]);
+			if (t < skip) {
+				if (isUpBlock) {
+					up++;
+				} else {
+					down++;
+				}
+				continue;
+			}
+			int column = (t - skip) * m_matrixSize;
+			Arrays.fill(mergedVectorMatrix, column, column + m_matrixSize, 0.0);
+			if (isUpBlock) {
+				System.arraycopy(eigenVectorMatrix, up * blockSize, mergedVectorMatrix, column, blockSize);
+				mergedValue[t - skip] = eigenvalue[up];
+				up++;
+			} else {
+				System.arraycopy(eigenVectorMatrix, downVectorOffset + down * blockSize, mergedVectorMatrix, column + blockSize, blockSize);
+				mergedValue[t - skip] = eigenvalue[blockSize + down];
+				down++;
+			}
 		}
-		eigenMap = tmpEigenMap;
+		m_eigenSystem = new EigenSystem(m_matrixSize, count, mergedValue, 0, mergedVectorMatrix, 0, m_matrixSize);
 
-		return info.val;
+		return (0 != upInfo) ? upInfo : downInfo;
 	}
 
 	/**
-	 * 固有値ベクトル一覧を作成する
+	 * 行列サイズnの実対称行列(列優先、先頭位置aOffset)の固有値方程式をエネルギー窓の範囲で解く</br>
+	 * 打ち切らない場合は dsyevd で全固有対を求め、固有ベクトルは入力行列に上書きされる。
+	 * 打ち切る場合は dsyevr で窓内の固有対を求め、固有ベクトルはzに格納される
 	 * 
-	 * @param matrix
-	 * @param eigenVectorlist
+	 * @param found 求まった固有値数
+	 * @return 実行結果
 	 */
-	private static void makeEigenVectorlist(double[] matrix, List<Vector> eigenVectorlist) {
+	private int solveBlockEigenValueEq(int n, double[] a, int aOffset, double[] w, int wOffset, double[] z, int zOffset, double[] work, int workOffset, int lwork, int[] iwork, int iworkOffset, int liwork, int[] isuppz, int isuppzOffset, EnergyWindow window, intW found) {
 
-		double[] arrayEigenVector = new double[m_matrixSize];
+		if (!window.isTruncated()) {
+			found.val = n;
+			return m_backend.dsyevd("V", "U", n, a, aOffset, n, w, wOffset, work, workOffset, lwork, iwork, iworkOffset, liwork);
+		}
 
-		for (int i = 0; i < m_matrixSize; i++) {
-			Vector eigenVector = new DenseVector(arrayEigenVector);
-			for (int j = 0; j < m_matrixSize; j++) {
-				eigenVector.set(j, matrix[i * m_matrixSize + j]);
+		String range;
+		double vl = 0.0;
+		double vu = 0.0;
+		int il = 0;
+		int iu = 0;
+		if (window.isEigenNumberSpecified()) {
+			range = "I";
+			int k = window.getMaxEigenNumber(n);
+			il = (window.getMode() == EnergyWindow.Mode.LOWEST) ? 1 : n - k + 1;
+			iu = (window.getMode() == EnergyWindow.Mode.LOWEST) ? k : n;
+		} else {
+			// 窓の反対側はGershgorinの定理による固有値の範囲の外側とする
+			range = "V";
+			double[] bound = calcGershgorinBound(n, a, aOffset);
+			vl = (window.getMode() == EnergyWindow.Mode.LOWEST) ? bound[0] : window.getCutoff();
+			vu = (window.getMode() == EnergyWindow.Mode.LOWEST) ? window.getCutoff() : bound[1];
+			if (vl >= vu) {
+				found.val = 0;
+				return 0;
 			}
-			eigenVectorlist.add(eigenVector);
 		}
+		return m_backend.dsyevr("V", range, "U", n, a, aOffset, n, vl, vu, il, iu, 0.0, found, w, wOffset, z, zOffset, n, isuppz, isuppzOffset, work, workOffset, lwork, iwork, iworkOffset, liwork);
+	}
+
+	/**
+	 * Gershgorinの定理により実対称行列の固有値の下限と上限(の外側)を求める
+	 * 
+	 * @param n 行列サイズ
+	 * @param a 行列(列優先)
+	 * @param aOffset 行列の先頭位置
+	 * @return {下限, 上限}
+	 */
+	private static double[] calcGershgorinBound(int n, double[] a, int aOffset) {
+		double lower = Double.POSITIVE_INFINITY;
+		double upper = Double.NEGATIVE_INFINITY;
+		for (int j = 0; j < n; j++) {
+			double radius = 0.0;
+			for (int i = 0; i < n; i++) {
+				if (i != j) {
+					radius += Math.abs(a[aOffset + j * n + i]);
+				}
+			}
+			double center = a[aOffset + j * n + j];
+			lower = Math.min(lower, center - radius);
+			upper = Math.max(upper, center + radius);
+		}
+		return new double[] { lower - 1.0, upper + 1.0 };
+	}
+
+	/**
+	 * 行列の対角ブロック [offset, offset + M/2) * [offset, offset + M/2) を列優先の作業行列にコピーする
+	 * 
+	 * @param matrix 実対称行列
+	 * @param offset ブロックの開始行(列)
+	 * @param workMatrix 作業行列
+	 * @param workOffset 作業行列上の格納開始位置
+	 */
+	private void copyBlockToWorkMatrix(Matrix matrix, int offset, double[] workMatrix, int workOffset) {
+		int blockSize = m_matrixSize / 2;
+		if (matrix instanceof DenseMatrix) {
+			double[] data = ((DenseMatrix) matrix).getData();
+			for (int j = 0; j < blockSize; j++) {
+				System.arraycopy(data, (j + offset) * m_matrixSize + offset, workMatrix, workOffset + j * blockSize, blockSize);
+			}
+		} else if (matrix instanceof CompRowMatrix) {
+			int[] rowPointer = ((CompRowMatrix) matrix).getRowPointers();
+			int[] columnIndex = ((CompRowMatrix) matrix).getColumnIndices();
+			double[] values = ((CompRowMatrix) matrix).getData();
+			Arrays.fill(workMatrix, workOffset, workOffset + blockSize * blockSize, 0.0);
+			for (int i = 0; i < blockSize; i++) {
+				for (int k = rowPointer[i + offset]; k < rowPointer[i + offset + 1]; k++) {
+					int column = columnIndex[k] - offset;
+					if (column >= 0 && column < blockSize) {
+						workMatrix[workOffset + column * blockSize + i] = values[k];
+					}
+				}
+			}
+		} else {
+			for (int j = 0; j < blockSize; j++) {
+				for (int i = 0; i < blockSize; i++) {
+					workMatrix[workOffset + j * blockSize + i] = matrix.get(i + offset, j + offset);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 行列を列優先の作業行列にコピーする</br>
+	 * 圧縮行格納形式の疎行列は非ゼロ要素のみを展開する
+	 * 
+	 * @param matrix 実対称行列
+	 * @param workMatrix 作業行列
+	 */
+	private void copyToWorkMatrix(Matrix matrix, double[] workMatrix) {
+		if (matrix instanceof DenseMatrix) {
+			System.arraycopy(((DenseMatrix) matrix).getData(), 0, workMatrix, 0, workMatrix.length);
+		} else if (matrix instanceof CompRowMatrix) {
+			int[] rowPointer = ((CompRowMatrix) matrix).getRowPointers();
+			int[] columnIndex = ((CompRowMatrix) matrix).getColumnIndices();
+			double[] values = ((CompRowMatrix) matrix).getData();
+			Arrays.fill(workMatrix, 0.0);
+			for (int i = 0; i < m_matrixSize; i++) {
+				for (int k = rowPointer[i]; k < rowPointer[i + 1]; k++) {
+					workMatrix[columnIndex[k] * m_matrixSize + i] = values[k];
+				}
+			}
+		} else {
+			Arrays.fill(workMatrix, 0.0);
+			for (MatrixEntry e : matrix) {
+				workMatrix[e.column() * m_matrixSize + e.row()] = e.get();
+			}
+		}
+	}
+
+	/**
+	 * 固有値方程式の解を返す</br>
+	 * 固有ベクトル行列は作業領域を参照するため、次に固有値方程式を解くまで有効
+	 * 
+	 * @return 固有値方程式の解
+	 */
+	public EigenSystem getEigenSystem() {
+		return m_eigenSystem;
 	}
 
 	/**
-	 * 固有値と固有ベクトルのペアを返す
+	 * 固有値と固有ベクトルのペアを返す</br>
+	 * 固有ベクトルはそれぞれ独立した配列にコピーされる
 	 * 
 	 * @return eigenMap
 	 */
 	public Multimap<Double, Vector> getEigenValueAndEigenVectorMap() {
-		return eigenMap;
+		return m_eigenSystem.toMultimap();
 	}
 }
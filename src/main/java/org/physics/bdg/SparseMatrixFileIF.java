@@ -13,6 +13,7 @@ import no.uib.cipr.matrix.Matrix;
 import no.uib.cipr.matrix.io.MatrixInfo;
 import no.uib.cipr.matrix.io.MatrixSize;
 import no.uib.cipr.matrix.io.MatrixVectorWriter;
+import no.uib.cipr.matrix.sparse.CompRowMatrix;
 
 /**
  * 疎行列情報ファイルIFクラス
@@ -23,7 +24,7 @@ import no.uib.cipr.matrix.io.MatrixVectorWriter;
 public class SparseMatrixFileIF {
 
 	// 疎行列
-	private static Matrix m_sparseMatrix;
+	private Matrix m_sparseMatrix;
 
 	// パス情報
 	private PathInfo m_pathInfo;
@@ -56,7 +57,7 @@ public class SparseMatrixFileIF {
 	 * 
 	 * @return 疎行列
 	 */
-	public static Matrix getSparseMatrix() {
+	public Matrix getSparseMatrix() {
 		return m_sparseMatrix;
 	}
 
@@ -67,7 +68,7 @@ public class SparseMatrixFileIF {
 	 *            疎行列
 	 */
 	public void setSparseMatrix(Matrix matrix) {
-		SparseMatrixFileIF.m_sparseMatrix = matrix;
+		this.m_sparseMatrix = matrix;
 	}
 
 	/**
@@ -83,18 +84,22 @@ public class SparseMatrixFileIF {
 		MatrixInfo mi = new MatrixInfo(true, MatrixInfo.MatrixField.Real, MatrixInfo.MatrixSymmetry.Symmetric);
 		writer.printMatrixInfo(mi);
 
-		List<sparseMatrixData> data = Lists.newLinkedList();
+		List<sparseMatrixData> data = Lists.newArrayList();
 
-		for (int i = 0; i < m_sparseMatrix.numRows(); i++) {
-			for (int j = 0; j < m_sparseMatrix.numColumns(); j++) {
-
-				// 非ゼロ要素抽出
-				if (!Double.toString(m_sparseMatrix.get(i, j)).equals("0.0")) {
-					sparseMatrixData sparseMatrixData = new sparseMatrixData();
-					sparseMatrixData.x = i;
-					sparseMatrixData.y = j;
-					sparseMatrixData.value = m_sparseMatrix.get(i, j);
-					data.add(sparseMatrixData);
+		if (m_sparseMatrix instanceof CompRowMatrix) {
+			// 圧縮行格納形式の場合は非ゼロパターンのみを走査する
+			int[] rowPointer = ((CompRowMatrix) m_sparseMatrix).getRowPointers();
+			int[] columnIndex = ((CompRowMatrix) m_sparseMatrix).getColumnIndices();
+			double[] values = ((CompRowMatrix) m_sparseMatrix).getData();
+			for (int i = 0; i < m_sparseMatrix.numRows(); i++) {
+				for (int k = rowPointer[i]; k < rowPointer[i + 1]; k++) {
+					addNonZeroEntry(data, i, columnIndex[k], values[k]);
+				}
+			}
+		} else {
+			for (int i = 0; i < m_sparseMatrix.numRows(); i++) {
+				for (int j = 0; j < m_sparseMatrix.numColumns(); j++) {
+					addNonZeroEntry(data, i, j, m_sparseMatrix.get(i, j));
 				}
 			}
 		}
@@ -112,4 +117,24 @@ public class SparseMatrixFileIF {
 		writer.printCoordinate(col, row, val, 1);
 		writer.close();
 	}
+
+	/**
+	 * 非ゼロ要素であれば疎行列データに追加する
+	 * 
+	 * @param data 疎行列データ
+	 * @param x 行番号
+	 * @param y 列番号
+	 * @param value 要素値
+	 */
+	private void addNonZeroEntry(List<sparseMatrixData> data, int x, int y, double value) {
+
+		// 非ゼロ要素抽出
+		if (!Double.toString(value).equals("0.0")) {
+			sparseMatrixData sparseMatrixData = new sparseMatrixData();
+			sparseMatrixData.x = x;
+			sparseMatrixData.y = y;
+			sparseMatrixData.value = value;
+			data.add(sparseMatrixData);
+		}
+	}
 }
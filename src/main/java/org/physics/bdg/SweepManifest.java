@@ -0,0 +1,129 @@
+package org.physics.bdg;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import com.google.common.collect.Sets;
+
+/**
+ * パラメータ掃引のマニフェストファイルクラス</br>
+ * 計算が終了した掃引点のキーを1行ずつ追記し、中断後の再実行では記録済みの掃引点を省く。
+ * 1点終了するごとに書き出すため、中断時に失われるのは計算中の掃引点のみとなる</br>
+ * 先頭行に掃引しないパラメータの指紋を記録し、指紋が一致しないマニフェストファイルは破棄して新たに記録する
+ *
+ * @author y-ok
+ */
+public class SweepManifest {
+
+	// コメント行の先頭文字
+	private static final String COMMENT = "#";
+
+	// 掃引しないパラメータの指紋を記録する見出し行
+	private static final String BASE_HEADER = COMMENT + " base-parameters:";
+
+	// マニフェストファイル
+	private final File m_file;
+
+	// 掃引しないパラメータの指紋
+	private final String m_baseFingerprint;
+
+	// 計算が終了した掃引点のキー
+	private final Set<String> m_completedKeys = Sets.newLinkedHashSet();
+
+	/**
+	 * コンストラクタ</br>
+	 * マニフェストファイルがあれば記録済みの掃引点を読み込む。掃引しないパラメータの指紋が一致しない場合は
+	 * マニフェストファイルを削除し、記録済みの掃引点はないものとする
+	 *
+	 * @param file マニフェストファイル
+	 * @param baseFingerprint 掃引しないパラメータの指紋
+	 * @throws IOException 入出力関係
+	 */
+	public SweepManifest(File file, String baseFingerprint) throws IOException {
+		m_file = file;
+		m_baseFingerprint = baseFingerprint;
+		if (!file.exists()) {
+			return;
+		}
+		String header = null;
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String key = line.trim();
+				if (key.startsWith(BASE_HEADER)) {
+					header = key.substring(BASE_HEADER.length()).trim();
+				} else if (!key.isEmpty() && !key.startsWith(COMMENT)) {
+					m_completedKeys.add(key);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		if (!baseFingerprint.equals(header)) {
+			System.out.println("Sweep manifest does not match the base parameters. Started a fresh manifest: " + file);
+			m_completedKeys.clear();
+			if (!file.delete()) {
+				throw new IOException("Cannot delete manifest: " + file);
+			}
+		}
+	}
+
+	/**
+	 * 掃引点の計算が終了しているかどうか
+	 *
+	 * @param key 掃引点のキー
+	 * @return 終了している場合 true
+	 */
+	public synchronized boolean isCompleted(String key) {
+		return m_completedKeys.contains(key);
+	}
+
+	/**
+	 * 掃引点の計算終了を記録する</br>
+	 * マニフェストファイルに追記して書き出す。新たに作成する場合は先頭行に掃引しないパラメータの指紋を書き出す
+	 *
+	 * @param key 掃引点のキー
+	 * @throws IOException 入出力関係
+	 */
+	public synchronized void markCompleted(String key) throws IOException {
+		if (!m_completedKeys.add(key)) {
+			return;
+		}
+		File parent = m_file.getAbsoluteFile().getParentFile();
+		if (parent != null && !parent.exists() && !parent.mkdirs()) {
+			throw new IOException("Cannot create directory: " + parent);
+		}
+		boolean created = !m_file.exists();
+		PrintWriter pw = new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(m_file, true), StandardCharsets.UTF_8)));
+		try {
+			if (created) {
+				pw.println(BASE_HEADER + " " + m_baseFingerprint);
+			}
+			pw.println(key);
+		} finally {
+			pw.close();
+		}
+		if (pw.checkError()) {
+			throw new IOException("Cannot write manifest: " + m_file);
+		}
+	}
+
+	/**
+	 * 計算が終了した掃引点の数を取得する
+	 *
+	 * @return 計算が終了した掃引点の数
+	 */
+	public synchronized int getCompletedCount() {
+		return m_completedKeys.size();
+	}
+}
@@ -0,0 +1,138 @@
+package org.physics.bdg;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+/**
+ * 温度掃引クラス</br>
+ * パラメータの温度リストを掃引の順序に並べる。ヒステリシスを調べる往復掃引(down-up, up-down)では、
+ * 折り返しの温度を除いて同じ温度を2回計算し、往路と復路をラベルで区別する
+ *
+ * @author y-ok
+ */
+public class TemperatureSweep {
+
+	// 往路・復路のラベル
+	public static final String DOWN = "down";
+	public static final String UP = "up";
+
+	/**
+	 * 温度を掃引する順序
+	 *
+	 * <ul>
+	 * <li>LISTED : パラメータの記述順</li>
+	 * <li>DOWN : 高温から低温</li>
+	 * <li>UP : 低温から高温</li>
+	 * <li>DOWN_UP : 高温から低温へ下げた後、高温へ戻す</li>
+	 * <li>UP_DOWN : 低温から高温へ上げた後、低温へ戻す</li>
+	 * </ul>
+	 */
+	public enum Order {
+		LISTED, DOWN, UP, DOWN_UP, UP_DOWN;
+
+		/**
+		 * パラメータ設定値から掃引の順序を取得する
+		 *
+		 * @param order 掃引の順序 (listed, down, up, down-up, up-down)。null または空文字の場合は listed
+		 * @return 掃引の順序
+		 */
+		public static Order of(String order) {
+			if (order == null || order.trim().isEmpty()) {
+				return LISTED;
+			}
+			return valueOf(order.trim().toUpperCase().replace('-', '_'));
+		}
+	}
+
+	/**
+	 * 掃引の1点 (温度と往路・復路のラベル)
+	 *
+	 * @author y-ok
+	 */
+	public static class Point {
+		private final double m_temperature;
+		private final String m_label;
+
+		/**
+		 * コンストラクタ
+		 *
+		 * @param temperature 温度
+		 * @param label 往路・復路のラベル (片道の掃引では空文字)
+		 */
+		public Point(double temperature, String label) {
+			m_temperature = temperature;
+			m_label = label;
+		}
+
+		/**
+		 * 温度を取得する
+		 *
+		 * @return 温度
+		 */
+		public double getTemperature() {
+			return m_temperature;
+		}
+
+		/**
+		 * 往路・復路のラベルを取得する
+		 *
+		 * @return 往路・復路のラベル (片道の掃引では空文字)
+		 */
+		public String getLabel() {
+			return m_label;
+		}
+	}
+
+	// 掃引の順序に並べた点
+	private final List<Point> m_points = Lists.newArrayList();
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param temperatureList 温度リスト
+	 * @param order 掃引の順序
+	 */
+	public TemperatureSweep(List<Double> temperatureList, Order order) {
+
+		List<Double> ascending = Lists.newArrayList(temperatureList);
+		Collections.sort(ascending);
+		List<Double> descending = Lists.reverse(ascending);
+
+		switch (order) {
+		case DOWN:
+			addPoints(descending, "");
+			break;
+		case UP:
+			addPoints(ascending, "");
+			break;
+		case DOWN_UP:
+			addPoints(descending, DOWN);
+			addPoints(ascending.subList(Math.min(1, ascending.size()), ascending.size()), UP);
+			break;
+		case UP_DOWN:
+			addPoints(ascending, UP);
+			addPoints(descending.subList(Math.min(1, descending.size()), descending.size()), DOWN);
+			break;
+		default:
+			addPoints(temperatureList, "");
+			break;
+		}
+	}
+
+	/**
+	 * 掃引の順序に並べた点を取得する
+	 *
+	 * @return 掃引の順序に並べた点
+	 */
+	public List<Point> getPoints() {
+		return Collections.unmodifiableList(m_points);
+	}
+
+	private void addPoints(List<Double> temperatureList, String label) {
+		for (double temperature : temperatureList) {
+			m_points.add(new Point(temperature, label));
+		}
+	}
+}
@@ -0,0 +1,305 @@
+package org.physics.bdg;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import no.uib.cipr.matrix.DenseMatrix;
+import no.uib.cipr.matrix.DenseVector;
+import no.uib.cipr.matrix.Vector;
+
+import org.physics.bdg.BdGHamiltonian.Observables;
+
+import com.google.common.collect.Lists;
+
+/**
+ * ねじれ境界条件(twisted boundary condition)による波数平均ソルバ</br>
+ * L * L の周期的な超格子に Bloch 位相 θ = (θx, θy) を与え、境界をまたぐ飛び移り積分を -t e^{±iθ} とした
+ * BdGハミルトニアンを、ねじれ角の格子 θ = 2π(mx, my) / Nt (mx, my = 0 ... Nt-1) のそれぞれで独立に対角化し、
+ * 粒子数と超流動パラメータをねじれ角について平均する。外部ポテンシャルが超格子の周期をもつ場合、
+ * (Nt * L) * (Nt * L) の周期境界の格子を対角化した結果と一致する</br>
+ * <ul>
+ * <li>ねじれ角の成分がすべて 0 または π の場合は行列が実対称となるため、M * M の実対称行列をそのまま対角化する</li>
+ * <li>それ以外の場合は M * M のエルミート行列 H = A + iB を、2M * 2M の実対称行列 [[A, -B], [B, A]] として対角化する。
+ * 固有値は2重に縮退し、各固有ベクトル (x, y) は x + iy に対応するため、和を 1/2 倍する</li>
+ * <li>H(-θ) = H(θ)* のため、θ と -θ は粒子数と超流動パラメータ(実部)が等しい。一方のみを対角化して重みを2とする</li>
+ * </ul>
+ * ねじれ角ごとの対角化は独立なため、スレッドプールで並列に実行する。和はねじれ角の順に加算するため、結果はスレッド数によらない
+ *
+ * @author y-ok
+ */
+public class TwistedBoundarySolver {
+
+	private final int m_latticeSize;
+	private final int m_siteNum;
+	private final double m_hoppingEnergy;
+	private final double m_upChemicalPotential;
+	private final double m_downChemicalPotential;
+	private final double m_interaction;
+	private final double m_boltzmannConst;
+	private final double[] m_externalPotential;
+
+	// ねじれ角の1方向の分割数
+	private final int m_kPoints;
+
+	// 対角化するねじれ角の番号 (mx, my) と重み
+	private final List<int[]> m_twists = Lists.newArrayList();
+
+	private final ForkJoinPool m_pool;
+	private final EigenSolverBackend m_backend;
+	private final EigenValueWorkspacePool m_workspacePool;
+
+	/**
+	 * コンストラクタ
+	 *
+	 * @param latticeSize 超格子の一辺 L
+	 * @param hoppingEnergy 飛び移り積分 t
+	 * @param interaction 相互作用 U
+	 * @param upChemicalPotential アップスピンの化学ポテンシャル μ↑
+	 * @param downChemicalPotential ダウンスピンの化学ポテンシャル μ↓
+	 * @param boltzmannConst ボルツマン定数
+	 * @param externalPotential 格子点ごとの外部ポテンシャル V(r)
+	 * @param kPoints ねじれ角の1方向の分割数 Nt
+	 * @param pool スレッドプール
+	 * @param backend 固有値ソルババックエンド
+	 * @param workspacePool 作業領域プール
+	 */
+	public TwistedBoundarySolver(int latticeSize, double hoppingEnergy, double interaction, double upChemicalPotential, double downChemicalPotential, double boltzmannConst, double[] externalPotential, int kPoints, ForkJoinPool pool,
+			EigenSolverBackend backend, EigenValueWorkspacePool workspacePool) {
+		if (kPoints < 1) {
+			throw new IllegalArgumentException("k-points must be positive: " + kPoints);
+		}
+		m_latticeSize = latticeSize;
+		m_siteNum = latticeSize * latticeSize;
+		m_hoppingEnergy = hoppingEnergy;
+		m_interaction = interaction;
+		m_upChemicalPotential = upChemicalPotential;
+		m_downChemicalPotential = downChemicalPotential;
+		m_boltzmannConst = boltzmannConst;
+		m_externalPotential = externalPotential;
+		m_kPoints = kPoints;
+		m_pool = pool;
+		m_backend = backend;
+		m_workspacePool = workspacePool;
+
+		// -θ を代表する番号が小さい場合は -θ 側で対角化する
+		for (int mx = 0; mx < kPoints; mx++) {
+			for (int my = 0; my < kPoints; my++) {
+				int index = mx * kPoints + my;
+				int reverseIndex = ((kPoints - mx) % kPoints) * kPoints + (kPoints - my) % kPoints;
+				if (index < reverseIndex) {
+					m_twists.add(new int[] { mx, my, 2 });
+				} else if (index == reverseIndex) {
+					m_twists.add(new int[] { mx, my, 1 });
+				}
+			}
+		}
+	}
+
+	/**
+	 * 対角化するねじれ角の数を取得する
+	 *
+	 * @return 時間反転で対になるねじれ角を除いた数
+	 */
+	public int getTwistCount() {
+		return m_twists.size();
+	}
+
+	/**
+	 * 入力の超流動パラメータと粒子数から、ねじれ角について平均した超流動パラメータと粒子数を求める
+	 *
+	 * @param pairPotentialEnergy 超流動パラメータ
+	 * @param upParticleNumber アップスピン粒子数
+	 * @param downParticleNumber ダウンスピン粒子数
+	 * @param temperature 温度
+	 * @return 超流動パラメータと粒子数 (長さは格子点数の2倍で、先頭の格子点数分の成分に格納する)
+	 * @throws IllegalStateException 対角化に失敗した場合
+	 */
+	public Observables calcObservables(Vector pairPotentialEnergy, Vector upParticleNumber, Vector downParticleNumber, final double temperature) {
+
+		final double[] pairPotential = new double[m_siteNum];
+		final double[] upDiagonal = new double[m_siteNum];
+		final double[] downDiagonal = new double[m_siteNum];
+		for (int i = 0; i < m_siteNum; i++) {
+			pairPotential[i] = pairPotentialEnergy.get(i);
+			upDiagonal[i] = -m_upChemicalPotential + m_externalPotential[i] + m_interaction * downParticleNumber.get(i);
+			downDiagonal[i] = m_downChemicalPotential - m_externalPotential[i] - m_interaction * upParticleNumber.get(i);
+		}
+
+		List<Callable<double[][]>> tasks = Lists.newArrayList();
+		for (final int[] twist : m_twists) {
+			tasks.add(new Callable<double[][]>() {
+				@Override
+				public double[][] call() {
+					return solveTwist(twist[0], twist[1], pairPotential, upDiagonal, downDiagonal, temperature);
+				}
+			});
+		}
+
+		// ねじれ角の順に重みをつけて加算する
+		double[] vecPairPotential = new double[2 * m_siteNum];
+		double[] vecUpParticleNum = new double[2 * m_siteNum];
+		double[] vecDownParticleNum = new double[2 * m_siteNum];
+		List<Future<double[][]>> results = m_pool.invokeAll(tasks);
+		for (int k = 0; k < results.size(); k++) {
+			double[][] result;
+			try {
+				result = results.get(k).get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException(e.getCause());
+			}
+			double weight = (double) m_twists.get(k)[2] / (m_kPoints * m_kPoints);
+			for (int j = 0; j < m_siteNum; j++) {
+				vecPairPotential[j] += weight * result[0][j];
+				vecUpParticleNum[j] += weight * result[1][j];
+				vecDownParticleNum[j] += weight * result[2][j];
+			}
+		}
+		return new Observables(new DenseVector(vecPairPotential, false), new DenseVector(vecUpParticleNum, false), new DenseVector(vecDownParticleNum, false));
+	}
+
+	/**
+	 * 1つのねじれ角のBdGハミルトニアンを対角化し、超流動パラメータと粒子数を求める
+	 *
+	 * @param mx x方向のねじれ角の番号
+	 * @param my y方向のねじれ角の番号
+	 * @param pairPotential 超流動パラメータ
+	 * @param upDiagonal アップスピンの対角要素
+	 * @param downDiagonal ダウンスピンの対角要素
+	 * @param temperature 温度
+	 * @return 超流動パラメータ、アップスピン粒子数、ダウンスピン粒子数
+	 */
+	private double[][] solveTwist(int mx, int my, double[] pairPotential, double[] upDiagonal, double[] downDiagonal, double temperature) {
+
+		// 2m が Nt の倍数の場合はねじれ角が 0 または π
+		boolean isReal = (2 * mx) % m_kPoints == 0 && (2 * my) % m_kPoints == 0;
+		int blockSize = isReal ? m_siteNum : 2 * m_siteNum;
+		int matrixSize = 2 * blockSize;
+
+		EigenValueWorkspace workspace = m_workspacePool.acquire(matrixSize);
+		try {
+			DenseMatrix matrix = workspace.getHamiltonian();
+			matrix.zero();
+			makeTwistedBdGHamiltonian(matrix, 2.0 * Math.PI * mx / m_kPoints, 2.0 * Math.PI * my / m_kPoints, isReal, pairPotential, upDiagonal, downDiagonal);
+
+			SolverOfEigenValueEq solver = new SolverOfEigenValueEq(workspace, m_backend);
+			int info = solver.solveEigenValueEq(matrix);
+			if (0 != info) {
+				throw new IllegalStateException("Eigen solver failed for twist (" + mx + ", " + my + "): info = " + info);
+			}
+			EigenSystem eigenSystem = solver.getEigenSystem();
+
+			int count = eigenSystem.getCount();
+			double[] upWeight = new double[count];
+			double[] downWeight = new double[count];
+			double[] pairWeight = new double[count];
+			for (int n = 0; n < count; n++) {
+				upWeight[n] = fermiDistribution(eigenSystem.getValue(n), temperature);
+				downWeight[n] = fermiDistribution(-eigenSystem.getValue(n), temperature);
+				pairWeight[n] = upWeight[n];
+			}
+			double[] upSum = new double[blockSize];
+			double[] downSum = new double[blockSize];
+			double[] pairSum = new double[blockSize];
+			ObservableKernel.accumulate(eigenSystem, upWeight, downWeight, pairWeight, 0, blockSize, upSum, downSum, pairSum);
+
+			double[][] result = new double[3][m_siteNum];
+			for (int j = 0; j < m_siteNum; j++) {
+				if (isReal) {
+					result[0][j] = m_interaction * pairSum[j];
+					result[1][j] = upSum[j];
+					result[2][j] = downSum[j];
+				} else {
+					// 実部と虚部の成分の和を、2重に縮退した固有対について 1/2 倍する
+					result[0][j] = 0.5 * m_interaction * (pairSum[j] + pairSum[j + m_siteNum]);
+					result[1][j] = 0.5 * (upSum[j] + upSum[j + m_siteNum]);
+					result[2][j] = 0.5 * (downSum[j] + downSum[j + m_siteNum]);
+				}
+			}
+			return result;
+		} finally {
+			m_workspacePool.release(workspace);
+		}
+	}
+
+	/**
+	 * ねじれ角 (θx, θy) のBdGハミルトニアンを作成する</br>
+	 * 実対称行列の場合は (↑, ↓) の順、エルミート行列の場合は (↑の実部, ↑の虚部, ↓の実部, ↓の虚部) の順に格子点を並べる。
+	 * ホール(ダウンスピン)のブロックは -h↓(-θ)* となるため、境界をまたぐ飛び移り積分の位相はアップスピンと同じ e^{±iθ} となる
+	 *
+	 * @param matrix 出力先 (0で初期化済み)
+	 * @param thetaX x方向のねじれ角
+	 * @param thetaY y方向のねじれ角
+	 * @param isReal 実対称行列として作成する場合 true
+	 * @param pairPotential 超流動パラメータ
+	 * @param upDiagonal アップスピンの対角要素
+	 * @param downDiagonal ダウンスピンの対角要素
+	 */
+	private void makeTwistedBdGHamiltonian(DenseMatrix matrix, double thetaX, double thetaY, boolean isReal, double[] pairPotential, double[] upDiagonal, double[] downDiagonal) {
+
+		int blockSize = isReal ? m_siteNum : 2 * m_siteNum;
+		for (int i = 0; i < m_siteNum; i++) {
+			int row = i / m_latticeSize;
+			int col = i % m_latticeSize;
+
+			// 最近接格子点と、境界をまたぐ場合の位相 (正の向きにまたぐ場合 +θ、負の向きにまたぐ場合 -θ)
+			int[] neighbors = {
+					m_latticeSize * ((row + m_latticeSize - 1) % m_latticeSize) + col,
+					m_latticeSize * ((row + 1) % m_latticeSize) + col,
+					m_latticeSize * row + (col + m_latticeSize - 1) % m_latticeSize,
+					m_latticeSize * row + (col + 1) % m_latticeSize };
+			double[] phases = {
+					row == 0 ? -thetaY : 0.0,
+					row == m_latticeSize - 1 ? thetaY : 0.0,
+					col == 0 ? -thetaX : 0.0,
+					col == m_latticeSize - 1 ? thetaX : 0.0 };
+
+			for (int d = 0; d < neighbors.length; d++) {
+				int neighbor = neighbors[d];
+				double re = Math.cos(phases[d]);
+				double im = Math.sin(phases[d]);
+				addElement(matrix, blockSize, isReal, i, neighbor, -m_hoppingEnergy * re, -m_hoppingEnergy * im);
+				addElement(matrix, blockSize, isReal, blockSize + i, blockSize + neighbor, m_hoppingEnergy * re, m_hoppingEnergy * im);
+			}
+
+			addElement(matrix, blockSize, isReal, i, i, upDiagonal[i], 0.0);
+			addElement(matrix, blockSize, isReal, blockSize + i, blockSize + i, downDiagonal[i], 0.0);
+			addElement(matrix, blockSize, isReal, i, blockSize + i, pairPotential[i], 0.0);
+			addElement(matrix, blockSize, isReal, blockSize + i, i, pairPotential[i], 0.0);
+		}
+	}
+
+	/**
+	 * 行列要素 H(row, column) = re + i im を加算する</br>
+	 * 行番号と列番号は、スピンブロックの先頭位置 + 格子点番号で与える
+	 */
+	private void addElement(DenseMatrix matrix, int blockSize, boolean isReal, int row, int column, double re, double im) {
+		if (isReal) {
+			matrix.add(row, column, re);
+			return;
+		}
+		// スピンブロック内の格子点番号の前半を実部、後半を虚部とする
+		int realRow = row;
+		int realColumn = column;
+		int imagRow = row + m_siteNum;
+		int imagColumn = column + m_siteNum;
+		matrix.add(realRow, realColumn, re);
+		matrix.add(imagRow, imagColumn, re);
+		if (im != 0.0) {
+			matrix.add(realRow, imagColumn, -im);
+			matrix.add(imagRow, realColumn, im);
+		}
+	}
+
+	/**
+	 * フェルミ分布関数
+	 */
+	private double fermiDistribution(double x, double t) {
+		return 1 / (Math.exp(x / (m_boltzmannConst * t)) + 1);
+	}
+}
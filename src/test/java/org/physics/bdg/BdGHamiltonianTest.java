@@ -7,18 +7,24 @@ import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import no.uib.cipr.matrix.DenseMatrix;
 import no.uib.cipr.matrix.DenseVector;
 import no.uib.cipr.matrix.Matrix;
 import no.uib.cipr.matrix.Vector;
+import no.uib.cipr.matrix.sparse.CompRowMatrix;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.physics.bdg.BdGHamiltonian.OrderParameters;
 import org.physics.bdg.BdGHamiltonian.SpinState;
 
@@ -31,6 +37,9 @@ public class BdGHamiltonianTest {
 	
 	private final double DELTA = 1.0e-6;
 
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
 	/**
 	 * コンストラクタのテストです
 	 * 
@@ -66,6 +75,42 @@ public class BdGHamiltonianTest {
 		assertThat((double) getPrivateField(hamiltonian, "m_interparticleInteractionStrength"), is(-6.0));
 	}
 
+	/**
+	 * コンストラクタのテストです</br>
+	 * 異なるパラメータのインスタンスが互いの状態を上書きしないこと
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void test_BdGHamiltonian_N002() throws Exception {
+
+		ParameterFile paramFile1 = mock(ParameterFile.class, RETURNS_DEEP_STUBS);
+		when(paramFile1.getParamInfo().getLatticeSize()).thenReturn(3);
+		when(paramFile1.getParamInfo().getHoppingEnergy()).thenReturn(1.0);
+		when(paramFile1.getParamInfo().getInterparticleInteraction()).thenReturn(-6.0);
+
+		ParameterFile paramFile2 = mock(ParameterFile.class, RETURNS_DEEP_STUBS);
+		when(paramFile2.getParamInfo().getLatticeSize()).thenReturn(4);
+		when(paramFile2.getParamInfo().getHoppingEnergy()).thenReturn(2.0);
+		when(paramFile2.getParamInfo().getInterparticleInteraction()).thenReturn(-4.0);
+
+		BdGHamiltonian hamiltonian1 = new BdGHamiltonian(paramFile1, null);
+		OrderParameters orderParameters1 = hamiltonian1.getInitOrderParameter();
+		BdGHamiltonian hamiltonian2 = new BdGHamiltonian(paramFile2, null);
+		OrderParameters orderParameters2 = hamiltonian2.getInitOrderParameter();
+
+		hamiltonian1.makeBdGHamiltonian(orderParameters1.getInitVecPairPotentialEnergy(), orderParameters1.getInitVecUpParticleNumber(), orderParameters1.getInitVecDownParticleNumber(), 1.0);
+		hamiltonian2.makeBdGHamiltonian(orderParameters2.getInitVecPairPotentialEnergy(), orderParameters2.getInitVecUpParticleNumber(), orderParameters2.getInitVecDownParticleNumber(), 1.0);
+
+		assertThat(hamiltonian1.getMatrixSize(), is(18));
+		assertThat(hamiltonian2.getMatrixSize(), is(32));
+		assertThat((double) getPrivateField(hamiltonian1, "m_HoppingEnergy"), is(1.0));
+		assertThat((double) getPrivateField(hamiltonian2, "m_HoppingEnergy"), is(2.0));
+
+		double[] actualBdGHamiltonian = makeReferenceBdGHamiltonian(3, 1.0, 0.0, 0.0, 0.0, -6.0, orderParameters1.getInitVecPairPotentialEnergy(), orderParameters1.getInitVecUpParticleNumber(), orderParameters1.getInitVecDownParticleNumber());
+		assertThat(((DenseMatrix) hamiltonian1.getBdGHamiltonian()).getData(), is(actualBdGHamiltonian));
+	}
+
 	/**
 	 * 粒子数、超流動パラメータ初期値を取得するメソッドのテストです
 	 * 
@@ -115,6 +160,355 @@ public class BdGHamiltonianTest {
 		assertThat(arrayDownSpinParticleNumber, is(actualDownSpinParticleNumber));
 	}
 	
+	/**
+	 * 粒子数と超流動パラメータを同時に算出するメソッドのテストです</br>
+	 * エネルギー窓の固有値数が少なく、求めた最大の固有値が k_B T ln(1/ε) に達しない場合は例外となること
+	 * 
+	 * @throws Exception
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void test_calcObservables_N003() throws Exception {
+
+		final double temperature = 0.2;
+
+		ParameterFile paramFile = mock(ParameterFile.class, RETURNS_DEEP_STUBS);
+		when(paramFile.getParamInfo().getLatticeSize()).thenReturn(4);
+		when(paramFile.getParamInfo().getHoppingEnergy()).thenReturn(1.0);
+		when(paramFile.getParamInfo().getExternalPotentialCoefficient()).thenReturn(0.04);
+		when(paramFile.getParamInfo().getBoltzmannConst()).thenReturn(1.0);
+		when(paramFile.getParamInfo().getChmicalPotential()).thenReturn(0.5);
+		when(paramFile.getParamInfo().getMagneticField()).thenReturn(0.3);
+		when(paramFile.getParamInfo().getInterparticleInteraction()).thenReturn(-5.0);
+		when(paramFile.getParamInfo().getEnergyWindowMode()).thenReturn("lowest");
+		when(paramFile.getParamInfo().getEnergyWindowEigenNumber()).thenReturn(16);
+
+		BdGHamiltonian hamiltonian = new BdGHamiltonian(paramFile, null);
+		int matrixSize = hamiltonian.getMatrixSize();
+
+		Random random = new Random(5);
+		Vector pairPotentialEnergy = new DenseVector(matrixSize);
+		Vector upParticleNumber = new DenseVector(matrixSize);
+		Vector downParticleNumber = new DenseVector(matrixSize);
+		for (int i = 0; i < matrixSize / 2; i++) {
+			pairPotentialEnergy.set(i, random.nextDouble());
+			upParticleNumber.set(i, random.nextDouble());
+			downParticleNumber.set(i, random.nextDouble());
+		}
+		hamiltonian.makeBdGHamiltonian(pairPotentialEnergy, upParticleNumber, downParticleNumber, temperature);
+
+		SolverOfEigenValueEq solver = new SolverOfEigenValueEq();
+		assertThat(solver.solveEigenValueEq(hamiltonian.getBdGHamiltonian(), false, hamiltonian.getEnergyWindow()), is(0));
+		assertThat(solver.getEigenSystem().getCount(), is(16));
+
+		hamiltonian.calcObservables(solver.getEigenSystem(), temperature);
+	}
+
+	/**
+	 * BdGハミルトニアンを作成するメソッドのテストです</br>
+	 * 全行列要素を走査する従来の組み立て方法とビット単位で一致すること
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void test_makeBdGHamiltonian_N003() throws Exception {
+
+		for (int latticeSize = 2; latticeSize <= 5; latticeSize++) {
+			ParameterFile paramFile = mock(ParameterFile.class, RETURNS_DEEP_STUBS);
+			when(paramFile.getParamInfo().getLatticeSize()).thenReturn(latticeSize);
+			when(paramFile.getParamInfo().getHoppingEnergy()).thenReturn(1.0);
+			when(paramFile.getParamInfo().getExternalPotentialCoefficient()).thenReturn(0.04);
+			when(paramFile.getParamInfo().getBoltzmannConst()).thenReturn(1.0);
+			when(paramFile.getParamInfo().getChmicalPotential()).thenReturn(0.5);
+			when(paramFile.getParamInfo().getMagneticField()).thenReturn(0.3);
+			when(paramFile.getParamInfo().getInterparticleInteraction()).thenReturn(-5.0);
+
+			BdGHamiltonian hamiltonian = new BdGHamiltonian(paramFile, null);
+			int matrixSize = hamiltonian.getMatrixSize();
+
+			Random random = new Random(latticeSize);
+			Vector pairPotentialEnergy = new DenseVector(matrixSize);
+			Vector upParticleNumber = new DenseVector(matrixSize);
+			Vector downParticleNumber = new DenseVector(matrixSize);
+			for (int i = 0; i < matrixSize / 2; i++) {
+				pairPotentialEnergy.set(i, random.nextDouble());
+				upParticleNumber.set(i, random.nextDouble());
+				downParticleNumber.set(i, random.nextDouble());
+			}
+
+			hamiltonian.makeBdGHamiltonian(pairPotentialEnergy, upParticleNumber, downParticleNumber, 1.0);
+			double[] arrayBdGHamiltonian = ((DenseMatrix) hamiltonian.getBdGHamiltonian()).getData();
+
+			double[] actualBdGHamiltonian = makeReferenceBdGHamiltonian(latticeSize, 1.0, 0.8, 0.2, 0.04, -5.0, pairPotentialEnergy, upParticleNumber, downParticleNumber);
+			assertThat(arrayBdGHamiltonian, is(actualBdGHamiltonian));
+		}
+	}
+
+	/**
+	 * BdGハミルトニアンを更新するメソッドのテストです</br>
+	 * 2回目以降の作成では同じ行列が再利用され、新たに作成した場合と一致すること
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void test_updateBdGHamiltonian_N001() throws Exception {
+
+		ParameterFile paramFile = mock(ParameterFile.class, RETURNS_DEEP_STUBS);
+		when(paramFile.getParamInfo().getLatticeSize()).thenReturn(4);
+		when(paramFile.getParamInfo().getHoppingEnergy()).thenReturn(1.0);
+		when(paramFile.getParamInfo().getExternalPotentialCoefficient()).thenReturn(0.04);
+		when(paramFile.getParamInfo().getBoltzmannConst()).thenReturn(1.0);
+		when(paramFile.getParamInfo().getChmicalPotential()).thenReturn(0.5);
+		when(paramFile.getParamInfo().getMagneticField()).thenReturn(0.3);
+		when(paramFile.getParamInfo().getInterparticleInteraction()).thenReturn(-5.0);
+
+		BdGHamiltonian hamiltonian = new BdGHamiltonian(paramFile, null);
+		int matrixSize = hamiltonian.getMatrixSize();
+
+		Random random = new Random(0);
+		Vector pairPotentialEnergy = new DenseVector(matrixSize);
+		Vector upParticleNumber = new DenseVector(matrixSize);
+		Vector downParticleNumber = new DenseVector(matrixSize);
+		for (int cnt = 0; cnt < 3; cnt++) {
+			for (int i = 0; i < matrixSize / 2; i++) {
+				pairPotentialEnergy.set(i, random.nextDouble());
+				upParticleNumber.set(i, random.nextDouble());
+				downParticleNumber.set(i, random.nextDouble());
+			}
+			hamiltonian.makeBdGHamiltonian(pairPotentialEnergy, upParticleNumber, downParticleNumber, 1.0);
+		}
+		Matrix bdGHamiltonian = hamiltonian.getBdGHamiltonian();
+
+		pairPotentialEnergy.set(0, -0.0);
+		hamiltonian.updateBdGHamiltonian(pairPotentialEnergy, upParticleNumber, downParticleNumber);
+
+		assertThat(hamiltonian.getBdGHamiltonian() == bdGHamiltonian, is(true));
+		double[] actualBdGHamiltonian = makeReferenceBdGHamiltonian(4, 1.0, 0.8, 0.2, 0.04, -5.0, pairPotentialEnergy, upParticleNumber, downParticleNumber);
+		assertThat(((DenseMatrix) bdGHamiltonian).getData(), is(actualBdGHamiltonian));
+	}
+
+	/**
+	 * BdGハミルトニアンを作成するメソッドのテストです</br>
+	 * 疎行列処理フラグ設定時は圧縮行格納形式で作成され、密行列と同じ要素を持つこと
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void test_makeBdGHamiltonian_N004() throws Exception {
+
+		ParameterFile paramFile = mock(ParameterFile.class, RETURNS_DEEP_STUBS);
+		when(paramFile.getParamInfo().getLatticeSize()).thenReturn(4);
+		when(paramFile.getParamInfo().getHoppingEnergy()).thenReturn(1.0);
+		when(paramFile.getParamInfo().getExternalPotentialCoefficient()).thenReturn(0.04);
+		when(paramFile.getParamInfo().getBoltzmannConst()).thenReturn(1.0);
+		when(paramFile.getParamInfo().getChmicalPotential()).thenReturn(0.5);
+		when(paramFile.getParamInfo().getMagneticField()).thenReturn(0.3);
+		when(paramFile.getParamInfo().getInterparticleInteraction()).thenReturn(-5.0);
+		when(paramFile.getParamInfo().getUseSparseMatrix()).thenReturn(true);
+
+		PathInfo pathInfo = new PathInfo();
+		pathInfo.setStrPwd(temporaryFolder.getRoot().getPath());
+		pathInfo.setSparsePath("sparse.mtx");
+
+		BdGHamiltonian hamiltonian = new BdGHamiltonian(paramFile, pathInfo);
+		int matrixSize = hamiltonian.getMatrixSize();
+
+		Random random = new Random(1);
+		Vector pairPotentialEnergy = new DenseVector(matrixSize);
+		Vector upParticleNumber = new DenseVector(matrixSize);
+		Vector downParticleNumber = new DenseVector(matrixSize);
+		for (int i = 0; i < matrixSize / 2; i++) {
+			pairPotentialEnergy.set(i, random.nextDouble());
+			upParticleNumber.set(i, random.nextDouble());
+			downParticleNumber.set(i, random.nextDouble());
+		}
+		hamiltonian.makeBdGHamiltonian(pairPotentialEnergy, upParticleNumber, downParticleNumber, 1.0);
+
+		Matrix bdGHamiltonian = hamiltonian.getBdGHamiltonian();
+		assertThat(bdGHamiltonian instanceof CompRowMatrix, is(true));
+		assertThat(((CompRowMatrix) bdGHamiltonian).getData().length, is(6 * matrixSize));
+
+		double[] actualBdGHamiltonian = makeReferenceBdGHamiltonian(4, 1.0, 0.8, 0.2, 0.04, -5.0, pairPotentialEnergy, upParticleNumber, downParticleNumber);
+		assertThat(new DenseMatrix(bdGHamiltonian).getData(), is(actualBdGHamiltonian));
+
+		// 疎行列情報ファイル (ヘッダ2行 + 非ゼロ要素)
+		List<String> lines = Files.readAllLines(new File(temporaryFolder.getRoot(), "sparse.mtx").toPath());
+		assertThat(lines.size(), is(2 + 6 * matrixSize));
+	}
+
+	/**
+	 * 粒子数と超流動パラメータを算出するメソッドのテストです</br>
+	 * エネルギー窓で打ち切った固有対から算出した値が、全固有対から算出した値と一致すること
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void test_calcAverageParticleNum_N003() throws Exception {
+
+		final double temperature = 0.05;
+		final double cutoff = 1.5;
+
+		Map<SpinState, Vector> expectedParticleNum = null;
+		Vector expectedPairPotential = null;
+		for (String mode : new String[] { "all", "lowest", "highest" }) {
+
+			ParameterFile paramFile = mock(ParameterFile.class, RETURNS_DEEP_STUBS);
+			when(paramFile.getParamInfo().getLatticeSize()).thenReturn(4);
+			when(paramFile.getParamInfo().getHoppingEnergy()).thenReturn(1.0);
+			when(paramFile.getParamInfo().getExternalPotentialCoefficient()).thenReturn(0.04);
+			when(paramFile.getParamInfo().getBoltzmannConst()).thenReturn(1.0);
+			when(paramFile.getParamInfo().getChmicalPotential()).thenReturn(0.5);
+			when(paramFile.getParamInfo().getMagneticField()).thenReturn(0.3);
+			when(paramFile.getParamInfo().getInterparticleInteraction()).thenReturn(-5.0);
+			when(paramFile.getParamInfo().getEnergyWindowMode()).thenReturn(mode);
+			when(paramFile.getParamInfo().getEnergyWindowCutoff()).thenReturn("lowest".equals(mode) ? cutoff : -cutoff);
+
+			BdGHamiltonian hamiltonian = new BdGHamiltonian(paramFile, null);
+			int matrixSize = hamiltonian.getMatrixSize();
+
+			Random random = new Random(2);
+			Vector pairPotentialEnergy = new DenseVector(matrixSize);
+			Vector upParticleNumber = new DenseVector(matrixSize);
+			Vector downParticleNumber = new DenseVector(matrixSize);
+			for (int i = 0; i < matrixSize / 2; i++) {
+				pairPotentialEnergy.set(i, random.nextDouble());
+				upParticleNumber.set(i, random.nextDouble());
+				downParticleNumber.set(i, random.nextDouble());
+			}
+			hamiltonian.makeBdGHamiltonian(pairPotentialEnergy, upParticleNumber, downParticleNumber, temperature);
+
+			SolverOfEigenValueEq solver = new SolverOfEigenValueEq();
+			assertThat(solver.solveEigenValueEq(hamiltonian.getBdGHamiltonian(), false, hamiltonian.getEnergyWindow()), is(0));
+			Multimap<Double, Vector> mapEigen = solver.getEigenValueAndEigenVectorMap();
+
+			Map<SpinState, Vector> particleNum = hamiltonian.calcAverageParticleNum(mapEigen, temperature);
+			Vector pairPotential = hamiltonian.calcSuperfluidOrderParameter(mapEigen, temperature);
+			if (expectedParticleNum == null) {
+				expectedParticleNum = particleNum;
+				expectedPairPotential = pairPotential;
+				continue;
+			}
+
+			assertThat(mapEigen.size() < matrixSize, is(true));
+			for (int i = 0; i < matrixSize / 2; i++) {
+				assertEquals(expectedParticleNum.get(SpinState.UP_STATE).get(i), particleNum.get(SpinState.UP_STATE).get(i), DELTA);
+				assertEquals(expectedParticleNum.get(SpinState.DOWN_STATE).get(i), particleNum.get(SpinState.DOWN_STATE).get(i), DELTA);
+				assertEquals(expectedPairPotential.get(i), pairPotential.get(i), DELTA);
+			}
+		}
+	}
+
+	/**
+	 * 粒子数と超流動パラメータを同時に算出するメソッドのテストです</br>
+	 * 固有対ごとに Fermi 分布関数を評価する定義通りの和と一致すること
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void test_calcObservables_N001() throws Exception {
+
+		final double temperature = 0.2;
+
+		ParameterFile paramFile = mock(ParameterFile.class, RETURNS_DEEP_STUBS);
+		when(paramFile.getParamInfo().getLatticeSize()).thenReturn(4);
+		when(paramFile.getParamInfo().getHoppingEnergy()).thenReturn(1.0);
+		when(paramFile.getParamInfo().getExternalPotentialCoefficient()).thenReturn(0.04);
+		when(paramFile.getParamInfo().getBoltzmannConst()).thenReturn(1.0);
+		when(paramFile.getParamInfo().getChmicalPotential()).thenReturn(0.5);
+		when(paramFile.getParamInfo().getMagneticField()).thenReturn(0.3);
+		when(paramFile.getParamInfo().getInterparticleInteraction()).thenReturn(-5.0);
+
+		BdGHamiltonian hamiltonian = new BdGHamiltonian(paramFile, null);
+		int matrixSize = hamiltonian.getMatrixSize();
+		int siteNum = matrixSize / 2;
+
+		Random random = new Random(5);
+		Vector pairPotentialEnergy = new DenseVector(matrixSize);
+		Vector upParticleNumber = new DenseVector(matrixSize);
+		Vector downParticleNumber = new DenseVector(matrixSize);
+		for (int i = 0; i < siteNum; i++) {
+			pairPotentialEnergy.set(i, random.nextDouble());
+			upParticleNumber.set(i, random.nextDouble());
+			downParticleNumber.set(i, random.nextDouble());
+		}
+		hamiltonian.makeBdGHamiltonian(pairPotentialEnergy, upParticleNumber, downParticleNumber, temperature);
+
+		SolverOfEigenValueEq solver = new SolverOfEigenValueEq();
+		assertThat(solver.solveEigenValueEq(hamiltonian.getBdGHamiltonian()), is(0));
+		EigenSystem eigenSystem = solver.getEigenSystem();
+
+		BdGHamiltonian.Observables observables = hamiltonian.calcObservables(eigenSystem, temperature);
+
+		for (int j = 0; j < siteNum; j++) {
+			double expectedUp = 0.0;
+			double expectedDown = 0.0;
+			double expectedPair = 0.0;
+			for (int n = 0; n < eigenSystem.getCount(); n++) {
+				double u = eigenSystem.getVector(n, j);
+				double v = eigenSystem.getVector(n, j + siteNum);
+				double fermi = 1.0 / (Math.exp(eigenSystem.getValue(n) / temperature) + 1.0);
+				expectedUp += u * u * fermi;
+				expectedDown += v * v * (1.0 - fermi);
+				expectedPair += u * v * fermi;
+			}
+			assertEquals(expectedUp, observables.getUpParticleNumber().get(j), 1.0e-12);
+			assertEquals(expectedDown, observables.getDownParticleNumber().get(j), 1.0e-12);
+			assertEquals(-5.0 * expectedPair, observables.getPairPotentialEnergy().get(j), 1.0e-12);
+		}
+	}
+
+	/**
+	 * 粒子数と超流動パラメータを同時に算出するメソッドのテストです</br>
+	 * 並列計算のスレッド数によらず、結果がビット単位で一致すること
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void test_calcObservables_N002() throws Exception {
+
+		final double temperature = 0.2;
+
+		BdGHamiltonian.Observables expected = null;
+		for (int threadNumber : new int[] { 1, 3, 0 }) {
+			ParameterFile paramFile = mock(ParameterFile.class, RETURNS_DEEP_STUBS);
+			when(paramFile.getParamInfo().getLatticeSize()).thenReturn(10);
+			when(paramFile.getParamInfo().getHoppingEnergy()).thenReturn(1.0);
+			when(paramFile.getParamInfo().getExternalPotentialCoefficient()).thenReturn(0.04);
+			when(paramFile.getParamInfo().getBoltzmannConst()).thenReturn(1.0);
+			when(paramFile.getParamInfo().getChmicalPotential()).thenReturn(0.5);
+			when(paramFile.getParamInfo().getMagneticField()).thenReturn(0.3);
+			when(paramFile.getParamInfo().getInterparticleInteraction()).thenReturn(-5.0);
+			when(paramFile.getParamInfo().getThreadNumber()).thenReturn(threadNumber);
+
+			BdGHamiltonian hamiltonian = new BdGHamiltonian(paramFile, null);
+			int matrixSize = hamiltonian.getMatrixSize();
+
+			Random random = new Random(11);
+			Vector pairPotentialEnergy = new DenseVector(matrixSize);
+			Vector upParticleNumber = new DenseVector(matrixSize);
+			Vector downParticleNumber = new DenseVector(matrixSize);
+			for (int i = 0; i < matrixSize / 2; i++) {
+				pairPotentialEnergy.set(i, random.nextDouble());
+				upParticleNumber.set(i, random.nextDouble());
+				downParticleNumber.set(i, random.nextDouble());
+			}
+			hamiltonian.makeBdGHamiltonian(pairPotentialEnergy, upParticleNumber, downParticleNumber, temperature);
+
+			SolverOfEigenValueEq solver = new SolverOfEigenValueEq();
+			assertThat(solver.solveEigenValueEq(hamiltonian.getBdGHamiltonian()), is(0));
+			BdGHamiltonian.Observables observables = hamiltonian.calcObservables(solver.getEigenSystem(), temperature);
+			if (expected == null) {
+				expected = observables;
+				continue;
+			}
+
+			for (int j = 0; j < matrixSize / 2; j++) {
+				assertEquals(expected.getUpParticleNumber().get(j), observables.getUpParticleNumber().get(j), 0.0);
+				assertEquals(expected.getDownParticleNumber().get(j), observables.getDownParticleNumber().get(j), 0.0);
+				assertEquals(expected.getPairPotentialEnergy().get(j), observables.getPairPotentialEnergy().get(j), 0.0);
+			}
+		}
+	}
+
 	/**
 	 * BdGハミルトニアンを作成するメソッドのテストです</br>
 	 * 8 * 8 行列
@@ -565,6 +959,103 @@ public class BdGHamiltonianTest {
 //		}
 //	}
 
+	/**
+	 * 全行列要素を走査してBdGハミルトニアンを作成する (比較用)
+	 * 
+	 * @return BdGハミルトニアン (列優先)
+	 */
+	private static double[] makeReferenceBdGHamiltonian(int latticeSize, double hoppingEnergy, double upChemicalPotential, double downChemicalPotential, double potentialStrength, double interaction, Vector pairPotentialEnergy, Vector upParticleNumber, Vector downParticleNumber) {
+
+		int matrixSize = 2 * latticeSize * latticeSize;
+		Matrix Hamiltonian = new DenseMatrix(matrixSize, matrixSize);
+
+		for (int i = 0; i < matrixSize; i++) {
+			for (int j = 0; j < matrixSize; j++) {
+				if (i < matrixSize / 2 && j < matrixSize / 2) {
+					if ((i + latticeSize == j) || (i == j + latticeSize)) {
+						Hamiltonian.add(i, j, -hoppingEnergy);
+					}
+					if ((i + latticeSize * (latticeSize - 1) == j) || (i == j + latticeSize * (latticeSize - 1))) {
+						Hamiltonian.add(i, j, -hoppingEnergy);
+					}
+					if ((i + 1 == j) || (i == j + 1)) {
+						Hamiltonian.add(i, j, -hoppingEnergy);
+					}
+					for (int k = 0; k <= latticeSize; k++) {
+						if ((i == latticeSize * k + (latticeSize - 1) && j == latticeSize * k) || (j == latticeSize * k + (latticeSize - 1) && i == latticeSize * k)) {
+							Hamiltonian.add(i, j, -hoppingEnergy);
+						}
+					}
+					for (int k = 0; k < latticeSize; k++) {
+						if ((i == latticeSize * k + latticeSize && j == latticeSize * k + (latticeSize - 1)) || (i == latticeSize * k + (latticeSize - 1) && j == latticeSize * k + latticeSize)) {
+							Hamiltonian.set(i, j, 0.0);
+						}
+					}
+				} else if (i >= matrixSize / 2 && j >= matrixSize / 2) {
+					if ((i + latticeSize == j) || (i == j + latticeSize)) {
+						Hamiltonian.add(i, j, hoppingEnergy);
+					}
+					if ((i + latticeSize * (latticeSize - 1) == j) || (i == j + latticeSize * (latticeSize - 1))) {
+						Hamiltonian.add(i, j, hoppingEnergy);
+					}
+					if ((i + 1 == j) || (i == j + 1)) {
+						Hamiltonian.add(i, j, hoppingEnergy);
+					}
+					for (int k = 0; k <= latticeSize * latticeSize; k++) {
+						if ((i == latticeSize * k + (latticeSize - 1) && j == latticeSize * k) || (j == latticeSize * k + (latticeSize - 1) && i == latticeSize * k)) {
+							Hamiltonian.add(i, j, hoppingEnergy);
+						}
+					}
+					for (int k = 0; k < latticeSize * latticeSize; k++) {
+						if ((i == latticeSize * k + latticeSize && j == latticeSize * k + (latticeSize - 1)) || (i == latticeSize * k + (latticeSize - 1) && j == latticeSize * k + latticeSize)) {
+							Hamiltonian.set(i, j, 0.0);
+						}
+					}
+				}
+
+				if (i < matrixSize / 2 && j < matrixSize / 2) {
+					if (i == j) {
+						Hamiltonian.add(i, j, -upChemicalPotential);
+					}
+				} else if (i >= matrixSize / 2 && j >= matrixSize / 2) {
+					if (i == j) {
+						Hamiltonian.add(i, j, downChemicalPotential);
+					}
+				}
+
+				if ((i < matrixSize / 2 && j >= matrixSize / 2) && (i + matrixSize / 2 == j)) {
+					Hamiltonian.add(i, j, pairPotentialEnergy.get(i));
+				} else if ((i >= matrixSize / 2 && j < matrixSize / 2) && (i == j + matrixSize / 2)) {
+					Hamiltonian.add(i, j, pairPotentialEnergy.get(j));
+				}
+			}
+		}
+
+		for (int i = matrixSize / 2; i < matrixSize; i++) {
+			for (int k = 0; k < latticeSize; k++) {
+				if (i >= latticeSize * k + matrixSize / 2 && i < latticeSize * (k + 1) + matrixSize / 2) {
+					double x = (-((double) latticeSize - 1) / 2) + (double) i - (double) (matrixSize / 2) - (double) (latticeSize) * (double) k;
+					double y = ((double) latticeSize - 1) / 2 - (double) k;
+					double potential = potentialStrength * (Math.pow(x, 2) + Math.pow(y, 2));
+					Hamiltonian.add(i, i, -potential - interaction * upParticleNumber.get(i - matrixSize / 2));
+				}
+			}
+		}
+
+		for (int i = 0; i < matrixSize / 2; i++) {
+			for (int k = 0; k < latticeSize; k++) {
+				if (i >= latticeSize * k && i < latticeSize * (k + 1)) {
+					double x = (-((double) latticeSize - 1) / 2) + (double) i - (double) latticeSize * (double) k;
+					double y = ((double) latticeSize - 1) / 2 - (double) k;
+					double potential = potentialStrength * (Math.pow(x, 2) + Math.pow(y, 2));
+					Hamiltonian.add(i, i, potential + interaction * downParticleNumber.get(i));
+				}
+			}
+		}
+
+		return ((DenseMatrix) Hamiltonian).getData();
+	}
+
 	/**
 	 * private変数の値を取得する
 	 * 
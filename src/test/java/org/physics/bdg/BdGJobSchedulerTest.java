@@ -0,0 +1,143 @@
+package org.physics.bdg;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class BdGJobSchedulerTest {
+
+	static final long MEMORY = 1L << 20;
+
+	/**
+	 * ジョブの終了順によらず、計算結果が投入順に並ぶことを確認するテストです。
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void test_invokeAll_N001() throws Exception {
+
+		List<BdGJobScheduler.Job<Integer>> jobs = Lists.newArrayList();
+		for (int i = 0; i < 8; i++) {
+			// 後に投入したジョブほど早く終わる
+			jobs.add(new SleepJob(i, 5 * (8 - i), MEMORY));
+		}
+
+		BdGJobScheduler scheduler = new BdGJobScheduler(4, 100 * MEMORY);
+		List<Integer> results = scheduler.invokeAll(jobs);
+		assertThat(results, is((List<Integer>) Lists.newArrayList(0, 1, 2, 3, 4, 5, 6, 7)));
+		assertThat(scheduler.getMaxRunningJobs() <= 4, is(true));
+	}
+
+	/**
+	 * メモリ枠に収まる数のジョブのみ同時に実行し、1つで枠を超えるジョブも単独で実行されることを確認するテストです。
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void test_invokeAll_N002() throws Exception {
+
+		List<BdGJobScheduler.Job<Integer>> jobs = Lists.newArrayList();
+		for (int i = 0; i < 6; i++) {
+			jobs.add(new SleepJob(i, 20, MEMORY));
+		}
+		BdGJobScheduler scheduler = new BdGJobScheduler(4, 2 * MEMORY);
+		assertThat(scheduler.invokeAll(jobs).size(), is(6));
+		assertThat(scheduler.getMaxRunningJobs() <= 2, is(true));
+
+		List<BdGJobScheduler.Job<Integer>> largeJobs = Lists.newArrayList();
+		largeJobs.add(new SleepJob(0, 20, 3 * MEMORY));
+		largeJobs.add(new SleepJob(1, 20, 3 * MEMORY));
+		BdGJobScheduler largeScheduler = new BdGJobScheduler(4, 2 * MEMORY);
+		assertThat(largeScheduler.invokeAll(largeJobs), is((List<Integer>) Lists.newArrayList(0, 1)));
+		assertThat(largeScheduler.getMaxRunningJobs(), is(1));
+	}
+
+	/**
+	 * ジョブが例外で終了した場合に、その例外が原因として送出されることを確認するテストです。
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void test_invokeAll_N003() throws Exception {
+
+		List<BdGJobScheduler.Job<Integer>> jobs = Lists.newArrayList();
+		jobs.add(new SleepJob(0, 1, MEMORY));
+		jobs.add(new BdGJobScheduler.Job<Integer>() {
+			@Override
+			public long getEstimatedMemory() {
+				return MEMORY;
+			}
+
+			@Override
+			public Integer call() throws IOException {
+				throw new IOException("failure");
+			}
+		});
+
+		try {
+			new BdGJobScheduler(2, 100 * MEMORY).invokeAll(jobs);
+			assertThat("ExecutionException is expected", false, is(true));
+		} catch (ExecutionException e) {
+			assertThat(e.getCause() instanceof IOException, is(true));
+		}
+	}
+
+	/**
+	 * 密行列の対角化では行列サイズの2乗、Lanczos法では固有値数に比例してピークメモリを見積もることを確認するテストです。
+	 */
+	@Test
+	public void test_estimateMemory_N001() {
+
+		ParamInfo param = mock(ParamInfo.class);
+		when(param.getLatticeSize()).thenReturn(10);
+		when(param.getEnergyWindowMode()).thenReturn("all");
+		when(param.getScfEngine()).thenReturn("dense");
+		long dense = BdGJobScheduler.estimateMemory(param);
+		assertThat(dense >= 8L * 4 * 200 * 200, is(true));
+
+		when(param.getLatticeSize()).thenReturn(20);
+		assertThat(BdGJobScheduler.estimateMemory(param) > 15 * dense, is(true));
+
+		when(param.getScfEngine()).thenReturn("lanczos");
+		when(param.getEnergyWindowMode()).thenReturn("lowest");
+		when(param.getEnergyWindowEigenNumber()).thenReturn(10);
+		long lanczos = BdGJobScheduler.estimateMemory(param);
+		assertThat(lanczos * 10 < 16 * dense, is(true));
+	}
+
+	/**
+	 * 指定時間後に番号を返すジョブ
+	 */
+	private static class SleepJob implements BdGJobScheduler.Job<Integer> {
+
+		private final int m_index;
+		private final long m_sleep;
+		private final long m_memory;
+
+		SleepJob(int index, long sleep, long memory) {
+			m_index = index;
+			m_sleep = sleep;
+			m_memory = memory;
+		}
+
+		@Override
+		public long getEstimatedMemory() {
+			return m_memory;
+		}
+
+		@Override
+		public Integer call() throws InterruptedException {
+			Thread.sleep(m_sleep);
+			return m_index;
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package org.physics.bdg;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import no.uib.cipr.matrix.DenseVector;
+
+import org.junit.Test;
+import org.physics.bdg.BdGHamiltonian.Observables;
+
+public class ConvergenceCriterionTest {
+
+	static final double DELTA = 1.0e-15;
+
+	/**
+	 * 最大値ノルム、二乗平均平方根、相対ノルムがそれぞれ期待値と一致することを確認するテストです。</br>
+	 * ベクトルの格子点数より後ろの成分は判定に用いないこと
+	 */
+	@Test
+	public void test_isConvergence_N001() {
+
+		Observables input = makeObservables(new double[] { 1.0, 2.0, 0.0, 0.0, 9.0 }, new double[] { 0.5, 0.5, 0.5, 0.5, 9.0 }, new double[] { 0.1, 0.2, 0.3, 0.4, 9.0 });
+		Observables output = makeObservables(new double[] { 1.0, 2.0, 0.0, 0.4, -9.0 }, new double[] { 0.5, 0.2, 0.5, 0.9, -9.0 }, new double[] { 0.1, 0.2, 0.3, 0.4, -9.0 });
+
+		ConvergenceCriterion max = new ConvergenceCriterion(ConvergenceCriterion.Norm.MAX, 0.35, 4);
+		assertThat(max.isConvergence(input, output), is(false));
+		assertEquals(0.4, max.getPairPotentialResidual(), DELTA);
+		assertEquals(0.4, max.getUpParticleResidual(), DELTA);
+		assertEquals(0.0, max.getDownParticleResidual(), DELTA);
+		assertEquals(0.4, max.getResidual(), DELTA);
+
+		ConvergenceCriterion l2 = new ConvergenceCriterion(ConvergenceCriterion.Norm.L2, 0.22, 4);
+		assertThat(l2.isConvergence(input, output), is(false));
+		assertEquals(Math.sqrt(0.16 / 4), l2.getPairPotentialResidual(), DELTA);
+		assertEquals(Math.sqrt((0.09 + 0.16) / 4), l2.getUpParticleResidual(), DELTA);
+
+		ConvergenceCriterion relative = new ConvergenceCriterion(ConvergenceCriterion.Norm.RELATIVE, 0.5, 4);
+		assertThat(relative.isConvergence(input, output), is(true));
+		assertEquals(Math.sqrt(0.16 / (1.0 + 4.0 + 0.16)), relative.getPairPotentialResidual(), DELTA);
+		assertEquals(Math.sqrt((0.09 + 0.16) / (0.25 + 0.04 + 0.25 + 0.81)), relative.getUpParticleResidual(), DELTA);
+		assertEquals(0.0, relative.getDownParticleResidual(), DELTA);
+	}
+
+	/**
+	 * 超流動パラメータが収束していても、粒子数が1格子点でも収束判定値以上動いていれば収束としないことを確認するテストです。
+	 */
+	@Test
+	public void test_isConvergence_N002() {
+
+		double[] pair = { 0.3, 0.3, 0.3, 0.3 };
+		double[] density = { 0.5, 0.5, 0.5, 0.5 };
+		double[] movedDensity = { 0.5, 0.5, 0.5, 0.5 + 1.0e-3 };
+
+		ConvergenceCriterion criterion = new ConvergenceCriterion(ConvergenceCriterion.Norm.MAX, 1.0e-3, 4);
+		assertThat(criterion.isConvergence(makeObservables(pair, density, density), makeObservables(pair, density, movedDensity)), is(false));
+		assertThat(criterion.isConvergence(makeObservables(pair, density, density), makeObservables(pair, density, density)), is(true));
+		assertEquals(0.0, criterion.getResidual(), 0.0);
+	}
+
+	/**
+	 * パラメータ設定値からノルムを取得できることを確認するテストです。
+	 */
+	@Test
+	public void test_of_N001() {
+		assertThat(ConvergenceCriterion.Norm.of(null), is(ConvergenceCriterion.Norm.MAX));
+		assertThat(ConvergenceCriterion.Norm.of(" l2 "), is(ConvergenceCriterion.Norm.L2));
+		assertThat(ConvergenceCriterion.Norm.of("Relative"), is(ConvergenceCriterion.Norm.RELATIVE));
+	}
+
+	private static Observables makeObservables(double[] pair, double[] up, double[] down) {
+		return new Observables(new DenseVector(pair), new DenseVector(up), new DenseVector(down));
+	}
+}
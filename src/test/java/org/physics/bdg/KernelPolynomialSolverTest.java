@@ -0,0 +1,186 @@
+package org.physics.bdg;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import no.uib.cipr.matrix.DenseVector;
+import no.uib.cipr.matrix.Vector;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.physics.bdg.BdGHamiltonian.SpinState;
+
+import com.google.common.collect.Sets;
+
+public class KernelPolynomialSolverTest {
+
+	static final double TEMPERATURE = 0.5;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * 減衰カーネルなしで十分な展開次数を与えた場合に、粒子数と超流動パラメータが密行列の対角化の結果と一致することを確認するテストです。</br>
+	 * 行列を保持しない作用素と、行列で保持したBdGハミルトニアン作用素の両方で確認する
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void test_solve_N001() throws Exception {
+
+		BdGHamiltonian hamiltonian = makeBdGHamiltonian(6);
+		Vector[] orderParameter = makeOrderParameter(hamiltonian.getMatrixSize());
+		hamiltonian.makeBdGHamiltonian(orderParameter[0], orderParameter[1], orderParameter[2], TEMPERATURE);
+
+		BdGHamiltonianOperator[] operators = {
+				hamiltonian.makeBdGHamiltonianOperator(orderParameter[0], orderParameter[1], orderParameter[2]),
+				new MatrixBdGHamiltonianOperator(hamiltonian.getBdGHamiltonian()) };
+		for (BdGHamiltonianOperator operator : operators) {
+			KernelPolynomialSolver solver = new KernelPolynomialSolver();
+			solver.setKernel(KernelPolynomialSolver.Kernel.DIRICHLET);
+			solver.setOrder(512);
+			assertThat(solver.solve(operator, TEMPERATURE, 1.0), is(0));
+			assertThat(solver.getErrorEstimate() < 1.0e-10, is(true));
+
+			assertObservables(hamiltonian, solver, 1.0e-9);
+		}
+	}
+
+	/**
+	 * Jacksonカーネル、Lorentzカーネルでは密行列の対角化の結果との差が誤差の見積もり以内に収まることを確認するテストです。</br>
+	 * 展開次数が格子の直径より小さく、格子点ごとの計算が近傍領域に限定される場合も含む
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void test_solve_N002() throws Exception {
+
+		BdGHamiltonian hamiltonian = makeBdGHamiltonian(12);
+		Vector[] orderParameter = makeOrderParameter(hamiltonian.getMatrixSize());
+		hamiltonian.makeBdGHamiltonian(orderParameter[0], orderParameter[1], orderParameter[2], TEMPERATURE);
+		BdGHamiltonianOperator operator = hamiltonian.makeBdGHamiltonianOperator(orderParameter[0], orderParameter[1], orderParameter[2]);
+
+		for (KernelPolynomialSolver.Kernel kernel : new KernelPolynomialSolver.Kernel[] { KernelPolynomialSolver.Kernel.JACKSON, KernelPolynomialSolver.Kernel.LORENTZ }) {
+			KernelPolynomialSolver solver = new KernelPolynomialSolver();
+			solver.setKernel(kernel);
+			solver.setOrder(128);
+			assertThat(solver.solve(operator, TEMPERATURE, 1.0), is(0));
+			assertThat(solver.getErrorEstimate() < 0.1, is(true));
+
+			// 超流動パラメータは |U| 倍の誤差となる
+			assertObservables(hamiltonian, solver, 5.0 * solver.getErrorEstimate());
+		}
+	}
+
+	/**
+	 * スレッドプールを指定した場合に、スペクトル範囲を求めるLanczos法と格子点ごとの計算の作用素の適用がすべて指定したスレッドプールで行われ、
+	 * 密行列の対角化の結果と一致することを確認するテストです。
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void test_solve_N003() throws Exception {
+
+		BdGHamiltonian hamiltonian = makeBdGHamiltonian(6);
+		Vector[] orderParameter = makeOrderParameter(hamiltonian.getMatrixSize());
+		hamiltonian.makeBdGHamiltonian(orderParameter[0], orderParameter[1], orderParameter[2], TEMPERATURE);
+		final ForkJoinPool pool = ComputePool.get(2);
+		final Set<ForkJoinPool> usedPools = Sets.newConcurrentHashSet();
+		BdGHamiltonianOperator operator = new MatrixBdGHamiltonianOperator(hamiltonian.getBdGHamiltonian()) {
+			@Override
+			public void multiply(double[] x, double[] y, int fromRow, int toRow) {
+				usedPools.add(ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool() : ForkJoinPool.commonPool());
+				super.multiply(x, y, fromRow, toRow);
+			}
+
+			@Override
+			public void multiplySite(double[] x, double[] y, int site) {
+				usedPools.add(ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool() : ForkJoinPool.commonPool());
+				super.multiplySite(x, y, site);
+			}
+		};
+
+		KernelPolynomialSolver solver = new KernelPolynomialSolver(EigenSolverBackend.create(EigenSolverBackend.AUTO), pool);
+		solver.setKernel(KernelPolynomialSolver.Kernel.DIRICHLET);
+		solver.setOrder(512);
+		assertThat(solver.solve(operator, TEMPERATURE, 1.0), is(0));
+		assertThat(usedPools, is((Set<ForkJoinPool>) Sets.newHashSet(pool)));
+		assertObservables(hamiltonian, solver, 1.0e-9);
+	}
+
+	/**
+	 * 展開次数が2未満の場合に例外となることを確認するテストです。
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void test_setOrder_N001() {
+		new KernelPolynomialSolver().setOrder(1);
+	}
+
+	/**
+	 * カーネル多項式法で求めた粒子数と超流動パラメータが密行列の対角化の結果と一致することを確認する
+	 */
+	private static void assertObservables(BdGHamiltonian hamiltonian, KernelPolynomialSolver solver, double delta) {
+
+		SolverOfEigenValueEq denseSolver = new SolverOfEigenValueEq();
+		assertThat(denseSolver.solveEigenValueEq(hamiltonian.getBdGHamiltonian()), is(0));
+		Map<SpinState, Vector> expectedParticleNum = hamiltonian.calcAverageParticleNum(denseSolver.getEigenValueAndEigenVectorMap(), TEMPERATURE);
+		Vector expectedPairPotential = hamiltonian.calcSuperfluidOrderParameter(denseSolver.getEigenValueAndEigenVectorMap(), TEMPERATURE);
+
+		Map<SpinState, Vector> particleNum = hamiltonian.calcAverageParticleNum(solver);
+		Vector pairPotential = hamiltonian.calcSuperfluidOrderParameter(solver);
+
+		for (int i = 0; i < hamiltonian.getMatrixSize() / 2; i++) {
+			assertEquals(expectedParticleNum.get(SpinState.UP_STATE).get(i), particleNum.get(SpinState.UP_STATE).get(i), delta);
+			assertEquals(expectedParticleNum.get(SpinState.DOWN_STATE).get(i), particleNum.get(SpinState.DOWN_STATE).get(i), delta);
+			assertEquals(expectedPairPotential.get(i), pairPotential.get(i), delta);
+		}
+	}
+
+	/**
+	 * 格子点ごとに異なる乱数の超流動パラメータと粒子数を作成する
+	 */
+	private static Vector[] makeOrderParameter(int matrixSize) {
+
+		Random random = new Random(7);
+		Vector pairPotentialEnergy = new DenseVector(matrixSize);
+		Vector upParticleNumber = new DenseVector(matrixSize);
+		Vector downParticleNumber = new DenseVector(matrixSize);
+		for (int i = 0; i < matrixSize / 2; i++) {
+			pairPotentialEnergy.set(i, random.nextDouble());
+			upParticleNumber.set(i, random.nextDouble());
+			downParticleNumber.set(i, random.nextDouble());
+		}
+		return new Vector[] { pairPotentialEnergy, upParticleNumber, downParticleNumber };
+	}
+
+	/**
+	 * BdGハミルトニアンを作成する
+	 */
+	private BdGHamiltonian makeBdGHamiltonian(int latticeSize) throws Exception {
+
+		ParameterFile paramFile = mock(ParameterFile.class, RETURNS_DEEP_STUBS);
+		when(paramFile.getParamInfo().getLatticeSize()).thenReturn(latticeSize);
+		when(paramFile.getParamInfo().getHoppingEnergy()).thenReturn(1.0);
+		when(paramFile.getParamInfo().getExternalPotentialCoefficient()).thenReturn(0.04);
+		when(paramFile.getParamInfo().getBoltzmannConst()).thenReturn(1.0);
+		when(paramFile.getParamInfo().getChmicalPotential()).thenReturn(0.5);
+		when(paramFile.getParamInfo().getMagneticField()).thenReturn(0.3);
+		when(paramFile.getParamInfo().getInterparticleInteraction()).thenReturn(-5.0);
+		when(paramFile.getParamInfo().getUseSparseMatrix()).thenReturn(false);
+
+		PathInfo pathInfo = new PathInfo();
+		pathInfo.setStrPwd(temporaryFolder.getRoot().getPath());
+		return new BdGHamiltonian(paramFile, pathInfo);
+	}
+}
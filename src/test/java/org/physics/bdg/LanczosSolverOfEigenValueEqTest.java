@@ -0,0 +1,237 @@
+package org.physics.bdg;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import no.uib.cipr.matrix.DenseMatrix;
+import no.uib.cipr.matrix.DenseVector;
+import no.uib.cipr.matrix.Matrix;
+import no.uib.cipr.matrix.Vector;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+
+public class LanczosSolverOfEigenValueEqTest {
+
+	static final double DELTA = 1.0e-8;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * エネルギー窓内の固有対が、密行列を対角化した結果と一致することを確認するテストです。</br>
+	 * 調和型外部ポテンシャルの対称性により縮退した固有値も取りこぼさないこと
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void test_solveEigenValueEq_N001() throws Exception {
+
+		for (boolean useSparseMatrix : new boolean[] { false, true }) {
+			BdGHamiltonian hamiltonian = makeBdGHamiltonian(5, useSparseMatrix);
+			Matrix matrix = hamiltonian.getBdGHamiltonian();
+			int matrixSize = hamiltonian.getMatrixSize();
+
+			SolverOfEigenValueEq denseSolver = new SolverOfEigenValueEq();
+			assertThat(denseSolver.solveEigenValueEq(matrix), is(0));
+			List<Double> expectedEigenValue = Lists.newArrayList(denseSolver.getEigenValueAndEigenVectorMap().keys());
+			Collections.sort(expectedEigenValue);
+
+			EnergyWindow[] windows = {
+					new EnergyWindow(EnergyWindow.Mode.LOWEST, 0.0, 12),
+					new EnergyWindow(EnergyWindow.Mode.HIGHEST, 0.0, 12),
+					new EnergyWindow(EnergyWindow.Mode.LOWEST, -2.0, 0) };
+			for (EnergyWindow window : windows) {
+
+				List<Double> windowEigenValue = Lists.newArrayList();
+				for (int i = 0; i < matrixSize; i++) {
+					double value = expectedEigenValue.get(i);
+					if (window.isEigenNumberSpecified()) {
+						if ((window.getMode() == EnergyWindow.Mode.LOWEST) ? i < 12 : i >= matrixSize - 12) {
+							windowEigenValue.add(value);
+						}
+					} else if (value <= window.getCutoff()) {
+						windowEigenValue.add(value);
+					}
+				}
+
+				LanczosSolverOfEigenValueEq solver = new LanczosSolverOfEigenValueEq();
+				assertThat(solver.solveEigenValueEq(matrix, window), is(0));
+				assertEigenPairs(matrix, solver.getEigenValueAndEigenVectorMap(), windowEigenValue);
+			}
+		}
+	}
+
+	/**
+	 * 行列を保持しない作用素に対して、シフト・インバートでシフト値に近い固有対が求まることを確認するテストです。
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void test_solveEigenValueEq_N002() throws Exception {
+
+		BdGHamiltonian hamiltonian = makeBdGHamiltonian(4, false);
+		Matrix matrix = hamiltonian.getBdGHamiltonian();
+		int matrixSize = hamiltonian.getMatrixSize();
+		final double shift = 0.1;
+
+		SolverOfEigenValueEq denseSolver = new SolverOfEigenValueEq();
+		assertThat(denseSolver.solveEigenValueEq(matrix), is(0));
+		List<Double> expectedEigenValue = Lists.newArrayList(denseSolver.getEigenValueAndEigenVectorMap().keys());
+		Collections.sort(expectedEigenValue, new Comparator<Double>() {
+			@Override
+			public int compare(Double value1, Double value2) {
+				return Double.compare(Math.abs(value1 - shift), Math.abs(value2 - shift));
+			}
+		});
+		List<Double> nearestEigenValue = Lists.newArrayList(expectedEigenValue.subList(0, 6));
+		Collections.sort(nearestEigenValue);
+		assertThat(Math.abs(expectedEigenValue.get(6) - shift) - Math.abs(expectedEigenValue.get(5) - shift) > 1.0e-6, is(true));
+
+		LanczosSolverOfEigenValueEq solver = new LanczosSolverOfEigenValueEq();
+		solver.setShiftInvert(true, shift);
+		BdGHamiltonianOperator operator = new MatrixBdGHamiltonianOperator(matrix);
+		assertThat(solver.solveEigenValueEq(operator, new EnergyWindow(EnergyWindow.Mode.LOWEST, 0.0, 6)), is(0));
+		assertThat(matrixSize > 6, is(true));
+		assertEigenPairs(matrix, solver.getEigenValueAndEigenVectorMap(), nearestEigenValue);
+	}
+
+	/**
+	 * 前回のRitzベクトルから開始すると、同じ作用素に対する作用素の適用回数が減ることを確認するテストです。
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void test_solveEigenValueEq_N003() throws Exception {
+
+		BdGHamiltonian hamiltonian = makeBdGHamiltonian(6, false);
+		Matrix matrix = hamiltonian.getBdGHamiltonian();
+		EnergyWindow window = new EnergyWindow(EnergyWindow.Mode.LOWEST, 0.0, 10);
+
+		LanczosSolverOfEigenValueEq solver = new LanczosSolverOfEigenValueEq();
+		assertThat(solver.solveEigenValueEq(matrix, window), is(0));
+		int coldOperatorCount = solver.getOperatorCount();
+		assertThat(solver.solveEigenValueEq(matrix, window), is(0));
+		int warmOperatorCount = solver.getOperatorCount();
+
+		assertThat(warmOperatorCount < coldOperatorCount, is(true));
+	}
+
+	/**
+	 * 打ち切りのないエネルギー窓を指定した場合に例外となることを確認するテストです。
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void test_solveEigenValueEq_N004() {
+		LanczosSolverOfEigenValueEq solver = new LanczosSolverOfEigenValueEq();
+		solver.solveEigenValueEq(new MatrixBdGHamiltonianOperator(new DenseMatrix(8, 8)), EnergyWindow.ALL);
+	}
+
+	/**
+	 * スレッドプールを指定した場合に、作用素の適用がすべて指定したスレッドプールで行われ、共通プールと同じ固有値が求まることを確認するテストです。
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void test_solveEigenValueEq_N005() throws Exception {
+
+		Matrix matrix = makeBdGHamiltonian(6, false).getBdGHamiltonian();
+		EnergyWindow window = new EnergyWindow(EnergyWindow.Mode.LOWEST, 0.0, 10);
+		final ForkJoinPool pool = ComputePool.get(2);
+		final Set<ForkJoinPool> usedPools = Sets.newConcurrentHashSet();
+		BdGHamiltonianOperator operator = new MatrixBdGHamiltonianOperator(matrix) {
+			@Override
+			public void multiply(double[] x, double[] y, int fromRow, int toRow) {
+				usedPools.add(ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool() : ForkJoinPool.commonPool());
+				super.multiply(x, y, fromRow, toRow);
+			}
+		};
+
+		LanczosSolverOfEigenValueEq solver = new LanczosSolverOfEigenValueEq(null, EigenSolverBackend.create(EigenSolverBackend.AUTO), pool);
+		assertThat(solver.solveEigenValueEq(operator, window), is(0));
+		assertThat(usedPools, is((Set<ForkJoinPool>) Sets.newHashSet(pool)));
+
+		LanczosSolverOfEigenValueEq commonSolver = new LanczosSolverOfEigenValueEq();
+		assertThat(commonSolver.solveEigenValueEq(new MatrixBdGHamiltonianOperator(matrix), window), is(0));
+		List<Double> expectedEigenValue = Lists.newArrayList(commonSolver.getEigenValueAndEigenVectorMap().keys());
+		Collections.sort(expectedEigenValue);
+		assertEigenPairs(matrix, solver.getEigenValueAndEigenVectorMap(), expectedEigenValue);
+	}
+
+	/**
+	 * 求めた固有対が期待する固有値と一致し、H v = E v を満たすことを確認する
+	 */
+	private static void assertEigenPairs(Matrix matrix, Multimap<Double, Vector> mapEigen, List<Double> expectedEigenValue) {
+
+		int matrixSize = matrix.numRows();
+		assertThat(mapEigen.size(), is(expectedEigenValue.size()));
+
+		List<Double> eigenValue = Lists.newArrayList(mapEigen.keys());
+		Collections.sort(eigenValue);
+		for (int i = 0; i < eigenValue.size(); i++) {
+			assertEquals(expectedEigenValue.get(i), eigenValue.get(i), DELTA);
+		}
+		for (Map.Entry<Double, Vector> e : mapEigen.entries()) {
+			Vector product = matrix.mult(e.getValue(), new DenseVector(matrixSize));
+			for (int i = 0; i < matrixSize; i++) {
+				assertEquals(e.getKey() * e.getValue().get(i), product.get(i), 1.0e-6);
+			}
+		}
+	}
+
+	/**
+	 * 乱数の超流動パラメータと粒子数でBdGハミルトニアンを作成する
+	 */
+	private BdGHamiltonian makeBdGHamiltonian(int latticeSize, boolean useSparseMatrix) throws Exception {
+
+		ParameterFile paramFile = mock(ParameterFile.class, RETURNS_DEEP_STUBS);
+		when(paramFile.getParamInfo().getLatticeSize()).thenReturn(latticeSize);
+		when(paramFile.getParamInfo().getHoppingEnergy()).thenReturn(1.0);
+		when(paramFile.getParamInfo().getExternalPotentialCoefficient()).thenReturn(0.04);
+		when(paramFile.getParamInfo().getBoltzmannConst()).thenReturn(1.0);
+		when(paramFile.getParamInfo().getChmicalPotential()).thenReturn(0.5);
+		when(paramFile.getParamInfo().getMagneticField()).thenReturn(0.3);
+		when(paramFile.getParamInfo().getInterparticleInteraction()).thenReturn(-5.0);
+
+		PathInfo pathInfo = new PathInfo();
+		pathInfo.setStrPwd(temporaryFolder.getRoot().getPath());
+		pathInfo.setSparsePath("sparse.mtx");
+		when(paramFile.getParamInfo().getUseSparseMatrix()).thenReturn(useSparseMatrix);
+
+		BdGHamiltonian hamiltonian = new BdGHamiltonian(paramFile, pathInfo);
+		int matrixSize = hamiltonian.getMatrixSize();
+
+		// 縮退を残すため、格子点によらない一様な値とする
+		Random random = new Random(3);
+		double pairPotential = random.nextDouble();
+		double upParticleNumber = random.nextDouble();
+		double downParticleNumber = random.nextDouble();
+		Vector pairPotentialEnergy = new DenseVector(matrixSize);
+		Vector upParticleNumberVector = new DenseVector(matrixSize);
+		Vector downParticleNumberVector = new DenseVector(matrixSize);
+		for (int i = 0; i < matrixSize / 2; i++) {
+			pairPotentialEnergy.set(i, pairPotential);
+			upParticleNumberVector.set(i, upParticleNumber);
+			downParticleNumberVector.set(i, downParticleNumber);
+		}
+		hamiltonian.makeBdGHamiltonian(pairPotentialEnergy, upParticleNumberVector, downParticleNumberVector, 1.0);
+		return hamiltonian;
+	}
+}
@@ -0,0 +1,110 @@
+package org.physics.bdg;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.physics.bdg.BdGHamiltonian.Observables;
+
+public class LdaInitializerTest {
+
+	static final double TEMPERATURE = 0.2;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * 外部ポテンシャルのない半分充填付近の格子で、波数の分割数を格子の一辺と同じにした一様系の解が、BdG方程式の自己無撞着解となることを確認するテストです。</br>
+	 * 一様系の解を入力として密行列を対角化し、出力が入力と一致することを確認する
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void test_getLdaInitOrderParameter_N001() throws Exception {
+
+		BdGHamiltonian hamiltonian = makeBdGHamiltonian(6, -2.0, 0.2, -4.0, 0.0);
+		Observables input = hamiltonian.getLdaInitOrderParameter(TEMPERATURE, 6);
+		assertThat(Math.abs(input.getPairPotentialEnergy().get(0)) > 0.1, is(true));
+
+		hamiltonian.makeBdGHamiltonian(input.getPairPotentialEnergy(), input.getUpParticleNumber(), input.getDownParticleNumber(), TEMPERATURE);
+		SolverOfEigenValueEq solver = new SolverOfEigenValueEq();
+		assertThat(solver.solveEigenValueEq(hamiltonian.getBdGHamiltonian()), is(0));
+		Observables output = hamiltonian.calcObservables(solver.getEigenSystem(), TEMPERATURE);
+
+		for (int i = 0; i < 36; i++) {
+			assertEquals(input.getPairPotentialEnergy().get(i), output.getPairPotentialEnergy().get(i), 1.0e-8);
+			assertEquals(input.getUpParticleNumber().get(i), output.getUpParticleNumber().get(i), 1.0e-8);
+			assertEquals(input.getDownParticleNumber().get(i), output.getDownParticleNumber().get(i), 1.0e-8);
+		}
+	}
+
+	/**
+	 * 調和型外部ポテンシャルの下で、中心から同じ距離の格子点は同じ値となり、中心から離れるほど粒子数が減ることを確認するテストです。
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void test_getLdaInitOrderParameter_N002() throws Exception {
+
+		int latticeSize = 8;
+		BdGHamiltonian hamiltonian = makeBdGHamiltonian(latticeSize, 0.5, 0.2, -4.0, 0.2);
+		Observables guess = hamiltonian.getLdaInitOrderParameter(TEMPERATURE, 32);
+		assertThat(guess.getPairPotentialEnergy().size(), is(2 * latticeSize * latticeSize));
+
+		int corner = 0;
+		int oppositeCorner = latticeSize * latticeSize - 1;
+		int center = (latticeSize / 2) * latticeSize + latticeSize / 2;
+		assertEquals(guess.getPairPotentialEnergy().get(corner), guess.getPairPotentialEnergy().get(oppositeCorner), 0.0);
+		assertEquals(guess.getUpParticleNumber().get(corner), guess.getUpParticleNumber().get(oppositeCorner), 0.0);
+		assertThat(guess.getUpParticleNumber().get(center) > guess.getUpParticleNumber().get(corner), is(true));
+		assertThat(guess.getDownParticleNumber().get(center) > guess.getDownParticleNumber().get(corner), is(true));
+	}
+
+	/**
+	 * 中心で粒子数が満ちて常流動状態となる調和型外部ポテンシャルの下でも、中心から離れた格子の隅では超流動パラメータが0にならないことを確認するテストです。</br>
+	 * 常流動状態はギャップ方程式の解であるため、ポテンシャルの昇順に直前の解の超流動パラメータから開始すると全格子点が常流動状態となる
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void test_getLdaInitOrderParameter_N003() throws Exception {
+
+		int latticeSize = 14;
+		BdGHamiltonian hamiltonian = makeBdGHamiltonian(latticeSize, 0.5, 1.0, -5.0, 0.04);
+		Observables guess = hamiltonian.getLdaInitOrderParameter(0.1, 32);
+
+		int center = (latticeSize / 2) * latticeSize + latticeSize / 2;
+		int corner = 0;
+		assertEquals(0.0, guess.getPairPotentialEnergy().get(center), 1.0e-6);
+		assertThat(Math.abs(guess.getPairPotentialEnergy().get(corner)) > 0.5, is(true));
+	}
+
+	/**
+	 * BdGハミルトニアンを作成する
+	 */
+	private BdGHamiltonian makeBdGHamiltonian(int latticeSize, double chemicalPotential, double magneticField, double interaction, double potentialCoefficient) throws Exception {
+
+		ParameterFile paramFile = mock(ParameterFile.class, RETURNS_DEEP_STUBS);
+		when(paramFile.getParamInfo().getLatticeSize()).thenReturn(latticeSize);
+		when(paramFile.getParamInfo().getHoppingEnergy()).thenReturn(1.0);
+		when(paramFile.getParamInfo().getExternalPotentialCoefficient()).thenReturn(potentialCoefficient);
+		when(paramFile.getParamInfo().getBoltzmannConst()).thenReturn(1.0);
+		when(paramFile.getParamInfo().getChmicalPotential()).thenReturn(chemicalPotential);
+		when(paramFile.getParamInfo().getMagneticField()).thenReturn(magneticField);
+		when(paramFile.getParamInfo().getInterparticleInteraction()).thenReturn(interaction);
+		when(paramFile.getParamInfo().getPairPotential()).thenReturn(1.0);
+		when(paramFile.getParamInfo().getUpSpinParticleNum()).thenReturn(1.0);
+		when(paramFile.getParamInfo().getDownSpinParticleNum()).thenReturn(1.0);
+		when(paramFile.getParamInfo().getUseSparseMatrix()).thenReturn(false);
+
+		PathInfo pathInfo = new PathInfo();
+		pathInfo.setStrPwd(temporaryFolder.getRoot().getPath());
+		return new BdGHamiltonian(paramFile, pathInfo);
+	}
+}
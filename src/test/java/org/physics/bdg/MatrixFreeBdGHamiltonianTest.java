@@ -0,0 +1,72 @@
+package org.physics.bdg;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import no.uib.cipr.matrix.DenseVector;
+import no.uib.cipr.matrix.Matrix;
+import no.uib.cipr.matrix.Vector;
+
+import org.junit.Test;
+
+public class MatrixFreeBdGHamiltonianTest {
+
+	static final double DELTA = 1.0e-12;
+
+	/**
+	 * 行列を保持しない作用素の積が、BdGハミルトニアン行列との積と一致することのテストです
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void test_multiply_N001() throws Exception {
+
+		for (int latticeSize = 2; latticeSize <= 9; latticeSize++) {
+			ParameterFile paramFile = mock(ParameterFile.class, RETURNS_DEEP_STUBS);
+			when(paramFile.getParamInfo().getLatticeSize()).thenReturn(latticeSize);
+			when(paramFile.getParamInfo().getHoppingEnergy()).thenReturn(1.0);
+			when(paramFile.getParamInfo().getExternalPotentialCoefficient()).thenReturn(0.04);
+			when(paramFile.getParamInfo().getChmicalPotential()).thenReturn(0.5);
+			when(paramFile.getParamInfo().getMagneticField()).thenReturn(0.3);
+			when(paramFile.getParamInfo().getInterparticleInteraction()).thenReturn(-5.0);
+
+			BdGHamiltonian hamiltonian = new BdGHamiltonian(paramFile, null);
+			int matrixSize = hamiltonian.getMatrixSize();
+
+			Random random = new Random(latticeSize);
+			Vector pairPotentialEnergy = new DenseVector(matrixSize);
+			Vector upParticleNumber = new DenseVector(matrixSize);
+			Vector downParticleNumber = new DenseVector(matrixSize);
+			for (int i = 0; i < matrixSize / 2; i++) {
+				pairPotentialEnergy.set(i, random.nextDouble());
+				upParticleNumber.set(i, random.nextDouble());
+				downParticleNumber.set(i, random.nextDouble());
+			}
+			hamiltonian.makeBdGHamiltonian(pairPotentialEnergy, upParticleNumber, downParticleNumber, 1.0);
+			Matrix bdGHamiltonian = hamiltonian.getBdGHamiltonian();
+
+			BdGHamiltonianOperator operator = hamiltonian.makeBdGHamiltonianOperator(pairPotentialEnergy, upParticleNumber, downParticleNumber);
+
+			double[] x = new double[matrixSize];
+			for (int i = 0; i < matrixSize; i++) {
+				x[i] = random.nextDouble() - 0.5;
+			}
+			Vector expected = bdGHamiltonian.mult(new DenseVector(x), new DenseVector(matrixSize));
+
+			double[] y = new double[matrixSize];
+			operator.multiply(x, y);
+			double[] parallelY = new double[matrixSize];
+			operator.multiply(x, parallelY, new ForkJoinPool(4));
+
+			for (int i = 0; i < matrixSize; i++) {
+				assertEquals(expected.get(i), y[i], DELTA);
+				assertEquals(y[i], parallelY[i], 0.0);
+			}
+		}
+	}
+}
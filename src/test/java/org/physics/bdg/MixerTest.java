@@ -0,0 +1,288 @@
+package org.physics.bdg;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.Random;
+
+import no.uib.cipr.matrix.DenseVector;
+import no.uib.cipr.matrix.Vector;
+
+import org.junit.Test;
+import org.physics.bdg.BdGHamiltonian.Observables;
+
+public class MixerTest {
+
+	static final int SIZE = 8;
+
+	static final double TOLERANCE = 1.0e-10;
+
+	/**
+	 * 線形混合が w x + (1 - w) F[x] となり、引数のベクトルを変更しないことを確認するテストです。
+	 */
+	@Test
+	public void test_mix_N001() {
+
+		Observables input = makeObservables(1.0);
+		Observables output = makeObservables(3.0);
+
+		Observables mixed = Mixer.create(Mixer.LINEAR, 0.25, 1).mix(input, output);
+		for (int i = 0; i < SIZE; i++) {
+			assertEquals(2.5 * (i + 1), mixed.getPairPotentialEnergy().get(i), 0.0);
+			assertEquals(2.5 * (i + 2), mixed.getUpParticleNumber().get(i), 0.0);
+			assertEquals(2.5 * (i + 3), mixed.getDownParticleNumber().get(i), 0.0);
+			assertEquals(1.0 * (i + 1), input.getPairPotentialEnergy().get(i), 0.0);
+			assertEquals(3.0 * (i + 1), output.getPairPotentialEnergy().get(i), 0.0);
+		}
+	}
+
+	/**
+	 * 線形な写像 F[x] = A x + b の不動点に対して、Pulay混合が線形混合より少ない反復回数で収束することを確認するテストです。</br>
+	 * 超流動パラメータと粒子数が写像で結合している場合も、連結したベクトル全体で混合すること
+	 */
+	@Test
+	public void test_mix_N002() {
+
+		LinearMap map = new LinearMap(3 * SIZE, 11);
+
+		int linearIteration = iterate(Mixer.create(Mixer.LINEAR, 0.3, 6), map);
+		int pulayIteration = iterate(Mixer.create(Mixer.PULAY, 0.3, 6), map);
+
+		assertThat(linearIteration > 0, is(true));
+		assertThat(pulayIteration > 0, is(true));
+		assertThat(2 * pulayIteration < linearIteration, is(true));
+	}
+
+	/**
+	 * Pulay混合の履歴が指定した数までしか保持されず、reset で破棄されることを確認するテストです。
+	 */
+	@Test
+	public void test_mix_N003() {
+
+		Mixer mixer = Mixer.create(Mixer.PULAY, 0.3, 3);
+		assertThat(mixer, instanceOf(PulayMixer.class));
+		PulayMixer pulayMixer = (PulayMixer) mixer;
+
+		LinearMap map = new LinearMap(3 * SIZE, 5);
+		Observables input = makeObservables(0.0);
+		for (int k = 0; k < 5; k++) {
+			input = pulayMixer.mix(input, map.apply(input));
+			assertThat(pulayMixer.getHistorySize(), is(Math.min(k, 3)));
+		}
+		pulayMixer.reset();
+		assertThat(pulayMixer.getHistorySize(), is(0));
+	}
+
+	/**
+	 * 線形な写像 F[x] = A x + b の不動点に対して、修正Broyden混合が線形混合より少ない反復回数で収束することを確認するテストです。
+	 */
+	@Test
+	public void test_mix_N004() {
+
+		LinearMap map = new LinearMap(3 * SIZE, 11);
+
+		int linearIteration = iterate(Mixer.create(Mixer.LINEAR, 0.3, 6), map);
+		int broydenIteration = iterate(Mixer.create(Mixer.BROYDEN, 0.3, 6), map);
+
+		assertThat(linearIteration > 0, is(true));
+		assertThat(broydenIteration > 0, is(true));
+		assertThat(2 * broydenIteration < linearIteration, is(true));
+	}
+
+	/**
+	 * 線形混合では発散する写像 (A の固有値が -2.5 付近) に対して、修正Broyden混合が歩幅を縮めて再開始し、収束することを確認するテストです。
+	 */
+	@Test
+	public void test_mix_N005() {
+
+		LinearMap map = new LinearMap(3 * SIZE, 13, -2.5, 0.3);
+
+		assertThat(iterate(Mixer.create(Mixer.LINEAR, 0.0, 6), map), is(-1));
+
+		BroydenMixer mixer = (BroydenMixer) Mixer.create(Mixer.BROYDEN, 0.0, 6);
+		assertThat(iterate(mixer, map) > 0, is(true));
+		assertThat(mixer.getRestartCount() > 0, is(true));
+		assertThat(mixer.getStep() <= 1.0, is(true));
+
+		mixer.reset();
+		assertThat(mixer.getRestartCount(), is(0));
+		assertThat(mixer.getHistorySize(), is(0));
+		assertEquals(1.0, mixer.getStep(), 0.0);
+	}
+
+	/**
+	 * 反復の途中で取得した履歴を別の混合法に復元すると、以降の混合結果がビット単位で一致することを確認するテストです。</br>
+	 * 修正Broyden混合は再開始が起きる写像で確認する
+	 */
+	@Test
+	public void test_setState_N001() {
+
+		LinearMap map = new LinearMap(3 * SIZE, 13, -2.5, 0.3);
+		for (String type : new String[] { Mixer.LINEAR, Mixer.PULAY, Mixer.BROYDEN }) {
+			Mixer mixer = Mixer.create(type, 0.0, 4);
+			Observables input = makeObservables(0.0);
+			for (int k = 0; k < 7; k++) {
+				input = mixer.mix(input, map.apply(input));
+			}
+
+			Mixer restored = Mixer.create(type, 0.0, 4);
+			restored.setState(mixer.getState());
+			Observables restoredInput = input;
+			for (int k = 0; k < 10; k++) {
+				input = mixer.mix(input, map.apply(input));
+				restoredInput = restored.mix(restoredInput, map.apply(restoredInput));
+				for (int i = 0; i < SIZE; i++) {
+					assertEquals(input.getPairPotentialEnergy().get(i), restoredInput.getPairPotentialEnergy().get(i), 0.0);
+					assertEquals(input.getUpParticleNumber().get(i), restoredInput.getUpParticleNumber().get(i), 0.0);
+					assertEquals(input.getDownParticleNumber().get(i), restoredInput.getDownParticleNumber().get(i), 0.0);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 前回の値がない反復の開始直後と1回目の混合後の履歴を復元すると、履歴が同じ配列の列として取得され、
+	 * 以降の混合結果がビット単位で一致することを確認するテストです。
+	 */
+	@Test
+	public void test_setState_N002() {
+
+		LinearMap map = new LinearMap(3 * SIZE, 13, -2.5, 0.3);
+		for (String type : new String[] { Mixer.PULAY, Mixer.BROYDEN }) {
+			for (int iteration = 0; iteration < 2; iteration++) {
+				Mixer mixer = Mixer.create(type, 0.3, 4);
+				Observables input = makeObservables(0.0);
+				for (int k = 0; k < iteration; k++) {
+					input = mixer.mix(input, map.apply(input));
+				}
+
+				Mixer restored = Mixer.create(type, 0.3, 4);
+				restored.setState(mixer.getState());
+				List<double[]> state = mixer.getState();
+				List<double[]> restoredState = restored.getState();
+				assertThat(restoredState.size(), is(state.size()));
+				for (int k = 0; k < state.size(); k++) {
+					assertThat(restoredState.get(k), is(state.get(k)));
+				}
+
+				Observables restoredInput = input;
+				for (int k = 0; k < 5; k++) {
+					input = mixer.mix(input, map.apply(input));
+					restoredInput = restored.mix(restoredInput, map.apply(restoredInput));
+					for (int i = 0; i < SIZE; i++) {
+						assertEquals(input.getPairPotentialEnergy().get(i), restoredInput.getPairPotentialEnergy().get(i), 0.0);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * 未知の混合法を指定した場合に例外となることを確認するテストです。
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void test_create_N001() {
+		Mixer.create("broyden1", 0.3, 6);
+	}
+
+	/**
+	 * 残差の最大値が許容値を下回るまで反復し、反復回数を返す (収束しない場合は -1)
+	 */
+	private static int iterate(Mixer mixer, LinearMap map) {
+
+		Observables input = makeObservables(0.0);
+		for (int k = 0; k < 500; k++) {
+			Observables output = map.apply(input);
+			if (maxResidual(input, output) < TOLERANCE) {
+				return k;
+			}
+			input = mixer.mix(input, output);
+		}
+		return -1;
+	}
+
+	private static double maxResidual(Observables input, Observables output) {
+		double max = 0.0;
+		for (int i = 0; i < SIZE; i++) {
+			max = Math.max(max, Math.abs(output.getPairPotentialEnergy().get(i) - input.getPairPotentialEnergy().get(i)));
+			max = Math.max(max, Math.abs(output.getUpParticleNumber().get(i) - input.getUpParticleNumber().get(i)));
+			max = Math.max(max, Math.abs(output.getDownParticleNumber().get(i) - input.getDownParticleNumber().get(i)));
+		}
+		return max;
+	}
+
+	/**
+	 * 成分 i が scale * (i + 1 + k) (k = 0: 超流動パラメータ, 1: アップスピン, 2: ダウンスピン) のベクトルを作成する
+	 */
+	private static Observables makeObservables(double scale) {
+		Vector[] vectors = new Vector[3];
+		for (int k = 0; k < 3; k++) {
+			vectors[k] = new DenseVector(SIZE);
+			for (int i = 0; i < SIZE; i++) {
+				vectors[k].set(i, scale * (i + 1 + k));
+			}
+		}
+		return new Observables(vectors[0], vectors[1], vectors[2]);
+	}
+
+	/**
+	 * 線形な写像 F[x] = A x + b (A は対称な乱数行列で、固有値は [shift - radius, shift + radius] に収まる)
+	 */
+	private static class LinearMap {
+
+		private final double[][] m_matrix;
+		private final double[] m_constant;
+
+		LinearMap(int dimension, long seed) {
+			this(dimension, seed, 0.0, 0.9);
+		}
+
+		LinearMap(int dimension, long seed, double shift, double radius) {
+			Random random = new Random(seed);
+			m_matrix = new double[dimension][dimension];
+			m_constant = new double[dimension];
+			double norm = 0.0;
+			for (int i = 0; i < dimension; i++) {
+				m_constant[i] = random.nextDouble();
+				for (int j = 0; j <= i; j++) {
+					m_matrix[i][j] = m_matrix[j][i] = random.nextDouble() - 0.5;
+				}
+			}
+			for (int i = 0; i < dimension; i++) {
+				double rowSum = 0.0;
+				for (int j = 0; j < dimension; j++) {
+					rowSum += Math.abs(m_matrix[i][j]);
+				}
+				norm = Math.max(norm, rowSum);
+			}
+			for (int i = 0; i < dimension; i++) {
+				for (int j = 0; j < dimension; j++) {
+					m_matrix[i][j] *= radius / norm;
+				}
+				m_matrix[i][i] += shift;
+			}
+		}
+
+		Observables apply(Observables input) {
+			int dimension = m_constant.length;
+			double[] x = new double[dimension];
+			for (int i = 0; i < SIZE; i++) {
+				x[i] = input.getPairPotentialEnergy().get(i);
+				x[SIZE + i] = input.getUpParticleNumber().get(i);
+				x[2 * SIZE + i] = input.getDownParticleNumber().get(i);
+			}
+			Vector[] vectors = { new DenseVector(SIZE), new DenseVector(SIZE), new DenseVector(SIZE) };
+			for (int i = 0; i < dimension; i++) {
+				double value = m_constant[i];
+				for (int j = 0; j < dimension; j++) {
+					value += m_matrix[i][j] * x[j];
+				}
+				vectors[i / SIZE].set(i % SIZE, value);
+			}
+			return new Observables(vectors[0], vectors[1], vectors[2]);
+		}
+	}
+}
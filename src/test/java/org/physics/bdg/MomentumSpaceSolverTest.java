@@ -0,0 +1,111 @@
+package org.physics.bdg;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import no.uib.cipr.matrix.DenseVector;
+import no.uib.cipr.matrix.Vector;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.physics.bdg.BdGHamiltonian.Observables;
+
+public class MomentumSpaceSolverTest {
+
+	static final double TEMPERATURE = 0.3;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * 外部ポテンシャルのない格子で、一様な超流動パラメータと粒子数を入力とした波数空間ソルバの出力が、
+	 * 密行列の対角化の結果とすべての格子点で一致することを確認するテストです。
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void test_calcObservables_N001() throws Exception {
+
+		int latticeSize = 6;
+		BdGHamiltonian hamiltonian = makeBdGHamiltonian(latticeSize, 0.0);
+		assertThat(hamiltonian.isTranslationallyInvariant(), is(true));
+
+		int matrixSize = hamiltonian.getMatrixSize();
+		Vector pairPotentialEnergy = makeUniformVector(matrixSize, 0.7);
+		Vector upParticleNumber = makeUniformVector(matrixSize, 0.6);
+		Vector downParticleNumber = makeUniformVector(matrixSize, 0.4);
+
+		hamiltonian.makeBdGHamiltonian(pairPotentialEnergy, upParticleNumber, downParticleNumber, TEMPERATURE);
+		SolverOfEigenValueEq solver = new SolverOfEigenValueEq();
+		assertThat(solver.solveEigenValueEq(hamiltonian.getBdGHamiltonian()), is(0));
+		Observables expected = hamiltonian.calcObservables(solver.getEigenSystem(), TEMPERATURE);
+
+		Observables actual = hamiltonian.calcObservables(hamiltonian.makeMomentumSpaceSolver(), pairPotentialEnergy, upParticleNumber, downParticleNumber, TEMPERATURE);
+		assertThat(actual.getPairPotentialEnergy().size(), is(matrixSize));
+		for (int i = 0; i < latticeSize * latticeSize; i++) {
+			assertEquals(expected.getPairPotentialEnergy().get(i), actual.getPairPotentialEnergy().get(i), 1.0e-10);
+			assertEquals(expected.getUpParticleNumber().get(i), actual.getUpParticleNumber().get(i), 1.0e-10);
+			assertEquals(expected.getDownParticleNumber().get(i), actual.getDownParticleNumber().get(i), 1.0e-10);
+		}
+	}
+
+	/**
+	 * 外部ポテンシャルがある場合は並進対称な系と判定されず、見積もりメモリが密行列の対角化と同じになることを確認するテストです。
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void test_isTranslationallyInvariant_N001() throws Exception {
+
+		assertThat(makeBdGHamiltonian(6, 0.2).isTranslationallyInvariant(), is(false));
+
+		ParamInfo param = new ParamInfo();
+		param.setLatticeSize(16);
+		param.setScfEngine("dense");
+		long dense = BdGJobScheduler.estimateMemory(param);
+		param.setScfEngine("momentum");
+		param.setExternalPotentialCoefficient(0.2);
+		assertThat(BdGJobScheduler.estimateMemory(param), is(dense));
+		param.setExternalPotentialCoefficient(0.0);
+		assertThat(BdGJobScheduler.estimateMemory(param) < dense / 50, is(true));
+	}
+
+	/**
+	 * 全成分が同じ値のベクトルを作成する
+	 */
+	private Vector makeUniformVector(int size, double value) {
+		Vector vector = new DenseVector(size);
+		for (int i = 0; i < size; i++) {
+			vector.set(i, value);
+		}
+		return vector;
+	}
+
+	/**
+	 * BdGハミルトニアンを作成する
+	 */
+	private BdGHamiltonian makeBdGHamiltonian(int latticeSize, double potentialCoefficient) throws Exception {
+
+		ParameterFile paramFile = mock(ParameterFile.class, RETURNS_DEEP_STUBS);
+		when(paramFile.getParamInfo().getLatticeSize()).thenReturn(latticeSize);
+		when(paramFile.getParamInfo().getHoppingEnergy()).thenReturn(1.0);
+		when(paramFile.getParamInfo().getExternalPotentialCoefficient()).thenReturn(potentialCoefficient);
+		when(paramFile.getParamInfo().getBoltzmannConst()).thenReturn(1.0);
+		when(paramFile.getParamInfo().getChmicalPotential()).thenReturn(-0.5);
+		when(paramFile.getParamInfo().getMagneticField()).thenReturn(0.3);
+		when(paramFile.getParamInfo().getInterparticleInteraction()).thenReturn(-3.0);
+		when(paramFile.getParamInfo().getPairPotential()).thenReturn(1.0);
+		when(paramFile.getParamInfo().getUpSpinParticleNum()).thenReturn(1.0);
+		when(paramFile.getParamInfo().getDownSpinParticleNum()).thenReturn(1.0);
+		when(paramFile.getParamInfo().getUseSparseMatrix()).thenReturn(false);
+
+		PathInfo pathInfo = new PathInfo();
+		pathInfo.setStrPwd(temporaryFolder.getRoot().getPath());
+		return new BdGHamiltonian(paramFile, pathInfo);
+	}
+}
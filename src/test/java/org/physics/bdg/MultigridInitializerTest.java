@@ -0,0 +1,73 @@
+package org.physics.bdg;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import no.uib.cipr.matrix.DenseVector;
+import no.uib.cipr.matrix.Vector;
+
+import org.junit.Test;
+
+public class MultigridInitializerTest {
+
+	static final double TOLERANCE = 1.0e-12;
+
+	/**
+	 * 粗い格子のパラメータ設定情報で、一辺が (L + 1) / 2、外部ポテンシャルの係数が (L / L')^2 倍となり、
+	 * 元の格子と同じ位置で同じ強さの外部ポテンシャルとなることを確認するテストです。
+	 */
+	@Test
+	public void test_makeCoarseParamInfo_N001() {
+
+		ParamInfo paramInfo = new ParamInfo();
+		paramInfo.setLatticeSize(16);
+		paramInfo.setExternalPotentialCoefficient(0.04);
+		paramInfo.setHoppingEnergy(1.0);
+		paramInfo.setScfEngine("kpm");
+		paramInfo.setMultigridLevels(2);
+		paramInfo.setCheckpointInterval(5);
+
+		ParamInfo coarseParamInfo = MultigridInitializer.makeCoarseParamInfo(paramInfo);
+		assertThat(coarseParamInfo.getLatticeSize(), is(8));
+		assertEquals(0.16, coarseParamInfo.getExternalPotentialCoefficient(), TOLERANCE);
+		assertEquals(1.0, coarseParamInfo.getHoppingEnergy(), 0.0);
+		assertThat(coarseParamInfo.getScfEngine(), is("dense"));
+		assertThat(coarseParamInfo.getMultigridLevels(), is(1));
+		assertThat(coarseParamInfo.getCheckpointInterval(), is(0));
+		assertThat(paramInfo.getLatticeSize(), is(16));
+
+		assertThat(MultigridInitializer.isApplicable(paramInfo), is(true));
+		assertThat(MultigridInitializer.isApplicable(coarseParamInfo), is(true));
+		coarseParamInfo.setLatticeSize(6);
+		assertThat(MultigridInitializer.isApplicable(coarseParamInfo), is(false));
+	}
+
+	/**
+	 * 格子の中心からの位置の1次関数は、粗い格子の内側では双線形補間で厳密に再現され、外側では端の値となることを確認するテストです。
+	 */
+	@Test
+	public void test_interpolate_N001() {
+
+		int coarseLatticeSize = 5;
+		int latticeSize = 9;
+		Vector coarse = new DenseVector(2 * coarseLatticeSize * coarseLatticeSize);
+		for (int row = 0; row < coarseLatticeSize; row++) {
+			for (int col = 0; col < coarseLatticeSize; col++) {
+				coarse.set(row * coarseLatticeSize + col, 1.0 + 0.5 * (col - 2) - 0.25 * (row - 2));
+			}
+		}
+
+		Vector fine = MultigridInitializer.interpolate(coarse, coarseLatticeSize, latticeSize);
+		assertThat(fine.size(), is(2 * latticeSize * latticeSize));
+		double scale = (double) latticeSize / coarseLatticeSize;
+		for (int row = 0; row < latticeSize; row++) {
+			for (int col = 0; col < latticeSize; col++) {
+				double x = Math.max(-2.0, Math.min(2.0, (col - 4) / scale));
+				double y = Math.max(-2.0, Math.min(2.0, (row - 4) / scale));
+				assertEquals(1.0 + 0.5 * x - 0.25 * y, fine.get(row * latticeSize + col), TOLERANCE);
+			}
+		}
+		assertEquals(0.0, fine.get(latticeSize * latticeSize), 0.0);
+	}
+}
@@ -0,0 +1,145 @@
+package org.physics.bdg;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+
+public class ParameterSweepTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * 格子点の指定で、等間隔の値が丸め誤差を除いて展開され、値の列挙ではそのまま展開されることを確認するテストです。
+	 */
+	@Test
+	public void test_parse_N001() {
+		assertThat(ParameterSweep.Axis.parse("magnetic-field", "0.0:0.3:4").getValues(), is((List<String>) Lists.newArrayList("0", "0.1", "0.2", "0.3")));
+		assertThat(ParameterSweep.Axis.parse("lattice-size", " 8, 12 ,16").getValues(), is((List<String>) Lists.newArrayList("8", "12", "16")));
+		assertThat(ParameterSweep.Axis.parse("magnetic-field", "0.5:1.0:1").getValues(), is((List<String>) Lists.newArrayList("0.5")));
+	}
+
+	/**
+	 * 存在しない項目と掃引できない項目(温度リスト)を指定した場合に例外となることを確認するテストです。
+	 */
+	@Test
+	public void test_parse_N002() {
+		for (String name : new String[] { "no-such-parameter", "temperature" }) {
+			try {
+				ParameterSweep.Axis.parse(name, "1,2");
+				throw new AssertionError(name);
+			} catch (IllegalArgumentException e) {
+				// 期待どおり
+			}
+		}
+	}
+
+	/**
+	 * 全軸の直積が、先に指定した軸ほど外側のループとなる順に展開されることを確認するテストです。
+	 */
+	@Test
+	public void test_getPoints_N001() {
+		ParameterSweep sweep = new ParameterSweep(Lists.newArrayList(
+				ParameterSweep.Axis.parse("interparticle-interaction", "-4,-5"),
+				ParameterSweep.Axis.parse("magnetic-field", "0.1,0.2,0.3")));
+		List<Map<String, String>> points = sweep.getPoints();
+		assertThat(points.size(), is(6));
+		assertThat(ParameterSweep.toKey(points.get(0)), is("interparticle-interaction=-4,magnetic-field=0.1"));
+		assertThat(ParameterSweep.toKey(points.get(2)), is("interparticle-interaction=-4,magnetic-field=0.3"));
+		assertThat(ParameterSweep.toKey(points.get(3)), is("interparticle-interaction=-5,magnetic-field=0.1"));
+		assertThat(ParameterSweep.toKey(points.get(5)), is("interparticle-interaction=-5,magnetic-field=0.3"));
+	}
+
+	/**
+	 * 掃引点の値が要素名、別名、プロパティ名のいずれでもパラメータ設定情報の複製に設定され、元の設定情報は変わらないことを確認するテストです。
+	 */
+	@Test
+	public void test_apply_N001() {
+		ParamInfo paramInfo = new ParamInfo();
+		paramInfo.setMagneticField(0.1);
+		paramInfo.setTemperature(Lists.newArrayList(1.0));
+
+		ParamInfo copy = paramInfo.copy();
+		ParameterSweep sweep = new ParameterSweep(Lists.newArrayList(
+				ParameterSweep.Axis.parse("magnetic-field", "0.7"),
+				ParameterSweep.Axis.parse("chemical-potential", "1.5"),
+				ParameterSweep.Axis.parse("latticeSize", "12"),
+				ParameterSweep.Axis.parse("useSparseMatrix", "true")));
+		ParameterSweep.apply(copy, sweep.getPoints().get(0));
+
+		assertThat(copy.getMagneticField(), is(0.7));
+		assertThat(copy.getChmicalPotential(), is(1.5));
+		assertThat(copy.getLatticeSize(), is(12));
+		assertThat(copy.getUseSparseMatrix(), is(true));
+		assertThat(paramInfo.getMagneticField(), is(0.1));
+
+		copy.getTemperature().add(2.0);
+		assertThat(paramInfo.getTemperature().size(), is(1));
+	}
+
+	/**
+	 * マニフェストに記録した掃引点が、読み込み直した後も計算終了として扱われることを確認するテストです。
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void test_markCompleted_N001() throws Exception {
+		File file = new File(temporaryFolder.getRoot(), "output/sweep-manifest.txt");
+
+		SweepManifest manifest = new SweepManifest(file, "base");
+		assertThat(manifest.getCompletedCount(), is(0));
+		manifest.markCompleted("magnetic-field=0.1");
+		manifest.markCompleted("magnetic-field=0.2");
+		manifest.markCompleted("magnetic-field=0.1");
+
+		SweepManifest resumed = new SweepManifest(file, "base");
+		assertThat(resumed.getCompletedCount(), is(2));
+		assertThat(resumed.isCompleted("magnetic-field=0.1"), is(true));
+		assertThat(resumed.isCompleted("magnetic-field=0.2"), is(true));
+		assertThat(resumed.isCompleted("magnetic-field=0.3"), is(false));
+	}
+
+	/**
+	 * 掃引しないパラメータを変更した場合は、記録済みの掃引点を破棄して新たに記録することを確認するテストです。</br>
+	 * 掃引軸の項目の値は掃引しないパラメータの指紋に影響しない
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void test_markCompleted_N002() throws Exception {
+		File file = new File(temporaryFolder.getRoot(), "output/sweep-manifest.txt");
+		ParameterSweep sweep = new ParameterSweep(Lists.newArrayList(ParameterSweep.Axis.parse("magnetic-field", "0.1,0.2")));
+		ParamInfo paramInfo = new ParamInfo();
+		paramInfo.setInterparticleInteraction(-3.0);
+		String fingerprint = sweep.getBaseFingerprint(paramInfo);
+
+		ParamInfo swept = paramInfo.copy();
+		swept.setMagneticField(0.5);
+		assertThat(sweep.getBaseFingerprint(swept), is(fingerprint));
+
+		SweepManifest manifest = new SweepManifest(file, fingerprint);
+		manifest.markCompleted("magnetic-field=0.1");
+		assertThat(new SweepManifest(file, sweep.getBaseFingerprint(swept)).isCompleted("magnetic-field=0.1"), is(true));
+
+		ParamInfo changed = paramInfo.copy();
+		changed.setInterparticleInteraction(-2.0);
+		String changedFingerprint = sweep.getBaseFingerprint(changed);
+		assertThat(changedFingerprint.equals(fingerprint), is(false));
+		SweepManifest fresh = new SweepManifest(file, changedFingerprint);
+		assertThat(fresh.getCompletedCount(), is(0));
+		fresh.markCompleted("magnetic-field=0.2");
+
+		SweepManifest resumed = new SweepManifest(file, changedFingerprint);
+		assertThat(resumed.isCompleted("magnetic-field=0.1"), is(false));
+		assertThat(resumed.isCompleted("magnetic-field=0.2"), is(true));
+	}
+}
@@ -0,0 +1,154 @@
+package org.physics.bdg;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import no.uib.cipr.matrix.DenseVector;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.physics.bdg.BdGHamiltonian.Observables;
+
+import com.google.common.collect.Lists;
+
+public class ScfCheckpointTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * 書き出したチェックポイントを読み込むと全項目が一致し、一時ファイルが残らないことを確認するテストです。</br>
+	 * 既存のチェックポイントは置き換える
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void test_write_N001() throws Exception {
+
+		Path path = temporaryFolder.getRoot().toPath().resolve("output/Result_T=0.1_up.chk");
+		assertThat(ScfCheckpoint.read(path), is(nullValue()));
+
+		new ScfCheckpoint("a", 1.0, "", 3, false, makeObservables(1.0), Mixer.LINEAR, Lists.<double[]> newArrayList()).write(path);
+		List<double[]> state = Lists.newArrayList(new double[] { 0.5, Double.POSITIVE_INFINITY }, new double[0], new double[] { -1.0e-300 });
+		new ScfCheckpoint("b", 0.1, "up", 17, true, makeObservables(0.1), Mixer.BROYDEN, state).write(path);
+
+		ScfCheckpoint checkpoint = ScfCheckpoint.read(path);
+		assertThat(checkpoint.getParameterFingerprint(), is("b"));
+		assertEquals(0.1, checkpoint.getTemperature(), 0.0);
+		assertThat(checkpoint.getSweepLabel(), is("up"));
+		assertThat(checkpoint.getIteration(), is(17));
+		assertThat(checkpoint.isCompleted(), is(true));
+		assertThat(checkpoint.getMixerName(), is(Mixer.BROYDEN));
+		Observables expected = makeObservables(0.1);
+		for (int i = 0; i < expected.getPairPotentialEnergy().size(); i++) {
+			assertEquals(expected.getPairPotentialEnergy().get(i), checkpoint.getObservables().getPairPotentialEnergy().get(i), 0.0);
+			assertEquals(expected.getUpParticleNumber().get(i), checkpoint.getObservables().getUpParticleNumber().get(i), 0.0);
+			assertEquals(expected.getDownParticleNumber().get(i), checkpoint.getObservables().getDownParticleNumber().get(i), 0.0);
+		}
+		assertThat(checkpoint.getMixerState().size(), is(3));
+		for (int k = 0; k < state.size(); k++) {
+			assertThat(checkpoint.getMixerState().get(k), is(state.get(k)));
+		}
+		assertThat(temporaryFolder.getRoot().toPath().resolve("output").toFile().list().length, is(1));
+	}
+
+	/**
+	 * 破損したチェックポイントを読み込んだ場合に例外となることを確認するテストです。
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = IOException.class)
+	public void test_read_N001() throws Exception {
+
+		Path path = temporaryFolder.getRoot().toPath().resolve("T=1.0.chk");
+		new ScfCheckpoint("a", 1.0, "", 3, false, makeObservables(1.0), Mixer.PULAY, Lists.<double[]> newArrayList(new double[] { 1.0, 2.0 })).write(path);
+		byte[] bytes = Files.readAllBytes(path);
+		bytes[bytes.length / 2] ^= 1;
+		Files.write(path, bytes);
+
+		ScfCheckpoint.read(path);
+	}
+
+	/**
+	 * 再開に用いるチェックポイントの読み込みで、途中で切れたファイル、破損したファイル、形式の版が異なるファイル、
+	 * パラメータの指紋が一致しないファイルは例外とならずに null となり、一致するファイルのみ読み込まれることを確認するテストです。
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void test_readForRestart_N001() throws Exception {
+
+		Path path = temporaryFolder.getRoot().toPath().resolve("T=1.0.chk");
+		new ScfCheckpoint("a", 1.0, "", 3, false, makeObservables(1.0), Mixer.PULAY, Lists.<double[]> newArrayList(new double[] { 1.0, 2.0 })).write(path);
+		assertThat(ScfCheckpoint.readForRestart(path, "a", 1.0, "", 8).getIteration(), is(3));
+		assertThat(ScfCheckpoint.readForRestart(path, "b", 1.0, "", 8), is(nullValue()));
+		assertThat(ScfCheckpoint.readForRestart(path, "a", 1.0, "", 10), is(nullValue()));
+		byte[] bytes = Files.readAllBytes(path);
+
+		Files.write(path, Arrays.copyOf(bytes, bytes.length / 2));
+		assertThat(ScfCheckpoint.readForRestart(path, "a", 1.0, "", 8), is(nullValue()));
+
+		byte[] corrupted = bytes.clone();
+		corrupted[corrupted.length / 2] ^= 1;
+		Files.write(path, corrupted);
+		assertThat(ScfCheckpoint.readForRestart(path, "a", 1.0, "", 8), is(nullValue()));
+
+		byte[] oldVersion = bytes.clone();
+		ByteBuffer.wrap(oldVersion).putInt(4, 1);
+		Files.write(path, oldVersion);
+		assertThat(ScfCheckpoint.readForRestart(path, "a", 1.0, "", 8), is(nullValue()));
+
+		assertThat(ScfCheckpoint.readForRestart(temporaryFolder.getRoot().toPath().resolve("T=2.0.chk"), "a", 2.0, "", 8), is(nullValue()));
+	}
+
+	/**
+	 * パラメータの指紋は計算結果に影響する項目を変更すると変わり、スレッド数やチェックポイントの設定では変わらないことを確認するテストです。
+	 */
+	@Test
+	public void test_getFingerprint_N001() {
+
+		ParamInfo paramInfo = new ParamInfo();
+		paramInfo.setInterparticleInteraction(-3.0);
+		String fingerprint = paramInfo.getFingerprint();
+
+		ParamInfo runtime = paramInfo.copy();
+		runtime.setThreadNumber(8);
+		runtime.setCheckpointInterval(10);
+		runtime.setCheckpointRestart(true);
+		assertThat(runtime.getFingerprint(), is(fingerprint));
+
+		ParamInfo interaction = paramInfo.copy();
+		interaction.setInterparticleInteraction(-2.0);
+		assertThat(interaction.getFingerprint().equals(fingerprint), is(false));
+		ParamInfo mixer = paramInfo.copy();
+		mixer.setMixerType(Mixer.PULAY);
+		assertThat(mixer.getFingerprint().equals(fingerprint), is(false));
+		ParamInfo potential = paramInfo.copy();
+		potential.setExternalPotentialCoefficient(0.1);
+		assertThat(potential.getFingerprint().equals(fingerprint), is(false));
+	}
+
+	/**
+	 * 成分 i が scale * (i + 1 + k) (k = 0: 超流動パラメータ, 1: アップスピン, 2: ダウンスピン) のベクトルを作成する
+	 */
+	private static Observables makeObservables(double scale) {
+		DenseVector[] vectors = new DenseVector[3];
+		for (int k = 0; k < 3; k++) {
+			vectors[k] = new DenseVector(8);
+			for (int i = 0; i < 8; i++) {
+				vectors[k].set(i, scale * (i + 1 + k));
+			}
+		}
+		return new Observables(vectors[0], vectors[1], vectors[2]);
+	}
+}
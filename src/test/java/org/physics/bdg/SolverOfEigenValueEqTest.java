@@ -1,13 +1,21 @@
 package org.physics.bdg;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 import no.uib.cipr.matrix.DenseMatrix;
+import no.uib.cipr.matrix.DenseVector;
 import no.uib.cipr.matrix.Matrix;
 import no.uib.cipr.matrix.Vector;
 
 import org.junit.Test;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 
 public class SolverOfEigenValueEqTest {
@@ -65,6 +73,213 @@ public class SolverOfEigenValueEqTest {
 //		}
 	}
 	
+	/**
+	 * 超流動パラメータが0のBdGハミルトニアンをスピン分離して解いた結果が、全体を解いた結果と一致することを確認するテストです。
+	 */
+	@Test
+	public void test_solveEigenValueEq_N002() {
+
+		final int latticeSize = 3;
+		final int siteNum = latticeSize * latticeSize;
+		final int matrixSize = 2 * siteNum;
+
+		Matrix matrix = new DenseMatrix(matrixSize, matrixSize);
+		for (int i = 0; i < siteNum; i++) {
+			int row = i / latticeSize;
+			int col = i % latticeSize;
+			int[] neighbors = { ((row + 1) % latticeSize) * latticeSize + col, row * latticeSize + (col + 1) % latticeSize };
+			for (int j : neighbors) {
+				matrix.add(i, j, -1.0);
+				matrix.add(j, i, -1.0);
+				matrix.add(i + siteNum, j + siteNum, 1.0);
+				matrix.add(j + siteNum, i + siteNum, 1.0);
+			}
+			matrix.set(i, i, -1.5 + 0.1 * i);
+			matrix.set(i + siteNum, i + siteNum, 0.5 - 0.07 * i);
+		}
+
+		SolverOfEigenValueEq fullSolver = new SolverOfEigenValueEq();
+		assertThat(fullSolver.solveEigenValueEq(matrix), is(0));
+		List<Double> expectedEigenValue = Lists.newArrayList(fullSolver.getEigenValueAndEigenVectorMap().keys());
+
+		SolverOfEigenValueEq solver = new SolverOfEigenValueEq();
+		assertThat(solver.solveEigenValueEq(matrix, true), is(0));
+		Multimap<Double, Vector> mapEigen = solver.getEigenValueAndEigenVectorMap();
+		assertThat(mapEigen.size(), is(matrixSize));
+
+		// 固有値が昇順に一致すること
+		List<Double> eigenValue = Lists.newArrayList(mapEigen.keys());
+		for (int i = 0; i < matrixSize; i++) {
+			assertEquals(expectedEigenValue.get(i), eigenValue.get(i), DELTA);
+		}
+
+		// 固有ベクトルが H v = E v を満たし、正規化されていること
+		for (Map.Entry<Double, Vector> e : mapEigen.entries()) {
+			Vector eigenVector = e.getValue();
+			Vector product = matrix.mult(eigenVector, new DenseVector(matrixSize));
+			for (int i = 0; i < matrixSize; i++) {
+				assertEquals(e.getKey() * eigenVector.get(i), product.get(i), DELTA);
+			}
+			assertEquals(1.0, eigenVector.norm(Vector.Norm.Two), DELTA);
+		}
+	}
+
+	/**
+	 * 固有値ソルババックエンドを切り替えても同じ固有値が得られることを確認するテストです。
+	 */
+	@Test
+	public void test_solveEigenValueEq_N003() {
+
+		final int matrixSize = 12;
+		Matrix matrix = new DenseMatrix(matrixSize, matrixSize);
+		for (int i = 0; i < matrixSize; i++) {
+			matrix.set(i, i, 0.3 * i - 1.0);
+			matrix.set(i, (i + 1) % matrixSize, -1.0);
+			matrix.set((i + 1) % matrixSize, i, -1.0);
+		}
+
+		SolverOfEigenValueEq f2jSolver = new SolverOfEigenValueEq(null, EigenSolverBackend.create(EigenSolverBackend.F2J));
+		assertThat(f2jSolver.getBackend().isNative(), is(false));
+		assertThat(f2jSolver.solveEigenValueEq(matrix), is(0));
+		List<Double> expectedEigenValue = Lists.newArrayList(f2jSolver.getEigenValueAndEigenVectorMap().keys());
+
+		// ネイティブLAPACKがない環境ではf2jにフォールバックする
+		for (String type : new String[] { EigenSolverBackend.AUTO, EigenSolverBackend.NATIVE }) {
+			SolverOfEigenValueEq solver = new SolverOfEigenValueEq(null, EigenSolverBackend.create(type));
+			assertThat(solver.solveEigenValueEq(matrix), is(0));
+			List<Double> eigenValue = Lists.newArrayList(solver.getEigenValueAndEigenVectorMap().keys());
+			for (int i = 0; i < matrixSize; i++) {
+				assertEquals(expectedEigenValue.get(i), eigenValue.get(i), DELTA);
+			}
+		}
+	}
+
+	/**
+	 * 未知の固有値ソルババックエンド種別を指定した場合に例外となることを確認するテストです。
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void test_create_N001() {
+		EigenSolverBackend.create("unknown");
+	}
+
+	/**
+	 * エネルギー窓で打ち切って解いた固有値が、全体を解いた固有値の該当部分と一致することを確認するテストです。
+	 */
+	@Test
+	public void test_solveEigenValueEq_N004() {
+
+		final int siteNum = 8;
+		final int matrixSize = 2 * siteNum;
+
+		// pairPotential = 0.0 の場合はスピン分離して解く
+		for (double pairPotential : new double[] { 0.4, 0.0 }) {
+			Matrix matrix = new DenseMatrix(matrixSize, matrixSize);
+			for (int i = 0; i < siteNum; i++) {
+				int j = (i + 1) % siteNum;
+				matrix.add(i, j, -1.0);
+				matrix.add(j, i, -1.0);
+				matrix.add(i + siteNum, j + siteNum, 1.0);
+				matrix.add(j + siteNum, i + siteNum, 1.0);
+				matrix.set(i, i, -0.7 + 0.1 * i);
+				matrix.set(i + siteNum, i + siteNum, 0.2 - 0.05 * i);
+				matrix.set(i, i + siteNum, pairPotential);
+				matrix.set(i + siteNum, i, pairPotential);
+			}
+			boolean spinDecoupled = pairPotential == 0.0;
+
+			SolverOfEigenValueEq fullSolver = new SolverOfEigenValueEq();
+			assertThat(fullSolver.solveEigenValueEq(matrix), is(0));
+			List<Double> expectedEigenValue = Lists.newArrayList(fullSolver.getEigenValueAndEigenVectorMap().keys());
+			Collections.sort(expectedEigenValue);
+
+			EnergyWindow[] windows = {
+					new EnergyWindow(EnergyWindow.Mode.LOWEST, 0.05, 0),
+					new EnergyWindow(EnergyWindow.Mode.HIGHEST, 0.05, 0),
+					new EnergyWindow(EnergyWindow.Mode.LOWEST, 0.0, 5),
+					new EnergyWindow(EnergyWindow.Mode.HIGHEST, 0.0, 5) };
+			for (EnergyWindow window : windows) {
+
+				// 期待値 : 窓内の固有値
+				List<Double> windowEigenValue = Lists.newArrayList();
+				for (int i = 0; i < matrixSize; i++) {
+					double value = expectedEigenValue.get(i);
+					boolean inWindow;
+					if (window.isEigenNumberSpecified()) {
+						inWindow = (window.getMode() == EnergyWindow.Mode.LOWEST) ? i < 5 : i >= matrixSize - 5;
+					} else {
+						inWindow = (window.getMode() == EnergyWindow.Mode.LOWEST) ? value <= 0.05 : value > 0.05;
+					}
+					if (inWindow) {
+						windowEigenValue.add(value);
+					}
+				}
+
+				SolverOfEigenValueEq solver = new SolverOfEigenValueEq();
+				assertThat(solver.solveEigenValueEq(matrix, spinDecoupled, window), is(0));
+				Multimap<Double, Vector> mapEigen = solver.getEigenValueAndEigenVectorMap();
+				assertThat(mapEigen.size(), is(windowEigenValue.size()));
+
+				List<Double> eigenValue = Lists.newArrayList(mapEigen.keys());
+				Collections.sort(eigenValue);
+				for (int i = 0; i < eigenValue.size(); i++) {
+					assertEquals(windowEigenValue.get(i), eigenValue.get(i), DELTA);
+				}
+				for (Map.Entry<Double, Vector> e : mapEigen.entries()) {
+					Vector product = matrix.mult(e.getValue(), new DenseVector(matrixSize));
+					for (int i = 0; i < matrixSize; i++) {
+						assertEquals(e.getKey() * e.getValue().get(i), product.get(i), DELTA);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * 固有値方程式の解が作業領域の固有ベクトル行列をコピーせずに参照し、各列が昇順の固有値に対応する正規直交な固有ベクトルであることを確認するテストです。
+	 */
+	@Test
+	public void test_getEigenSystem_N001() {
+
+		final int matrixSize = 12;
+		Matrix matrix = new DenseMatrix(matrixSize, matrixSize);
+		for (int i = 0; i < matrixSize; i++) {
+			matrix.set(i, i, 0.3 * i - 1.0);
+			matrix.set(i, (i + 1) % matrixSize, -1.0);
+			matrix.set((i + 1) % matrixSize, i, -1.0);
+			matrix.set(i, (i + matrixSize / 2) % matrixSize, 0.2);
+		}
+
+		EigenValueWorkspace workspace = new EigenValueWorkspace(matrixSize);
+		SolverOfEigenValueEq solver = new SolverOfEigenValueEq(workspace);
+		assertThat(solver.solveEigenValueEq(matrix), is(0));
+
+		EigenSystem eigenSystem = solver.getEigenSystem();
+		assertThat(eigenSystem.getCount(), is(matrixSize));
+		assertThat(eigenSystem.getDimension(), is(matrixSize));
+		assertThat(eigenSystem.getVectors() == workspace.getWorkMatrix(), is(true));
+		assertThat(eigenSystem.getValues() == workspace.getEigenValue(), is(true));
+
+		for (int n = 0; n < matrixSize; n++) {
+			if (n > 0) {
+				assertThat(eigenSystem.getValue(n - 1) <= eigenSystem.getValue(n), is(true));
+			}
+			for (int i = 0; i < matrixSize; i++) {
+				double product = 0.0;
+				for (int j = 0; j < matrixSize; j++) {
+					product += matrix.get(i, j) * eigenSystem.getVector(n, j);
+				}
+				assertEquals(eigenSystem.getValue(n) * eigenSystem.getVector(n, i), product, DELTA);
+			}
+			for (int m = 0; m < matrixSize; m++) {
+				double inner = 0.0;
+				for (int i = 0; i < matrixSize; i++) {
+					inner += eigenSystem.getVector(n, i) * eigenSystem.getVector(m, i);
+				}
+				assertEquals((n == m) ? 1.0 : 0.0, inner, DELTA);
+			}
+		}
+	}
+
 	/**
 	 * 固有ベクトル一覧を作成するメソッドのテストです。
 	 * @throws InvocationTargetException 
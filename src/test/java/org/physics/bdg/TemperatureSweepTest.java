@@ -0,0 +1,53 @@
+package org.physics.bdg;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class TemperatureSweepTest {
+
+	static final List<Double> TEMPERATURE_LIST = Lists.newArrayList(0.1, 1.0, 0.001, 0.01);
+
+	/**
+	 * 片道の掃引で、温度が記述順、降順、昇順に並ぶことを確認するテストです。
+	 */
+	@Test
+	public void test_getPoints_N001() {
+		assertPoints(TemperatureSweep.Order.LISTED, new double[] { 0.1, 1.0, 0.001, 0.01 }, new String[] { "", "", "", "" });
+		assertPoints(TemperatureSweep.Order.DOWN, new double[] { 1.0, 0.1, 0.01, 0.001 }, new String[] { "", "", "", "" });
+		assertPoints(TemperatureSweep.Order.UP, new double[] { 0.001, 0.01, 0.1, 1.0 }, new String[] { "", "", "", "" });
+	}
+
+	/**
+	 * 往復の掃引で、折り返しの温度を除いて同じ温度を2回通り、往路と復路のラベルが付くことを確認するテストです。
+	 */
+	@Test
+	public void test_getPoints_N002() {
+		assertPoints(TemperatureSweep.Order.DOWN_UP, new double[] { 1.0, 0.1, 0.01, 0.001, 0.01, 0.1, 1.0 }, new String[] { "down", "down", "down", "down", "up", "up", "up" });
+		assertPoints(TemperatureSweep.Order.UP_DOWN, new double[] { 0.001, 0.01, 0.1, 1.0, 0.1, 0.01, 0.001 }, new String[] { "up", "up", "up", "up", "down", "down", "down" });
+	}
+
+	/**
+	 * パラメータ設定値から掃引の順序を取得できることを確認するテストです。
+	 */
+	@Test
+	public void test_of_N001() {
+		assertThat(TemperatureSweep.Order.of(null), is(TemperatureSweep.Order.LISTED));
+		assertThat(TemperatureSweep.Order.of("down"), is(TemperatureSweep.Order.DOWN));
+		assertThat(TemperatureSweep.Order.of(" Down-Up "), is(TemperatureSweep.Order.DOWN_UP));
+	}
+
+	private static void assertPoints(TemperatureSweep.Order order, double[] expectedTemperature, String[] expectedLabel) {
+		List<TemperatureSweep.Point> points = new TemperatureSweep(TEMPERATURE_LIST, order).getPoints();
+		assertThat(points.size(), is(expectedTemperature.length));
+		for (int i = 0; i < points.size(); i++) {
+			assertThat(points.get(i).getTemperature(), is(expectedTemperature[i]));
+			assertThat(points.get(i).getLabel(), is(expectedLabel[i]));
+		}
+	}
+}
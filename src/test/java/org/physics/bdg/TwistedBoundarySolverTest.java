@@ -0,0 +1,188 @@
+package org.physics.bdg;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Random;
+
+import no.uib.cipr.matrix.DenseVector;
+import no.uib.cipr.matrix.Vector;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.physics.bdg.BdGHamiltonian.Observables;
+
+public class TwistedBoundarySolverTest {
+
+	static final double TEMPERATURE = 0.3;
+
+	static final double HOPPING_ENERGY = 1.0;
+	static final double INTERACTION = -3.0;
+	static final double UP_CHEMICAL_POTENTIAL = -0.2;
+	static final double DOWN_CHEMICAL_POTENTIAL = -0.8;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/**
+	 * 外部ポテンシャルのない一様な入力で、Nt * Nt のねじれ角の平均が、波数の分割数を Nt * L とした波数空間ソルバの結果と一致することを確認するテストです。</br>
+	 * Nt = 3 では 0 以外のねじれ角はエルミート行列となり、θ と -θ の対を1回ずつ対角化する
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void test_calcObservables_N001() throws Exception {
+
+		int latticeSize = 4;
+		int kPoints = 3;
+		int siteNum = latticeSize * latticeSize;
+		TwistedBoundarySolver solver = makeSolver(latticeSize, new double[siteNum], kPoints);
+		assertThat(solver.getTwistCount(), is(5));
+
+		Observables actual = solver.calcObservables(makeVector(siteNum, 0.7), makeVector(siteNum, 0.6), makeVector(siteNum, 0.4), TEMPERATURE);
+
+		MomentumSpaceSolver momentumSolver = new MomentumSpaceSolver(HOPPING_ENERGY, INTERACTION, UP_CHEMICAL_POTENTIAL, DOWN_CHEMICAL_POTENTIAL, 1.0, kPoints * latticeSize);
+		double[] expected = momentumSolver.calcObservables(0.0, TEMPERATURE, 0.7, 0.6, 0.4);
+		for (int i = 0; i < siteNum; i++) {
+			assertEquals(expected[0], actual.getPairPotentialEnergy().get(i), 1.0e-10);
+			assertEquals(expected[1], actual.getUpParticleNumber().get(i), 1.0e-10);
+			assertEquals(expected[2], actual.getDownParticleNumber().get(i), 1.0e-10);
+		}
+	}
+
+	/**
+	 * ねじれ角の分割数が1の場合は、調和型外部ポテンシャルと一様でない入力に対して、BdGハミルトニアンの密行列の対角化と一致することを確認するテストです。
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void test_calcObservables_N002() throws Exception {
+
+		int latticeSize = 6;
+		BdGHamiltonian hamiltonian = makeBdGHamiltonian(latticeSize, 0.2);
+		int matrixSize = hamiltonian.getMatrixSize();
+		Random random = new Random(1L);
+		Vector pairPotentialEnergy = makeRandomVector(matrixSize, random);
+		Vector upParticleNumber = makeRandomVector(matrixSize, random);
+		Vector downParticleNumber = makeRandomVector(matrixSize, random);
+
+		hamiltonian.makeBdGHamiltonian(pairPotentialEnergy, upParticleNumber, downParticleNumber, TEMPERATURE);
+		SolverOfEigenValueEq solver = new SolverOfEigenValueEq();
+		assertThat(solver.solveEigenValueEq(hamiltonian.getBdGHamiltonian()), is(0));
+		Observables expected = hamiltonian.calcObservables(solver.getEigenSystem(), TEMPERATURE);
+
+		TwistedBoundarySolver twistSolver = hamiltonian.makeTwistedBoundarySolver(1, EigenSolverBackend.create(EigenSolverBackend.AUTO), new EigenValueWorkspacePool());
+		Observables actual = twistSolver.calcObservables(pairPotentialEnergy, upParticleNumber, downParticleNumber, TEMPERATURE);
+		for (int i = 0; i < latticeSize * latticeSize; i++) {
+			assertEquals(expected.getPairPotentialEnergy().get(i), actual.getPairPotentialEnergy().get(i), 1.0e-10);
+			assertEquals(expected.getUpParticleNumber().get(i), actual.getUpParticleNumber().get(i), 1.0e-10);
+			assertEquals(expected.getDownParticleNumber().get(i), actual.getDownParticleNumber().get(i), 1.0e-10);
+		}
+	}
+
+	/**
+	 * 一様でない外部ポテンシャルと入力をもつ L * L の超格子で、Nt * Nt のねじれ角の平均が、
+	 * 超格子を Nt * Nt 個並べた (Nt * L) * (Nt * L) の周期境界の格子の結果と一致することを確認するテストです。
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void test_calcObservables_N003() throws Exception {
+
+		int latticeSize = 4;
+		int kPoints = 4;
+		int siteNum = latticeSize * latticeSize;
+		Random random = new Random(2L);
+		double[] potential = new double[siteNum];
+		for (int i = 0; i < siteNum; i++) {
+			potential[i] = random.nextDouble();
+		}
+		Vector pairPotentialEnergy = makeRandomVector(2 * siteNum, random);
+		Vector upParticleNumber = makeRandomVector(2 * siteNum, random);
+		Vector downParticleNumber = makeRandomVector(2 * siteNum, random);
+
+		TwistedBoundarySolver solver = makeSolver(latticeSize, potential, kPoints);
+		Observables actual = solver.calcObservables(pairPotentialEnergy, upParticleNumber, downParticleNumber, TEMPERATURE);
+
+		// 超格子を並べた格子
+		int superLatticeSize = kPoints * latticeSize;
+		int superSiteNum = superLatticeSize * superLatticeSize;
+		double[] superPotential = new double[superSiteNum];
+		Vector superPairPotentialEnergy = new DenseVector(2 * superSiteNum);
+		Vector superUpParticleNumber = new DenseVector(2 * superSiteNum);
+		Vector superDownParticleNumber = new DenseVector(2 * superSiteNum);
+		for (int i = 0; i < superSiteNum; i++) {
+			int site = ((i / superLatticeSize) % latticeSize) * latticeSize + (i % superLatticeSize) % latticeSize;
+			superPotential[i] = potential[site];
+			superPairPotentialEnergy.set(i, pairPotentialEnergy.get(site));
+			superUpParticleNumber.set(i, upParticleNumber.get(site));
+			superDownParticleNumber.set(i, downParticleNumber.get(site));
+		}
+		Observables expected = makeSolver(superLatticeSize, superPotential, 1).calcObservables(superPairPotentialEnergy, superUpParticleNumber, superDownParticleNumber, TEMPERATURE);
+
+		for (int i = 0; i < superSiteNum; i++) {
+			int site = ((i / superLatticeSize) % latticeSize) * latticeSize + (i % superLatticeSize) % latticeSize;
+			assertEquals(expected.getPairPotentialEnergy().get(i), actual.getPairPotentialEnergy().get(site), 1.0e-10);
+			assertEquals(expected.getUpParticleNumber().get(i), actual.getUpParticleNumber().get(site), 1.0e-10);
+			assertEquals(expected.getDownParticleNumber().get(i), actual.getDownParticleNumber().get(site), 1.0e-10);
+		}
+	}
+
+	/**
+	 * ねじれ境界条件による波数平均ソルバを作成する
+	 */
+	private TwistedBoundarySolver makeSolver(int latticeSize, double[] potential, int kPoints) {
+		return new TwistedBoundarySolver(latticeSize, HOPPING_ENERGY, INTERACTION, UP_CHEMICAL_POTENTIAL, DOWN_CHEMICAL_POTENTIAL, 1.0, potential, kPoints, ComputePool.get(2),
+				EigenSolverBackend.create(EigenSolverBackend.AUTO), new EigenValueWorkspacePool());
+	}
+
+	/**
+	 * 先頭の格子点数分の成分が同じ値のベクトルを作成する
+	 */
+	private Vector makeVector(int siteNum, double value) {
+		Vector vector = new DenseVector(2 * siteNum);
+		for (int i = 0; i < siteNum; i++) {
+			vector.set(i, value);
+		}
+		return vector;
+	}
+
+	/**
+	 * 先頭の半分の成分が0以上1未満の乱数のベクトルを作成する
+	 */
+	private Vector makeRandomVector(int size, Random random) {
+		Vector vector = new DenseVector(size);
+		for (int i = 0; i < size / 2; i++) {
+			vector.set(i, random.nextDouble());
+		}
+		return vector;
+	}
+
+	/**
+	 * BdGハミルトニアンを作成する
+	 */
+	private BdGHamiltonian makeBdGHamiltonian(int latticeSize, double potentialCoefficient) throws Exception {
+
+		ParameterFile paramFile = mock(ParameterFile.class, RETURNS_DEEP_STUBS);
+		when(paramFile.getParamInfo().getLatticeSize()).thenReturn(latticeSize);
+		when(paramFile.getParamInfo().getHoppingEnergy()).thenReturn(HOPPING_ENERGY);
+		when(paramFile.getParamInfo().getExternalPotentialCoefficient()).thenReturn(potentialCoefficient);
+		when(paramFile.getParamInfo().getBoltzmannConst()).thenReturn(1.0);
+		when(paramFile.getParamInfo().getChmicalPotential()).thenReturn(0.5 * (UP_CHEMICAL_POTENTIAL + DOWN_CHEMICAL_POTENTIAL));
+		when(paramFile.getParamInfo().getMagneticField()).thenReturn(0.5 * (UP_CHEMICAL_POTENTIAL - DOWN_CHEMICAL_POTENTIAL));
+		when(paramFile.getParamInfo().getInterparticleInteraction()).thenReturn(INTERACTION);
+		when(paramFile.getParamInfo().getPairPotential()).thenReturn(1.0);
+		when(paramFile.getParamInfo().getUpSpinParticleNum()).thenReturn(1.0);
+		when(paramFile.getParamInfo().getDownSpinParticleNum()).thenReturn(1.0);
+		when(paramFile.getParamInfo().getUseSparseMatrix()).thenReturn(false);
+
+		PathInfo pathInfo = new PathInfo();
+		pathInfo.setStrPwd(temporaryFolder.getRoot().getPath());
+		return new BdGHamiltonian(paramFile, pathInfo);
+	}
+}